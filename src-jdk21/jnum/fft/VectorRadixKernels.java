@@ -0,0 +1,336 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Attila Kovacs <attila[AT]sigmyne.com>.
+ * All rights reserved.
+ *
+ * This file is part of jnum.
+ *
+ *     jnum is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     jnum is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with jnum.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Attila Kovacs <attila[AT]sigmyne.com> - initial API and implementation
+ ******************************************************************************/
+
+
+package jnum.fft;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD radix-4 kernels, based on the Vector API (<code>jdk.incubator.vector</code>), for the tabulated power-of-2 
+ * transforms of {@link DoubleFFT} and {@link FloatFFT}. Every vector holds consecutive complex values, as interleaved
+ * (re, im) pairs, and the butterflies process as many consecutive offsets in a block at once as fit in a vector (e.g. 
+ * 4 <code>double</code> or 8 <code>float</code> complex values with AVX-512). Complex multiplications swap the real 
+ * and imaginary components within lanes, so the data need not be reordered. The few butterflies that do not fill a 
+ * whole vector, at the edges of a range, are calculated the scalar way.
+ * <p>
+ * 
+ * This class requires Java 16 or later, and it is compiled by the <code>build-jdk21</code> target only. It is loaded 
+ * at runtime, if available, by {@link RadixKernels#getVectorKernels()}.
+ * 
+ * @author Attila Kovacs <attila@sigmyne.com>
+ *
+ */
+class VectorRadixKernels extends RadixKernels {
+    private static final VectorSpecies<Double> D = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> F = FloatVector.SPECIES_PREFERRED;
+
+    // (re, im) -> (im, re)
+    private static final VectorShuffle<Double> DSWAP = VectorShuffle.fromOp(D, i -> i ^ 1);
+    private static final VectorShuffle<Float> FSWAP = VectorShuffle.fromOp(F, i -> i ^ 1);
+
+    // (re, im) -> (re, re)
+    private static final VectorShuffle<Double> DREAL = VectorShuffle.fromOp(D, i -> i & ~1);
+    private static final VectorShuffle<Float> FREAL = VectorShuffle.fromOp(F, i -> i & ~1);
+
+    // (re, im) -> (im, im)
+    private static final VectorShuffle<Double> DIMAG = VectorShuffle.fromOp(D, i -> i | 1);
+    private static final VectorShuffle<Float> FIMAG = VectorShuffle.fromOp(F, i -> i | 1);
+
+    // (-1, 1) for multiplying by i after a swap
+    private static final DoubleVector DALT = DoubleVector.fromArray(D, alternating(D.length()), 0);
+    private static final FloatVector FALT = FloatVector.fromArray(F, alternatingFloat(F.length()), 0);
+
+
+    public VectorRadixKernels() {
+        // Fail early, e.g. if the Vector API module is not available...
+        if(D.length() < 2 || F.length() < 2) throw new UnsupportedOperationException("No SIMD vectors.");
+    }
+
+    // Vectors must hold at least 2 complex values to be useful, and a block (2^(b+1) elements) must fill them...
+    @Override
+    int getMinBlockBits(boolean isSinglePrecision) {
+        final int lanes = isSinglePrecision ? F.length() : D.length();
+        if(lanes < 4) return Integer.MAX_VALUE;
+        return Integer.numberOfTrailingZeros(lanes) - 1;
+    }
+
+    @Override
+    void radix4(final double[] data, int from, int to, final boolean isForward, final int blkbit, final double[] tw) {
+        // The double[] block size
+        final int blk = 1 << (blkbit+1);
+        final int skip = 3 * blk;
+        final int blkmask = blk - 1;
+        final int lanes = D.length();
+        final int vmask = lanes - 1;
+
+        // make from and to compactified indices for i1 (0...N/4)
+        from >>>= 1;
+        to >>>= 1;
+
+        // convert to sparse indices for i1...
+        from = ((from & ~blkmask) << 2) | (from & blkmask);
+        to = ((to & ~blkmask) << 2) | (to & blkmask);
+
+        // Backward transforms use the complex conjugate twiddle factors...
+        final DoubleVector alt = isForward ? DALT : DALT.neg();
+
+        for(int i0=from; i0<to; ) {
+            // Skip over the 2nd, 3rd, and 4th blocks...
+            if((i0 & skip) != 0) {
+                i0 += skip;
+                if(i0 >= to) break;
+            }
+
+            if((i0 & vmask) != 0 || i0 + lanes > to) {
+                butterfly(data, i0, blk, tw, i0 & blkmask, isForward);
+                i0 += 2;
+                continue;
+            }
+
+            final int k = i0 & blkmask;
+
+            final int i1 = i0 + blk;
+            final int i2 = i1 + blk;
+            final int i3 = i2 + blk;
+
+            final DoubleVector f0 = DoubleVector.fromArray(D, data, i0);
+            final DoubleVector f2 = multiply(DoubleVector.fromArray(D, data, i1), DoubleVector.fromArray(D, tw, k + blk), alt);
+            final DoubleVector f1 = multiply(DoubleVector.fromArray(D, data, i2), DoubleVector.fromArray(D, tw, k), alt);
+            final DoubleVector f3 = multiply(DoubleVector.fromArray(D, data, i3), DoubleVector.fromArray(D, tw, k + 2*blk), alt);
+
+            final DoubleVector a = f0.sub(f2);
+            final DoubleVector ib = f1.sub(f3).rearrange(DSWAP).mul(DALT);
+
+            if(isForward) {
+                a.sub(ib).intoArray(data, i3);
+                a.add(ib).intoArray(data, i1);
+            }
+            else {
+                a.add(ib).intoArray(data, i3);
+                a.sub(ib).intoArray(data, i1);
+            }
+
+            final DoubleVector c = f0.add(f2);
+            final DoubleVector d = f1.add(f3);
+
+            c.sub(d).intoArray(data, i2);
+            c.add(d).intoArray(data, i0);
+
+            i0 += lanes;
+        }
+    }
+
+    // Complex multiplication of interleaved (re, im) vectors, with alt = (-1, 1) for w, or (1, -1) for conj(w)
+    private static DoubleVector multiply(final DoubleVector x, final DoubleVector w, final DoubleVector alt) {
+        return x.rearrange(DSWAP).fma(w.rearrange(DIMAG).mul(alt), x.mul(w.rearrange(DREAL)));
+    }
+
+    // A single scalar butterfly, as in DoubleFFT
+    private static void butterfly(final double[] data, final int i0, final int blk, final double[] tw, final int k, final boolean isForward) {
+        final double sign = isForward ? 1.0 : -1.0;
+
+        final double w1r = tw[k], w1i = sign * tw[k + 1];
+        final double w2r = tw[k + blk], w2i = sign * tw[k + blk + 1];
+        final double w3r = tw[k + 2*blk], w3i = sign * tw[k + 2*blk + 1];
+
+        final int i1 = i0 + blk;
+        final int i2 = i1 + blk;
+        final int i3 = i2 + blk;
+
+        final double f0r = data[i0];
+        final double f0i = data[i0 | 1];
+
+        final double f2r = w2r * data[i1] - w2i * data[i1 | 1];
+        final double f2i = w2r * data[i1 | 1] + w2i * data[i1];
+
+        final double f1r = w1r * data[i2] - w1i * data[i2 | 1];
+        final double f1i = w1r * data[i2 | 1] + w1i * data[i2];
+
+        final double f3r = w3r * data[i3] - w3i * data[i3 | 1];
+        final double f3i = w3r * data[i3 | 1] + w3i * data[i3];
+
+        double ar = f0r - f2r, ai = f0i - f2i;
+        double br = f1r - f3r, bi = f1i - f3i;
+
+        if(isForward) {
+            data[i3] = ar + bi;
+            data[i3 | 1] = ai - br;
+            data[i1] = ar - bi;
+            data[i1 | 1] = ai + br;
+        }
+        else {
+            data[i3] = ar - bi;
+            data[i3 | 1] = ai + br;
+            data[i1] = ar + bi;
+            data[i1 | 1] = ai - br;
+        }
+
+        ar = f0r + f2r;
+        ai = f0i + f2i;
+        br = f1r + f3r;
+        bi = f1i + f3i;
+
+        data[i2] = ar - br;
+        data[i2 | 1] = ai - bi;
+        data[i0] = ar + br;
+        data[i0 | 1] = ai + bi;
+    }
+
+    @Override
+    void radix4(final float[] data, int from, int to, final boolean isForward, final int blkbit, final float[] tw) {
+        // The float[] block size
+        final int blk = 1 << (blkbit+1);
+        final int skip = 3 * blk;
+        final int blkmask = blk - 1;
+        final int lanes = F.length();
+        final int vmask = lanes - 1;
+
+        // make from and to compactified indices for i1 (0...N/4)
+        from >>>= 1;
+        to >>>= 1;
+
+        // convert to sparse indices for i1...
+        from = ((from & ~blkmask) << 2) | (from & blkmask);
+        to = ((to & ~blkmask) << 2) | (to & blkmask);
+
+        // Backward transforms use the complex conjugate twiddle factors...
+        final FloatVector alt = isForward ? FALT : FALT.neg();
+
+        for(int i0=from; i0<to; ) {
+            // Skip over the 2nd, 3rd, and 4th blocks...
+            if((i0 & skip) != 0) {
+                i0 += skip;
+                if(i0 >= to) break;
+            }
+
+            if((i0 & vmask) != 0 || i0 + lanes > to) {
+                butterfly(data, i0, blk, tw, i0 & blkmask, isForward);
+                i0 += 2;
+                continue;
+            }
+
+            final int k = i0 & blkmask;
+
+            final int i1 = i0 + blk;
+            final int i2 = i1 + blk;
+            final int i3 = i2 + blk;
+
+            final FloatVector f0 = FloatVector.fromArray(F, data, i0);
+            final FloatVector f2 = multiply(FloatVector.fromArray(F, data, i1), FloatVector.fromArray(F, tw, k + blk), alt);
+            final FloatVector f1 = multiply(FloatVector.fromArray(F, data, i2), FloatVector.fromArray(F, tw, k), alt);
+            final FloatVector f3 = multiply(FloatVector.fromArray(F, data, i3), FloatVector.fromArray(F, tw, k + 2*blk), alt);
+
+            final FloatVector a = f0.sub(f2);
+            final FloatVector ib = f1.sub(f3).rearrange(FSWAP).mul(FALT);
+
+            if(isForward) {
+                a.sub(ib).intoArray(data, i3);
+                a.add(ib).intoArray(data, i1);
+            }
+            else {
+                a.add(ib).intoArray(data, i3);
+                a.sub(ib).intoArray(data, i1);
+            }
+
+            final FloatVector c = f0.add(f2);
+            final FloatVector d = f1.add(f3);
+
+            c.sub(d).intoArray(data, i2);
+            c.add(d).intoArray(data, i0);
+
+            i0 += lanes;
+        }
+    }
+
+    // Complex multiplication of interleaved (re, im) vectors, with alt = (-1, 1) for w, or (1, -1) for conj(w)
+    private static FloatVector multiply(final FloatVector x, final FloatVector w, final FloatVector alt) {
+        return x.rearrange(FSWAP).fma(w.rearrange(FIMAG).mul(alt), x.mul(w.rearrange(FREAL)));
+    }
+
+    // A single scalar butterfly, as in FloatFFT
+    private static void butterfly(final float[] data, final int i0, final int blk, final float[] tw, final int k, final boolean isForward) {
+        final float sign = isForward ? 1.0F : -1.0F;
+
+        final float w1r = tw[k], w1i = sign * tw[k + 1];
+        final float w2r = tw[k + blk], w2i = sign * tw[k + blk + 1];
+        final float w3r = tw[k + 2*blk], w3i = sign * tw[k + 2*blk + 1];
+
+        final int i1 = i0 + blk;
+        final int i2 = i1 + blk;
+        final int i3 = i2 + blk;
+
+        final float f0r = data[i0];
+        final float f0i = data[i0 | 1];
+
+        final float f2r = w2r * data[i1] - w2i * data[i1 | 1];
+        final float f2i = w2r * data[i1 | 1] + w2i * data[i1];
+
+        final float f1r = w1r * data[i2] - w1i * data[i2 | 1];
+        final float f1i = w1r * data[i2 | 1] + w1i * data[i2];
+
+        final float f3r = w3r * data[i3] - w3i * data[i3 | 1];
+        final float f3i = w3r * data[i3 | 1] + w3i * data[i3];
+
+        float ar = f0r - f2r, ai = f0i - f2i;
+        float br = f1r - f3r, bi = f1i - f3i;
+
+        if(isForward) {
+            data[i3] = ar + bi;
+            data[i3 | 1] = ai - br;
+            data[i1] = ar - bi;
+            data[i1 | 1] = ai + br;
+        }
+        else {
+            data[i3] = ar - bi;
+            data[i3 | 1] = ai + br;
+            data[i1] = ar + bi;
+            data[i1 | 1] = ai - br;
+        }
+
+        ar = f0r + f2r;
+        ai = f0i + f2i;
+        br = f1r + f3r;
+        bi = f1i + f3i;
+
+        data[i2] = ar - br;
+        data[i2 | 1] = ai - bi;
+        data[i0] = ar + br;
+        data[i0 | 1] = ai + bi;
+    }
+
+    private static double[] alternating(int n) {
+        final double[] a = new double[n];
+        for(int i=n; --i >= 0; ) a[i] = (i & 1) == 0 ? -1.0 : 1.0;
+        return a;
+    }
+
+    private static float[] alternatingFloat(int n) {
+        final float[] a = new float[n];
+        for(int i=n; --i >= 0; ) a[i] = (i & 1) == 0 ? -1.0F : 1.0F;
+        return a;
+    }
+}
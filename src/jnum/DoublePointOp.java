@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Attila Kovacs <attila[AT]sigmyne.com>.
+ * All rights reserved. 
+ * 
+ * This file is part of jnum.
+ * 
+ *     jnum is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ * 
+ *     jnum is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ * 
+ *     You should have received a copy of the GNU General Public License
+ *     along with jnum.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Attila Kovacs <attila[AT]sigmyne.com> - initial API and implementation
+ ******************************************************************************/
+
+package jnum;
+
+import jnum.data.WeightedPoint;
+
+/**
+ * A point operation that is specialized for primitive <code>double</code> values. It is the equivalent of a 
+ * <code>PointOp&lt;Number, ReturnType&gt;</code>, except that values are passed to the operation directly, without 
+ * boxing them into {@link Number} objects first. As such, it is the preferred choice for processing large floating
+ * point datasets, such as via {@link jnum.data.Data#loopValidDouble(DoublePointOp)}.
+ * <p>
+ * For parallel processing with similar features, see {@link jnum.parallel.DoubleParallelPointOp}
+ * 
+ * @author Attila Kovacs <attila@sigmyne.com>
+ *
+ * @param <ReturnType>  The generic return type of the operation.
+ * 
+ * @see PointOp
+ */
+public abstract class DoublePointOp<ReturnType> extends PointOp<Double, ReturnType> {
+    
+    @Override
+    protected DoublePointOp<ReturnType> clone() {
+        return (DoublePointOp<ReturnType>) super.clone();
+    }
+    
+    @Override
+    public DoublePointOp<ReturnType> newInstance() {
+        DoublePointOp<ReturnType> clone = clone();
+        clone.reset();
+        return clone;
+    }
+    
+    /**
+     * Applies the operation to a boxed value. It is provided for compatibility only, and it simply calls 
+     * {@link #process(double)} with the unboxed value.
+     * 
+     * @param point     the value upon which to act the operation.
+     */
+    @Override
+    public final void process(Double point) {
+        process(point.doubleValue());
+    }
+    
+    /**
+     * Applies the operation to the given primitive value.
+     * 
+     * @param value     the value upon which to act the operation.
+     */
+    public abstract void process(double value);
+    
+    
+    /**
+     * A simple abstract class of primitive point operations with no return type (i.e. return type of {@link Void}).
+     * 
+     * @author Attila Kovacs <attila@sigmyne.com>
+     */
+    public abstract static class Simple extends DoublePointOp<Void> {
+        @Override
+        protected void init() {}
+       
+        @Override
+        public final Void getResult() {
+            return null;
+        }
+    }
+    
+    /**
+     * A summation of some function of the primitive values the operation is called with.
+     * 
+     * @author Attila Kovacs <attila@sigmyne.com>
+     */
+    public abstract static class Sum extends DoublePointOp<Double> {
+        private double sum;
+        
+        @Override
+        protected void init() {
+            sum = Double.NaN;
+        }
+        
+        /**
+         * Returns the quantity to sum for the given value.
+         * 
+         * @param value     the value the operation is called with.
+         * @return          the quantity to add to the sum.
+         */
+        protected abstract double getValue(double value);
+        
+        @Override
+        public final void process(double value) {
+            if(Double.isNaN(sum)) sum = 0.0;
+            sum += getValue(value);
+        }
+        
+        @Override
+        public final Double getResult() {
+            return sum;
+        }
+    }
+    
+    /**
+     * A weighted average of some function of the primitive values the operation is called with.
+     * 
+     * @author Attila Kovacs <attila@sigmyne.com>
+     */
+    public abstract static class Average extends DoublePointOp<WeightedPoint> {
+        private double sum, sumw;
+        
+        @Override
+        protected void init() {
+            sum = sumw = 0.0;
+        }
+        
+        /**
+         * Returns the quantity to average for the given value.
+         * 
+         * @param value     the value the operation is called with.
+         * @return          the quantity to average.
+         */
+        protected abstract double getValue(double value);
+        
+        /**
+         * Returns the relative weight of the given value in the average. For arithmetic averages it should return 1.0.
+         * 
+         * @param value     the value the operation is called with.
+         * @return          the averaging weight for the value.
+         */
+        protected abstract double getWeight(double value);
+        
+        @Override
+        public final void process(double value) {
+            final double w = getWeight(value);
+            sum += w * getValue(value);
+            sumw += w;
+        }
+        
+        @Override
+        public final WeightedPoint getResult() {
+            return new WeightedPoint(sum / sumw, sumw);
+        }
+    }
+    
+}
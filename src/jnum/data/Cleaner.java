@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Attila Kovacs <attila[AT]sigmyne.com>.
+ * All rights reserved. 
+ * 
+ * This file is part of jnum.
+ * 
+ *     jnum is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ * 
+ *     jnum is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ * 
+ *     You should have received a copy of the GNU General Public License
+ *     along with jnum.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Attila Kovacs <attila[AT]sigmyne.com> - initial API and implementation
+ ******************************************************************************/
+
+
+package jnum.data;
+
+import java.util.ArrayList;
+
+import jnum.PointOp;
+import jnum.math.TrueVector;
+
+/**
+ * An incremental CLEAN engine for regularly sampled data. It keeps track of the maximum deviation in the data
+ * via a {@link TileMaxIndex}, so that after each component subtraction only the tiles touched by the 
+ * subtracted beam need to be scanned again, instead of the entire data.
+ * <p>
+ * 
+ * By default, components are subtracted with the full beam (H&ouml;gbom CLEAN). When a patch level is set 
+ * (see {@link #setPatchLevel(double)}), the minor cycles subtract only the part of the beam above that level
+ * (relative to the beam peak), until the residual peaks fall below the largest excluded beam value times the 
+ * peak at the start of the cycle. Each such minor cycle is then followed by a major cycle, which recalculates 
+ * the residuals exactly by subtracting all components found so far, convolved with the full beam via FFT
+ * (Clark CLEAN).
+ * 
+ * @author Attila Kovacs <attila@sigmyne.com>
+ *
+ * @param <IndexType>   the generic type of index used by the data.
+ * @param <VectorType>  the generic type of vector used for (fractional) locations in the data.
+ * 
+ * @see RegularData#clean(RegularData, TrueVector, double, double)
+ */
+public class Cleaner<IndexType extends Index<IndexType>, VectorType extends TrueVector<Double>> {
+    private RegularData<IndexType, VectorType> data, beam;
+    private VectorType beamCenterIndex;
+    private int dimension;
+    private int[] size;
+    
+    private int tileSize = TileMaxIndex.defaultTileSize;
+    private double patchLevel = defaultPatchLevel;
+    
+    private int[][] offsets, patchOffsets;
+    private double[] values, patchValues;
+    private int[] patchMin, patchMax;
+    private double excludedLevel;
+    
+    private TileMaxIndex<IndexType> peaks;
+    
+    private RegularData<IndexType, VectorType> original;
+    private FFTConvolver<IndexType, VectorType> convolver;
+    
+    private int components;
+    
+    
+    /**
+     * Constructs a new CLEAN engine.
+     * 
+     * @param data              the data to clean. It is modified in place, to contain the residuals after cleaning.
+     * @param beam              the beam, with which components are subtracted.
+     * @param beamCenterIndex   the (possibly fractional) index of the beam center.
+     */
+    public Cleaner(RegularData<IndexType, VectorType> data, RegularData<IndexType, VectorType> beam, VectorType beamCenterIndex) {
+        this.data = data;
+        this.beam = beam;
+        this.beamCenterIndex = beamCenterIndex;
+        
+        dimension = data.dimension();
+        size = new int[dimension];
+        for(int k=dimension; --k >= 0; ) size[k] = data.getSize().getValue(k);
+        
+        sampleBeam();
+        setPatchLevel(patchLevel);
+    }
+    
+    public final int getTileSize() { return tileSize; }
+    
+    /**
+     * Sets the size of the tiles (in every dimension), for which the peak deviations are tracked. Smaller tiles 
+     * mean fewer points to scan again after each component, but a larger number of candidates to maintain.
+     * 
+     * @param size  the new tile size in every dimension.
+     */
+    public void setTileSize(int size) {
+        if(size < 1) throw new IllegalArgumentException("Illegal tile size: " + size);
+        this.tileSize = size;
+    }
+    
+    public final double getPatchLevel() { return patchLevel; }
+    
+    /**
+     * Sets the beam level, relative to the beam peak, above which the beam patch is used in the minor cycles.
+     * A level of zero (or less) uses the full beam in a single H&ouml;gbom cycle. A positive level 
+     * enables Clark-style minor and major cycles.
+     * 
+     * @param level     the relative beam level for the minor cycle beam patch.
+     */
+    public void setPatchLevel(double level) {
+        this.patchLevel = level;
+        
+        double peak = 0.0;
+        for(double B : values) peak = Math.max(peak, Math.abs(B));
+        
+        final ArrayList<Integer> selected = new ArrayList<>(values.length);
+        excludedLevel = 0.0;
+        
+        for(int n=0; n < values.length; n++) {
+            final double B = Math.abs(values[n]);
+            if(level <= 0.0 || B >= level * peak) selected.add(n);
+            else if(B > excludedLevel) excludedLevel = B;
+        }
+        if(peak > 0.0) excludedLevel /= peak;
+        
+        patchOffsets = new int[selected.size()][];
+        patchValues = new double[selected.size()];
+        patchMin = new int[dimension];
+        patchMax = new int[dimension];
+        
+        for(int n=selected.size(); --n >= 0; ) {
+            final int k = selected.get(n);
+            patchOffsets[n] = offsets[k];
+            patchValues[n] = values[k];
+            for(int i=dimension; --i >= 0; ) {
+                patchMin[i] = Math.min(patchMin[i], offsets[k][i]);
+                patchMax[i] = Math.max(patchMax[i], offsets[k][i]);
+            }
+        }
+    }
+    
+    /**
+     * Returns the number of components cleaned in the last call to {@link #clean(double, double)}.
+     * 
+     * @return  the number of clean components.
+     */
+    public final int getComponents() { return components; }
+    
+    
+    private void sampleBeam() {
+        final IndexType beamSize = beam.getSize();
+        final int[] lo = new int[dimension];
+        for(int k=dimension; --k >= 0; ) lo[k] = (int) Math.ceil(-beamCenterIndex.getComponent(k));
+        
+        final ArrayList<int[]> o = new ArrayList<>();
+        final ArrayList<Double> v = new ArrayList<>();
+        
+        // Sample the beam at integer offsets from its center, with the components subtracted
+        // at i0 + m for offset m, as in RegularData.addPatchAt()...
+        beam.loop(new PointOp.Simple<IndexType>() {
+            private VectorType delta = data.getVectorInstance();
+            private SplineSet<VectorType> splines = new SplineSet<>(dimension);
+            
+            @Override
+            public void process(IndexType index) {
+                final int[] m = new int[dimension];
+                for(int k=dimension; --k >= 0; ) {
+                    m[k] = index.getValue(k) + lo[k];
+                    delta.setComponent(k, m[k] + beamCenterIndex.getComponent(k));
+                }
+                final double B = beam.valueAtIndex(delta, splines);
+                if(Double.isNaN(B) || B == 0.0) return;
+                o.add(m);
+                v.add(B);
+            }
+        }, beam.getIndexInstance(), beamSize);
+        
+        offsets = o.toArray(new int[o.size()][]);
+        values = new double[v.size()];
+        for(int n=values.length; --n >= 0; ) values[n] = v.get(n);
+    }
+    
+    
+    /**
+     * Cleans the data, modifying it in place to contain the residuals.
+     * 
+     * @param gain          the loop gain, i.e. the fraction of the peak deviation that is removed in each component.
+     * @param threshold     the absolute deviation, down to which the data are cleaned.
+     * @return              the clean components, scaled by the beam area.
+     */
+    public RegularData<IndexType, VectorType> clean(final double gain, final double threshold) {
+        final RegularData<IndexType, VectorType> model = data.newImage();
+        final boolean isClark = patchLevel > 0.0;
+        
+        if(isClark) {
+            original = data.newImage();
+            original.paste(data, false);
+        }
+        
+        final int maxComponents = (int) Math.ceil(data.countPoints() / gain);
+        components = 0;
+        
+        peaks = new TileMaxIndex<>(data, tileSize, true);
+        
+        final IndexType index = data.getIndexInstance();
+        final IndexType from = data.getIndexInstance();
+        final IndexType to = data.getIndexInstance();
+        
+        while(peaks.getMax() > threshold && components < maxComponents) {
+            final double cycleStart = peaks.getMax();
+            final double cycleLimit = isClark ? Math.max(threshold, excludedLevel * cycleStart) : threshold;
+            
+            // Minor cycle...
+            while(peaks.getMax() > cycleLimit && components < maxComponents) {
+                // The truncated beam patch is not positive definite, so some residual patterns may grow under it.
+                // Stop the minor cycle if the residuals grow, and let the major cycle correct them...
+                if(isClark && peaks.getMax() > cycleStart) break;
+                
+                final IndexType peakIndex = peaks.getMaxIndex();
+                final double componentValue = gain * data.get(peakIndex).doubleValue();
+                
+                subtract(peakIndex, componentValue, index);
+                model.add(peakIndex, componentValue);
+                components++;
+                
+                for(int k=dimension; --k >= 0; ) {
+                    from.setValue(k, peakIndex.getValue(k) + patchMin[k]);
+                    to.setValue(k, peakIndex.getValue(k) + patchMax[k] + 1);
+                }
+                peaks.update(from, to);
+            }
+            
+            if(!isClark) break;
+            
+            // Major cycle...
+            majorCycle(model);
+            peaks.update();
+        }
+        
+        // Scale cleaned components by the beam area...
+        model.scale(beam.getAbsSum());
+        
+        data.addHistory("cleaned away " + components + " components.");
+        model.addHistory("created with " + components + " clean components.");
+        
+        original = null;
+        peaks = null;
+        
+        return model;
+    }
+    
+    
+    private void subtract(IndexType peakIndex, double componentValue, IndexType index) {
+        for(int n=patchValues.length; --n >= 0; ) {
+            final int[] m = patchOffsets[n];
+            boolean isInside = true;
+            
+            for(int k=dimension; --k >= 0; ) {
+                final int i = peakIndex.getValue(k) + m[k];
+                if(i < 0 || i >= size[k]) { isInside = false; break; }
+                index.setValue(k, i);
+            }
+            
+            if(isInside) if(data.isValid(index)) data.add(index, -componentValue * patchValues[n]);
+        }
+    }
+    
+    
+    private void majorCycle(final RegularData<IndexType, VectorType> model) {
+        if(convolver == null) convolver = new FFTConvolver<>(data, beam, beamCenterIndex, true);
+        
+        final Object transformer = convolver.createTransformer();
+        final int last = dimension - 1;
+        
+        model.loop(new PointOp.Simple<IndexType>() {
+            @Override
+            public void process(IndexType index) {
+                final double value = model.get(index).doubleValue();
+                if(value != 0.0) convolver.getRow(transformer, index)[index.getValue(last)] = value;
+            }
+        });
+        
+        convolver.convolve(transformer, false);
+        
+        data.loop(new PointOp.Simple<IndexType>() {
+            @Override
+            public void process(IndexType index) {
+                if(!data.isValid(index)) return;
+                data.set(index, original.get(index).doubleValue() - convolver.getRow(transformer, index)[index.getValue(last)]);
+            }
+        });
+    }
+    
+    
+    /** The default beam level for the minor cycles. Zero (or less) means H&ouml;gbom CLEAN with the full beam. */
+    public static double defaultPatchLevel = 0.0;
+}
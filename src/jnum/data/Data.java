@@ -30,7 +30,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+import jnum.DoublePointOp;
 import jnum.ExtraMath;
 import jnum.PointOp;
 import jnum.Unit;
@@ -38,6 +40,8 @@ import jnum.Util;
 import jnum.Verbosity;
 import jnum.fits.FitsToolkit;
 import jnum.math.Range;
+import jnum.parallel.AdaptiveScheduler;
+import jnum.parallel.DoubleParallelPointOp;
 import jnum.parallel.ParallelObject;
 import jnum.parallel.ParallelPointOp;
 import jnum.parallel.ParallelTask;
@@ -77,6 +81,8 @@ implements Verbosity, IndexedValues<IndexType>, Iterable<Number>, TableFormatter
 
 
     private boolean logNewData;
+    
+    private transient volatile AtomicReferenceArray<AbstractFork<?>> pointOpForks;
 
 
     public Data() { 
@@ -141,6 +147,9 @@ implements Verbosity, IndexedValues<IndexType>, Iterable<Number>, TableFormatter
         }
 
         clone.logNewData = true;
+        
+        // The cached forks belong to this object...
+        clone.pointOpForks = null;
 
         return clone;
     }
@@ -298,6 +307,20 @@ implements Verbosity, IndexedValues<IndexType>, Iterable<Number>, TableFormatter
 
     public abstract <ReturnType> ReturnType loopValid(PointOp<Number, ReturnType> op, IndexType from, IndexType to);
 
+    /**
+     * Loops over all valid data points, passing their values as primitive <code>double</code>s to the 
+     * operation, i.e. without boxing them into {@link Number} objects first. 
+     * 
+     * @param <ReturnType>  the generic return type of the operation.
+     * @param op            the primitive point operation.
+     * @return              the result of the operation.
+     */
+    public final <ReturnType> ReturnType loopValidDouble(DoublePointOp<ReturnType> op) {
+        return loopValidDouble(op, getIndexInstance(), getSize());
+    }
+
+    public abstract <ReturnType> ReturnType loopValidDouble(DoublePointOp<ReturnType> op, IndexType from, IndexType to);
+
 
     public final <ReturnType> ReturnType fork(final ParallelPointOp<IndexType, ReturnType> op) {
         return fork(op, getIndexInstance(), getSize());
@@ -311,16 +334,24 @@ implements Verbosity, IndexedValues<IndexType>, Iterable<Number>, TableFormatter
 
     public abstract <ReturnType> ReturnType forkValid(final ParallelPointOp<Number, ReturnType> op, IndexType from, IndexType to);
 
+    public final <ReturnType> ReturnType forkValidDouble(final DoubleParallelPointOp<ReturnType> op) {
+        return forkValidDouble(op, getIndexInstance(), getSize());
+    }
+
+    public abstract <ReturnType> ReturnType forkValidDouble(final DoubleParallelPointOp<ReturnType> op, IndexType from, IndexType to);
+
     public final <ReturnType> ReturnType smartFork(final ParallelPointOp<IndexType, ReturnType> op) {
         return smartFork(op, getIndexInstance(), getSize());
     }
 
     public final <ReturnType> ReturnType smartFork(final ParallelPointOp<IndexType, ReturnType> op, IndexType from, IndexType to) {
-        if(getParallel() < 2) return loop(op, from, to);
-        IndexType span = getIndexInstance();
-        span.setDifference(to, from);
-        if(span.getVolume() * (2 + op.numberOfOperations()) < 2 * ParallelTask.minExecutorBlockSize) return loop(op, from, to);
-        return fork(op, from, to);
+        final long ops = countOps(op, from, to);
+        if(isWorthForking(op, ops)) return fork(op, from, to);
+        
+        final long start = System.nanoTime();
+        final ReturnType result = loop(op, from, to);
+        AdaptiveScheduler.record(op.getClass(), ops, System.nanoTime() - start);
+        return result;
     }
 
     public final <ReturnType> ReturnType smartForkValid(final ParallelPointOp<Number, ReturnType> op) {
@@ -328,13 +359,88 @@ implements Verbosity, IndexedValues<IndexType>, Iterable<Number>, TableFormatter
     }
 
     public final <ReturnType> ReturnType smartForkValid(final ParallelPointOp<Number, ReturnType> op, IndexType from, IndexType to) {
-        if(getParallel() < 2) return loopValid(op, from, to);
+        final long ops = countOps(op, from, to);
+        if(isWorthForking(op, ops)) return forkValid(op, from, to);  
+        
+        final long start = System.nanoTime();
+        final ReturnType result = loopValid(op, from, to);
+        AdaptiveScheduler.record(op.getClass(), ops, System.nanoTime() - start);
+        return result;
+    }
+    
+    public final <ReturnType> ReturnType smartForkValidDouble(final DoubleParallelPointOp<ReturnType> op) {
+        return smartForkValidDouble(op, getIndexInstance(), getSize());
+    }
+
+    public final <ReturnType> ReturnType smartForkValidDouble(final DoubleParallelPointOp<ReturnType> op, IndexType from, IndexType to) {
+        final long ops = countOps(op, from, to);
+        if(isWorthForking(op, ops)) return forkValidDouble(op, from, to);  
+
+        final long start = System.nanoTime();
+        final ReturnType result = loopValidDouble(op, from, to);
+        AdaptiveScheduler.record(op.getClass(), ops, System.nanoTime() - start);
+        return result;
+    }
+
+    private long countOps(PointOp<?, ?> op, IndexType from, IndexType to) {
         IndexType span = getIndexInstance();
         span.setDifference(to, from);
-        if(span.getVolume() * (2 + op.numberOfOperations()) < 2 * ParallelTask.minExecutorBlockSize) return loopValid(op, from, to);
-        return forkValid(op, from, to);  
+        return (long) span.getVolume() * (2 + op.numberOfOperations());
     }
+    
+    /**
+     * Checks whether an operation is worth processing in parallel, based on the measured execution times of prior
+     * calls of the same operation class if available, or else based on the estimated number of operations.
+     * 
+     * @param op       the point operation
+     * @param ops      the estimated total number of primitive operations.
+     * @return         <code>true</code> if the operation should be processed in parallel, otherwise <code>false</code>.
+     */
+    private boolean isWorthForking(PointOp<?, ?> op, long ops) {
+        if(getParallel() < 2) return false;
+        
+        final double t = AdaptiveScheduler.estimateNanos(op.getClass(), ops);
+        if(!Double.isNaN(t)) return t >= 2 * AdaptiveScheduler.minChunkNanos;
+        
+        return ops >= 2 * ParallelTask.minExecutorBlockSize;
+    }
+
 
+    /**
+     * Takes the fork that was last used for the given kind of point operation, if {@link #reusePointOpForks} is 
+     * enabled. The fork is removed from the cache until it is returned via {@link #releasePointOpFork(int, AbstractFork)},
+     * s.t. concurrent or nested calls never share it (they will create forks of their own instead).
+     * 
+     * @param <ForkType>   the generic type of the fork.
+     * @param kind         the kind of point operation, one of {@link #FORK_INDEX}, {@link #FORK_VALID}, or {@link #FORK_VALID_DOUBLE}.
+     * @return             the fork for reuse, or <code>null</code> if a new fork should be created.
+     */
+    @SuppressWarnings("unchecked")
+    protected final <ForkType extends AbstractFork<?>> ForkType takePointOpFork(int kind) {
+        if(!reusePointOpForks) return null;
+        
+        AtomicReferenceArray<AbstractFork<?>> cache = pointOpForks;
+        if(cache == null) synchronized(this) {
+            if(pointOpForks == null) pointOpForks = new AtomicReferenceArray<>(FORK_KINDS);
+            cache = pointOpForks;
+        }
+        
+        return (ForkType) cache.getAndSet(kind, null);
+    }
+    
+    /**
+     * Returns a fork to the cache after use, s.t. the next point operation of the same kind may reuse it.
+     * 
+     * @param kind     the kind of point operation, one of {@link #FORK_INDEX}, {@link #FORK_VALID}, or {@link #FORK_VALID_DOUBLE}.
+     * @param fork     the fork that was used.
+     * 
+     * @see #takePointOpFork(int)
+     */
+    protected final void releasePointOpFork(int kind, AbstractFork<?> fork) {
+        final AtomicReferenceArray<AbstractFork<?>> cache = pointOpForks;
+        if(cache != null && reusePointOpForks) cache.set(kind, fork);
+    }
+    
 
     /**
      * 
@@ -453,10 +559,23 @@ implements Verbosity, IndexedValues<IndexType>, Iterable<Number>, TableFormatter
     }
 
     public int countPoints() {
-        return smartForkValid(new ParallelPointOp.ElementCount<Number>()).intValue();
+        return smartForkValidDouble(new DoubleParallelPointOp.ElementCount()).intValue();
     }
 
     public Number getMin() {
+        if(getElementType() == Long.class) return getMinNumber();
+        final double min = smartForkValidDouble(new DoubleParallelPointOp.Min());
+        return min == Double.POSITIVE_INFINITY ? getHighestCompareValue() : min;
+    }
+
+    public Number getMax() {
+        if(getElementType() == Long.class) return getMaxNumber();
+        final double max = smartForkValidDouble(new DoubleParallelPointOp.Max());
+        return max == Double.NEGATIVE_INFINITY ? getLowestCompareValue() : max;
+    }
+
+    // Long values may not be represented exactly as doubles, so compare them as Numbers...
+    private Number getMinNumber() {
         return smartForkValid(new ParallelPointOp<Number, Number>() {
             Number min;
 
@@ -482,7 +601,7 @@ implements Verbosity, IndexedValues<IndexType>, Iterable<Number>, TableFormatter
         });
     }
 
-    public Number getMax() {
+    private Number getMaxNumber() {
         return smartForkValid(new ParallelPointOp<Number, Number>() {
             Number max;
 
@@ -509,29 +628,7 @@ implements Verbosity, IndexedValues<IndexType>, Iterable<Number>, TableFormatter
     }
 
     public Range getRange() {
-        return smartForkValid(new ParallelPointOp<Number, Range>() {
-            Range range;
-
-            @Override
-            protected void init() {
-                range = new Range();
-            }
-
-            @Override
-            public final void process(Number point) {
-                range.include(point.doubleValue());
-            }
-
-            @Override
-            public Range getResult() {
-                return range;
-            } 
-
-            @Override
-            public void mergeResult(Range localRange) {
-                range.include(localRange);
-            }  
-        });
+        return smartForkValidDouble(new DoubleParallelPointOp.RangeOp());
     }
 
 
@@ -671,14 +768,14 @@ implements Verbosity, IndexedValues<IndexType>, Iterable<Number>, TableFormatter
     }
 
     public WeightedPoint getMean() {
-        return smartForkValid(new ParallelPointOp.Average<Number>() {
+        return smartForkValidDouble(new DoubleParallelPointOp.Average() {
             @Override
-            public final double getValue(Number point) {
-                return point.doubleValue();
+            public final double getValue(double value) {
+                return value;
             }
 
             @Override
-            public final double getWeight(Number point) {
+            public final double getWeight(double value) {
                 return 1.0;
             }  
         });
@@ -726,7 +823,7 @@ implements Verbosity, IndexedValues<IndexType>, Iterable<Number>, TableFormatter
 
         if(sorter.length == 0) return sorter;
 
-        loopValid(new PointOp.Simple<Number>() {
+        loopValidDouble(new DoublePointOp.Simple() {
             private int k;
 
             @Override
@@ -735,8 +832,8 @@ implements Verbosity, IndexedValues<IndexType>, Iterable<Number>, TableFormatter
             }
 
             @Override
-            public void process(Number point) {
-                sorter[k++] = point.doubleValue();
+            public void process(double value) {
+                sorter[k++] = value;
             }   
         });
 
@@ -777,14 +874,14 @@ implements Verbosity, IndexedValues<IndexType>, Iterable<Number>, TableFormatter
     public double getRMS() { return Math.sqrt(getVariance()); }
 
     public double getVariance() {
-        return smartForkValid(new ParallelPointOp.Average<Number>() {
+        return smartForkValidDouble(new DoubleParallelPointOp.Average() {
             @Override
-            public final double getValue(Number point) {
-                return point.doubleValue() * point.doubleValue();
+            public final double getValue(double value) {
+                return value * value;
             }
 
             @Override
-            public final double getWeight(Number point) {
+            public final double getWeight(double value) {
                 return 1.0;
             }      
         }).value();     
@@ -803,30 +900,30 @@ implements Verbosity, IndexedValues<IndexType>, Iterable<Number>, TableFormatter
 
 
     public double getSum() {
-        return smartForkValid(new ParallelPointOp.Sum<Number>() {
+        return smartForkValidDouble(new DoubleParallelPointOp.Sum() {
             @Override
-            public final double getValue(Number point) {
-                return point.doubleValue();
+            public final double getValue(double value) {
+                return value;
             }
         });
     }
 
 
     public double getAbsSum() {
-        return smartForkValid(new ParallelPointOp.Sum<Number>() {
+        return smartForkValidDouble(new DoubleParallelPointOp.Sum() {
             @Override
-            public final double getValue(Number point) {
-                return point.doubleValue();
+            public final double getValue(double value) {
+                return Math.abs(value);
             }   
         });
     }
 
 
     public double getSquareSum() {  
-        return smartForkValid(new ParallelPointOp.Sum<Number>() {
+        return smartForkValidDouble(new DoubleParallelPointOp.Sum() {
             @Override
-            public final double getValue(Number point) {
-                return point.doubleValue() * point.doubleValue();
+            public final double getValue(double value) {
+                return value * value;
             }        
         });      
     }
@@ -914,30 +1011,34 @@ implements Verbosity, IndexedValues<IndexType>, Iterable<Number>, TableFormatter
 
         if(isEmpty()) return peaks;
 
+        // Keep track of the tile maxima, so only the tiles around each flagged peak need to be searched again... 
+        final TileMaxIndex<IndexType> maxIndex = new TileMaxIndex<>(this, false);
+        final IndexType from = getIndexInstance();
+        final IndexType to = getIndexInstance();
+        
         while(true) {
-            IndexType idx = indexOfMax();
+            IndexType idx = maxIndex.getMaxIndex();
+            if(idx == null) break;
+            
             double S = get(idx).doubleValue();
             if(S < threshold) break;
 
             peaks.add(new Peak(idx, S));
             flagRadius(idx, r);
-
+            
+            getRadiusBounds(idx, r, from, to);
+            maxIndex.update(from, to);
         }
 
         return peaks;
     }
 
 
-    @SuppressWarnings("cast")
     public void flagRadius(final IndexType centerIndex, double[] rPix) {
-        IndexType from = (IndexType) centerIndex.copy();
-        IndexType to = (IndexType) centerIndex.copy();
-
-        for(int i=centerIndex.dimension(); --i >= 0; ) {
-            int d =  (int) Math.ceil(rPix[rPix.length > i ? i : rPix.length - 1]);
-            from.setValue(i, from.getValue(i) - d);
-            to.setValue(i, to.getValue(i) + d + 1);
-        }
+        IndexType from = getIndexInstance();
+        IndexType to = getIndexInstance();
+        
+        getRadiusBounds(centerIndex, rPix, from, to);
 
         PointOp<IndexType, Void> flagger = new PointOp.Simple<IndexType>() {
             @Override
@@ -958,12 +1059,31 @@ implements Verbosity, IndexedValues<IndexType>, Iterable<Number>, TableFormatter
 
         loop(flagger, from, to);
     }
+    
+    private void getRadiusBounds(final IndexType centerIndex, double[] rPix, IndexType from, IndexType to) {
+        final IndexType size = getSize();
+        
+        for(int i=centerIndex.dimension(); --i >= 0; ) {
+            int d =  (int) Math.ceil(rPix[rPix.length > i ? i : rPix.length - 1]);
+            from.setValue(i, Math.max(0, centerIndex.getValue(i) - d));
+            to.setValue(i, Math.min(size.getValue(i), centerIndex.getValue(i) + d + 1));
+        }
+    }
 
 
 
 
     public abstract Object getCore();
 
+    /**
+     * Returns the data content as a nested primitive array, with one level of nesting per dimension, as
+     * expected e.g. by FITS I/O. It is the same as {@link #getCore()} unless the implementation stores
+     * its data in a flat array.
+     * 
+     * @return  the data as a nested primitive array.
+     */
+    public Object getNestedCore() { return getCore(); }
+
     public Fits createFits(Class<? extends Number> dataType) throws FitsException {
         FitsFactory.setLongStringsEnabled(standardLongFitsKeywords);
         FitsFactory.setUseHierarch(true);
@@ -1063,6 +1183,40 @@ implements Verbosity, IndexedValues<IndexType>, Iterable<Number>, TableFormatter
             this.from = from;
             this.to = to;
         }
+        
+        @Override
+        protected long getTotalOps() {
+            IndexType span = getIndexInstance();
+            span.setDifference(to, from);
+            return 3 + (long) span.getVolume() * getPointOps();
+        }
+        
+        /**
+         * Returns the approximate number of primitive operations for processing a single point.
+         * 
+         * @return     the number of primitive operations per point.
+         */
+        protected int getPointOps() {
+            return 10;
+        }  
+        
+        @Override
+        protected Object getCostKey() { 
+            // Every fork implementation (usually an anonymous class) is timed separately...
+            return getClass(); 
+        }
+    }
+
+
+    /**
+     * The operation and index range of a point-operation fork, which are shared by the fork and all its worker
+     * clones, s.t. reused workers always see the arguments of the current call.
+     *
+     * @param <OpType>     the generic type of the point operation.
+     */
+    public class ForkCall<OpType extends PointOp<?, ?>> {
+        public OpType op;
+        public IndexType from, to;
     }
 
 
@@ -1145,5 +1299,19 @@ implements Verbosity, IndexedValues<IndexType>, Iterable<Number>, TableFormatter
 
     
     public static boolean standardLongFitsKeywords = true;
+    
+    /**
+     * Whether the forks of parallel point operations (e.g. {@link #fork(ParallelPointOp)}) should be kept for reuse 
+     * by subsequent calls on the same data, together with their workers and the workers' local copies of the 
+     * operation. This avoids allocating new workers for every call, which adds up when processing small data 
+     * repeatedly. The local copies of an operation are merely reset between calls with the same operation object, 
+     * so operations should not change their configuration between such calls when enabled.
+     */
+    public static boolean reusePointOpForks = false;
+    
+    protected static final int FORK_INDEX = 0;
+    protected static final int FORK_VALID = 1;
+    protected static final int FORK_VALID_DOUBLE = 2;
+    private static final int FORK_KINDS = 3;
 
 }
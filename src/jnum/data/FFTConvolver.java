@@ -0,0 +1,332 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Attila Kovacs <attila[AT]sigmyne.com>.
+ * All rights reserved. 
+ * 
+ * This file is part of jnum.
+ * 
+ *     jnum is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ * 
+ *     jnum is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ * 
+ *     You should have received a copy of the GNU General Public License
+ *     along with jnum.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Attila Kovacs <attila[AT]sigmyne.com> - initial API and implementation
+ ******************************************************************************/
+
+
+package jnum.data;
+
+import jnum.ExtraMath;
+import jnum.PointOp;
+import jnum.fft.DoubleFFT;
+import jnum.fft.MixedRadixPlan;
+import jnum.fft.MultiFFT;
+import jnum.math.TrueVector;
+import jnum.parallel.ParallelPointOp;
+
+/**
+ * Weighted convolution (smoothing) of regularly sampled data with a beam via fast Fourier transforms. It produces
+ * the same result as {@link RegularData#getSmoothed(RegularData, TrueVector, IndexedValues, IndexedValues)}, 
+ * i.e. the beam-weighted mean <i>I'</i> = &Sigma;(<i>wBI</i>) / &Sigma;|<i>wB</i>| over the valid data, together 
+ * with the smoothed weights &Sigma;|<i>wB</i>|, but at a cost of O(<i>N</i> log <i>N</i>) instead of 
+ * O(<i>N</i>&middot;<i>B</i>) for <i>N</i> data points and a beam footprint of <i>B</i> points. The data are zero 
+ * padded to (at least) the sum of the data and beam sizes in every dimension, so that the convolution does not wrap 
+ * around the edges.
+ * <p>
+ * 
+ * The Fourier transforms of the beam are calculated once, at construction, and the same convolver may be used 
+ * to smooth any number of data sets of the same size with the same beam.
+ * 
+ * @author Attila Kovacs <attila@sigmyne.com>
+ *
+ * @param <IndexType>   the generic type of index used by the data.
+ * @param <VectorType>  the generic type of vector used for (fractional) locations in the data.
+ */
+public class FFTConvolver<IndexType extends Index<IndexType>, VectorType extends TrueVector<Double>> {
+    private RegularData<IndexType, VectorType> data;
+    private int[] size, padded;
+    private int dimension;
+    
+    private MultiFFT multiFFT;
+    private DoubleFFT fft;
+    
+    private Object kernelSpectrum, absKernelSpectrum;
+    private double norm;
+    
+    
+    public FFTConvolver(RegularData<IndexType, VectorType> data, RegularData<IndexType, VectorType> beam, VectorType refIndex) {
+        this(data, beam, refIndex, false);
+    }
+    
+    /**
+     * Constructs a new FFT convolver for the given data and beam.
+     * 
+     * @param data          the data to convolve.
+     * @param beam          the beam (kernel) to convolve with.
+     * @param refIndex      the reference (center) index of the beam.
+     * @param isMirrored    if <code>false</code>, convolution yields the beam-weighted sums around each point, as in 
+     *                      smoothing: sum<sub>m</sub> B(m + ref) I(x + m). If <code>true</code>, the beam is mirrored, such
+     *                      that the result is sum<sub>m</sub> B(m + ref) I(x - m), i.e. the sum of beam patches placed at
+     *                      each point, such as for restoring or subtracting CLEAN components.
+     */
+    public FFTConvolver(RegularData<IndexType, VectorType> data, RegularData<IndexType, VectorType> beam, VectorType refIndex, final boolean isMirrored) {
+        this.data = data;
+        dimension = data.dimension();
+        
+        size = new int[dimension];
+        padded = new int[dimension];
+        
+        final IndexType beamSize = beam.getSize();
+        final int[] lo = new int[dimension], hi = new int[dimension];
+        
+        // The same beam offsets as in the direct method: ceil(-ref) ... floor(-ref) + size - 1, which is one
+        // fewer than the beam size for fractional reference indices...
+        for(int k=dimension; --k >= 0; ) {
+            size[k] = data.getSize().getValue(k);
+            lo[k] = (int) Math.ceil(-refIndex.getComponent(k));
+            hi[k] = (int) Math.floor(-refIndex.getComponent(k)) + beamSize.getValue(k) - 1;
+            padded[k] = getPaddedSize(size[k], beamSize.getValue(k));
+        }
+        
+        norm = 2.0 / getPaddedVolume();
+        
+        if(dimension == 1) fft = new DoubleFFT.NyquistUnrolledReal(data);
+        else multiFFT = new MultiFFT(data);
+        
+        kernelSpectrum = createTransformer();
+        
+        // Unless the beam is to be mirrored, the kernel is laid out with negated (wrapped) offsets, such 
+        // that convolving with it yields the beam-weighted sum of the data around each point, as in the 
+        // direct smoothing method.
+        final Object kernel = kernelSpectrum;
+        final Object absKernel = createTransformer();
+        final int[] wrapped = new int[dimension];
+        final boolean[] isNegative = { false };
+        
+        beam.loop(new PointOp.Simple<IndexType>() {
+            private VectorType delta = data.getVectorInstance();
+            private SplineSet<VectorType> splines = new SplineSet<>(dimension);
+           
+            @Override
+            public void process(IndexType index) {
+                for(int k=dimension; --k >= 0; ) {
+                    final int m = index.getValue(k) + lo[k];
+                    if(m > hi[k]) return;
+                    delta.setComponent(k, m + refIndex.getComponent(k));
+                    wrapped[k] = isMirrored ? m : -m;
+                    if(wrapped[k] < 0) wrapped[k] += padded[k];
+                    if(wrapped[k] >= padded[k]) wrapped[k] -= padded[k];
+                }
+                final double B = beam.valueAtIndex(delta, splines);
+                if(Double.isNaN(B)) return;
+                
+                getRow(kernel, wrapped)[wrapped[dimension-1]] = B;
+                getRow(absKernel, wrapped)[wrapped[dimension-1]] = Math.abs(B);
+                if(B < 0.0) isNegative[0] = true;
+            }
+        }, beam.getIndexInstance(), beamSize);
+        
+        transform(kernelSpectrum, true);
+        
+        // The absolute beam is needed separately only if the beam has negative values...
+        if(isNegative[0]) {
+            absKernelSpectrum = absKernel;
+            transform(absKernelSpectrum, true);
+        }
+        else absKernelSpectrum = kernelSpectrum;
+    }
+    
+    public final int[] getPaddedSize() { return padded; }
+    
+    public final long getPaddedVolume() {
+        long volume = 1L;
+        for(int n : padded) volume *= n;
+        return volume;
+    }
+    
+    /**
+     * Returns a new zeroed array, with the padded size, which can be filled and transformed by this convolver. 
+     * It is a <code>double[]</code> for 1D data, or nested <code>Object[]</code> arrays with <code>double[]</code> 
+     * rows for higher dimensions. The rows have two extra elements at the end for the unrolled Nyquist component. 
+     * 
+     * @return  a new transformer array.
+     */
+    public Object createTransformer() {
+        return createTransformer(0);
+    }
+    
+    private Object createTransformer(int k) {
+        if(k == dimension - 1) return new double[padded[k] + 2];
+        final Object[] array = new Object[padded[k]];
+        for(int i=array.length; --i >= 0; ) array[i] = createTransformer(k+1);
+        return array;
+    }
+    
+    /**
+     * Returns the innermost row of a transformer array that contains the specified index. The element
+     * itself is at the last index component in the row.
+     * 
+     * @param transformer   the transformer array, as returned by {@link #createTransformer()}.
+     * @param index         the index components.
+     * @return              the row that contains the index.
+     */
+    public final double[] getRow(Object transformer, int[] index) {
+        for(int k=0; k < dimension-1; k++) transformer = ((Object[]) transformer)[index[k]];
+        return (double[]) transformer;
+    }
+    
+    public final double[] getRow(Object transformer, IndexType index) {
+        for(int k=0; k < dimension-1; k++) transformer = ((Object[]) transformer)[index.getValue(k)];
+        return (double[]) transformer;
+    }
+    
+    
+    public void transform(Object transformer, boolean isForward) {
+        if(dimension == 1) fft.realTransform((double[]) transformer, isForward);
+        else multiFFT.realTransform((Object[]) transformer, isForward);
+    }
+
+    /**
+     * Convolves the transformer in place with the beam.
+     * 
+     * @param transformer       the transformer array containing the (padded) data to convolve.
+     * @param isAbsoluteBeam    whether to convolve with the absolute value of the beam, rather than with the beam itself.
+     */
+    public void convolve(Object transformer, boolean isAbsoluteBeam) {
+        transform(transformer, true);
+        multiply(transformer, isAbsoluteBeam ? absKernelSpectrum : kernelSpectrum);
+        transform(transformer, false);
+    }
+    
+    private void multiply(Object spectrum, Object kernel) {
+        if(spectrum instanceof double[]) {
+            final double[] a = (double[]) spectrum;
+            final double[] b = (double[]) kernel;
+            for(int i=a.length; (i -= 2) >= 0; ) {
+                final double re = a[i] * b[i] - a[i+1] * b[i+1];
+                a[i+1] = norm * (a[i] * b[i+1] + a[i+1] * b[i]);
+                a[i] = norm * re;
+            }
+        }
+        else {
+            final Object[] a = (Object[]) spectrum;
+            final Object[] b = (Object[]) kernel;
+            for(int i=a.length; --i >= 0; ) multiply(a[i], b[i]);
+        }
+    }
+   
+    /**
+     * Returns the smoothed copy of the data.
+     * 
+     * @param weight            the weights of the data points, or <code>null</code> for uniform weights.
+     * @param smoothedWeights   the values to be set to the smoothed weights, or <code>null</code> if not needed.
+     * @return                  a new smoothed copy of the data.
+     * 
+     * @see RegularData#getSmoothed(RegularData, TrueVector, IndexedValues, IndexedValues)
+     */
+    public RegularData<IndexType, VectorType> getSmoothed(final IndexedValues<IndexType> weight, final IndexedValues<IndexType> smoothedWeights) {
+        return getSmoothed(weight, smoothedWeights, null, null);
+    }
+    
+    /**
+     * Returns the smoothed copy of the data, while also smoothing a companion plane of values (such as exposure 
+     * times) with the same weights and validity as the data. The companion shares the transforms of the weight sums,
+     * so it adds just one more convolution (i.e. 3 instead of 4 for smoothing the two planes separately).
+     * 
+     * @param weight                the weights of the data points, or <code>null</code> for uniform weights.
+     * @param smoothedWeights       the values to be set to the smoothed weights, or <code>null</code> if not needed.
+     * @param companion             the companion values to smooth alongside the data, or <code>null</code> if none.
+     * @param smoothedCompanion     the values to be set to the smoothed companion values at the valid data points, 
+     *                              or <code>null</code> if no companion is smoothed.
+     * @return                      a new smoothed copy of the data.
+     * 
+     * @see RegularData#getSmoothed(RegularData, TrueVector, IndexedValues, IndexedValues, IndexedValues, IndexedValues)
+     */
+    public RegularData<IndexType, VectorType> getSmoothed(final IndexedValues<IndexType> weight, final IndexedValues<IndexType> smoothedWeights,
+            final IndexedValues<IndexType> companion, final IndexedValues<IndexType> smoothedCompanion) {
+        final Object signal = createTransformer();
+        final Object sumw = createTransformer();
+        final Object other = companion == null ? null : createTransformer();
+        final int last = dimension - 1;
+        
+        data.smartFork(new ParallelPointOp.Simple<IndexType>() {
+            @Override
+            public void process(IndexType index) {
+                if(!data.isValid(index)) return;
+                final double w = (weight == null ? 1.0 : weight.get(index).doubleValue());
+                final int i = index.getValue(last);
+                getRow(signal, index)[i] = w * data.get(index).doubleValue();
+                getRow(sumw, index)[i] = Math.abs(w);
+                if(other != null) getRow(other, index)[i] = w * companion.get(index).doubleValue();
+            }
+        });
+        
+        convolve(signal, false);
+        convolve(sumw, true);
+        if(other != null) convolve(other, false);
+        
+        // Weight sums below the round-off of the transforms are treated as no coverage...
+        final double minWeight = 1e-12 * data.smartFork(new ParallelPointOp<IndexType, Double>() {
+            private double max;
+            @Override
+            protected void init() { max = 0.0; }
+            @Override
+            public void process(IndexType index) {
+                final double w = getRow(sumw, index)[index.getValue(last)];
+                if(w > max) max = w;
+            }
+            @Override
+            public void mergeResult(Double localMax) { if(localMax > max) max = localMax; }
+            @Override
+            public Double getResult() { return max; }
+        });
+        
+        final RegularData<IndexType, VectorType> convolved = data.newImage();
+        
+        data.smartFork(new ParallelPointOp.Simple<IndexType>() {
+            @Override
+            public void process(IndexType index) {
+                if(!data.isValid(index)) return;
+                final int i = index.getValue(last);
+                double w = getRow(sumw, index)[i];
+                if(w < minWeight) w = 0.0;
+                convolved.set(index, w > 0.0 ? getRow(signal, index)[i] / w : Double.NaN);
+                if(smoothedWeights != null) smoothedWeights.set(index, w);
+                if(other != null) smoothedCompanion.set(index, w > 0.0 ? getRow(other, index)[i] / w : Double.NaN);
+            }
+        });
+        
+        convolved.addHistory("smoothed copy (FFT)");
+        
+        return convolved;
+    }
+    
+    
+    /**
+     * Returns the approximate number of operations required for FFT smoothing of data of the given size with 
+     * a beam of the given size, in the same units as {@link RegularData#getPointSmoothOps(int, int)}.
+     * 
+     * @param size      the data size.
+     * @param beamSize  the beam size.
+     * @return          the estimated operation count.
+     */
+    public static <IndexType extends Index<IndexType>> double getOperations(IndexType size, IndexType beamSize) {
+        double volume = 1.0;
+        for(int k=size.dimension(); --k >= 0; ) volume *= getPaddedSize(size.getValue(k), beamSize.getValue(k));
+        // 4 transforms at ~5 ops per point per radix-2 stage, plus filling, product, and readout.
+        return volume * (20.0 * ExtraMath.log2(volume) + 30.0);
+    }
+
+    private static int getPaddedSize(int size, int beamSize) {
+        return Math.max(4, MixedRadixPlan.getFastRealSize(size + beamSize));
+    }
+    
+}
@@ -28,6 +28,8 @@ import java.io.Serializable;
 import jnum.Constant;
 import jnum.Copiable;
 import jnum.CopyCat;
+import jnum.data.samples.Gaussian1D;
+import jnum.data.samples.overlay.Referenced1D;
 import jnum.math.Division;
 import jnum.math.Multiplication;
 import jnum.math.Product;
@@ -86,6 +88,31 @@ Product<GaussianPSF<? extends V>, GaussianPSF<? extends V>>, Ratio<GaussianPSF<?
         return angles[i];
     }
     
+    /**
+     * Checks if the principal axes of this PSF are aligned with the coordinate axes, i.e. if all position angles are
+     * multiples of 90 degrees. Axis-aligned PSFs are separable into a product of 1D Gaussians along each coordinate. 
+     * 
+     * @return  <code>true</code> if the PSF is separable along the coordinate axes, otherwise <code>false</code>.
+     */
+    public boolean isAxisAligned() {
+        if(angles == null) return true;
+        for(double angle : angles) if(Math.abs(Math.sin(2.0 * angle)) > 1e-6) return false;
+        return true;
+    }
+    
+    /**
+     * Returns the 1D beam along one of the coordinate axes. For axis-aligned PSFs (see {@link #isAxisAligned()}),
+     * smoothing successively with the beams along each axis is equivalent to smoothing with the full PSF.
+     * 
+     * @param index         the coordinate axis index.
+     * @param pixelSize     the pixel size along the given axis.
+     * @param sigmas        the extent of the beam in units of the standard-deviation (sigma).
+     * @return              the 1D beam along the given axis.
+     */
+    public Referenced1D getAxisBeam(int index, double pixelSize, double sigmas) {
+        return Gaussian1D.getBeam(getFWHM(index), pixelSize, sigmas);
+    }
+    
     public abstract V getOffsetInstance();
     
     public abstract void convolveWith(GaussianPSF<? extends V> psf);
@@ -25,8 +25,8 @@ package jnum.data;
 
 import java.util.Hashtable;
 
-import jnum.ExtraMath;
 import jnum.Util;
+import jnum.fft.MixedRadixPlan;
 
 
 public class Histogram implements Cloneable {
@@ -159,7 +159,7 @@ public class Histogram implements Cloneable {
 	
 
 	public double[] toFFTArray() {
-		return toFFTArray(2 * ExtraMath.pow2ceil((int)Math.ceil(getMaxDev() / resolution)));
+		return toFFTArray(2 * MixedRadixPlan.getFastSize((int)Math.ceil(getMaxDev() / resolution)));
 		
 	}
 	
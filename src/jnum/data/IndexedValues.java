@@ -33,6 +33,8 @@ public interface IndexedValues<IndexType> extends Values {
     
     public Number get(IndexType index);
     
+    public double getDouble(IndexType index);
+    
     public void add(IndexType index, Number value);
     
     public void set(IndexType index, Number value);
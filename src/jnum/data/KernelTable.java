@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Attila Kovacs <attila[AT]sigmyne.com>.
+ * All rights reserved. 
+ * 
+ * This file is part of jnum.
+ * 
+ *     jnum is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ * 
+ *     jnum is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ * 
+ *     You should have received a copy of the GNU General Public License
+ *     along with jnum.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Attila Kovacs <attila[AT]sigmyne.com> - initial API and implementation
+ ******************************************************************************/
+
+
+package jnum.data;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import jnum.PointOp;
+import jnum.math.TrueVector;
+
+/**
+ * A lookup table of beam (kernel) values, sampled at fractional offsets on an oversampled grid. Smoothing 
+ * and resampling evaluate the beam at offsets from the data points, which share the same fractional part
+ * for every data point around a given location. Instead of interpolating the beam (e.g. via splines) for 
+ * each pair of output and data points, the table holds the beam values for all data points at each
+ * tabulated fractional offset, and the beam is obtained at arbitrary fractional offsets by linear interpolation 
+ * between the nearest tabulated offsets. 
+ * <p>
+ * 
+ * The precision is set by the oversampling, i.e. the number of tabulated fractional offsets per pixel in every
+ * dimension. The tables for the fractional offsets are calculated on demand, so only the offsets actually
+ * used take up memory.
+ * 
+ * @author Attila Kovacs <attila@sigmyne.com>
+ *
+ * @param <IndexType>   the generic type of index used by the beam.
+ * @param <VectorType>  the generic type of vector used for (fractional) locations in the beam.
+ * 
+ * @see RegularData#getSmoothedValueAtIndex(TrueVector, KernelTable.Lookup, IndexedValues, WeightedPoint)
+ */
+public class KernelTable<IndexType extends Index<IndexType>, VectorType extends TrueVector<Double>> {
+    private RegularData<IndexType, VectorType> beam;
+    private VectorType refIndex;
+    private int oversampling;
+    private int dimension;
+    private int[] size, stride;
+    
+    private AtomicReferenceArray<double[]> slices;
+    
+    
+    /**
+     * Constructs a new lookup table for the beam.
+     * 
+     * @param beam          the beam
+     * @param refIndex      the reference (center) index of the beam.
+     * @param oversampling  the number of tabulated fractional offsets per pixel in every dimension.
+     */
+    public KernelTable(RegularData<IndexType, VectorType> beam, VectorType refIndex, int oversampling) {
+        if(oversampling < 1) throw new IllegalArgumentException("Illegal kernel oversampling: " + oversampling);
+        
+        this.beam = beam;
+        this.refIndex = refIndex;
+        this.oversampling = oversampling;
+        
+        dimension = beam.dimension();
+        size = new int[dimension];
+        stride = new int[dimension];
+        
+        int n = 1;
+        for(int k=dimension; --k >= 0; ) {
+            size[k] = beam.getSize().getValue(k);
+            stride[k] = n;
+            n *= size[k];
+        }
+        
+        int count = 1;
+        for(int k=dimension; --k >= 0; ) count *= oversampling + 1;
+        slices = new AtomicReferenceArray<>(count);
+    }
+    
+    public final int getOversampling() { return oversampling; }
+    
+    public final RegularData<IndexType, VectorType> getBeam() { return beam; }
+    
+    public final VectorType getReferenceIndex() { return refIndex; }
+    
+    
+    private double[] getSlice(int index) {
+        double[] slice = slices.get(index);
+        if(slice == null) {
+            slice = createSlice(index);
+            if(!slices.compareAndSet(index, null, slice)) slice = slices.get(index);
+        }
+        return slice;
+    }
+    
+    private double[] createSlice(int index) {
+        final double[] f = new double[dimension];
+        for(int k=dimension; --k >= 0; index /= oversampling + 1) f[k] = (double) (index % (oversampling + 1)) / oversampling;
+        
+        final double[] slice = new double[stride.length == 0 ? 1 : stride[0] * size[0]];
+        
+        beam.loop(new PointOp.Simple<IndexType>() {
+            private VectorType delta = beam.getVectorInstance();
+            private SplineSet<VectorType> splines = new SplineSet<>(dimension);
+            
+            @Override
+            public void process(IndexType n) {
+                int flat = 0;
+                for(int k=dimension; --k >= 0; ) {
+                    delta.setComponent(k, n.getValue(k) + f[k]);
+                    flat += n.getValue(k) * stride[k];
+                }
+                final double value = beam.valueAtIndex(delta, splines);
+                if(!Double.isNaN(value)) slice[flat] = value;
+            }
+        });
+        
+        return slice;
+    }
+    
+    
+    /**
+     * A lookup of beam values around a given location. Lookups are not thread-safe, so each thread should use its own.
+     * 
+     * @author Attila Kovacs <attila@sigmyne.com>
+     *
+     */
+    public class Lookup {
+        private double[][] corners = new double[1 << dimension][];
+        private double[] weights = new double[1 << dimension];
+        private int nCorners;
+        private int[] from = new int[dimension], to = new int[dimension];
+        
+        
+        /**
+         * Sets the location in the data (as a fractional data index) around which to look up beam values.
+         * 
+         * @param index     the data index at which the beam reference index is placed.
+         */
+        public void setCenter(VectorType index) {
+            nCorners = 1;
+            weights[0] = 1.0;
+            
+            int slice = 0;
+            final int[] q = new int[dimension];
+            final double[] t = new double[dimension];
+            
+            for(int k=0; k < dimension; k++) {
+                final double i0 = index.getComponent(k) - refIndex.getComponent(k);
+                from[k] = (int) Math.ceil(i0);
+                to[k] = (int) Math.floor(i0) + size[k];
+                
+                final double x = (from[k] - i0) * oversampling;
+                q[k] = Math.min(oversampling - 1, (int) Math.floor(x));
+                t[k] = x - q[k];
+                slice = slice * (oversampling + 1) + q[k];
+            }
+            
+            // Bracket the fractional offset in every dimension, skipping the corners with zero weight...
+            final int[] cornerSlice = new int[1 << dimension];
+            cornerSlice[0] = slice;
+            
+            for(int k=dimension, span=1; --k >= 0; span *= oversampling + 1) {
+                if(t[k] == 0.0) continue;
+                
+                for(int c=nCorners; --c >= 0; ) {
+                    weights[nCorners + c] = weights[c] * t[k];
+                    cornerSlice[nCorners + c] = cornerSlice[c] + span;
+                    weights[c] *= 1.0 - t[k];
+                }
+                nCorners <<= 1;
+            }
+            
+            for(int c=nCorners; --c >= 0; ) corners[c] = getSlice(cornerSlice[c]);
+        }
+        
+        /**
+         * Returns the first data index (inclusive) in the given dimension, which is within the beam.
+         * 
+         * @param k     the dimension.
+         * @return      the first index covered by the beam in the given dimension. It may be outside the data bounds.
+         */
+        public final int from(int k) { return from[k]; }
+        
+        /**
+         * Returns the last data index (exclusive) in the given dimension, which is within the beam.
+         * 
+         * @param k     the dimension.
+         * @return      the last index (exclusive) covered by the beam in the given dimension. It may be outside the data bounds.
+         */
+        public final int to(int k) { return to[k]; }
+        
+        /**
+         * Returns the beam value at the specified data point, relative to the location set by {@link #setCenter(TrueVector)}.
+         * 
+         * @param index     the data index, which must be in the range covered by the beam.
+         * @return          the beam value at the data point.
+         */
+        public double valueAt(IndexType index) {
+            int flat = 0;
+            for(int k=dimension; --k >= 0; ) flat += (index.getValue(k) - from[k]) * stride[k];
+            
+            if(nCorners == 1) return corners[0][flat];
+            
+            double value = 0.0;
+            for(int c=nCorners; --c >= 0; ) value += weights[c] * corners[c][flat];
+            return value;
+        }
+    }
+}
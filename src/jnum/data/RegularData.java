@@ -161,7 +161,182 @@ public abstract class RegularData<IndexType extends Index<IndexType>, VectorType
     }
 
 
+    /**
+     * Same as {@link #getSmoothedValueAtIndex(TrueVector, RegularData, TrueVector, IndexedValues, SplineSet, WeightedPoint)}, 
+     * but with the beam values obtained from a precalculated lookup table, rather than by interpolating the beam
+     * for each data point.
+     * 
+     * @param index     the (fractional) data index at which to calculate the smoothed value
+     * @param kernel    the beam lookup (for the calling thread).
+     * @param weight    the weights of the data points, or <code>null</code> for uniform weights.
+     * @param result    the smoothed value and weight to set.
+     * 
+     * @see #getKernelTable(RegularData, TrueVector)
+     */
+    public void getSmoothedValueAtIndex(final VectorType index, final KernelTable<IndexType, VectorType>.Lookup kernel,
+            final IndexedValues<IndexType> weight, final WeightedPoint result) {
+        
+        kernel.setCenter(index);
+        
+        final IndexType size = getSize();
+        final IndexType from = getIndexInstance();
+        final IndexType to = getIndexInstance();
+
+        for(int i=from.dimension(); --i >= 0; ) {
+            from.setValue(i, Math.max(0, kernel.from(i)));
+            to.setValue(i, Math.min(size.getValue(i), kernel.to(i)));
+        }
+
+        PointOp.Simple<IndexType> op = new PointOp.Simple<IndexType>() {
+            @Override
+            public void process(IndexType i1) { 
+                if(!isValid(i1)) return;
+                final double w = (weight == null ? 1.0 : weight.get(i1).doubleValue());
+                final double wB = w * kernel.valueAt(i1);
+                result.add(wB * get(i1).doubleValue());
+                result.addWeight(Math.abs(wB));   
+            }
+        };
+
+        result.noData();
+        loop(op, from, to);
+
+        result.scaleValue(1.0 / result.weight()); 
+    }
+    
+    /**
+     * Same as {@link #getSmoothedValueAtIndex(TrueVector, RegularData, TrueVector, IndexedValues, SplineSet, WeightedPoint)}, 
+     * but it also smooths a companion plane of values, such as exposure times, in the same pass over the beam 
+     * footprint. The companion is smoothed with the same beam values and weights, and with the validity of this data.
+     * 
+     * @param index             the (fractional) data index at which to calculate the smoothed values
+     * @param beam              the beam
+     * @param refIndex          the reference (center) index of the beam.
+     * @param weight            the weights of the data points, or <code>null</code> for uniform weights.
+     * @param companion         the companion values to smooth alongside the data.
+     * @param splines           the splines to use for interpolating the beam (for the calling thread).
+     * @param result            the smoothed value and weight to set.
+     * @param companionResult   the smoothed companion value and weight to set.
+     */
+    public void getSmoothedValuesAtIndex(final VectorType index, final RegularData<IndexType, VectorType> beam, final VectorType refIndex, 
+            final IndexedValues<IndexType> weight, final IndexedValues<IndexType> companion, final SplineSet<VectorType> splines, 
+            final WeightedPoint result, final WeightedPoint companionResult) {   
+
+        final VectorType i0 = getVectorInstance();
+        i0.setDifference(index, refIndex);
+
+        final IndexType size = getSize();
+        final IndexType beamSize = beam.getSize();
+        final IndexType from = getIndexInstance();
+        final IndexType to = getIndexInstance();
+
+        for(int i=from.dimension(); --i >= 0; ) {
+            from.setValue(i, Math.max(0, (int) Math.ceil(i0.getComponent(i))));
+            to.setValue(i, Math.min(size.getValue(i), (int) Math.floor(i0.getComponent(i)) + beamSize.getValue(i)));
+        }
+
+        PointOp.Simple<IndexType> op = new PointOp.Simple<IndexType>() {
+            private VectorType delta = getVectorInstance();
+
+            @Override
+            public void process(IndexType i1) { 
+                if(!isValid(i1)) return;
+                final double w = (weight == null ? 1.0 : weight.get(i1).doubleValue());
+
+                for(int i=dimension(); --i >= 0; ) delta.setComponent(i, i1.getValue(i) - i0.getComponent(i));
+
+                final double wB = w * beam.valueAtIndex(delta, splines);
+                result.add(wB * get(i1).doubleValue());
+                result.addWeight(Math.abs(wB));
+                companionResult.add(wB * companion.get(i1).doubleValue());
+            }
+        };
+
+        result.noData();
+        companionResult.noData();
+        loop(op, from, to); // Not threadsafe unless splines is recreated for all threads...
+
+        result.scaleValue(1.0 / result.weight()); 
+        companionResult.scaleValue(1.0 / result.weight());
+        companionResult.setWeight(result.weight());
+    }
+    
+    /**
+     * Same as {@link #getSmoothedValuesAtIndex(TrueVector, RegularData, TrueVector, IndexedValues, IndexedValues, SplineSet, WeightedPoint, WeightedPoint)},
+     * but with the beam values obtained from a precalculated lookup table.
+     * 
+     * @param index             the (fractional) data index at which to calculate the smoothed values
+     * @param kernel            the beam lookup (for the calling thread).
+     * @param weight            the weights of the data points, or <code>null</code> for uniform weights.
+     * @param companion         the companion values to smooth alongside the data.
+     * @param result            the smoothed value and weight to set.
+     * @param companionResult   the smoothed companion value and weight to set.
+     */
+    public void getSmoothedValuesAtIndex(final VectorType index, final KernelTable<IndexType, VectorType>.Lookup kernel,
+            final IndexedValues<IndexType> weight, final IndexedValues<IndexType> companion, 
+            final WeightedPoint result, final WeightedPoint companionResult) {
+        
+        kernel.setCenter(index);
+        
+        final IndexType size = getSize();
+        final IndexType from = getIndexInstance();
+        final IndexType to = getIndexInstance();
+
+        for(int i=from.dimension(); --i >= 0; ) {
+            from.setValue(i, Math.max(0, kernel.from(i)));
+            to.setValue(i, Math.min(size.getValue(i), kernel.to(i)));
+        }
+
+        PointOp.Simple<IndexType> op = new PointOp.Simple<IndexType>() {
+            @Override
+            public void process(IndexType i1) { 
+                if(!isValid(i1)) return;
+                final double w = (weight == null ? 1.0 : weight.get(i1).doubleValue());
+                final double wB = w * kernel.valueAt(i1);
+                result.add(wB * get(i1).doubleValue());
+                result.addWeight(Math.abs(wB));
+                companionResult.add(wB * companion.get(i1).doubleValue());
+            }
+        };
+
+        result.noData();
+        companionResult.noData();
+        loop(op, from, to);
+
+        result.scaleValue(1.0 / result.weight()); 
+        companionResult.scaleValue(1.0 / result.weight());
+        companionResult.setWeight(result.weight());
+    }
+    
+    /**
+     * Returns a beam lookup table for smoothing or resampling, with the oversampling set by 
+     * {@link #kernelTableOversampling}.
+     * 
+     * @param beam      the beam
+     * @param refIndex  the reference (center) index of the beam.
+     * @return          the beam lookup table, or <code>null</code> if lookup tables are disabled.
+     */
+    protected KernelTable<IndexType, VectorType> getKernelTable(RegularData<IndexType, VectorType> beam, VectorType refIndex) {
+        if(kernelTableOversampling < 1) return null;
+        return new KernelTable<>(beam, refIndex, kernelTableOversampling);
+    }
+    
     public abstract int getPointSmoothOps(int beamPoints, int interpolationType);
+    
+    /**
+     * Checks whether smoothing with the given beam should be done by FFT convolution (see {@link FFTConvolver}),
+     * rather than by summing over the beam footprint around every point. FFT smoothing is used when the beam 
+     * has more than {@link #fftSmoothingCrossover} points, and it is also expected to be faster than the direct
+     * method.
+     * 
+     * @param beam          the smoothing beam.
+     * @param directOps     the estimated number of operations for smoothing directly.
+     * @return              <code>true</code> if smoothing should use FFTs, otherwise <code>false</code>.
+     */
+    protected boolean isFFTSmoothingPreferred(RegularData<IndexType, VectorType> beam, double directOps) {
+        if(beam.capacity() <= fftSmoothingCrossover) return false;
+        return FFTConvolver.getOperations(getSize(), beam.getSize()) < directOps;
+    }
 
     public final RegularData<IndexType, VectorType> getSmoothed(final Referenced<IndexType, VectorType> beam, 
             final IndexedValues<IndexType> weight, final IndexedValues<IndexType> smoothedWeights) {
@@ -170,24 +345,58 @@ public abstract class RegularData<IndexType extends Index<IndexType>, VectorType
 
     public final RegularData<IndexType, VectorType> getSmoothed(final RegularData<IndexType, VectorType> beam, final VectorType refIndex, 
             final IndexedValues<IndexType> weight, final IndexedValues<IndexType> smoothedWeights) {
+        return getSmoothed(beam, refIndex, weight, smoothedWeights, null, null);
+    }
+    
+    /**
+     * Returns a smoothed copy of this data, while also smoothing a companion plane of values (such as exposure times) 
+     * in the same pass, i.e. with the same beam values, weights, and validity as the data. It is equivalent to, 
+     * but about half as costly as, smoothing the data and a companion image, which shares the validity of the data,
+     * separately.
+     * 
+     * @param beam                  the beam
+     * @param refIndex              the reference (center) index of the beam.
+     * @param weight                the weights of the data points, or <code>null</code> for uniform weights.
+     * @param smoothedWeights       the values to be set to the smoothed weights, or <code>null</code> if not needed.
+     * @param companion             the companion values to smooth alongside the data, or <code>null</code> if none.
+     * @param smoothedCompanion     the values to be set to the smoothed companion values at the valid data points, 
+     *                              or <code>null</code> if no companion is smoothed.
+     * @return                      a new smoothed copy of this data.
+     */
+    public final RegularData<IndexType, VectorType> getSmoothed(final RegularData<IndexType, VectorType> beam, final VectorType refIndex, 
+            final IndexedValues<IndexType> weight, final IndexedValues<IndexType> smoothedWeights,
+            final IndexedValues<IndexType> companion, final IndexedValues<IndexType> smoothedCompanion) {
+        
+        if(isFFTSmoothingPreferred(beam, (double) capacity() * getPointSmoothOps(beam.capacity(), NEAREST))) 
+            return new FFTConvolver<>(this, beam, refIndex).getSmoothed(weight, smoothedWeights, companion, smoothedCompanion);
         
         final RegularData<IndexType, VectorType> convolved = newImage();
+        final KernelTable<IndexType, VectorType> table = getKernelTable(beam, refIndex);
 
         Interpolation op = new Interpolation() {
-            private WeightedPoint result;
+            private WeightedPoint result, companionResult;
             private VectorType v;
+            private KernelTable<IndexType, VectorType>.Lookup kernel;
 
             @Override
             protected void init() {
                 super.init();
                 result = new WeightedPoint();
+                if(companion != null) companionResult = new WeightedPoint();
                 v = getVectorInstance();
+                if(table != null) kernel = table.new Lookup();
             }
             @Override
             public void process(IndexType index) { 
                 if(!isValid(index)) return;
                 index.toVector(v);
-                getSmoothedValueAtIndex(v, beam, refIndex, weight, getSplines(), result);  
+                if(companion != null) {
+                    if(kernel != null) getSmoothedValuesAtIndex(v, kernel, weight, companion, result, companionResult);
+                    else getSmoothedValuesAtIndex(v, beam, refIndex, weight, companion, getSplines(), result, companionResult);
+                    smoothedCompanion.set(index, companionResult.value());
+                }
+                else if(kernel != null) getSmoothedValueAtIndex(v, kernel, weight, result);
+                else getSmoothedValueAtIndex(v, beam, refIndex, weight, getSplines(), result);  
                 convolved.set(index, result.value());
                 if(smoothedWeights != null) smoothedWeights.set(index, result.weight());
             }
@@ -212,7 +421,32 @@ public abstract class RegularData<IndexType extends Index<IndexType>, VectorType
 
     public RegularData<IndexType, VectorType> getFastSmoothed(final RegularData<IndexType, VectorType> beam, final VectorType refIndex,
             final IndexType step, final IndexedValues<IndexType> weight, final IndexedValues<IndexType> smoothedWeights) {
-        if(step.getVolume() == 1) return getSmoothed(beam, refIndex, weight, smoothedWeights);
+        return getFastSmoothed(beam, refIndex, step, weight, smoothedWeights, null, null);
+    }
+    
+    /**
+     * Same as {@link #getFastSmoothed(RegularData, TrueVector, Index, IndexedValues, IndexedValues)}, but it also smooths a 
+     * companion plane of values (such as exposure times) in the same passes, as in 
+     * {@link #getSmoothed(RegularData, TrueVector, IndexedValues, IndexedValues, IndexedValues, IndexedValues)}.
+     * 
+     * @param beam                  the beam
+     * @param refIndex              the reference (center) index of the beam.
+     * @param step                  the index steps at which the beam is evaluated before interpolating.
+     * @param weight                the weights of the data points, or <code>null</code> for uniform weights.
+     * @param smoothedWeights       the values to be set to the smoothed weights, or <code>null</code> if not needed.
+     * @param companion             the companion values to smooth alongside the data, or <code>null</code> if none.
+     * @param smoothedCompanion     the values to be set to the smoothed companion values at the valid data points, 
+     *                              or <code>null</code> if no companion is smoothed.
+     * @return                      a new smoothed copy of this data.
+     */
+    public RegularData<IndexType, VectorType> getFastSmoothed(final RegularData<IndexType, VectorType> beam, final VectorType refIndex,
+            final IndexType step, final IndexedValues<IndexType> weight, final IndexedValues<IndexType> smoothedWeights,
+            final IndexedValues<IndexType> companion, final IndexedValues<IndexType> smoothedCompanion) {
+        if(step.getVolume() == 1) return getSmoothed(beam, refIndex, weight, smoothedWeights, companion, smoothedCompanion);
+        
+        final double coarseOps = (double) capacity() / step.getVolume() * getPointSmoothOps(beam.capacity(), NEAREST);
+        if(isFFTSmoothingPreferred(beam, coarseOps + (double) capacity() * getInterpolationOps())) 
+            return new FFTConvolver<>(this, beam, refIndex).getSmoothed(weight, smoothedWeights, companion, smoothedCompanion);
 
         final IndexType n = getIndexInstance();
 
@@ -220,28 +454,43 @@ public abstract class RegularData<IndexType extends Index<IndexType>, VectorType
 
         final RegularData<IndexType, VectorType> coarseSignal = newImage(n, getElementType());
         final RegularData<IndexType, VectorType> coarseWeight = (smoothedWeights == null) ? null : newImage(n, weight.getElementType());
+        final RegularData<IndexType, VectorType> coarseCompanion = (companion == null) ? null : newImage(n, companion.getElementType());
 
+        final KernelTable<IndexType, VectorType> table = getKernelTable(beam, refIndex);
+        
         Interpolation op = new Interpolation() {
-            WeightedPoint result;
+            WeightedPoint result, companionResult;
             IndexType scaled;
             VectorType v;
+            KernelTable<IndexType, VectorType>.Lookup kernel;
 
             @Override
             public void init() {
                 super.init();
                 result = new WeightedPoint();
+                if(companion != null) companionResult = new WeightedPoint();
                 scaled = getIndexInstance();
                 v = getVectorInstance();
+                if(table != null) kernel = table.new Lookup();
             }
 
             @Override
             public void process(IndexType index) {
                 scaled.setProduct(index, step);
                 scaled.toVector(v);
-                getSmoothedValueAtIndex(v, beam, refIndex, weight, getSplines(), result);
+                if(companion != null) {
+                    if(kernel != null) getSmoothedValuesAtIndex(v, kernel, weight, companion, result, companionResult);
+                    else getSmoothedValuesAtIndex(v, beam, refIndex, weight, companion, getSplines(), result, companionResult);
+                    coarseCompanion.set(index, companionResult.value());
+                }
+                else if(kernel != null) getSmoothedValueAtIndex(v, kernel, weight, result);
+                else getSmoothedValueAtIndex(v, beam, refIndex, weight, getSplines(), result);
                 coarseSignal.set(index, result.value());
                 if(coarseWeight != null) coarseWeight.set(index, result.weight());
-                if(result.weight() <= 0.0) coarseSignal.discard(index);
+                if(result.weight() <= 0.0) {
+                    coarseSignal.discard(index);
+                    if(coarseCompanion != null) coarseCompanion.discard(index);
+                }
             }   
 
             @Override
@@ -266,15 +515,17 @@ public abstract class RegularData<IndexType extends Index<IndexType>, VectorType
                 if(!Double.isNaN(value)) {      
                     convolved.set(index, value);
                     if(smoothedWeights != null) smoothedWeights.set(index, coarseWeight.valueAtIndex(index, step, getSplines()));
+                    if(smoothedCompanion != null) smoothedCompanion.set(index, coarseCompanion.valueAtIndex(index, step, getSplines()));
                 }
                 else {
                     convolved.discard(index);
                     if(smoothedWeights != null) smoothedWeights.set(index, 0);
+                    if(smoothedCompanion != null) smoothedCompanion.set(index, Double.NaN);
                 } 
             }
             @Override
             public int numberOfOperations() {
-                return 9 + (smoothedWeights == null ? 1 : 2) * getInterpolationOps();
+                return 9 + (1 + (smoothedWeights == null ? 0 : 1) + (smoothedCompanion == null ? 0 : 1)) * getInterpolationOps();
             }
         };
 
@@ -297,15 +548,19 @@ public abstract class RegularData<IndexType extends Index<IndexType>, VectorType
     public synchronized void resampleFrom(final RegularData<IndexType, VectorType> image, final Transforming<VectorType> toSourceIndex, 
             final RegularData<IndexType, VectorType> beam, final VectorType refIndex, final IndexedValues<IndexType> weight) {
            
+        final KernelTable<IndexType, VectorType> table = beam == null ? null : image.getKernelTable(beam, refIndex);
+        
         Interpolation interpolation = new Interpolation() {
             private VectorType v;
             private WeightedPoint smoothedValue;
+            private KernelTable<IndexType, VectorType>.Lookup kernel;
 
             @Override
             protected void init() { 
                 super.init();
                 v = getVectorInstance();
                 smoothedValue = new WeightedPoint();
+                if(table != null) kernel = table.new Lookup();
             }
 
             @Override
@@ -323,7 +578,8 @@ public abstract class RegularData<IndexType extends Index<IndexType>, VectorType
                     else set(index, value);
                 }
                 else {
-                    image.getSmoothedValueAtIndex(v, beam, refIndex, weight, getSplines(), smoothedValue);          
+                    if(kernel != null) image.getSmoothedValueAtIndex(v, kernel, weight, smoothedValue);
+                    else image.getSmoothedValueAtIndex(v, beam, refIndex, weight, getSplines(), smoothedValue);          
                     if(smoothedValue.weight() > 0.0) set(index, smoothedValue.value());
                     else discard(index);
                 }
@@ -381,37 +637,7 @@ public abstract class RegularData<IndexType extends Index<IndexType>, VectorType
 
 
     public RegularData<IndexType, VectorType> clean(final RegularData<IndexType, VectorType> beam, final VectorType beamCenterIndex, final double gain, final double threshold) { 
-        RegularData<IndexType, VectorType> clean = newImage();
-
-        final int maxComponents = (int) Math.ceil(countPoints() / gain);         
-        int components = 0;
-
-        IndexType peakIndex = indexOfMaxDev();
-        double peakValue = get(peakIndex).doubleValue();
-
-        VectorType offset = getVectorInstance();
-
-        while(Math.abs(peakValue) > threshold && components < maxComponents) { 
-            final double componentValue = gain * peakValue;
-
-            for(int i=dimension(); --i >= 0; ) offset.setComponent(i, peakIndex.getValue(i) - beamCenterIndex.getComponent(i));
-
-            addPatchAt(offset, beam, -componentValue);
-            clean.add(peakIndex, componentValue);
-
-            components++;
-
-            peakIndex = indexOfMaxDev();
-            peakValue = get(peakIndex).doubleValue();
-        }
-
-        // Scale cleaned components by the beam area...
-        clean.scale(beam.getAbsSum());
-
-        addHistory("cleaned away " + components + " components.");
-        clean.addHistory("created with " + components + " clean components.");
-
-        return clean;
+        return new Cleaner<>(this, beam, beamCenterIndex).clean(gain, threshold);
     }
 
 
@@ -464,26 +690,27 @@ public abstract class RegularData<IndexType extends Index<IndexType>, VectorType
 
 
 
-    public final Validating<IndexType> getNeighborValidator(final int minNeighbors) {
+    public Validating<IndexType> getNeighborValidator(final int minNeighbors) {
         return new Validating<IndexType>() {
-            private PointOp.Sum<IndexType> op = new PointOp.Sum<IndexType>() {
-                @Override
-                protected double getValue(IndexType index) {
-                    return RegularData.this.isValid(index) ? 1.0 : 0.0; 
-                }
-            };
-
             @Override
             public boolean isValid(IndexType index) {
                 int self = RegularData.this.isValid(index) ? 1 : 0;
 
+                // A new op for every call, since loop() does not reset it, and since calls may come from parallel threads...
+                final PointOp.Sum<IndexType> op = new PointOp.Sum<IndexType>() {
+                    @Override
+                    protected double getValue(IndexType index) {
+                        return RegularData.this.isValid(index) ? 1.0 : 0.0; 
+                    }
+                };
+
                 final IndexType size = getSize();
                 final IndexType from = getIndexInstance();
                 final IndexType to = getIndexInstance();
                 
                 for(int i=dimension(); --i >= 0; ) {
                     from.setValue(i, Math.max(0, index.getValue(i)-1));
-                    to.setValue(i, Math.min(size.getValue(i), index.getValue(i) + 1));
+                    to.setValue(i, Math.min(size.getValue(i), index.getValue(i) + 2));
                 }
                 
                 return loop(op, from, to) >= minNeighbors + self;         
@@ -682,7 +909,7 @@ public abstract class RegularData<IndexType extends Index<IndexType>, VectorType
 
         if(getUnit().value() != 1.0) transpose.scale(1.0 / getUnit().value());
 
-        return transpose.getCore();
+        return transpose.getNestedCore();
     }
 
 
@@ -706,6 +933,22 @@ public abstract class RegularData<IndexType extends Index<IndexType>, VectorType
 
 
 
+    /**
+     * The beam footprint (number of beam points) above which smoothing may switch to FFT convolution. Set 
+     * it to {@link Integer#MAX_VALUE} to always smooth by direct summation.
+     */
+    public static int fftSmoothingCrossover = 64;
+
+    /**
+     * The number of tabulated fractional offsets per pixel (in every dimension) in the beam lookup tables used for 
+     * smoothing and resampling (see {@link KernelTable}). Beam values in between are interpolated linearly. Lookup
+     * tables are faster, but not as precise as interpolating the beam directly for every data point: with an 
+     * oversampling of 16, the smoothed values may differ by up to about 5e-5 (relative). The default value of 0 
+     * disables the lookup tables, so results are unchanged unless tables are explicitly enabled.
+     */
+    public static int kernelTableOversampling = 0;
+
+
     public final static int NEAREST = 0;
     public final static int LINEAR = 1;
     public final static int QUADRATIC = 2;
@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Attila Kovacs <attila[AT]sigmyne.com>.
+ * All rights reserved. 
+ * 
+ * This file is part of jnum.
+ * 
+ *     jnum is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ * 
+ *     jnum is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ * 
+ *     You should have received a copy of the GNU General Public License
+ *     along with jnum.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Attila Kovacs <attila[AT]sigmyne.com> - initial API and implementation
+ ******************************************************************************/
+
+
+package jnum.data;
+
+import java.util.PriorityQueue;
+
+import jnum.PointOp;
+
+/**
+ * A maximum index for data that is divided into tiles. The maximum of each tile is kept in a priority queue,
+ * so that after the data is changed locally, only the tiles that overlap the changed region need to be scanned
+ * again, rather than the entire data, before the next maximum can be obtained. This makes repeated searches for 
+ * the maximum (e.g. when finding peaks, or for CLEAN) much faster on large data.
+ * 
+ * @author Attila Kovacs <attila@sigmyne.com>
+ *
+ * @param <IndexType>   the generic type of index used by the data.
+ * 
+ * @see Data#findPeaks(double, double[])
+ * @see Cleaner
+ */
+public class TileMaxIndex<IndexType extends Index<IndexType>> {
+    private Data<IndexType> data;
+    private boolean isAbsolute;
+    private int tileSize;
+    
+    private int dimension;
+    private int[] size, tiles;
+    private int[] version;
+    private IndexType[] peak;
+    private PriorityQueue<Candidate> candidates;
+    private TileScan scan = new TileScan();
+    
+    
+    /**
+     * Constructs a new tiled maximum index for the data, with the default tile size, and scans it entirely.
+     * 
+     * @param data          the data to index.
+     * @param isAbsolute    whether to track the maximum absolute deviation, rather than the maximum value.
+     */
+    public TileMaxIndex(Data<IndexType> data, boolean isAbsolute) {
+        this(data, defaultTileSize, isAbsolute);
+    }
+    
+    /**
+     * Constructs a new tiled maximum index for the data, and scans it entirely.
+     * 
+     * @param data          the data to index.
+     * @param tileSize      the size of the tiles in every dimension.
+     * @param isAbsolute    whether to track the maximum absolute deviation, rather than the maximum value.
+     */
+    @SuppressWarnings("unchecked")
+    public TileMaxIndex(Data<IndexType> data, int tileSize, boolean isAbsolute) {
+        if(tileSize < 1) throw new IllegalArgumentException("Illegal tile size: " + tileSize);
+        
+        this.data = data;
+        this.tileSize = tileSize;
+        this.isAbsolute = isAbsolute;
+        
+        final IndexType dataSize = data.getSize();
+        dimension = dataSize.dimension();
+        size = new int[dimension];
+        tiles = new int[dimension];
+        
+        int n = 1;
+        for(int k=dimension; --k >= 0; ) {
+            size[k] = dataSize.getValue(k);
+            tiles[k] = (size[k] + tileSize - 1) / tileSize;
+            n *= tiles[k];
+        }
+        
+        version = new int[n];
+        peak = (IndexType[]) new Index<?>[n];
+        
+        update();
+    }
+    
+    public final int getTileSize() { return tileSize; }
+    
+    public final boolean isAbsolute() { return isAbsolute; }
+    
+    public final int getTileCount() { return version.length; }
+    
+    /**
+     * Scans all tiles again.
+     */
+    public void update() {
+        candidates = new PriorityQueue<>(Math.max(1, version.length));
+        for(int t=version.length; --t >= 0; ) scanTile(t);
+    }
+    
+    /**
+     * Scans again all tiles that overlap the specified index range, e.g. after the data was changed in that range.
+     * The range may extend beyond the data bounds.
+     * 
+     * @param from      the starting index (inclusive) of the changed range.
+     * @param to        the ending index (exclusive) of the changed range.
+     */
+    public void update(IndexType from, IndexType to) {
+        final int[] fromTile = new int[dimension];
+        final int[] toTile = new int[dimension];
+        
+        for(int k=dimension; --k >= 0; ) {
+            final int i0 = Math.max(0, from.getValue(k));
+            final int i1 = Math.min(size[k], to.getValue(k));
+            if(i1 <= i0) return;
+            fromTile[k] = i0 / tileSize;
+            toTile[k] = (i1 - 1) / tileSize;
+        }
+        
+        // Iterate over the range of tiles touched...
+        final int[] t = fromTile.clone();
+        
+        while(true) {
+            int tile = 0;
+            for(int k=0; k < dimension; k++) tile = tile * tiles[k] + t[k];
+            scanTile(tile);
+            
+            int k = dimension - 1;
+            for(; k >= 0; k--) {
+                if(++t[k] <= toTile[k]) break;
+                t[k] = fromTile[k];
+            }
+            if(k < 0) break;
+        }
+    }
+    
+    /**
+     * Returns the index of the maximum (valid) value, or the maximum absolute deviation, in the data.
+     * 
+     * @return  the index of the maximum, or <code>null</code> if the data has no valid points.
+     */
+    public IndexType getMaxIndex() {
+        final Candidate c = getCandidate();
+        return c == null ? null : peak[c.tile];
+    }
+    
+    /**
+     * Returns the maximum (valid) value, or the maximum absolute deviation, in the data.
+     * 
+     * @return  the maximum, or NaN if the data has no valid points.
+     */
+    public double getMax() {
+        final Candidate c = getCandidate();
+        return c == null ? Double.NaN : c.value;
+    }
+    
+    private Candidate getCandidate() {
+        while(!candidates.isEmpty()) {
+            final Candidate c = candidates.peek();
+            if(c.version == version[c.tile]) return c;
+            candidates.poll();
+        }
+        return null;
+    }
+    
+    
+    private void scanTile(int tile) {
+        final IndexType from = data.getIndexInstance();
+        final IndexType to = data.getIndexInstance();
+        
+        for(int k=dimension, t=tile; --k >= 0; t /= tiles[k]) {
+            final int i = (t % tiles[k]) * tileSize;
+            from.setValue(k, i);
+            to.setValue(k, Math.min(size[k], i + tileSize));
+        }
+        
+        scan.reset();
+        data.loop(scan, from, to);
+        
+        version[tile]++;
+        peak[tile] = scan.maxIndex;
+        
+        if(scan.maxIndex != null) candidates.add(new Candidate(tile, version[tile], scan.max));
+    }
+    
+    
+    private class TileScan extends PointOp<IndexType, IndexType> {
+        private IndexType maxIndex;
+        private double max;
+        
+        @Override
+        protected void init() {
+            maxIndex = null;
+            max = Double.NEGATIVE_INFINITY;
+        }
+
+        @Override
+        public void process(IndexType index) {
+            if(!data.isValid(index)) return;
+            
+            double value = data.getDouble(index);
+            if(isAbsolute) value = Math.abs(value);
+            if(!(value > max)) return;
+            
+            max = value;
+            maxIndex = data.copyOfIndex(index);
+        }
+
+        @Override
+        public IndexType getResult() {
+            return maxIndex;
+        }
+    }
+    
+    
+    private static class Candidate implements Comparable<Candidate> {
+        private int tile, version;
+        private double value;
+        
+        private Candidate(int tile, int version, double value) {
+            this.tile = tile;
+            this.version = version;
+            this.value = value;
+        }
+
+        @Override
+        public int compareTo(Candidate o) {
+            return Double.compare(o.value, value);
+        }
+    }
+    
+    
+    /** The default tile size (in every dimension). */
+    public static int defaultTileSize = 16;
+}
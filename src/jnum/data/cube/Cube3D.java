@@ -37,6 +37,7 @@ import nom.tam.fits.Header;
 import nom.tam.fits.HeaderCard;
 import nom.tam.fits.HeaderCardException;
 import nom.tam.fits.ImageHDU;
+import nom.tam.util.ArrayFuncs;
 import nom.tam.util.Cursor;
 
 
@@ -54,6 +55,13 @@ public abstract class Cube3D extends Data3D implements Image<Index3D> {
      */
     private static final long serialVersionUID = 3932177524565875808L;
     private String id;
+    
+    /**
+     * Whether {@link #createType(Class)} should create cubes backed by flat (contiguous) arrays for the types
+     * that support it. {@link #getCore()} will then return a 1D array. Use {@link #getNestedCore()} where a 
+     * nested array is required.
+     */
+    public static boolean preferFlatStorage = false;
  
     @Override
     public int hashCode() {
@@ -155,7 +163,7 @@ public abstract class Cube3D extends Data3D implements Image<Index3D> {
         new Fork<Void>() {
             @Override
             protected void process(int i, int j, int k) {
-                set(i, j, k, data[i][j][k]);
+                setDouble(i, j, k, data[i][j][k]);
             }
         }.process();
         recordNewData("double[][][]");
@@ -167,7 +175,7 @@ public abstract class Cube3D extends Data3D implements Image<Index3D> {
         new Fork<Void>() {
             @Override
             protected void process(int i, int j, int k) {
-                set(i, j, k, data[i][j][k]);
+                setDouble(i, j, k, data[i][j][k]);
             }
         }.process();
         recordNewData("float[][][]");
@@ -190,7 +198,7 @@ public abstract class Cube3D extends Data3D implements Image<Index3D> {
         new Fork<Void>() {
             @Override
             protected void process(int i, int j, int k) {
-                set(i, j, k, data[i][j][k]);
+                setDouble(i, j, k, data[i][j][k]);
             }
         }.process();
         recordNewData("int[][][]");
@@ -201,7 +209,7 @@ public abstract class Cube3D extends Data3D implements Image<Index3D> {
         new Fork<Void>() {
             @Override
             protected void process(int i, int j, int k) {
-                set(i, j, k, data[i][j][k]);
+                setDouble(i, j, k, data[i][j][k]);
             }
         }.process();
         recordNewData("short[][][]");
@@ -212,7 +220,7 @@ public abstract class Cube3D extends Data3D implements Image<Index3D> {
         new Fork<Void>() {
             @Override
             protected void process(int i, int j, int k) {
-                set(i, j, k, data[i][j][k]);
+                setDouble(i, j, k, data[i][j][k]);
             }
         }.process();
         recordNewData("byte[][][]");
@@ -251,7 +259,7 @@ public abstract class Cube3D extends Data3D implements Image<Index3D> {
     
     public synchronized void transpose() {
         silentNextNewData();
-        setTransposedData(getCore());
+        setTransposedData(getNestedCore());
         addHistory("transposed");
     }
     
@@ -264,7 +272,7 @@ public abstract class Cube3D extends Data3D implements Image<Index3D> {
     protected synchronized void crop(Index3D from, Index3D to) {
         addHistory("cropped " + from + " : " + to);
         silentNextNewData();
-        setData(getCropped(from, to).getCore());
+        setData(getCropped(from, to).getNestedCore());
     }
 
 
@@ -314,7 +322,27 @@ public abstract class Cube3D extends Data3D implements Image<Index3D> {
     }
   
 
-    public static Cube3D createType(Class<? extends Number> type) {       
+    public static Cube3D createType(Class<? extends Number> type) {
+        return createType(type, preferFlatStorage);
+    }
+    
+    /**
+     * Creates a new empty cube with the specified element type.
+     * 
+     * @param type          the element type of the cube.
+     * @param flatStorage   whether the cube should be backed by a single flat (contiguous) array, instead
+     *                      of nested arrays. Flat storage is available for double and float cubes only, 
+     *                      other types are always created with nested arrays.
+     * @return              a new cube of the requested type, or <code>null</code> if the type is not supported.
+     * 
+     * @see #preferFlatStorage
+     */
+    public static Cube3D createType(Class<? extends Number> type, boolean flatStorage) {  
+        if(flatStorage) {
+            if(type.equals(Double.class)) return new FlatDouble3D();
+            else if(type.equals(Float.class)) return new FlatFloat3D();
+        }
+        
         if(type.equals(Double.class)) return new Double3D();
         else if(type.equals(Float.class)) return new Float3D();
         else if(type.equals(Long.class)) return new Long3D();
@@ -443,6 +471,26 @@ public abstract class Cube3D extends Data3D implements Image<Index3D> {
         public final void add(int i, int j, int k, Number value) {
            data[i][j][k] += value.doubleValue();
         }
+
+        @Override
+        public final double getDouble(int i, int j, int k) {
+            return data[i][j][k];
+        }
+
+        @Override
+        public final void setDouble(int i, int j, int k, double value) {
+            data[i][j][k] = value;
+        }
+
+        @Override
+        public final void addDouble(int i, int j, int k, double value) {
+            data[i][j][k] += value;
+        }
+
+        @Override
+        public final void scale(int i, int j, int k, double factor) {
+            data[i][j][k] *= factor;
+        }
             
         @Override
         public final boolean isValid(Number value) {
@@ -525,6 +573,26 @@ public abstract class Cube3D extends Data3D implements Image<Index3D> {
         public final void add(int i, int j, int k, Number value) {
            data[i][j][k] += value.floatValue();
         }
+
+        @Override
+        public final double getDouble(int i, int j, int k) {
+            return data[i][j][k];
+        }
+
+        @Override
+        public final void setDouble(int i, int j, int k, double value) {
+            data[i][j][k] = (float) value;
+        }
+
+        @Override
+        public final void addDouble(int i, int j, int k, double value) {
+            data[i][j][k] += (float) value;
+        }
+
+        @Override
+        public final void scale(int i, int j, int k, double factor) {
+            data[i][j][k] *= factor;
+        }
         
            
         @Override
@@ -598,6 +666,26 @@ public abstract class Cube3D extends Data3D implements Image<Index3D> {
         public final void add(int i, int j, int k, Number value) {
            data[i][j][k] += value.longValue();
         }
+
+        @Override
+        public final double getDouble(int i, int j, int k) {
+            return data[i][j][k];
+        }
+
+        @Override
+        public final void setDouble(int i, int j, int k, double value) {
+            data[i][j][k] = (long) value;
+        }
+
+        @Override
+        public final void addDouble(int i, int j, int k, double value) {
+            data[i][j][k] += (long) value;
+        }
+
+        @Override
+        public final void scale(int i, int j, int k, double factor) {
+            data[i][j][k] *= factor;
+        }
         
   
     }
@@ -663,6 +751,26 @@ public abstract class Cube3D extends Data3D implements Image<Index3D> {
         public final void add(int i, int j, int k, Number value) {
            data[i][j][k] += value.intValue();
         }
+
+        @Override
+        public final double getDouble(int i, int j, int k) {
+            return data[i][j][k];
+        }
+
+        @Override
+        public final void setDouble(int i, int j, int k, double value) {
+            data[i][j][k] = (int) value;
+        }
+
+        @Override
+        public final void addDouble(int i, int j, int k, double value) {
+            data[i][j][k] += (int) value;
+        }
+
+        @Override
+        public final void scale(int i, int j, int k, double factor) {
+            data[i][j][k] *= factor;
+        }
            
  
    
@@ -729,6 +837,26 @@ public abstract class Cube3D extends Data3D implements Image<Index3D> {
         public final void add(int i, int j, int k, Number value) {
            data[i][j][k] += value.shortValue();
         }
+
+        @Override
+        public final double getDouble(int i, int j, int k) {
+            return data[i][j][k];
+        }
+
+        @Override
+        public final void setDouble(int i, int j, int k, double value) {
+            data[i][j][k] = (short) value;
+        }
+
+        @Override
+        public final void addDouble(int i, int j, int k, double value) {
+            data[i][j][k] += (short) value;
+        }
+
+        @Override
+        public final void scale(int i, int j, int k, double factor) {
+            data[i][j][k] *= factor;
+        }
         
     }
     
@@ -795,9 +923,295 @@ public abstract class Cube3D extends Data3D implements Image<Index3D> {
            data[i][j][k] += value.byteValue();
         }
 
+        @Override
+        public double getDouble(int i, int j, int k) {
+            return data[i][j][k];
+        }
+
+        @Override
+        public void setDouble(int i, int j, int k, double value) {
+            data[i][j][k] = (byte) value;
+        }
+
+        @Override
+        public void addDouble(int i, int j, int k, double value) {
+            data[i][j][k] += (byte) value;
+        }
+
+        @Override
+        public void scale(int i, int j, int k, double factor) {
+            data[i][j][k] *= factor;
+        }
+
         
     }
+
+
+    /**
+     * Base class for cubes that are backed by a single contiguous 1D array, instead of nested arrays.
+     * Element (i, j, k) is stored at offset <code>(i * sizeY() + j) * sizeZ() + k</code>, i.e. in the 
+     * same order as the nested arrays of the other cube types.
+     * 
+     * @author Attila Kovacs <attila@sigmyne.com>
+     *
+     */
+    public static abstract class Flat3D extends Cube3D {
+        /**
+         * 
+         */
+        private static final long serialVersionUID = 6130948471658320176L;
+        private int sizeX, sizeY, sizeZ;
+        
+        @Override
+        public final int sizeX() {
+            return sizeX;
+        }
+
+        @Override
+        public final int sizeY() {
+            return sizeY;
+        }
+        
+        @Override
+        public final int sizeZ() {
+            return sizeZ;
+        }
+        
+        public final int indexOf(int i, int j, int k) {
+            return (i * sizeY + j) * sizeZ + k;
+        }
+        
+        @Override
+        protected synchronized void setDataSize(int sizeX, int sizeY, int sizeZ) {
+            if(sizeX <= 0 || sizeY <= 0 || sizeZ <= 0) sizeX = sizeY = sizeZ = 0;
+            else if((long) sizeX * sizeY * sizeZ > Integer.MAX_VALUE) 
+                throw new IllegalArgumentException("Cube too large for flat storage: " + sizeX + "x" + sizeY + "x" + sizeZ);
+            
+            this.sizeX = sizeX;
+            this.sizeY = sizeY;
+            this.sizeZ = sizeZ;
+            
+            setFlatDataSize(sizeX * sizeY * sizeZ);
+        }
+        
+        protected abstract void setFlatDataSize(int n);
+        
+        protected final void setFlatSize(int n, int sizeX, int sizeY, int sizeZ) {
+            if(n != sizeX * sizeY * sizeZ) 
+                throw new IllegalArgumentException("Flat data size " + n + " does not match " + sizeX + "x" + sizeY + "x" + sizeZ);
+            this.sizeX = sizeX;
+            this.sizeY = sizeY;
+            this.sizeZ = sizeZ;
+        }
+        
+        @Override
+        public synchronized Object getNestedCore() {
+            if(capacity() == 0) return null;
+            return ArrayFuncs.curl(getCore(), new int[] { sizeX, sizeY, sizeZ });
+        }
+    }
     
+
+    public static class FlatDouble3D extends Flat3D {
+        /**
+         * 
+         */
+        private static final long serialVersionUID = -5096542207323830512L;
+        private double[] data;
+        
+        @Override
+        public Number getLowestCompareValue() { return Double.NEGATIVE_INFINITY; }
+        
+        @Override
+        public Number getHighestCompareValue() { return Double.POSITIVE_INFINITY; }
+        
+        @Override
+        public int compare(Number a, Number b) {
+            return Double.compare(a.doubleValue(), b.doubleValue());
+        }
+        
+        @Override
+        public Class<? extends Number> getElementType() {
+            return Double.class;
+        }
+        
+        @Override
+        protected void setFlatDataSize(int n) {
+            data = n > 0 ? new double[n] : null;
+        }
+        
+        @Override
+        public synchronized double[] getCore() {
+            return data;
+        }
+        
+        public synchronized void setData(double[] image, int sizeX, int sizeY, int sizeZ) {
+            setFlatSize(image.length, sizeX, sizeY, sizeZ);
+            this.data = image;
+            recordNewData("double[] (no copy)");
+        }
+        
+        @Override
+        public synchronized void setData(double[][][] image) {
+            setSize(image.length, image[0].length, image[0][0].length);
+            for(int i=image.length; --i >= 0; ) for(int j=image[i].length; --j >= 0; ) 
+                System.arraycopy(image[i][j], 0, data, indexOf(i, j, 0), image[i][j].length);
+            recordNewData("double[][][]");
+        }
+        
+        @Override
+        public FlatDouble3D copy(boolean withContent) {
+            FlatDouble3D copy = (FlatDouble3D) super.copy(false);
+            if(withContent && data != null) {
+                System.arraycopy(data, 0, copy.data, 0, data.length);
+                copy.addHistory("pasted new content: " + getSizeString());
+            }
+            return copy;
+        }
+
+        @Override
+        public final Number get(int i, int j, int k) {
+            return data[indexOf(i, j, k)];
+        }
+
+        @Override
+        public final void set(int i, int j, int k, Number value) {
+            data[indexOf(i, j, k)] = value.doubleValue();
+        }
+        
+        @Override
+        public final void add(int i, int j, int k, Number value) {
+           data[indexOf(i, j, k)] += value.doubleValue();
+        }
+
+        @Override
+        public final double getDouble(int i, int j, int k) {
+            return data[indexOf(i, j, k)];
+        }
+
+        @Override
+        public final void setDouble(int i, int j, int k, double value) {
+            data[indexOf(i, j, k)] = value;
+        }
+
+        @Override
+        public final void addDouble(int i, int j, int k, double value) {
+            data[indexOf(i, j, k)] += value;
+        }
+
+        @Override
+        public final void scale(int i, int j, int k, double factor) {
+            data[indexOf(i, j, k)] *= factor;
+        }
+            
+        @Override
+        public final boolean isValid(Number value) {
+            if(Double.isNaN(value.doubleValue())) return false;
+            return super.isValid(value);
+        }
+        
+    }
     
+
+    public static class FlatFloat3D extends Flat3D {
+        /**
+         * 
+         */
+        private static final long serialVersionUID = 2950432896817260041L;
+        private float[] data;
+        
+        @Override
+        public Number getLowestCompareValue() { return Float.NEGATIVE_INFINITY; }
+        
+        @Override
+        public Number getHighestCompareValue() { return Float.POSITIVE_INFINITY; }
+        
+        @Override
+        public int compare(Number a, Number b) {
+            return Float.compare(a.floatValue(), b.floatValue());
+        }
+        
+        @Override
+        public Class<? extends Number> getElementType() {
+            return Float.class;
+        }
+        
+        @Override
+        protected void setFlatDataSize(int n) {
+            data = n > 0 ? new float[n] : null;
+        }
+        
+        @Override
+        public synchronized float[] getCore() {
+            return data;
+        }
+        
+        public synchronized void setData(float[] image, int sizeX, int sizeY, int sizeZ) {
+            setFlatSize(image.length, sizeX, sizeY, sizeZ);
+            this.data = image;
+            recordNewData("float[] (no copy)");
+        }
+        
+        @Override
+        public synchronized void setData(float[][][] image) {
+            setSize(image.length, image[0].length, image[0][0].length);
+            for(int i=image.length; --i >= 0; ) for(int j=image[i].length; --j >= 0; ) 
+                System.arraycopy(image[i][j], 0, data, indexOf(i, j, 0), image[i][j].length);
+            recordNewData("float[][][]");
+        }
+        
+        @Override
+        public FlatFloat3D copy(boolean withContent) {
+            FlatFloat3D copy = (FlatFloat3D) super.copy(false);
+            if(withContent && data != null) {
+                System.arraycopy(data, 0, copy.data, 0, data.length);
+                copy.addHistory("pasted new content: " + getSizeString());
+            }
+            return copy;
+        }
+
+        @Override
+        public final Number get(int i, int j, int k) {
+            return data[indexOf(i, j, k)];
+        }
+
+        @Override
+        public final void set(int i, int j, int k, Number value) {
+            data[indexOf(i, j, k)] = value.floatValue();
+        }
+        
+        @Override
+        public final void add(int i, int j, int k, Number value) {
+           data[indexOf(i, j, k)] += value.floatValue();
+        }
+
+        @Override
+        public final double getDouble(int i, int j, int k) {
+            return data[indexOf(i, j, k)];
+        }
+
+        @Override
+        public final void setDouble(int i, int j, int k, double value) {
+            data[indexOf(i, j, k)] = (float) value;
+        }
+
+        @Override
+        public final void addDouble(int i, int j, int k, double value) {
+            data[indexOf(i, j, k)] += (float) value;
+        }
+
+        @Override
+        public final void scale(int i, int j, int k, double factor) {
+            data[indexOf(i, j, k)] *= factor;
+        }
+            
+        @Override
+        public final boolean isValid(Number value) {
+            if(Float.isNaN(value.floatValue())) return false;
+            return super.isValid(value);
+        }
+        
+    }
     
+
 }
@@ -27,15 +27,20 @@ package jnum.data.cube;
 import java.util.List;
 
 
+import jnum.DoublePointOp;
 import jnum.PointOp;
 import jnum.Util;
 import jnum.data.CubicSpline;
 import jnum.data.DataCrawler;
+import jnum.data.DataPoint;
+import jnum.data.IndexedValues;
 import jnum.data.RegularData;
 import jnum.data.SplineSet;
+import jnum.data.Validating;
 import jnum.data.WeightedPoint;
 import jnum.math.IntRange;
 import jnum.math.Vector3D;
+import jnum.parallel.DoubleParallelPointOp;
 import jnum.parallel.ParallelPointOp;
 import jnum.parallel.ParallelTask;
 
@@ -132,6 +137,9 @@ public abstract class Data3D extends RegularData<Index3D, Vector3D> implements V
     @Override
     public final Number get(Index3D index) { return get(index.i(), index.j(), index.k()); }
 
+    @Override
+    public final double getDouble(Index3D index) { return getDouble(index.i(), index.j(), index.k()); }
+
     public final Number getValid(final int i, final int j, final int k, final Number defaultValue) {
         if(!isValid(i, j, k)) return defaultValue;
         return get(i, j, k);
@@ -175,8 +183,18 @@ public abstract class Data3D extends RegularData<Index3D, Vector3D> implements V
 
     public void clear(int i, int j, int k) { set(i, j, k, 0); }
 
+    @Override
+    public double getDouble(int i, int j, int k) { return get(i, j, k).doubleValue(); }
+
+    @Override
+    public void setDouble(int i, int j, int k, double value) { set(i, j, k, value); }
+
+    @Override
+    public void addDouble(int i, int j, int k, double value) { add(i, j, k, value); }
+
+    @Override
     public void scale(int i, int j, int k, double factor) {
-        set(i, j, k, get(i, j, k).doubleValue() * factor);
+        setDouble(i, j, k, getDouble(i, j, k) * factor);
     }
 
     @Override
@@ -211,10 +229,10 @@ public abstract class Data3D extends RegularData<Index3D, Vector3D> implements V
 
         if(!isValid(i, j, k)) return Double.NaN;
 
-        if(i == ic) if(j == jc) if(k == kc) return get(i, j, k).doubleValue();
+        if(i == ic) if(j == jc) if(k == kc) return getDouble(i, j, k);
 
         switch(getInterpolationType()) {
-        case NEAREST : return get(i, j, k).doubleValue();
+        case NEAREST : return getDouble(i, j, k);
         case LINEAR : return linearAtIndex(ic, jc, kc);
         case QUADRATIC : return quadraticAtIndex(ic, jc, kc);
         case SPLINE : return splines == null ? splineAtIndex(ic, jc, kc) : splineAtIndex(ic, jc, kc, splines);
@@ -259,7 +277,7 @@ public abstract class Data3D extends RegularData<Index3D, Vector3D> implements V
 
         for(int k=tok; --k >= k0; ) for(int j=toj; --j >= j0; ) for(int i=toi; --i >= i0; ) if(isValid(i, j, k)) {
             double w = (i == i0 ? (1.0 - di) : di) * (j == j0 ? (1.0 - dj) : dj) * (k == k0 ? (1.0 - dk) : dk);
-            sum += w * get(i, j, k).doubleValue();
+            sum += w * getDouble(i, j, k);
             sumw += w;          
         }
 
@@ -313,7 +331,7 @@ public abstract class Data3D extends RegularData<Index3D, Vector3D> implements V
                 final double wxy = wx * splineY.coefficientAt(j);
                 for(int k=tok; --k >= fromk; ) if(isValid(i, j, k)) {
                     final double w = wxy * splineZ.coefficientAt(k);         
-                    sum += w * get(i, j, k).doubleValue();
+                    sum += w * getDouble(i, j, k);
                     sumw += w;
                 }
             }
@@ -513,82 +531,339 @@ public abstract class Data3D extends RegularData<Index3D, Vector3D> implements V
 
     @Override
     public <ReturnType> ReturnType forkValid(final ParallelPointOp<Number, ReturnType> op, Index3D from, Index3D to) {
-
-        Fork<ReturnType> fork = new Fork<ReturnType>(from, to) {
-            private ParallelPointOp<Number, ReturnType> localOp;
-
-            @Override
-            public void init() {
-                super.init();
-                localOp = op.newInstance();
-            }
-
+        PointOpFork<ParallelPointOp<Number, ReturnType>, ReturnType> fork = takePointOpFork(FORK_VALID);
+        
+        if(fork == null) fork = new PointOpFork<ParallelPointOp<Number, ReturnType>, ReturnType>() {
             @Override
             protected void process(int i, int j, int k) {
                 if(isValid(i, j, k)) localOp.process(get(i, j, k));
             }
 
             @Override
-            public ReturnType getLocalResult() { return localOp.getResult(); }
+            public ReturnType getResult() { 
+                ParallelPointOp<Number, ReturnType> globalOp = getOp().newInstance();
+                
+                for(ParallelTask<ReturnType> worker : getWorkers()) {
+                    globalOp.mergeResult(worker.getLocalResult());
+                }
+                return globalOp.getResult();
+            }
+        };
+        
+        fork.process(op, from, to);
+        final ReturnType result = fork.getResult();
+        releasePointOpFork(FORK_VALID, fork);
+        return result;
+    }
 
+    @Override
+    public <ReturnType> ReturnType loopValidDouble(final DoublePointOp<ReturnType> op, Index3D from, Index3D to) {
+        for(int i=to.i(); --i >= from.i(); ) {
+            for(int j=to.j(); --j >= from.j(); ) for(int k=to.k(); --k >= from.k(); ) if(isValid(i, j, k)) {
+                op.process(getDouble(i, j, k));
+                if(op.exception != null) return null;
+            }
+        }
+        return op.getResult();
+    }
+    
+    @Override
+    public <ReturnType> ReturnType forkValidDouble(final DoubleParallelPointOp<ReturnType> op, Index3D from, Index3D to) {
+        PointOpFork<DoubleParallelPointOp<ReturnType>, ReturnType> fork = takePointOpFork(FORK_VALID_DOUBLE);
+        
+        if(fork == null) fork = new PointOpFork<DoubleParallelPointOp<ReturnType>, ReturnType>() {
+            @Override
+            protected void process(int i, int j, int k) {
+                if(isValid(i, j, k)) localOp.process(getDouble(i, j, k));
+            }
 
             @Override
             public ReturnType getResult() { 
-                ParallelPointOp<Number, ReturnType> globalOp = op.newInstance();
-
+                DoubleParallelPointOp<ReturnType> globalOp = getOp().newInstance();
+                
                 for(ParallelTask<ReturnType> worker : getWorkers()) {
                     globalOp.mergeResult(worker.getLocalResult());
                 }
                 return globalOp.getResult();
             }
-
         };
-
-        fork.process();
-        return fork.getResult();
+        
+        fork.process(op, from, to);
+        final ReturnType result = fork.getResult();
+        releasePointOpFork(FORK_VALID_DOUBLE, fork);
+        return result;
     }
+    
 
     @Override
     public <ReturnType> ReturnType fork(final ParallelPointOp<Index3D, ReturnType> op, Index3D from, Index3D to) {
-
-        Fork<ReturnType> fork = new Fork<ReturnType>(from, to) {
-            private ParallelPointOp<Index3D, ReturnType> localOp;
+        PointOpFork<ParallelPointOp<Index3D, ReturnType>, ReturnType> fork = takePointOpFork(FORK_INDEX);
+        
+        if(fork == null) fork = new PointOpFork<ParallelPointOp<Index3D, ReturnType>, ReturnType>() {
             private Index3D index;
-
+            
             @Override
             public void init() {
                 super.init();
-                index = new Index3D();
-                localOp = op.newInstance();
+                if(index == null) index = new Index3D();
             }
-
+            
             @Override
             protected void process(int i, int j, int k) {
                 index.set(i, j, k);
                 localOp.process(index);
             }
 
-            @Override
-            public ReturnType getLocalResult() { return localOp.getResult(); }
-
-
             @Override
             public ReturnType getResult() { 
-                ParallelPointOp<Index3D, ReturnType> globalOp = op.newInstance();
-
+                ParallelPointOp<Index3D, ReturnType> globalOp = getOp().newInstance();
+                
                 for(ParallelTask<ReturnType> worker : getWorkers()) {
                     globalOp.mergeResult(worker.getLocalResult());
                 }
                 return globalOp.getResult();
             }
-
         };
+        
+        fork.process(op, from, to);
+        final ReturnType result = fork.getResult();
+        releasePointOpFork(FORK_INDEX, fork);
+        return result;
+    }
+
+
+
+
+
+    /**
+     * Returns a summed-area table (integral volume) of this cube, with which sums, means, and variances of the valid 
+     * voxels in rectangular boxes can be calculated in O(1) operations. The table is a snapshot of the current cube.
+     * 
+     * @param weight    the voxel weights, or <code>null</code> for uniform weights.
+     * @return          the summed-area table of this cube.
+     */
+    public SummedArea3D getSummedArea(Values3D weight) {
+        return new SummedArea3D(this, weight);
+    }
+
+    /**
+     * Smooths this cube with a rectangular box beam, in O(1) operations per voxel, regardless of the box size.
+     * 
+     * @param nx    the box size (voxels) along x.
+     * @param ny    the box size (voxels) along y.
+     * @param nz    the box size (voxels) along z.
+     * 
+     * @see #getBoxSmoothed(int, int, int, Values3D, Values3D)
+     */
+    public synchronized void boxSmooth(int nx, int ny, int nz) {
+        paste(getBoxSmoothed(nx, ny, nz, null, null), false);
+        addHistory("box smoothed " + nx + "x" + ny + "x" + nz);
+    }
 
-        fork.process();
-        return fork.getResult();
+    /**
+     * Returns a copy of this cube smoothed with a rectangular box beam, i.e. the local weighted means 
+     * sum(wI) / sum(|w|) of the valid voxels in an nx by ny by nz box around each voxel. The box is centered on the 
+     * voxel for odd sizes, and extends one voxel further in the negative direction for even sizes. It takes 
+     * O(1) operations per voxel, regardless of the box size, via a summed-area table. Only the valid voxels are 
+     * set in the returned cube.
+     * 
+     * @param nx                the box size (voxels) along x.
+     * @param ny                the box size (voxels) along y.
+     * @param nz                the box size (voxels) along z.
+     * @param weight            the weights of the voxels, or <code>null</code> for uniform weights.
+     * @param smoothedWeights   the cube to be set to the smoothed weights sum(|w|), or <code>null</code> if not needed.
+     * @return                  a new box-smoothed copy of this cube.
+     */
+    public Cube3D getBoxSmoothed(final int nx, final int ny, final int nz, final Values3D weight, final Values3D smoothedWeights) {
+        final SummedArea3D table = getSummedArea(weight);
+        final Cube3D smoothed = newImage();
+        final int di = nx >>> 1, dj = ny >>> 1, dk = nz >>> 1;
+        
+        new Fork<Void>() {
+            private WeightedPoint mean;
+            
+            @Override
+            public void init() {
+                super.init();
+                mean = new WeightedPoint();
+            }
+            
+            @Override
+            protected void process(int i, int j, int k) {
+                if(!isValid(i, j, k)) return;
+                table.getMean(i - di, j - dj, k - dk, i - di + nx, j - dj + ny, k - dk + nz, mean);
+                smoothed.setDouble(i, j, k, mean.value());
+                if(smoothedWeights != null) smoothedWeights.setDouble(i, j, k, mean.weight());
+            }
+        }.process();
+        
+        smoothed.addHistory("box smoothed copy " + nx + "x" + ny + "x" + nz);
+        
+        return smoothed;
+    }
+
+    /**
+     * Returns a cube of the local weighted variances sum(|w| (I - mean)^2) / sum(|w|) of the valid voxels in an 
+     * nx by ny by nz box around each voxel, in O(1) operations per voxel. The boxes are placed the same way as in 
+     * {@link #getBoxSmoothed(int, int, int, Values3D, Values3D)}. Only the valid voxels are set in the returned cube.
+     * 
+     * @param nx        the box size (voxels) along x.
+     * @param ny        the box size (voxels) along y.
+     * @param nz        the box size (voxels) along z.
+     * @param weight    the weights of the voxels, or <code>null</code> for uniform weights.
+     * @return          a new cube containing the local variances.
+     */
+    public Cube3D getLocalVariance(final int nx, final int ny, final int nz, final Values3D weight) {
+        final SummedArea3D table = getSummedArea(weight);
+        final Cube3D variance = newImage();
+        final int di = nx >>> 1, dj = ny >>> 1, dk = nz >>> 1;
+        
+        new Fork<Void>() {
+            @Override
+            protected void process(int i, int j, int k) {
+                if(isValid(i, j, k)) 
+                    variance.setDouble(i, j, k, table.getVariance(i - di, j - dj, k - dk, i - di + nx, j - dj + ny, k - dk + nz));
+            }
+        }.process();
+        
+        variance.addHistory("local variance " + nx + "x" + ny + "x" + nz);
+        
+        return variance;
+    }
+
+    /**
+     * Returns a cube of the number of valid voxels in an nx by ny by nz box around each voxel, not counting the
+     * voxel itself, in O(1) operations per voxel. The boxes are placed the same way as in 
+     * {@link #getBoxSmoothed(int, int, int, Values3D, Values3D)}. All voxels are set in the returned cube.
+     * 
+     * @param nx        the box size (voxels) along x.
+     * @param ny        the box size (voxels) along y.
+     * @param nz        the box size (voxels) along z.
+     * @return          a new integer cube containing the neighbor counts.
+     */
+    public Cube3D getNeighborCounts(final int nx, final int ny, final int nz) {
+        final SummedArea3D table = getSummedArea(null);
+        final Cube3D counts = newImage(getSize(), Integer.class);
+        final int di = nx >>> 1, dj = ny >>> 1, dk = nz >>> 1;
+        
+        new Fork<Void>() {
+            @Override
+            protected void process(int i, int j, int k) {
+                int n = table.countValid(i - di, j - dj, k - dk, i - di + nx, j - dj + ny, k - dk + nz);
+                if(isValid(i, j, k)) n--;
+                counts.set(i, j, k, n);
+            }
+        }.process();
+        
+        counts.addHistory("neighbor counts " + nx + "x" + ny + "x" + nz);
+        
+        return counts;
     }
 
+    /**
+     * Same as the generic implementation, but with the neighbor counts obtained from a summed-area table 
+     * of the cube at the time of the call.
+     */
+    @Override
+    public Validating<Index3D> getNeighborValidator(final int minNeighbors) {
+        final SummedArea3D table = getSummedArea(null);
+        
+        return new Validating<Index3D>() {
+            @Override
+            public boolean isValid(Index3D index) {
+                final int i = index.i(), j = index.j(), k = index.k();
+                int n = table.countValid(i-1, j-1, k-1, i+2, j+2, k+2);
+                if(Data3D.this.isValid(i, j, k)) n--;
+                return n >= minNeighbors;
+            }
+
+            @Override
+            public void discard(Index3D index) {
+                Data3D.this.discard(index);
+            }
+        };
+    }
 
+    /**
+     * Same as the generic implementation, but the surrounding (inverse-distance-squared weighted) mean of the nearest
+     * neighbors is assembled from the 3x3x3 box, and the planes and lines through each voxel, of a summed-area table,
+     * in O(1) operations per voxel. All voxels are tested against the cube as it was at the time of the call.
+     */
+    @Override
+    public synchronized void despike(final double significance, final IndexedValues<Index3D> noiseWeight) {
+        if(noiseWeight != null && !(noiseWeight instanceof Values3D)) {
+            super.despike(significance, noiseWeight);
+            return;
+        }
+        
+        final Values3D weight = (Values3D) noiseWeight;
+        final SummedArea3D table = getSummedArea(weight);
+        final boolean[][][] isSpike = new boolean[sizeX()][sizeY()][sizeZ()];
+        
+        new Fork<Void>() {
+            private WeightedPoint point, box, planes, lines, part;
+            
+            @Override
+            public void init() {
+                super.init();
+                point = new WeightedPoint();
+                box = new WeightedPoint();
+                planes = new WeightedPoint();
+                lines = new WeightedPoint();
+                part = new WeightedPoint();
+            }
+            
+            private void add(WeightedPoint sum, int fromi, int fromj, int fromk, int toi, int toj, int tok) {
+                table.getSum(fromi, fromj, fromk, toi, toj, tok, part);
+                sum.add(part.value());
+                sum.addWeight(part.weight());
+            }
+            
+            @Override
+            protected void process(int i, int j, int k) {
+                if(!isValid(i, j, k)) return;
+                if(table.countValid(i-1, j-1, k-1, i+2, j+2, k+2) < 2) return;    // No neighbors...
+                
+                final double w = weight == null ? 1.0 : weight.getDouble(i, j, k);
+                final double x = getDouble(i, j, k);
+                
+                table.getSum(i-1, j-1, k-1, i+2, j+2, k+2, box);
+                
+                planes.noData();
+                add(planes, i, j-1, k-1, i+1, j+2, k+2);
+                add(planes, i-1, j, k-1, i+2, j+1, k+2);
+                add(planes, i-1, j-1, k, i+2, j+2, k+1);
+                
+                lines.noData();
+                add(lines, i-1, j, k, i+2, j+1, k+1);
+                add(lines, i, j-1, k, i+1, j+2, k+1);
+                add(lines, i, j, k-1, i+1, j+1, k+2);
+                
+                // Side neighbors (weight 1) are in the box, in 2 planes and in 1 line, edge neighbors (weight 1/2) 
+                // are in the box and in 1 plane, and corner neighbors (weight 1/3) are in the box only...
+                final double sumw = (box.weight() + lines.weight()) / 3.0 + planes.weight() / 6.0 - 11.0 / 6.0 * Math.abs(w);
+                final double sum = (box.value() + lines.value()) / 3.0 + planes.value() / 6.0 - 11.0 / 6.0 * w * x;
+                
+                point.setValue(x);
+                point.setWeight(w);
+                
+                box.setValue(sum / sumw);
+                box.setWeight(sumw);
+                point.subtract(box);
+                
+                if(DataPoint.significanceOf(point) > significance) isSpike[i][j][k] = true;
+            }
+        }.process();
+        
+        new Fork<Void>() {
+            @Override
+            protected void process(int i, int j, int k) {
+                if(isSpike[i][j][k]) discard(i, j, k);
+            }
+        }.process();
+        
+        addHistory("despiked at " + Util.S3.format(significance));
+    }
 
 
 
@@ -638,21 +913,62 @@ public abstract class Data3D extends RegularData<Index3D, Vector3D> implements V
 
         protected abstract void process(int i, int j, int k);
 
+
+    }
+    
+    
+    /**
+     * A fork that applies a parallel point operation to a range of points. When {@link #reusePointOpForks} 
+     * is enabled, the same fork, with its workers and their local copies of the operation, serves successive 
+     * calls (see {@link #takePointOpFork(int)}).
+     * 
+     * @param <OpType>      the generic type of the point operation.
+     * @param <ReturnType>  the generic return type of the operation.
+     */
+    private abstract class PointOpFork<OpType extends PointOp<?, ReturnType>, ReturnType> extends Fork<ReturnType> {
+        private final ForkCall<OpType> call = new ForkCall<>();
+        private OpType source;
+        protected OpType localOp;
+        
+        private PointOpFork() {
+            setReuseWorkers(reusePointOpForks);
+        }
+        
+        protected final OpType getOp() { return call.op; }
+        
+        public void process(OpType op, Index3D from, Index3D to) {
+            this.from = call.from = from;
+            this.to = call.to = to;
+            call.op = op;
+            process();
+        }
+        
+        @SuppressWarnings("unchecked")
         @Override
-        protected int getRevisedChunks(int chunks, int minBlockSize) {
-            return super.getRevisedChunks(getPointOps(), minBlockSize);
+        public void init() {
+            super.init();
+            if(localOp != null) return;
+            source = call.op;
+            localOp = (OpType) source.newInstance();
         }
-
+        
         @Override
-        protected int getTotalOps() {
-            return 3 + sizeX() * sizeY() * sizeZ() * getPointOps();
+        protected void reset() {
+            from = call.from;
+            to = call.to;
+            // Keep the local copy of the same operation object, or else make a new one...
+            if(source == call.op) localOp.reset();
+            else localOp = null;
         }
-
-        protected int getPointOps() {
-            return 10;
-        }  
-
-
+        
+        @Override
+        public ReturnType getLocalResult() { return localOp.getResult(); }
+        
+        @Override
+        protected int getPointOps() { return 2 + call.op.numberOfOperations(); }
+        
+        @Override
+        protected Object getCostKey() { return call.op.getClass(); }
     }
 
 
@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Attila Kovacs <attila[AT]sigmyne.com>.
+ * All rights reserved. 
+ * 
+ * This file is part of jnum.
+ * 
+ *     jnum is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ * 
+ *     jnum is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ * 
+ *     You should have received a copy of the GNU General Public License
+ *     along with jnum.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Attila Kovacs <attila[AT]sigmyne.com> - initial API and implementation
+ ******************************************************************************/
+
+
+package jnum.data.cube;
+
+import jnum.data.WeightedPoint;
+
+/**
+ * A summed-area table (integral volume) of a 3D cube, with which the number of valid voxels, and the weighted sums, 
+ * means and variances of the valid voxels, inside any rectangular box can be obtained in O(1) operations, 
+ * independent of the size of the box. Blanked (invalid) voxels do not contribute.
+ * <p>
+ * 
+ * The table is a snapshot of the cube (and weights) at the time of construction. The sums are kept relative
+ * to the mean cube value, to limit round-off errors in the variances of data with large offsets.
+ * 
+ * @author Attila Kovacs <attila@sigmyne.com>
+ *
+ */
+public class SummedArea3D {
+    private int sizeX, sizeY, sizeZ;
+    private double offset;
+    
+    private int[][][] count;
+    private double[][][] sumw, sumwx, sumwx2;
+    
+    /**
+     * Constructs a new summed-area table for a cube, with the specified voxel weights.
+     * 
+     * @param data      the cube
+     * @param weight    the voxel weights, or <code>null</code> for uniform weights.
+     */
+    public SummedArea3D(final Data3D data, final Values3D weight) {
+        sizeX = data.sizeX();
+        sizeY = data.sizeY();
+        sizeZ = data.sizeZ();
+        
+        offset = data.getMean().value();
+        if(Double.isNaN(offset) || Double.isInfinite(offset)) offset = 0.0;
+        
+        count = new int[sizeX + 1][sizeY + 1][sizeZ + 1];
+        sumw = new double[sizeX + 1][sizeY + 1][sizeZ + 1];
+        sumwx = new double[sizeX + 1][sizeY + 1][sizeZ + 1];
+        sumwx2 = new double[sizeX + 1][sizeY + 1][sizeZ + 1];
+        
+        // Summed areas of each x plane (in parallel)...
+        data.new Fork<Void>() {
+            @Override
+            protected void processX(int i) {
+                final int[][] n = count[i+1];
+                final double[][] W = sumw[i+1], WX = sumwx[i+1], WX2 = sumwx2[i+1];
+                
+                for(int j=0; j<sizeY; j++) {
+                    final int[] nj = n[j+1], nj0 = n[j];
+                    final double[] Wj = W[j+1], WXj = WX[j+1], WX2j = WX2[j+1];
+                    final double[] Wj0 = W[j], WXj0 = WX[j], WX2j0 = WX2[j];
+                    
+                    int rn = 0;
+                    double rw = 0.0, rwx = 0.0, rwx2 = 0.0;
+                    
+                    for(int k=0; k<sizeZ; k++) {
+                        if(data.isValid(i, j, k)) {
+                            final double w = weight == null ? 1.0 : weight.getDouble(i, j, k);
+                            final double dx = data.getDouble(i, j, k) - offset;
+                            
+                            rn++;
+                            rw += Math.abs(w);
+                            rwx += w * dx;
+                            rwx2 += Math.abs(w) * dx * dx;
+                        }
+                        
+                        nj[k+1] = nj0[k+1] + rn;
+                        Wj[k+1] = Wj0[k+1] + rw;
+                        WXj[k+1] = WXj0[k+1] + rwx;
+                        WX2j[k+1] = WX2j0[k+1] + rwx2;
+                    }
+                }
+            }
+            
+            @Override
+            protected void process(int i, int j, int k) {}
+        }.process();
+        
+        // Then cumulative sums of the planes...
+        for(int i=1; i<sizeX; i++) for(int j=sizeY+1; --j > 0; ) {
+            final int[] n = count[i+1][j], n0 = count[i][j];
+            final double[] W = sumw[i+1][j], WX = sumwx[i+1][j], WX2 = sumwx2[i+1][j];
+            final double[] W0 = sumw[i][j], WX0 = sumwx[i][j], WX20 = sumwx2[i][j];
+            
+            for(int k=sizeZ+1; --k > 0; ) {
+                n[k] += n0[k];
+                W[k] += W0[k];
+                WX[k] += WX0[k];
+                WX2[k] += WX20[k];
+            }
+        }
+    }
+    
+    public final int sizeX() { return sizeX; }
+    
+    public final int sizeY() { return sizeY; }
+    
+    public final int sizeZ() { return sizeZ; }
+    
+    
+    /**
+     * Returns the number of valid voxels inside a box. The box is clipped to the cube as necessary.
+     * 
+     * @param fromi     the starting x index (inclusive) of the box.
+     * @param fromj     the starting y index (inclusive) of the box.
+     * @param fromk     the starting z index (inclusive) of the box.
+     * @param toi       the ending x index (exclusive) of the box.
+     * @param toj       the ending y index (exclusive) of the box.
+     * @param tok       the ending z index (exclusive) of the box.
+     * @return          the number of valid voxels in the box.
+     */
+    public int countValid(int fromi, int fromj, int fromk, int toi, int toj, int tok) {
+        fromi = clipX(fromi); toi = clipX(toi);
+        fromj = clipY(fromj); toj = clipY(toj);
+        fromk = clipZ(fromk); tok = clipZ(tok);
+        if(toi <= fromi || toj <= fromj || tok <= fromk) return 0;
+        
+        return count[toi][toj][tok] - count[fromi][toj][tok] - count[toi][fromj][tok] - count[toi][toj][fromk] 
+                + count[fromi][fromj][tok] + count[fromi][toj][fromk] + count[toi][fromj][fromk] 
+                - count[fromi][fromj][fromk];
+    }
+    
+    /**
+     * Sets the weighted sum sum(wI) of the valid voxels inside a box as the value, and the sum of weights sum(|w|) 
+     * as the weight of the supplied point. The box is clipped to the cube as necessary.
+     * 
+     * @param fromi     the starting x index (inclusive) of the box.
+     * @param fromj     the starting y index (inclusive) of the box.
+     * @param fromk     the starting z index (inclusive) of the box.
+     * @param toi       the ending x index (exclusive) of the box.
+     * @param toj       the ending y index (exclusive) of the box.
+     * @param tok       the ending z index (exclusive) of the box.
+     * @param result    the point to be set to the weighted sum and the sum of weights.
+     */
+    public void getSum(int fromi, int fromj, int fromk, int toi, int toj, int tok, WeightedPoint result) {
+        fromi = clipX(fromi); toi = clipX(toi);
+        fromj = clipY(fromj); toj = clipY(toj);
+        fromk = clipZ(fromk); tok = clipZ(tok);
+        
+        if(toi <= fromi || toj <= fromj || tok <= fromk) {
+            result.noData();
+            return;
+        }
+        
+        final double w = boxSum(sumw, fromi, fromj, fromk, toi, toj, tok);
+        result.setValue(boxSum(sumwx, fromi, fromj, fromk, toi, toj, tok) + offset * w);
+        result.setWeight(w);
+    }
+    
+    /**
+     * Sets the weighted mean sum(wI) / sum(|w|) of the valid voxels inside a box as the value, and the sum of 
+     * weights sum(|w|) as the weight of the supplied point. This is the same as smoothing with a box beam. The box 
+     * is clipped to the cube as necessary.
+     * 
+     * @param fromi     the starting x index (inclusive) of the box.
+     * @param fromj     the starting y index (inclusive) of the box.
+     * @param fromk     the starting z index (inclusive) of the box.
+     * @param toi       the ending x index (exclusive) of the box.
+     * @param toj       the ending y index (exclusive) of the box.
+     * @param tok       the ending z index (exclusive) of the box.
+     * @param result    the point to be set to the weighted mean and the sum of weights.
+     */
+    public void getMean(int fromi, int fromj, int fromk, int toi, int toj, int tok, WeightedPoint result) {
+        getSum(fromi, fromj, fromk, toi, toj, tok, result);
+        result.setValue(result.weight() > 0.0 ? result.value() / result.weight() : Double.NaN);
+    }
+    
+    /**
+     * Returns the weighted variance sum(|w| (I - mean)^2) / sum(|w|) of the valid voxels inside a box. The box 
+     * is clipped to the cube as necessary.
+     * 
+     * @param fromi     the starting x index (inclusive) of the box.
+     * @param fromj     the starting y index (inclusive) of the box.
+     * @param fromk     the starting z index (inclusive) of the box.
+     * @param toi       the ending x index (exclusive) of the box.
+     * @param toj       the ending y index (exclusive) of the box.
+     * @param tok       the ending z index (exclusive) of the box.
+     * @return          the weighted variance in the box, or NaN if the box contains no weighted data.
+     */
+    public double getVariance(int fromi, int fromj, int fromk, int toi, int toj, int tok) {
+        fromi = clipX(fromi); toi = clipX(toi);
+        fromj = clipY(fromj); toj = clipY(toj);
+        fromk = clipZ(fromk); tok = clipZ(tok);
+        if(toi <= fromi || toj <= fromj || tok <= fromk) return Double.NaN;
+        
+        final double w = boxSum(sumw, fromi, fromj, fromk, toi, toj, tok);
+        if(!(w > 0.0)) return Double.NaN;
+        
+        final double mean = boxSum(sumwx, fromi, fromj, fromk, toi, toj, tok) / w;
+        return Math.max(0.0, boxSum(sumwx2, fromi, fromj, fromk, toi, toj, tok) / w - mean * mean);
+    }
+    
+    private int clipX(int i) { return Math.max(0, Math.min(sizeX, i)); }
+    
+    private int clipY(int j) { return Math.max(0, Math.min(sizeY, j)); }
+    
+    private int clipZ(int k) { return Math.max(0, Math.min(sizeZ, k)); }
+    
+    private static double boxSum(double[][][] S, int fromi, int fromj, int fromk, int toi, int toj, int tok) {
+        return S[toi][toj][tok] - S[fromi][toj][tok] - S[toi][fromj][tok] - S[toi][toj][fromk] 
+                + S[fromi][fromj][tok] + S[fromi][toj][fromk] + S[toi][fromj][fromk] 
+                - S[fromi][fromj][fromk];
+    }
+}
@@ -39,6 +39,14 @@ public interface Values3D extends IndexedValues<Index3D>, Validating3D {
     
     public void set(int i, int j, int k, Number value);
     
+    public double getDouble(int i, int j, int k);
+    
+    public void addDouble(int i, int j, int k, double value);
+    
+    public void setDouble(int i, int j, int k, double value);
+    
+    public void scale(int i, int j, int k, double factor);
+    
     public double valueAtIndex(double i, double j, double k);
    
  
@@ -117,6 +117,21 @@ public class Overlay3D extends Data3D {
     public void add(int i, int j, int k, Number value) {
         values.add(i, j, k, value);
     }
+
+    @Override
+    public double getDouble(int i, int j, int k) {
+        return values.getDouble(i, j, k);
+    }
+
+    @Override
+    public void setDouble(int i, int j, int k, double value) {
+        values.setDouble(i, j, k, value);
+    }
+
+    @Override
+    public void addDouble(int i, int j, int k, double value) {
+        values.addDouble(i, j, k, value);
+    }
     
     @Override
     public final Number getLowestCompareValue() {
@@ -139,4 +154,10 @@ public class Overlay3D extends Data3D {
         return getCube().getCore();
     }  
     
+    @Override
+    public Object getNestedCore() {
+        if(values instanceof Data) return ((Data<?>) values).getNestedCore();
+        return getCube().getNestedCore();
+    }
+    
 }
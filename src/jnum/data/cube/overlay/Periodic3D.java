@@ -111,6 +111,21 @@ public class Periodic3D extends Overlay3D {
         super.add(toBaseI(i), toBaseJ(j), toBaseK(k), value);
     }
 
+    @Override
+    public double getDouble(int i, int j, int k) {
+        return super.getDouble(toBaseI(i), toBaseJ(j), toBaseK(k));
+    }
+
+    @Override
+    public void setDouble(int i, int j, int k, double value) {
+        super.setDouble(toBaseI(i), toBaseJ(j), toBaseK(k), value);
+    }
+
+    @Override
+    public void addDouble(int i, int j, int k, double value) {
+        super.addDouble(toBaseI(i), toBaseJ(j), toBaseK(k), value);
+    }
+
     @Override
     public double valueAtIndex(double i, double j, double k) {
         return super.valueAtIndex(toBaseI(i), toBaseJ(j), toBaseK(k));
@@ -43,7 +43,7 @@ public class RangeRestricted3D extends Overlay3D {
     
     @Override
     public boolean isValid(int i, int j, int k) {
-        return validRange.contains(get(i, j, k).doubleValue()) && super.isValid(i, j, k);
+        return validRange.contains(getDouble(i, j, k)) && super.isValid(i, j, k);
     }
 
    
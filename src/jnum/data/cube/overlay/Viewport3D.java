@@ -159,6 +159,21 @@ public class Viewport3D extends Overlay3D implements Resizable3D {
         super.add(i + i0, j + j0, k + k0, value);
     }
 
+    @Override
+    public final double getDouble(int i, int j, int k) {
+        return super.getDouble(i + i0, j + j0, k + k0);
+    }
+
+    @Override
+    public final void setDouble(int i, int j, int k, double value) {
+        super.setDouble(i + i0, j + j0, k + k0, value);
+    }
+
+    @Override
+    public final void addDouble(int i, int j, int k, double value) {
+        super.addDouble(i + i0, j + j0, k + k0, value);
+    }
+
     @Override
     public final double valueAtIndex(double i, double j, double k) {
         return super.valueAtIndex(i + i0, j + j0, k + k0);
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 
 import jnum.NonConformingException;
+import jnum.DoublePointOp;
 import jnum.PointOp;
 import jnum.Unit;
 import jnum.data.cube.Index3D;
@@ -40,6 +41,7 @@ import jnum.data.WeightedPoint;
 import jnum.data.cube.Data3D;
 import jnum.data.image.Data2D;
 import jnum.data.image.Image2D;
+import jnum.data.samples.Data1D;
 import jnum.data.samples.Index1D;
 import jnum.data.samples.Offset1D;
 import jnum.data.samples.Samples1D;
@@ -253,6 +255,21 @@ public abstract class Data2D1<ImageType extends Data2D> extends Data3D {
         getPlane(k).scale(i, j, factor);
     }
 
+    @Override
+    public double getDouble(int i, int j, int k) {
+        return getPlane(k).getDouble(i, j);
+    }
+
+    @Override
+    public void setDouble(int i, int j, int k, double value) {
+        getPlane(k).setDouble(i, j, value);
+    }
+
+    @Override
+    public void addDouble(int i, int j, int k, double value) {
+        getPlane(k).addDouble(i, j, value);
+    }
+
 
 
     @Override
@@ -299,7 +316,7 @@ public abstract class Data2D1<ImageType extends Data2D> extends Data3D {
     }
 
     public synchronized void smoothZ(RegularData<Index1D, Offset1D> beam, double refIndex) {
-        // TODO
+        smoothZ(beam, refIndex, 1);
         addHistory("z-smoothed");
     }
 
@@ -312,10 +329,33 @@ public abstract class Data2D1<ImageType extends Data2D> extends Data3D {
     }
 
     public synchronized void fastSmoothZ(RegularData<Index1D, Offset1D> beam, double refIndex, int step) {
-        // TODO
+        smoothZ(beam, refIndex, step);
         addHistory("z-smoothed (fast method)");
     }
 
+    // Smooths the spectra one at a time, letting the 1D smoothing pick the direct or FFT method as appropriate.
+    private void smoothZ(final RegularData<Index1D, Offset1D> beam, double refIndex, final int step) {
+        if(sizeZ() == 0) return;
+        
+        final Offset1D ref = new Offset1D(refIndex);
+        final Index1D zStep = new Index1D(Math.max(1, step));
+        getPlane(0).new Fork<Void>() {
+            @Override
+            protected void process(int i, int j) {
+                final Samples1D spectrum = Samples1D.createType(Double.class, sizeZ());
+                
+                for(int k=sizeZ(); --k >= 0; ) {
+                    final Data2D plane = getPlane(k);
+                    spectrum.set(k, plane.isValid(i, j) ? plane.getDouble(i, j) : Double.NaN);
+                }
+                
+                final Data1D smoothed = (Data1D) spectrum.getFastSmoothed(beam, ref, zStep, null, null);
+                
+                for(int k=sizeZ(); --k >= 0; ) if(spectrum.isValid(k)) getPlane(k).setDouble(i, j, smoothed.getDouble(k));
+            }
+        }.process();
+    }
+
 
 
     public Data2D getSumZ() { return getSumZ(0, sizeZ()); }
@@ -398,9 +438,9 @@ public abstract class Data2D1<ImageType extends Data2D> extends Data3D {
                 int n = 0;
                 for(int k=tok; --k >= fromk; ) {
                     final Data2D plane = getPlane(k);
-                    if(plane.isValid(i, j)) sorter[n++] = plane.get(i, j).doubleValue();
+                    if(plane.isValid(i, j)) sorter[n++] = plane.getDouble(i, j);
                 }
-                if(n > 0) sum.set(i,  j, Statistics.Inplace.median(sorter, 0, n));
+                if(n > 0) sum.setDouble(i,  j, Statistics.Inplace.median(sorter, 0, n));
             }
         }.process();
 
@@ -457,7 +497,7 @@ public abstract class Data2D1<ImageType extends Data2D> extends Data3D {
                 final double wzx = wz * splineX.coefficientAt(i);
                 for(int j=toj; --j >= fromj; ) if(slice.isValid(i, j)) {
                     final double w = wzx * splineY.coefficientAt(j);         
-                    sum += w * slice.get(i, j).doubleValue();
+                    sum += w * slice.getDouble(i, j);
                     sumw += w;
                 }
             }
@@ -494,6 +534,19 @@ public abstract class Data2D1<ImageType extends Data2D> extends Data3D {
     }
 
 
+    @Override
+    public <ReturnType> ReturnType loopValidDouble(final DoublePointOp<ReturnType> op, Index3D from, Index3D to) {
+        for(int k=to.k(); --k >= from.k(); ) {
+            final ImageType plane = getPlane(k);
+            for(int i=to.i(); --i >= from.i(); ) for(int j=to.j(); --j >= from.j(); ) if(plane.isValid(i, j)) {
+                op.process(plane.getDouble(i, j));
+                if(op.exception != null) return null;
+            }
+        }
+        return op.getResult();
+    }
+
+
     public abstract class ForkZ<ReturnType> extends Task<ReturnType> {  
         private int fromZ, toZ;
 
@@ -514,13 +567,8 @@ public abstract class Data2D1<ImageType extends Data2D> extends Data3D {
         protected abstract void processPlane(int k);
 
         @Override
-        protected int getRevisedChunks(int chunks, int minBlockSize) {
-            return super.getRevisedChunks(getPointOps(), minBlockSize);
-        }
-
-        @Override
-        protected int getTotalOps() {
-            return 3 + capacity() * getPointOps();
+        protected long getTotalOps() {
+            return 3 + (long) capacity() * getPointOps();
         }
 
         protected int getPointOps() {
@@ -107,6 +107,21 @@ public class Observation2D1 extends AbstractMap2D1<Observation2D> implements Obs
                 set(i, j, k, get(i, j, k).doubleValue() + value.doubleValue());
             }
 
+            @Override
+            public double getDouble(int i, int j, int k) {
+                return getPlane(k).noiseAt(i, j);
+            }
+
+            @Override
+            public void setDouble(int i, int j, int k, double value) {
+                super.setDouble(i, j, k, 1.0 / (value * value));
+            }    
+
+            @Override
+            public void addDouble(int i, int j, int k, double value) {
+                setDouble(i, j, k, getDouble(i, j, k) + value);
+            }
+
             @Override
             protected void setDefaultUnit() { setUnit(Observation2D1.this.getUnit()); }
 
@@ -132,6 +147,21 @@ public class Observation2D1 extends AbstractMap2D1<Observation2D> implements Obs
                 set(i, j, k, get(i, j, k).doubleValue() + value.doubleValue());
             }    
 
+            @Override
+            public double getDouble(int i, int j, int k) {
+                return getPlane(k).significanceAt(i, j);
+            }
+
+            @Override
+            public void setDouble(int i, int j, int k, double value) {
+                super.setDouble(i, j, k, value * getPlane(k).noiseAt(i, j));
+            }  
+
+            @Override
+            public void addDouble(int i, int j, int k, double value) {
+                setDouble(i, j, k, getDouble(i, j, k) + value);
+            }    
+
             @Override
             protected void setDefaultUnit() { super.setUnit(Unit.unity); }
 
@@ -246,7 +276,7 @@ public class Observation2D1 extends AbstractMap2D1<Observation2D> implements Obs
             protected void processPlane(int k) {
                 final Observation2D plane = getPlane(k);
                 for(int i=sizeX(); --i >= 0; ) for(int j=sizeY(); --j >= 0; ) if(plane.isValid(i, j))
-                    ave.accumulateAt(i, j, plane.get(i, j).doubleValue(), 1.0, plane.weightAt(i, j), plane.exposureAt(i, j));                
+                    ave.accumulateAt(i, j, plane.getDouble(i, j), 1.0, plane.weightAt(i, j), plane.exposureAt(i, j));                
             }
         }.process();
 
@@ -285,13 +315,13 @@ public class Observation2D1 extends AbstractMap2D1<Observation2D> implements Obs
                     if(!plane.isValid(i, j)) continue;
 
                     final WeightedPoint p = sorter[m++];
-                    p.setValue(plane.get(i, j).doubleValue());
+                    p.setValue(plane.getDouble(i, j));
                     p.setWeight(plane.weightAt(i, j));
                     sumt += plane.exposureAt(i, j);
                 }
                 if(m > 0) {
                     WeightedPoint medianValue = Statistics.Inplace.median(sorter, 0, m);
-                    median.set(i, j, medianValue.value());
+                    median.setDouble(i, j, medianValue.value());
                     median.setWeightAt(i, j, medianValue.weight());
                     median.setExposureAt(i, j, sumt);
                 }
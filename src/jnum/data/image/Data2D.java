@@ -23,20 +23,26 @@
 
 package jnum.data.image;
 
+import java.io.Serializable;
 import java.util.List;
 
 import jnum.Constant;
+import jnum.DoublePointOp;
 import jnum.PointOp;
 import jnum.Util;
 import jnum.data.DataPoint;
+import jnum.data.IndexedValues;
 import jnum.data.RegularData;
 import jnum.data.SplineSet;
+import jnum.data.Validating;
 import jnum.data.DataCrawler;
 import jnum.data.CubicSpline;
 import jnum.data.WeightedPoint;
+import jnum.data.samples.overlay.Referenced1D;
 import jnum.math.IntRange;
 import jnum.math.Range;
 import jnum.math.Vector2D;
+import jnum.parallel.DoubleParallelPointOp;
 import jnum.parallel.ParallelPointOp;
 import jnum.parallel.ParallelTask;
 import jnum.util.HashCode;
@@ -145,6 +151,9 @@ public abstract class Data2D extends RegularData<Index2D, Vector2D> implements V
     @Override
     public final Number get(Index2D index) { return get(index.i(), index.j()); }
 
+    @Override
+    public final double getDouble(Index2D index) { return getDouble(index.i(), index.j()); }
+
     public final Number getValid(final int i, final int j, final Number defaultValue) {
         if(!isValid(i, j)) return defaultValue;
         return get(i, j);
@@ -162,8 +171,18 @@ public abstract class Data2D extends RegularData<Index2D, Vector2D> implements V
     public final void add(Index2D index, Number value) { add(index.i(), index.j(), value); }
 
 
+    @Override
+    public double getDouble(int i, int j) { return get(i, j).doubleValue(); }
+
+    @Override
+    public void setDouble(int i, int j, double value) { set(i, j, value); }
+
+    @Override
+    public void addDouble(int i, int j, double value) { add(i, j, value); }
+
+    @Override
     public void scale(int i, int j, double factor) {
-        set(i, j, get(i, j).doubleValue() * factor);
+        setDouble(i, j, getDouble(i, j) * factor);
     }
 
     @Override
@@ -271,7 +290,7 @@ public abstract class Data2D extends RegularData<Index2D, Vector2D> implements V
 
                 if(r > radialRange.max()) return;
 
-                double p = get(i,j).doubleValue();
+                double p = getDouble(i,j);
 
                 values.m0 += Math.abs(p);
 
@@ -323,16 +342,16 @@ public abstract class Data2D extends RegularData<Index2D, Vector2D> implements V
 
         double a=0.0,b=0.0,c=0.0,d=0.0;
 
-        double y0 = get(i,j).doubleValue();
+        double y0 = getDouble(i,j);
 
         if(i>0) if(i<sizeX()-1) if(isValid(i+1, j)) if(isValid(i-1, j)) {
-            a = 0.5 * (get(i+1,j).doubleValue() + get(i-1,j).doubleValue()) - y0;
-            c = 0.5 * (get(i+1,j).doubleValue() - get(i-1,j).doubleValue());
+            a = 0.5 * (getDouble(i+1,j) + getDouble(i-1,j)) - y0;
+            c = 0.5 * (getDouble(i+1,j) - getDouble(i-1,j));
         }
 
         if(j>0) if(j<sizeY()-1) if(isValid(i, j+1)) if(isValid(i, j-1)) {
-            b = 0.5 * (get(i,j+1).doubleValue() + get(i,j-1).doubleValue()) - y0;
-            d = 0.5 * (get(i,j+1).doubleValue() - get(i,j-1).doubleValue());
+            b = 0.5 * (getDouble(i,j+1) + getDouble(i,j-1)) - y0;
+            d = 0.5 * (getDouble(i,j+1) - getDouble(i,j-1));
         }
 
         double di = (a == 0.0) ? 0.0 : -0.5*c/a;
@@ -371,10 +390,10 @@ public abstract class Data2D extends RegularData<Index2D, Vector2D> implements V
         if(!containsIndex(i, j)) return Double.NaN;
         if(!isValid(i, j)) return Double.NaN;
 
-        if(i == ic) if(j == jc) return get(i, j).doubleValue();
+        if(i == ic) if(j == jc) return getDouble(i, j);
 
         switch(getInterpolationType()) {
-        case NEAREST : return get(i, j).doubleValue();
+        case NEAREST : return getDouble(i, j);
         case LINEAR : return linearAtIndex(ic, jc);
         case QUADRATIC : return quadraticAtIndex(ic, jc);
         case SPLINE : return splines == null ? splineAtIndex(ic, jc) : splineAtIndex(ic, jc, splines);
@@ -407,22 +426,22 @@ public abstract class Data2D extends RegularData<Index2D, Vector2D> implements V
 
         if(isValid(i, j)) {
             double w = (1.0 - di) * (1.0 - dj);
-            sum += w * get(i, j).doubleValue();
+            sum += w * getDouble(i, j);
             sumw += w;          
         }
         if(isValid(i+1, j)) {
             double w = di * (1.0 - dj);
-            sum += w * get(i+1, j).doubleValue();
+            sum += w * getDouble(i+1, j);
             sumw += w;  
         }
         if(isValid(i, j+1)) {
             double w = (1.0 - di) * dj;
-            sum += w * get(i, j+1).doubleValue();
+            sum += w * getDouble(i, j+1);
             sumw += w;  
         }
         if(isValid(i+1, j+1)) {
             double w = di * dj;
-            sum += w * get(i+1, j+1).doubleValue();
+            sum += w * getDouble(i+1, j+1);
             sumw += w;  
         }
 
@@ -451,26 +470,26 @@ public abstract class Data2D extends RegularData<Index2D, Vector2D> implements V
         final int i = (int)Math.round(ic);
         final int j = (int)Math.round(jc);
 
-        final double y0 = get(i, j).doubleValue();
+        final double y0 = getDouble(i, j);
         double ax=0.0, ay=0.0, bx=0.0, by=0.0;
 
         if(isValid(i+1,j)) {
             if(isValid(i-1, j)) {
-                ax = 0.5 * (get(i+1, j).doubleValue() + get(i-1, j).doubleValue()) - y0;
-                bx = 0.5 * (get(i+1, j).doubleValue() - get(i-1, j).doubleValue());
+                ax = 0.5 * (getDouble(i+1, j) + getDouble(i-1, j)) - y0;
+                bx = 0.5 * (getDouble(i+1, j) - getDouble(i-1, j));
             }
-            else bx = get(i+1, j).doubleValue() - y0; // Fall back to linear...
+            else bx = getDouble(i+1, j) - y0; // Fall back to linear...
         }
-        else if(isValid(i-1, j)) bx = y0 - get(i-1, j).doubleValue();
+        else if(isValid(i-1, j)) bx = y0 - getDouble(i-1, j);
 
         if(isValid(i,j+1)) {
             if(isValid(i,j-1)) {
-                ay = 0.5 * (get(i, j+1).doubleValue() + get(i, j-1).doubleValue()) - y0;
-                by = 0.5 * (get(i, j+1).doubleValue() - get(i, j-1).doubleValue());
+                ay = 0.5 * (getDouble(i, j+1) + getDouble(i, j-1)) - y0;
+                by = 0.5 * (getDouble(i, j+1) - getDouble(i, j-1));
             }
-            else by = get(i, j+1).doubleValue() - y0; // Fall back to linear...
+            else by = getDouble(i, j+1) - y0; // Fall back to linear...
         }
-        else if(isValid(i,j-1)) by = y0 - get(i, j-1).doubleValue();
+        else if(isValid(i,j-1)) by = y0 - getDouble(i, j-1);
 
         ic -= i;
         jc -= j;
@@ -509,7 +528,7 @@ public abstract class Data2D extends RegularData<Index2D, Vector2D> implements V
             final double wx = splineX.coefficientAt(i);
             for(int j=toj; --j >= fromj; ) if(isValid(i, j)) {
                 final double w = wx * splineY.coefficientAt(j);
-                sum += w * get(i, j).doubleValue();
+                sum += w * getDouble(i, j);
                 sumw += w;
             }
         }
@@ -540,6 +559,387 @@ public abstract class Data2D extends RegularData<Index2D, Vector2D> implements V
     }
 
 
+    /**
+     * Returns a smoothed copy of this image, obtained by a sequence of 1D convolutions along lines. This
+     * is equivalent to smoothing with the 2D beam that is the convolution of the line beams. For example,
+     * a row pass followed by a column pass is the same as smoothing with the product beam B(x,y) = Bx(x) By(y),
+     * but it takes O(Bx + By) operations per pixel instead of O(Bx By).
+     * <p>
+     * As with {@link #getSmoothed(RegularData, jnum.math.TrueVector, jnum.data.IndexedValues, jnum.data.IndexedValues)}, 
+     * the smoothed values are the weighted means sum(wBI) / sum(|wB|), with blanked (invalid) pixels not contributing, and
+     * only the valid pixels are set in the returned image.
+     * 
+     * @param passes            the line beams, in the order they are to be applied.
+     * @param weight            the weights of the pixels, or <code>null</code> for uniform weights.
+     * @param smoothedWeights   the image to be set to the smoothed weights sum(|wB|), or <code>null</code> if not needed.
+     * @return                  a new smoothed copy of this image.
+     * 
+     * @see Gaussian2D#getLineBeams(Grid2D, double)
+     */
+    public Image2D getLineSmoothed(final LineBeam[] passes, final Values2D weight, final Values2D smoothedWeights) {
+        return getLineSmoothed(passes, weight, smoothedWeights, null, null);
+    }
+    
+    /**
+     * Same as {@link #getLineSmoothed(LineBeam[], Values2D, Values2D)}, but it also smooths a companion plane of
+     * values (such as exposure times) in the same line passes, with the same weights and validity as this image. 
+     * 
+     * @param passes                the line beams, in the order they are to be applied.
+     * @param weight                the weights of the pixels, or <code>null</code> for uniform weights.
+     * @param smoothedWeights       the image to be set to the smoothed weights sum(|wB|), or <code>null</code> if not needed.
+     * @param companion             the companion values to smooth alongside this image, or <code>null</code> if none.
+     * @param smoothedCompanion     the image to be set to the smoothed companion values at the valid pixels, or 
+     *                              <code>null</code> if no companion is smoothed.
+     * @return                      a new smoothed copy of this image.
+     */
+    public Image2D getLineSmoothed(final LineBeam[] passes, final Values2D weight, final Values2D smoothedWeights, 
+            final Values2D companion, final Values2D smoothedCompanion) {
+        double[][] signal = new double[sizeX()][sizeY()];
+        double[][] sumw = new double[sizeX()][sizeY()];
+        double[][] other = companion == null ? null : new double[sizeX()][sizeY()];
+        
+        final double[][] S0 = signal, W0 = sumw, C0 = other;
+        
+        new Fork<Void>() {
+            @Override
+            protected void process(int i, int j) {
+                if(!isValid(i, j)) return;
+                final double w = weight == null ? 1.0 : weight.getDouble(i, j);
+                S0[i][j] = w * getDouble(i, j);
+                W0[i][j] = Math.abs(w);
+                if(C0 != null) C0[i][j] = w * companion.getDouble(i, j);
+            }
+        }.process();
+        
+        double[][] signal2 = new double[sizeX()][sizeY()];
+        double[][] sumw2 = new double[sizeX()][sizeY()];
+        double[][] other2 = companion == null ? null : new double[sizeX()][sizeY()];
+        
+        for(LineBeam pass : passes) {
+            convolve(pass, signal, sumw, other, signal2, sumw2, other2);
+            
+            double[][] temp = signal; signal = signal2; signal2 = temp;
+            temp = sumw; sumw = sumw2; sumw2 = temp;
+            temp = other; other = other2; other2 = temp;
+        }
+        
+        final double[][] S = signal, W = sumw, C = other;
+        final Image2D smoothed = newImage();
+        
+        new Fork<Void>() {
+            @Override
+            protected void process(int i, int j) {
+                if(!isValid(i, j)) return;
+                smoothed.setDouble(i, j, W[i][j] > 0.0 ? S[i][j] / W[i][j] : Double.NaN);
+                if(smoothedWeights != null) smoothedWeights.setDouble(i, j, W[i][j]);
+                if(C != null) smoothedCompanion.setDouble(i, j, W[i][j] > 0.0 ? C[i][j] / W[i][j] : Double.NaN);
+            }
+        }.process();
+        
+        smoothed.addHistory("smoothed copy (line passes)");
+        
+        return smoothed;
+    }
+
+
+    private void convolve(final LineBeam pass, final double[][] S, final double[][] W, final double[][] C, 
+            final double[][] toS, final double[][] toW, final double[][] toC) {
+        final double[] B = pass.B, absB = pass.absB;
+        final int[] di = pass.di, dj = pass.dj;
+        final int sizeX = sizeX(), sizeY = sizeY();
+        
+        new Fork<Void>() {
+            @Override
+            protected void process(int i, int j) {
+                double sum = 0.0, sumw = 0.0, sumc = 0.0;
+                
+                for(int k=B.length; --k >= 0; ) {
+                    final int i1 = i + di[k];
+                    if(i1 < 0 || i1 >= sizeX) continue;
+                    final int j1 = j + dj[k];
+                    if(j1 < 0 || j1 >= sizeY) continue;
+                    
+                    sum += B[k] * S[i1][j1];
+                    sumw += absB[k] * W[i1][j1];
+                    if(C != null) sumc += B[k] * C[i1][j1];
+                }
+                
+                toS[i][j] = sum;
+                toW[i][j] = sumw;
+                if(toC != null) toC[i][j] = sumc;
+            }
+        }.process();
+    }
+    
+    
+    /**
+     * A 1D beam applied along a line in the image, with a fixed step (in pixels) between successive beam points.
+     * Line beams are the building blocks of separable smoothing via {@link Data2D#getLineSmoothed(LineBeam[], Values2D, Values2D)}.
+     * 
+     * @author Attila Kovacs <attila@sigmyne.com>
+     *
+     */
+    public static class LineBeam implements Serializable {
+        private static final long serialVersionUID = -1906133357930385235L;
+        
+        private double[] B, absB;
+        private int[] di, dj;
+        private int stepX, stepY;
+        
+        /**
+         * Constructs a new line beam from 1D beam samples. The beam points fall on whole pixels, so that no
+         * interpolation between pixels is needed.
+         * 
+         * @param beam      the 1D beam (with its reference index).
+         * @param stepX     the pixel step in x between successive beam points.
+         * @param stepY     the pixel step in y between successive beam points.
+         */
+        public LineBeam(Referenced1D beam, int stepX, int stepY) {
+            this.stepX = stepX;
+            this.stepY = stepY;
+            
+            final double ref = beam.getReferenceIndex().value();
+            if(Math.abs(ref - Math.rint(ref)) > 1e-9) throw new IllegalArgumentException("Line beams must have an integer reference index.");
+            
+            int n = 0;
+            for(int k=beam.size(); --k >= 0; ) if(beam.isValid(k)) n++;
+            
+            B = new double[n];
+            absB = new double[n];
+            di = new int[n];
+            dj = new int[n];
+            
+            for(int k=beam.size(); --k >= 0; ) if(beam.isValid(k)) {
+                n--;
+                B[n] = beam.getDouble(k);
+                absB[n] = Math.abs(B[n]);
+                final int offset = k - (int) Math.rint(ref);
+                di[n] = offset * stepX;
+                dj[n] = offset * stepY;
+            }
+        }
+        
+        public final int getStepX() { return stepX; }
+        
+        public final int getStepY() { return stepY; }
+        
+        public final int size() { return B.length; }
+    }
+
+
+
+    /**
+     * Returns a summed-area table (integral image) of this image, with which sums, means, and variances of the valid 
+     * pixels in rectangular boxes can be calculated in O(1) operations. The table is a snapshot of the current image.
+     * 
+     * @param weight    the pixel weights, or <code>null</code> for uniform weights.
+     * @return          the summed-area table of this image.
+     */
+    public SummedArea2D getSummedArea(Values2D weight) {
+        return new SummedArea2D(this, weight);
+    }
+
+    /**
+     * Smooths this image with a rectangular box beam, in O(1) operations per pixel, regardless of the box size.
+     * 
+     * @param nx    the box size (pixels) along x.
+     * @param ny    the box size (pixels) along y.
+     * 
+     * @see #getBoxSmoothed(int, int, Values2D, Values2D)
+     */
+    public synchronized void boxSmooth(int nx, int ny) {
+        paste(getBoxSmoothed(nx, ny, null, null), false);
+        addHistory("box smoothed " + nx + "x" + ny);
+    }
+
+    /**
+     * Returns a copy of this image smoothed with a rectangular box beam, i.e. the local weighted means 
+     * sum(wI) / sum(|w|) of the valid pixels in an nx by ny box around each pixel. The box is centered on the 
+     * pixel for odd sizes, and extends one pixel further in the negative direction for even sizes. It takes 
+     * O(1) operations per pixel, regardless of the box size, via a summed-area table. 
+     * As with {@link #getLineSmoothed(LineBeam[], Values2D, Values2D)}, only the valid pixels are set in the 
+     * returned image.
+     * 
+     * @param nx                the box size (pixels) along x.
+     * @param ny                the box size (pixels) along y.
+     * @param weight            the weights of the pixels, or <code>null</code> for uniform weights.
+     * @param smoothedWeights   the image to be set to the smoothed weights sum(|w|), or <code>null</code> if not needed.
+     * @return                  a new box-smoothed copy of this image.
+     */
+    public Image2D getBoxSmoothed(final int nx, final int ny, final Values2D weight, final Values2D smoothedWeights) {
+        final SummedArea2D table = getSummedArea(weight);
+        final Image2D smoothed = newImage();
+        final int di = nx >>> 1, dj = ny >>> 1;
+        
+        new Fork<Void>() {
+            private WeightedPoint mean;
+            
+            @Override
+            public void init() {
+                super.init();
+                mean = new WeightedPoint();
+            }
+            
+            @Override
+            protected void process(int i, int j) {
+                if(!isValid(i, j)) return;
+                table.getMean(i - di, j - dj, i - di + nx, j - dj + ny, mean);
+                smoothed.setDouble(i, j, mean.value());
+                if(smoothedWeights != null) smoothedWeights.setDouble(i, j, mean.weight());
+            }
+        }.process();
+        
+        smoothed.addHistory("box smoothed copy " + nx + "x" + ny);
+        
+        return smoothed;
+    }
+
+    /**
+     * Returns a map of the local weighted variances sum(|w| (I - mean)^2) / sum(|w|) of the valid pixels in an 
+     * nx by ny box around each pixel, in O(1) operations per pixel. The boxes are placed the same way as in 
+     * {@link #getBoxSmoothed(int, int, Values2D, Values2D)}. Only the valid pixels are set in the returned image.
+     * 
+     * @param nx        the box size (pixels) along x.
+     * @param ny        the box size (pixels) along y.
+     * @param weight    the weights of the pixels, or <code>null</code> for uniform weights.
+     * @return          a new image containing the local variances.
+     */
+    public Image2D getLocalVariance(final int nx, final int ny, final Values2D weight) {
+        final SummedArea2D table = getSummedArea(weight);
+        final Image2D variance = newImage();
+        final int di = nx >>> 1, dj = ny >>> 1;
+        
+        new Fork<Void>() {
+            @Override
+            protected void process(int i, int j) {
+                if(isValid(i, j)) variance.setDouble(i, j, table.getVariance(i - di, j - dj, i - di + nx, j - dj + ny));
+            }
+        }.process();
+        
+        variance.addHistory("local variance " + nx + "x" + ny);
+        
+        return variance;
+    }
+
+    /**
+     * Returns a map of the number of valid pixels in an nx by ny box around each pixel, not counting the pixel
+     * itself, in O(1) operations per pixel. The boxes are placed the same way as in 
+     * {@link #getBoxSmoothed(int, int, Values2D, Values2D)}. All pixels are set in the returned image.
+     * 
+     * @param nx        the box size (pixels) along x.
+     * @param ny        the box size (pixels) along y.
+     * @return          a new integer image containing the neighbor counts.
+     */
+    public Image2D getNeighborCounts(final int nx, final int ny) {
+        final SummedArea2D table = getSummedArea(null);
+        final Image2D counts = newImage(getSize(), Integer.class);
+        final int di = nx >>> 1, dj = ny >>> 1;
+        
+        new Fork<Void>() {
+            @Override
+            protected void process(int i, int j) {
+                int n = table.countValid(i - di, j - dj, i - di + nx, j - dj + ny);
+                if(isValid(i, j)) n--;
+                counts.set(i, j, n);
+            }
+        }.process();
+        
+        counts.addHistory("neighbor counts " + nx + "x" + ny);
+        
+        return counts;
+    }
+
+    /**
+     * Same as the generic implementation, but with the neighbor counts obtained from a summed-area table 
+     * of the image at the time of the call.
+     */
+    @Override
+    public Validating<Index2D> getNeighborValidator(final int minNeighbors) {
+        final SummedArea2D table = getSummedArea(null);
+        
+        return new Validating<Index2D>() {
+            @Override
+            public boolean isValid(Index2D index) {
+                final int i = index.i(), j = index.j();
+                int n = table.countValid(i-1, j-1, i+2, j+2);
+                if(Data2D.this.isValid(i, j)) n--;
+                return n >= minNeighbors;
+            }
+
+            @Override
+            public void discard(Index2D index) {
+                Data2D.this.discard(index);
+            }
+        };
+    }
+
+    /**
+     * Same as the generic implementation, but the surrounding (inverse-distance-squared weighted) mean of the nearest
+     * neighbors is assembled from the 3x3 box, and the row and column through each pixel, of a summed-area table,
+     * in O(1) operations per pixel. All pixels are tested against the image as it was at the time of the call.
+     */
+    @Override
+    public synchronized void despike(final double significance, final IndexedValues<Index2D> noiseWeight) {
+        if(noiseWeight != null && !(noiseWeight instanceof Values2D)) {
+            super.despike(significance, noiseWeight);
+            return;
+        }
+        
+        final Values2D weight = (Values2D) noiseWeight;
+        final SummedArea2D table = getSummedArea(weight);
+        final boolean[][] isSpike = new boolean[sizeX()][sizeY()];
+        
+        new Fork<Void>() {
+            private WeightedPoint point, box, row, col;
+            
+            @Override
+            public void init() {
+                super.init();
+                point = new WeightedPoint();
+                box = new WeightedPoint();
+                row = new WeightedPoint();
+                col = new WeightedPoint();
+            }
+            
+            @Override
+            protected void process(int i, int j) {
+                if(!isValid(i, j)) return;
+                if(table.countValid(i-1, j-1, i+2, j+2) < 2) return;    // No neighbors...
+                
+                final double w = weight == null ? 1.0 : weight.getDouble(i, j);
+                final double x = getDouble(i, j);
+                
+                table.getSum(i-1, j-1, i+2, j+2, box);
+                table.getSum(i-1, j, i+2, j+1, row);
+                table.getSum(i, j-1, i+1, j+2, col);
+                
+                // Side neighbors are in the box and in the row or column, with weight 1,
+                // while the diagonal neighbors are in the box only, with weight 1/2... 
+                final double sumw = 0.5 * (box.weight() + row.weight() + col.weight()) - 1.5 * Math.abs(w);
+                final double sum = 0.5 * (box.value() + row.value() + col.value()) - 1.5 * w * x;
+                
+                point.setValue(x);
+                point.setWeight(w);
+                
+                box.setValue(sum / sumw);
+                box.setWeight(sumw);
+                point.subtract(box);
+                
+                if(DataPoint.significanceOf(point) > significance) isSpike[i][j] = true;
+            }
+        }.process();
+        
+        new Fork<Void>() {
+            @Override
+            protected void process(int i, int j) {
+                if(isSpike[i][j]) discard(i, j);
+            }
+        }.process();
+        
+        addHistory("despiked at " + Util.S3.format(significance));
+    }
+
+
 
 
     @Override
@@ -632,54 +1032,82 @@ public abstract class Data2D extends RegularData<Index2D, Vector2D> implements V
     
     @Override
     public <ReturnType> ReturnType forkValid(final ParallelPointOp<Number, ReturnType> op, Index2D from, Index2D to) {
+        PointOpFork<ParallelPointOp<Number, ReturnType>, ReturnType> fork = takePointOpFork(FORK_VALID);
         
-        Fork<ReturnType> fork = new Fork<ReturnType>(from, to) {
-            private ParallelPointOp<Number, ReturnType> localOp;
-            
-            @Override
-            public void init() {
-                super.init();
-                localOp = op.newInstance();
-            }
-            
+        if(fork == null) fork = new PointOpFork<ParallelPointOp<Number, ReturnType>, ReturnType>() {
             @Override
             protected void process(int i, int j) {
                 if(isValid(i, j)) localOp.process(get(i, j));
             }
-              
+
             @Override
-            public ReturnType getLocalResult() { return localOp.getResult(); }
-            
+            public ReturnType getResult() { 
+                ParallelPointOp<Number, ReturnType> globalOp = getOp().newInstance();
+                
+                for(ParallelTask<ReturnType> worker : getWorkers()) {
+                    globalOp.mergeResult(worker.getLocalResult());
+                }
+                return globalOp.getResult();
+            }
+        };
+        
+        fork.process(op, from, to);
+        final ReturnType result = fork.getResult();
+        releasePointOpFork(FORK_VALID, fork);
+        return result;
+    }
+    
+
+    @Override
+    public <ReturnType> ReturnType loopValidDouble(final DoublePointOp<ReturnType> op, Index2D from, Index2D to) {
+        for(int i=to.i(); --i >= from.i(); ) {
+            for(int j=to.j(); --j >= from.j(); ) if(isValid(i, j)) {
+                op.process(getDouble(i, j));
+                if(op.exception != null) return null;
+            }
+        }
+        return op.getResult();
+    }
+    
+    @Override
+    public <ReturnType> ReturnType forkValidDouble(final DoubleParallelPointOp<ReturnType> op, Index2D from, Index2D to) {
+        PointOpFork<DoubleParallelPointOp<ReturnType>, ReturnType> fork = takePointOpFork(FORK_VALID_DOUBLE);
+        
+        if(fork == null) fork = new PointOpFork<DoubleParallelPointOp<ReturnType>, ReturnType>() {
+            @Override
+            protected void process(int i, int j) {
+                if(isValid(i, j)) localOp.process(getDouble(i, j));
+            }
 
             @Override
             public ReturnType getResult() { 
-                ParallelPointOp<Number, ReturnType> globalOp = op.newInstance();
+                DoubleParallelPointOp<ReturnType> globalOp = getOp().newInstance();
                 
                 for(ParallelTask<ReturnType> worker : getWorkers()) {
                     globalOp.mergeResult(worker.getLocalResult());
                 }
                 return globalOp.getResult();
             }
-            
         };
         
-        fork.process();
-        return fork.getResult();
+        fork.process(op, from, to);
+        final ReturnType result = fork.getResult();
+        releasePointOpFork(FORK_VALID_DOUBLE, fork);
+        return result;
     }
     
 
     @Override
     public <ReturnType> ReturnType fork(final ParallelPointOp<Index2D, ReturnType> op, Index2D from, Index2D to) {
+        PointOpFork<ParallelPointOp<Index2D, ReturnType>, ReturnType> fork = takePointOpFork(FORK_INDEX);
       
-        Fork<ReturnType> fork = new Fork<ReturnType>(from, to) {
-            private ParallelPointOp<Index2D, ReturnType> localOp;
+        if(fork == null) fork = new PointOpFork<ParallelPointOp<Index2D, ReturnType>, ReturnType>() {
             private Index2D index;
             
             @Override
             public void init() {
                 super.init();
-                index = new Index2D();
-                localOp = op.newInstance();
+                if(index == null) index = new Index2D();
             }
             
             @Override
@@ -687,25 +1115,22 @@ public abstract class Data2D extends RegularData<Index2D, Vector2D> implements V
                 index.set(i, j); 
                 localOp.process(index);
             }
-          
-            @Override
-            public ReturnType getLocalResult() { return localOp.getResult(); }
-            
 
             @Override
             public ReturnType getResult() { 
-                ParallelPointOp<Index2D, ReturnType> globalOp = op.newInstance();
+                ParallelPointOp<Index2D, ReturnType> globalOp = getOp().newInstance();
                 
                 for(ParallelTask<ReturnType> worker : getWorkers()) {
                     globalOp.mergeResult(worker.getLocalResult());
                 }
                 return globalOp.getResult();
             }
-            
         };
         
-        fork.process();
-        return fork.getResult();
+        fork.process(op, from, to);
+        final ReturnType result = fork.getResult();
+        releasePointOpFork(FORK_INDEX, fork);
+        return result;
     }
 
     
@@ -728,22 +1153,63 @@ public abstract class Data2D extends RegularData<Index2D, Vector2D> implements V
             for(int j=to.j(); --j >= from.j(); ) process(i, j);
         }
 
+        protected abstract void process(int i, int j);
+    } 
+    
+    
+    /**
+     * A fork that applies a parallel point operation to a range of points. When {@link #reusePointOpForks} 
+     * is enabled, the same fork, with its workers and their local copies of the operation, serves successive 
+     * calls (see {@link #takePointOpFork(int)}).
+     * 
+     * @param <OpType>      the generic type of the point operation.
+     * @param <ReturnType>  the generic return type of the operation.
+     */
+    private abstract class PointOpFork<OpType extends PointOp<?, ReturnType>, ReturnType> extends Fork<ReturnType> {
+        private final ForkCall<OpType> call = new ForkCall<>();
+        private OpType source;
+        protected OpType localOp;
+        
+        private PointOpFork() {
+            setReuseWorkers(reusePointOpForks);
+        }
+        
+        protected final OpType getOp() { return call.op; }
+        
+        public void process(OpType op, Index2D from, Index2D to) {
+            this.from = call.from = from;
+            this.to = call.to = to;
+            call.op = op;
+            process();
+        }
+        
+        @SuppressWarnings("unchecked")
         @Override
-        protected int getRevisedChunks(int chunks, int minBlockSize) {
-            return super.getRevisedChunks(getPointOps(), minBlockSize);
+        public void init() {
+            super.init();
+            if(localOp != null) return;
+            source = call.op;
+            localOp = (OpType) source.newInstance();
         }
-
+        
         @Override
-        protected int getTotalOps() {
-            return 3 + capacity() * getPointOps();
+        protected void reset() {
+            from = call.from;
+            to = call.to;
+            // Keep the local copy of the same operation object, or else make a new one...
+            if(source == call.op) localOp.reset();
+            else localOp = null;
         }
-
-        protected int getPointOps() {
-            return 10;
-        }  
-
-        protected abstract void process(int i, int j);
-    } 
+        
+        @Override
+        public ReturnType getLocalResult() { return localOp.getResult(); }
+        
+        @Override
+        protected int getPointOps() { return 2 + call.op.numberOfOperations(); }
+        
+        @Override
+        protected Object getCostKey() { return call.op.getClass(); }
+    }
 
 
 
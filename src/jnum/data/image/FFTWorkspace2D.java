@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Attila Kovacs <attila[AT]sigmyne.com>.
+ * All rights reserved.
+ *
+ * This file is part of jnum.
+ *
+ *     jnum is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     jnum is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with jnum.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Attila Kovacs <attila[AT]sigmyne.com> - initial API and implementation
+ ******************************************************************************/
+
+
+package jnum.data.image;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import jnum.ExtraMath;
+import jnum.fft.MixedRadixPlan;
+import jnum.fft.MultiFFT;
+
+/**
+ * A reusable, zero-padded 2D array for real-valued FFT filtering of images, together with the FFT that transforms it.
+ * The array holds <code>nx</code> rows of <code>ny + 2</code> elements (with the Nyquist component unrolled),
+ * in double or single precision.
+ * <p>
+ *
+ * Workspaces are pooled by size and precision (see {@link #acquire(int, int, boolean)}), so that repeated filtering
+ * of images of the same geometry does not allocate new arrays and FFTs every time. A workspace is used by one caller
+ * at a time: it is taken out of the pool when acquired, and returned to it by {@link #release()}.
+ *
+ * @author Attila Kovacs <attila@sigmyne.com>
+ *
+ */
+public class FFTWorkspace2D {
+    private int nx, ny;
+    private double[][] D;
+    private float[][] F;
+    private MultiFFT fft;
+
+
+    /**
+     * Constructs a new FFT workspace of the given padded size.
+     *
+     * @param nx                    the padded size along x (preferably with no prime factors above 7).
+     * @param ny                    the padded size along y (even, and preferably with no prime factors above 7).
+     * @param isSinglePrecision     whether to use <code>float</code> rather than <code>double</code> elements.
+     */
+    public FFTWorkspace2D(int nx, int ny, boolean isSinglePrecision) {
+        this.nx = nx;
+        this.ny = ny;
+
+        if(isSinglePrecision) F = new float[nx][ny + 2];
+        else D = new double[nx][ny + 2];
+
+        fft = new MultiFFT();
+    }
+
+    public final int sizeX() { return nx; }
+
+    public final int sizeY() { return ny; }
+
+    public final boolean isSinglePrecision() { return F != null; }
+
+    public final MultiFFT getFFT() { return fft; }
+
+    /**
+     * Returns the underlying array, which is a <code>double[][]</code> or a <code>float[][]</code>, depending on
+     * the precision.
+     *
+     * @return  the padded array.
+     */
+    public final Object[] getData() { return F == null ? D : F; }
+
+    public final double get(int i, int j) { return F == null ? D[i][j] : F[i][j]; }
+
+    public final void set(int i, int j, double value) {
+        if(F == null) D[i][j] = value;
+        else F[i][j] = (float) value;
+    }
+
+    /**
+     * Zeroes the full array (including the padding).
+     */
+    public void clear() {
+        if(F == null) for(double[] row : D) Arrays.fill(row, 0.0);
+        else for(float[] row : F) Arrays.fill(row, 0.0F);
+    }
+
+    /**
+     * Fills the padding around the data of the given size by mirroring the data at its edges. The first half of
+     * the padding after the data, along each axis, mirrors the data at its upper edge, while the rest (which wraps
+     * around to just before the data in a periodic transform) mirrors the data at its lower edge. This way, the
+     * periodic continuation of the data has no jumps at the edges.
+     *
+     * @param sizeX     the number of data elements along x, starting from index 0.
+     * @param sizeY     the number of data elements along y, starting from index 0.
+     */
+    public void mirrorEdges(int sizeX, int sizeY) {
+        final int hy = (ny - sizeY) >>> 1;
+
+        for(int i=sizeX; --i >= 0; ) for(int j=sizeY; j < ny; j++)
+            set(i, j, get(i, mirror(j, sizeY, hy, ny)));
+
+        final int hx = (nx - sizeX) >>> 1;
+
+        for(int i=sizeX; i < nx; i++) {
+            final int i0 = mirror(i, sizeX, hx, nx);
+            if(F == null) System.arraycopy(D[i0], 0, D[i], 0, ny);
+            else System.arraycopy(F[i0], 0, F[i], 0, ny);
+        }
+    }
+
+    private static int mirror(int k, int size, int h, int n) {
+        final int m = k < size + h ? 2 * size - 1 - k : n - 1 - k;
+        return Math.max(0, Math.min(size - 1, m));
+    }
+
+    /**
+     * Forward transforms the workspace to amplitudes (see {@link MultiFFT#real2Amplitude(Object[])}).
+     *
+     * @param parallel      the number of parallel threads to use.
+     */
+    public void real2Amplitude(int parallel) {
+        fft.setParallel(parallel);
+        fft.real2Amplitude(getData());
+    }
+
+    /**
+     * Transforms amplitudes in the workspace back to real values (see {@link MultiFFT#amplitude2Real(Object[])}).
+     *
+     * @param parallel      the number of parallel threads to use.
+     */
+    public void amplitude2Real(int parallel) {
+        fft.setParallel(parallel);
+        fft.amplitude2Real(getData());
+    }
+
+    /**
+     * Multiplies the spectrum in the workspace by a separable (real) transfer function <i>T</i>(<i>f<sub>x</sub></i>,
+     * <i>f<sub>y</sub></i>) = <i>T<sub>x</sub></i>(<i>f<sub>x</sub></i>) <i>T<sub>y</sub></i>(<i>f<sub>y</sub></i>).
+     *
+     * @param Tx    the transfer function along x, for the <code>nx</code> frequency channels of the rows, in FFT
+     *              order (i.e. with the negative frequencies in the upper half).
+     * @param Ty    the transfer function along y, for the <code>ny/2 + 1</code> non-negative frequencies (including
+     *              the unrolled Nyquist frequency).
+     */
+    public void multiplySpectrum(double[] Tx, double[] Ty) {
+        for(int i=nx; --i >= 0; ) {
+            final double tx = Tx[i];
+
+            if(F == null) {
+                final double[] r = D[i];
+                for(int k=Ty.length; --k >= 0; ) {
+                    final double T = tx * Ty[k];
+                    r[k<<1] *= T;
+                    r[(k<<1) + 1] *= T;
+                }
+            }
+            else {
+                final float[] r = F[i];
+                for(int k=Ty.length; --k >= 0; ) {
+                    final float T = (float) (tx * Ty[k]);
+                    r[k<<1] *= T;
+                    r[(k<<1) + 1] *= T;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a Gaussian taper exp(-0.5 (<i>f</i>/<i>&sigma;</i>)<sup>2</sup>) for the given number of frequency
+     * channels, such as for {@link #multiplySpectrum(double[], double[])}.
+     *
+     * @param n             the transform size.
+     * @param sigma         the Gaussian width, in frequency channels.
+     * @param isFullRange   <code>true</code> for all <code>n</code> channels, in FFT order (i.e. with the negative
+     *                      frequencies in the upper half), or <code>false</code> for the <code>n/2 + 1</code>
+     *                      non-negative frequencies only.
+     * @return              the tabulated taper.
+     */
+    public static double[] getGaussianTaper(int n, double sigma, boolean isFullRange) {
+        final double[] T = new double[isFullRange ? n : (n >>> 1) + 1];
+        final double a = -0.5 / (sigma * sigma);
+        for(int k=T.length; --k >= 0; ) {
+            final int f = k <= (n >>> 1) ? k : n - k;
+            T[k] = Math.exp(a * f * f);
+        }
+        return T;
+    }
+
+    /**
+     * Returns the padded FFT size for data of the given size along some axis, which is to be filtered without
+     * wrapping around more than the specified guard distance.
+     *
+     * @param size          the number of data elements along the axis.
+     * @param guard         the number of elements, which should separate the data from its periodic continuation.
+     * @param padding       the padding strategy.
+     * @return              the padded size (an even number with no prime factors above 7).
+     */
+    public static int getPaddedSize(int size, int guard, Padding padding) {
+        if(padding == Padding.OVERSIZED) return Math.max(2, ExtraMath.pow2ceil(size << 1));
+        return Math.max(2, MixedRadixPlan.getFastRealSize(size + Math.min(size, Math.max(0, guard))));
+    }
+
+    /**
+     * Returns a workspace of the given size and precision from the pool, or a new one if there is none available.
+     * The workspace is removed from the pool until it is returned via {@link #release()}. Its contents are undefined
+     * at first.
+     *
+     * @param nx                    the padded size along x (preferably with no prime factors above 7).
+     * @param ny                    the padded size along y (even, and preferably with no prime factors above 7).
+     * @param isSinglePrecision     whether to use <code>float</code> rather than <code>double</code> elements.
+     * @return                      a workspace for the exclusive use of the caller, until it is released.
+     */
+    public static FFTWorkspace2D acquire(int nx, int ny, boolean isSinglePrecision) {
+        synchronized(pool) {
+            for(FFTWorkspace2D w : pool) if(w.nx == nx && w.ny == ny && w.isSinglePrecision() == isSinglePrecision) {
+                pool.remove(w);
+                return w;
+            }
+        }
+        return new FFTWorkspace2D(nx, ny, isSinglePrecision);
+    }
+
+    /**
+     * Returns this workspace to the pool, as the most recently used, for reuse by later calls to
+     * {@link #acquire(int, int, boolean)}. The caller should not use the workspace after releasing it.
+     */
+    public void release() {
+        synchronized(pool) {
+            pool.addFirst(this);
+            while(pool.size() > poolSize) pool.removeLast();
+        }
+    }
+
+    /**
+     * Discards all pooled workspaces.
+     */
+    public static void clearPool() {
+        synchronized(pool) { pool.clear(); }
+    }
+
+
+    private static LinkedList<FFTWorkspace2D> pool = new LinkedList<>();
+
+    /** The maximum number of idle workspaces to keep in the pool. */
+    public static int poolSize = 4;
+
+
+    /**
+     * Strategies for zero padding images in FFT filtering.
+     *
+     * @author Attila Kovacs <attila@sigmyne.com>
+     *
+     */
+    public enum Padding {
+        /** Padded to the power of 2 at or above twice the image size, regardless of the filter. */
+        OVERSIZED,
+
+        /** 
+         * Padded to the smallest efficient FFT size (see {@link MixedRadixPlan#getFastRealSize(int)}) that accommodates 
+         * the image plus the filter's guard band with zeroes. 
+         */
+        MINIMAL,
+
+        /** Sized as {@link #MINIMAL}, but the padding is filled by mirroring the image at its edges, rather than with zeroes. */
+        MIRRORED;
+    }
+}
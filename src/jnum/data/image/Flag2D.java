@@ -43,14 +43,14 @@ public class Flag2D extends FlagCompanion<Index2D> implements Resizable<Index2D>
 
 
     public Flag2D(int type) {
+        this(type, Image2D.createType(getElementType(type)));
+    }
+    
+    public Flag2D(int type, Image2D data) {
         super(type);
-        switch(type) {
-        case TYPE_BYTE: data = Image2D.createType(Byte.class); break;
-        case TYPE_SHORT: data = Image2D.createType(Short.class); break;
-        case TYPE_INT: data = Image2D.createType(Integer.class); break;
-        case TYPE_LONG: data = Image2D.createType(Long.class); break;
-        default: throw new IllegalArgumentException("Unknown type: " + type);
-        }
+        if(!data.getElementType().equals(getElementType(type))) 
+            throw new IllegalArgumentException("Flag image of type " + data.getElementType().getSimpleName() + " does not match flag type " + type);
+        this.data = data;
         this.type = type;
     }
     
@@ -76,6 +76,16 @@ public class Flag2D extends FlagCompanion<Index2D> implements Resizable<Index2D>
       
     public final int getType() { return type; }
     
+    public static Class<? extends Number> getElementType(int type) {
+        switch(type) {
+        case TYPE_BYTE: return Byte.class;
+        case TYPE_SHORT: return Short.class;
+        case TYPE_INT: return Integer.class;
+        case TYPE_LONG: return Long.class;
+        default: throw new IllegalArgumentException("Unknown type: " + type);
+        }
+    }
+    
     @Override
     public final void setSize(Index2D size) {
         setSize(size.i(), size.j());
@@ -35,6 +35,7 @@ import jnum.Unit;
 import jnum.Util;
 import jnum.data.Data;
 import jnum.data.image.overlay.Referenced2D;
+import jnum.data.samples.Gaussian1D;
 import jnum.fits.FitsToolkit;
 import jnum.math.Coordinate2D;
 import jnum.math.Division;
@@ -386,6 +387,54 @@ Multiplication<Gaussian2D>, Division<Gaussian2D>, Product<Gaussian2D, Gaussian2D
         return getBeam(majorFWHM, minorFWHM, positionAngle, grid, sigmas);
     }
 
+    /**
+     * Checks if the principal axes of this PSF are aligned with the x and y directions, such that the
+     * PSF is the product of a Gaussian in x and a Gaussian in y.
+     * 
+     * @return  <code>true</code> if the PSF is circular or its position angle is a multiple of 90 degrees, 
+     *          otherwise <code>false</code>.
+     */
+    public boolean isAxisAligned() {
+        if(isCircular()) return true;
+        return Math.abs(Math.sin(2.0 * positionAngle)) < 1e-6;
+    }
+    
+    /**
+     * Gets 1D line beams on the specified grid (with a default 3-sigma extent), whose successive convolution
+     * is equivalent to this PSF.
+     * 
+     * @param grid  the grid
+     * @return      the line beams, in the order they should be applied.
+     * 
+     * @see #getLineBeams(Grid2D, double)
+     */
+    public Data2D.LineBeam[] getLineBeams(Grid2D<?> grid) { return getLineBeams(grid, 3.0); }
+    
+    /**
+     * Gets 1D line beams on the specified grid, whose successive convolution is equivalent to this PSF. 
+     * These are a row and a column beam, which together are exactly separable. Only axis-aligned PSFs (see 
+     * {@link #isAxisAligned()}) can be decomposed this way. Rotated PSFs should be smoothed with the 2D beam 
+     * image (see {@link #getBeam(Grid2D, double)}) instead, as {@link Map2D#smooth(Gaussian2D)} does.
+     * 
+     * @param grid      the grid
+     * @param sigmas    the extent of the beams in units of the standard-deviation (sigma).
+     * @return          the line beams, in the order they should be applied.
+     * @throws UnsupportedOperationException    if this PSF is not aligned with the x and y axes.
+     * 
+     * @see Data2D#getLineSmoothed(Data2D.LineBeam[], Values2D, Values2D)
+     */
+    public Data2D.LineBeam[] getLineBeams(Grid2D<?> grid, double sigmas) {
+        if(!grid.isRectilinear()) throw new IllegalArgumentException("GaussianPSF supports rectilinear grids only.");
+        if(!isAxisAligned()) throw new UnsupportedOperationException("Rotated PSFs are not separable into line beams.");
+        
+        final boolean isMajorX = Math.abs(Math.cos(positionAngle)) > Math.abs(Math.sin(positionAngle));
+        
+        return new Data2D.LineBeam[] {
+                new Data2D.LineBeam(Gaussian1D.getBeam(isMajorX ? majorFWHM : minorFWHM, grid.pixelSizeX(), sigmas), 1, 0),
+                new Data2D.LineBeam(Gaussian1D.getBeam(isMajorX ? minorFWHM : majorFWHM, grid.pixelSizeY(), sigmas), 0, 1)
+        };
+    }
+
     /**
      * Invert.
      *
@@ -663,7 +712,7 @@ Multiplication<Gaussian2D>, Division<Gaussian2D>, Product<Gaussian2D, Gaussian2D
             v.set(dx, dy);
             v.rotate(-angle);
 
-            image.set(i, j, Math.exp(A1*v.x()*v.x() + A2*v.y()*v.y()));
+            image.setDouble(i, j, Math.exp(A1*v.x()*v.x() + A2*v.y()*v.y()));
         }
             
         return new Referenced2D(image, new Vector2D(0.5 * (sizeX - 1), 0.5 * (sizeY - 1)));
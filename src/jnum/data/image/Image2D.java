@@ -39,6 +39,7 @@ import nom.tam.fits.Header;
 import nom.tam.fits.HeaderCard;
 import nom.tam.fits.HeaderCardException;
 import nom.tam.fits.ImageHDU;
+import nom.tam.util.ArrayFuncs;
 import nom.tam.util.Cursor;
 
 
@@ -56,6 +57,13 @@ public abstract class Image2D extends Data2D implements Image<Index2D> {
     private static final long serialVersionUID = -7200384936045773744L;
      
     private String id;
+    
+    /**
+     * Whether {@link #createType(Class)} should create images backed by flat (contiguous) arrays for the types
+     * that support it. Flat storage is generally faster for large images, but {@link #getCore()} will then
+     * return a 1D array. Use {@link #getNestedCore()} where a nested array is required.
+     */
+    public static boolean preferFlatStorage = false;
  
     @Override
     public int hashCode() {
@@ -156,7 +164,7 @@ public abstract class Image2D extends Data2D implements Image<Index2D> {
         new Fork<Void>() {
             @Override
             protected void process(int i, int j) {
-                set(i, j, data[i][j]);
+                setDouble(i, j, data[i][j]);
             }
         }.process();
         recordNewData("double[][]");
@@ -168,7 +176,7 @@ public abstract class Image2D extends Data2D implements Image<Index2D> {
         new Fork<Void>() {
             @Override
             protected void process(int i, int j) {
-                set(i, j, data[i][j]);
+                setDouble(i, j, data[i][j]);
             }
         }.process();
         recordNewData("float[][]");
@@ -191,7 +199,7 @@ public abstract class Image2D extends Data2D implements Image<Index2D> {
         new Fork<Void>() {
             @Override
             protected void process(int i, int j) {
-                set(i, j, data[i][j]);
+                setDouble(i, j, data[i][j]);
             }
         }.process();
         recordNewData("int[][]");
@@ -202,7 +210,7 @@ public abstract class Image2D extends Data2D implements Image<Index2D> {
         new Fork<Void>() {
             @Override
             protected void process(int i, int j) {
-                set(i, j, data[i][j]);
+                setDouble(i, j, data[i][j]);
             }
         }.process();
         recordNewData("short[][]");
@@ -213,7 +221,7 @@ public abstract class Image2D extends Data2D implements Image<Index2D> {
         new Fork<Void>() {
             @Override
             protected void process(int i, int j) {
-                set(i, j, data[i][j]);
+                setDouble(i, j, data[i][j]);
             }
         }.process();
         recordNewData("byte[][]");
@@ -250,7 +258,7 @@ public abstract class Image2D extends Data2D implements Image<Index2D> {
     
     public synchronized void transpose() {
         silentNextNewData();
-        setRowColData(getCore());
+        setRowColData(getNestedCore());
         addHistory("transposed");
     }
     
@@ -279,7 +287,7 @@ public abstract class Image2D extends Data2D implements Image<Index2D> {
     public synchronized Image2D getRowColImage(Class<? extends Number> dataType) {
         Image2D result = Image2D.createType(dataType);
         if(result == null) throw new IllegalArgumentException("Unsupported data type: " + dataType.getSimpleName());
-        result.setRowColData(getCore());
+        result.setRowColData(getNestedCore());
         return result;
     }
 
@@ -287,7 +295,7 @@ public abstract class Image2D extends Data2D implements Image<Index2D> {
     public synchronized void crop(Index2D from, Index2D to) {
         addHistory("cropped " + from + " : " + to);
         silentNextNewData();
-        setData(getCropped(from, to).getCore());
+        setData(getCropped(from, to).getNestedCore());
     }
 
 
@@ -331,7 +339,27 @@ public abstract class Image2D extends Data2D implements Image<Index2D> {
     }
   
 
-    public static Image2D createType(Class<? extends Number> type) {       
+    public static Image2D createType(Class<? extends Number> type) {
+        return createType(type, preferFlatStorage);
+    }
+    
+    /**
+     * Creates a new empty image with the specified element type.
+     * 
+     * @param type          the element type of the image.
+     * @param flatStorage   whether the image should be backed by a single flat (contiguous) array, instead
+     *                      of an array of rows. Flat storage is available for double and float images only, 
+     *                      other types are always created with nested arrays.
+     * @return              a new image of the requested type, or <code>null</code> if the type is not supported.
+     * 
+     * @see #preferFlatStorage
+     */
+    public static Image2D createType(Class<? extends Number> type, boolean flatStorage) {  
+        if(flatStorage) {
+            if(type.equals(Double.class)) return new FlatDouble2D();
+            else if(type.equals(Float.class)) return new FlatFloat2D();
+        }
+        
         if(type.equals(Double.class)) return new Double2D();
         else if(type.equals(Float.class)) return new Float2D();
         else if(type.equals(Long.class)) return new Long2D();
@@ -455,6 +483,26 @@ public abstract class Image2D extends Data2D implements Image<Index2D> {
         public final void add(int i, int j, Number value) {
            data[i][j] += value.doubleValue();
         }
+
+        @Override
+        public final double getDouble(int i, int j) {
+            return data[i][j];
+        }
+
+        @Override
+        public final void setDouble(int i, int j, double value) {
+            data[i][j] = value;
+        }
+
+        @Override
+        public final void addDouble(int i, int j, double value) {
+            data[i][j] += value;
+        }
+
+        @Override
+        public final void scale(int i, int j, double factor) {
+            data[i][j] *= factor;
+        }
             
         @Override
         public final boolean isValid(Number value) {
@@ -535,6 +583,26 @@ public abstract class Image2D extends Data2D implements Image<Index2D> {
         public final void add(int i, int j, Number value) {
            data[i][j] += value.floatValue();
         }
+
+        @Override
+        public final double getDouble(int i, int j) {
+            return data[i][j];
+        }
+
+        @Override
+        public final void setDouble(int i, int j, double value) {
+            data[i][j] = (float) value;
+        }
+
+        @Override
+        public final void addDouble(int i, int j, double value) {
+            data[i][j] += (float) value;
+        }
+
+        @Override
+        public final void scale(int i, int j, double factor) {
+            data[i][j] *= factor;
+        }
         
            
         @Override
@@ -602,6 +670,26 @@ public abstract class Image2D extends Data2D implements Image<Index2D> {
         public final void add(int i, int j, Number value) {
            data[i][j] += value.longValue();
         }
+
+        @Override
+        public final double getDouble(int i, int j) {
+            return data[i][j];
+        }
+
+        @Override
+        public final void setDouble(int i, int j, double value) {
+            data[i][j] = (long) value;
+        }
+
+        @Override
+        public final void addDouble(int i, int j, double value) {
+            data[i][j] += (long) value;
+        }
+
+        @Override
+        public final void scale(int i, int j, double factor) {
+            data[i][j] *= factor;
+        }
         
   
     }
@@ -661,6 +749,26 @@ public abstract class Image2D extends Data2D implements Image<Index2D> {
         public final void add(int i, int j, Number value) {
            data[i][j] += value.intValue();
         }
+
+        @Override
+        public final double getDouble(int i, int j) {
+            return data[i][j];
+        }
+
+        @Override
+        public final void setDouble(int i, int j, double value) {
+            data[i][j] = (int) value;
+        }
+
+        @Override
+        public final void addDouble(int i, int j, double value) {
+            data[i][j] += (int) value;
+        }
+
+        @Override
+        public final void scale(int i, int j, double factor) {
+            data[i][j] *= factor;
+        }
            
  
         
@@ -721,6 +829,26 @@ public abstract class Image2D extends Data2D implements Image<Index2D> {
         public final void add(int i, int j, Number value) {
            data[i][j] += value.shortValue();
         }
+
+        @Override
+        public final double getDouble(int i, int j) {
+            return data[i][j];
+        }
+
+        @Override
+        public final void setDouble(int i, int j, double value) {
+            data[i][j] = (short) value;
+        }
+
+        @Override
+        public final void addDouble(int i, int j, double value) {
+            data[i][j] += (short) value;
+        }
+
+        @Override
+        public final void scale(int i, int j, double factor) {
+            data[i][j] *= factor;
+        }
         
     }
     
@@ -781,9 +909,291 @@ public abstract class Image2D extends Data2D implements Image<Index2D> {
            data[i][j] += value.byteValue();
         }
 
+        @Override
+        public double getDouble(int i, int j) {
+            return data[i][j];
+        }
+
+        @Override
+        public void setDouble(int i, int j, double value) {
+            data[i][j] = (byte) value;
+        }
+
+        @Override
+        public void addDouble(int i, int j, double value) {
+            data[i][j] += (byte) value;
+        }
+
+        @Override
+        public void scale(int i, int j, double factor) {
+            data[i][j] *= factor;
+        }
+
+        
+    }
+
+
+    /**
+     * Base class for images that are backed by a single contiguous 1D array, instead of an array of row arrays. 
+     * Element (i, j) is stored at offset <code>i * {@link #getStride()} + j</code>, i.e. in the same order as
+     * the nested arrays of the other image types, so rows can be bulk copied with {@link System#arraycopy}.
+     * The flat layout avoids the pointer chasing of nested arrays, and keeps the data of large images
+     * contiguous in memory.
+     * 
+     * @author Attila Kovacs <attila@sigmyne.com>
+     *
+     */
+    public static abstract class Flat2D extends Image2D {
+        /**
+         * 
+         */
+        private static final long serialVersionUID = -4436262003787848427L;
+        private int sizeX, sizeY;
+        
+        @Override
+        public final int sizeX() {
+            return sizeX;
+        }
+
+        @Override
+        public final int sizeY() {
+            return sizeY;
+        }
+        
+        public final int getStride() {
+            return sizeY;
+        }
+        
+        public final int indexOf(int i, int j) {
+            return i * sizeY + j;
+        }
+        
+        @Override
+        protected synchronized void setDataSize(int sizeX, int sizeY) {
+            if(sizeX <= 0 || sizeY <= 0) sizeX = sizeY = 0;
+            else if((long) sizeX * sizeY > Integer.MAX_VALUE) 
+                throw new IllegalArgumentException("Image too large for flat storage: " + sizeX + "x" + sizeY);
+            
+            this.sizeX = sizeX;
+            this.sizeY = sizeY;
+            
+            setFlatDataSize(sizeX * sizeY);
+        }
+        
+        protected abstract void setFlatDataSize(int n);
+        
+        protected final void setFlatSize(int n, int sizeX, int sizeY) {
+            if(n != sizeX * sizeY) throw new IllegalArgumentException("Flat data size " + n + " does not match " + sizeX + "x" + sizeY);
+            this.sizeX = sizeX;
+            this.sizeY = sizeY;
+        }
+        
+        @Override
+        public synchronized Object getNestedCore() {
+            if(capacity() == 0) return null;
+            return ArrayFuncs.curl(getCore(), new int[] { sizeX, sizeY });
+        }
+    }
+    
+    
+    public static class FlatDouble2D extends Flat2D {
+        /**
+         * 
+         */
+        private static final long serialVersionUID = 8390417153530618725L;
+        private double[] data;
+        
+        @Override
+        public Number getLowestCompareValue() { return Double.NEGATIVE_INFINITY; }
+        
+        @Override
+        public Number getHighestCompareValue() { return Double.POSITIVE_INFINITY; }
+        
+        @Override
+        public int compare(Number a, Number b) {
+            return Double.compare(a.doubleValue(), b.doubleValue());
+        }
+        
+        @Override
+        public Class<? extends Number> getElementType() {
+            return Double.class;
+        }
+        
+        @Override
+        protected void setFlatDataSize(int n) {
+            data = n > 0 ? new double[n] : null;
+        }
+        
+        @Override
+        public synchronized double[] getCore() {
+            return data;
+        }
+        
+        public synchronized void setData(double[] image, int sizeX, int sizeY) {
+            setFlatSize(image.length, sizeX, sizeY);
+            this.data = image;
+            recordNewData("double[] (no copy)");
+        }
+        
+        @Override
+        public synchronized void setData(double[][] image) {
+            setSize(image.length, image[0].length);
+            for(int i=image.length; --i >= 0; ) System.arraycopy(image[i], 0, data, indexOf(i, 0), image[i].length);
+            recordNewData("double[][]");
+        }
+        
+        @Override
+        public FlatDouble2D copy(boolean withContent) {
+            FlatDouble2D copy = (FlatDouble2D) super.copy(false);
+            if(withContent && data != null) {
+                System.arraycopy(data, 0, copy.data, 0, data.length);
+                copy.addHistory("pasted new content: " + getSizeString());
+            }
+            return copy;
+        }
+
+        @Override
+        public final Number get(int i, int j) {
+            return data[indexOf(i, j)];
+        }
+
+        @Override
+        public final void set(int i, int j, Number value) {
+            data[indexOf(i, j)] = value.doubleValue();
+        }
+        
+        @Override
+        public final void add(int i, int j, Number value) {
+           data[indexOf(i, j)] += value.doubleValue();
+        }
+
+        @Override
+        public final double getDouble(int i, int j) {
+            return data[indexOf(i, j)];
+        }
+
+        @Override
+        public final void setDouble(int i, int j, double value) {
+            data[indexOf(i, j)] = value;
+        }
+
+        @Override
+        public final void addDouble(int i, int j, double value) {
+            data[indexOf(i, j)] += value;
+        }
+
+        @Override
+        public final void scale(int i, int j, double factor) {
+            data[indexOf(i, j)] *= factor;
+        }
+            
+        @Override
+        public final boolean isValid(Number value) {
+            if(Double.isNaN(value.doubleValue())) return false;
+            return super.isValid(value);
+        }
         
     }
     
     
+    public static class FlatFloat2D extends Flat2D {
+        /**
+         * 
+         */
+        private static final long serialVersionUID = -2275513329405768036L;
+        private float[] data;
+        
+        @Override
+        public Number getLowestCompareValue() { return Float.NEGATIVE_INFINITY; }
+        
+        @Override
+        public Number getHighestCompareValue() { return Float.POSITIVE_INFINITY; }
+        
+        @Override
+        public int compare(Number a, Number b) {
+            return Float.compare(a.floatValue(), b.floatValue());
+        }
+        
+        @Override
+        public Class<? extends Number> getElementType() {
+            return Float.class;
+        }
+        
+        @Override
+        protected void setFlatDataSize(int n) {
+            data = n > 0 ? new float[n] : null;
+        }
+        
+        @Override
+        public synchronized float[] getCore() {
+            return data;
+        }
+        
+        public synchronized void setData(float[] image, int sizeX, int sizeY) {
+            setFlatSize(image.length, sizeX, sizeY);
+            this.data = image;
+            recordNewData("float[] (no copy)");
+        }
+        
+        @Override
+        public synchronized void setData(float[][] image) {
+            setSize(image.length, image[0].length);
+            for(int i=image.length; --i >= 0; ) System.arraycopy(image[i], 0, data, indexOf(i, 0), image[i].length);
+            recordNewData("float[][]");
+        }
+        
+        @Override
+        public FlatFloat2D copy(boolean withContent) {
+            FlatFloat2D copy = (FlatFloat2D) super.copy(false);
+            if(withContent && data != null) {
+                System.arraycopy(data, 0, copy.data, 0, data.length);
+                copy.addHistory("pasted new content: " + getSizeString());
+            }
+            return copy;
+        }
+
+        @Override
+        public final Number get(int i, int j) {
+            return data[indexOf(i, j)];
+        }
+
+        @Override
+        public final void set(int i, int j, Number value) {
+            data[indexOf(i, j)] = value.floatValue();
+        }
+        
+        @Override
+        public final void add(int i, int j, Number value) {
+           data[indexOf(i, j)] += value.floatValue();
+        }
+
+        @Override
+        public final double getDouble(int i, int j) {
+            return data[indexOf(i, j)];
+        }
+
+        @Override
+        public final void setDouble(int i, int j, double value) {
+            data[indexOf(i, j)] = (float) value;
+        }
+
+        @Override
+        public final void addDouble(int i, int j, double value) {
+            data[indexOf(i, j)] += (float) value;
+        }
+
+        @Override
+        public final void scale(int i, int j, double factor) {
+            data[indexOf(i, j)] *= factor;
+        }
+            
+        @Override
+        public final boolean isValid(Number value) {
+            if(Float.isNaN(value.floatValue())) return false;
+            return super.isValid(value);
+        }
+        
+    }
     
+
 }
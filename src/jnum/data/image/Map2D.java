@@ -28,7 +28,6 @@ import java.io.Serializable;
 import java.util.Hashtable;
 
 import jnum.Constant;
-import jnum.ExtraMath;
 import jnum.Unit;
 import jnum.Util;
 import jnum.data.DataPoint;
@@ -40,9 +39,9 @@ import jnum.data.WeightedPoint;
 import jnum.data.image.overlay.Flagged2D;
 import jnum.data.image.overlay.RangeRestricted2D;
 import jnum.data.image.overlay.Referenced2D;
+import jnum.data.image.transform.CachedIndexTransform2D;
 import jnum.data.image.transform.CartesianGridTransform2D;
 import jnum.data.image.transform.ProjectedIndexTransform2D;
-import jnum.fft.MultiFFT;
 import jnum.fits.FitsProperties;
 import jnum.fits.FitsToolkit;
 import jnum.math.Coordinate2D;
@@ -102,6 +101,35 @@ public class Map2D extends Flagged2D implements Resizable<Index2D>, Serializable
     
     private double filterBlanking = Double.POSITIVE_INFINITY;
     
+    private OffHeapImage2D.Allocator offHeapAllocator;
+
+    /** 
+     * Whether smoothing with Gaussian PSFs (see {@link #smooth(Gaussian2D)}) should use separable 1D passes
+     * (see {@link Gaussian2D#getLineBeams(Grid2D)}), rather than 2D beam images. Line passes are used for 
+     * axis-aligned PSFs only (see {@link Gaussian2D#isAxisAligned()}), for which they are exact. Rotated PSFs are
+     * always smoothed with 2D beam images.
+     */
+    public static boolean lineSmoothing = true;
+
+    /**
+     * Whether reprojections for resampling (see {@link #getIndexTransformTo(Map2D)}) should be approximated from a
+     * coarse control grid (see {@link CachedIndexTransform2D}), and reused for repeated resamplings between the 
+     * same grids, instead of calculating the projections exactly for every pixel.
+     */
+    public static boolean cacheReprojection = true;
+    
+    /**
+     * The padding of images for FFT filtering (see {@link #fftFilterAbove(double, Validating2D, Values2D)}). Smaller 
+     * padding is faster, at the price of more wrapping of the filter around the image edges.
+     */
+    public static FFTWorkspace2D.Padding fftFilterPadding = FFTWorkspace2D.Padding.OVERSIZED;
+    
+    /**
+     * Whether FFT filtering (see {@link #fftFilterAbove(double, Validating2D, Values2D)}) should transform in single 
+     * (<code>float</code>) precision, which halves the memory footprint of the transforms.
+     */
+    public static boolean fftFilterSinglePrecision = false;
+    
     
 
 
@@ -606,9 +634,49 @@ public class Map2D extends Flagged2D implements Resizable<Index2D>, Serializable
   
     public void setSize(int sizeX, int sizeY) { 
         // Create brand new images, so that setSize on a clone does not change the original...
-        setImage(Image2D.createType(getElementType(), sizeX, sizeY));
+        setImage(createImage(getElementType(), sizeX, sizeY));
         createFlags(getFlags().getType());
     }
+    
+    @Override
+    protected void createFlags(int flagType) {
+        if(offHeapAllocator == null) {
+            super.createFlags(flagType);
+            return;
+        }
+        setFlags(new Flag2D(flagType, createImage(Flag2D.getElementType(flagType), sizeX(), sizeY())));
+        initFlags();
+    }
+    
+    /**
+     * Creates a new image for one of the planes of this map, either on the heap or off-heap, depending on
+     * whether an off-heap allocator has been set.
+     * 
+     * @param type      the element type of the new image.
+     * @param sizeX     the image size along x.
+     * @param sizeY     the image size along y.
+     * @return          a new image of the specified type and size.
+     * 
+     * @see #setOffHeapAllocator(OffHeapImage2D.Allocator)
+     */
+    protected Image2D createImage(Class<? extends Number> type, int sizeX, int sizeY) {
+        if(offHeapAllocator == null) return Image2D.createType(type, sizeX, sizeY);
+        return OffHeapImage2D.createType(type, sizeX, sizeY, offHeapAllocator);
+    }
+    
+    public OffHeapImage2D.Allocator getOffHeapAllocator() { return offHeapAllocator; }
+    
+    /**
+     * Sets how the planes of this map (data, flags, and any others defined by subclasses) are stored. 
+     * The new storage applies to the planes created by the next call to {@link #setSize(int, int)}.
+     * 
+     * @param allocator     the off-heap buffer allocator, e.g. {@link OffHeapImage2D#DIRECT} or an
+     *                      {@link OffHeapImage2D.MappedFileAllocator}, or <code>null</code> to store 
+     *                      planes on the heap.
+     */
+    public void setOffHeapAllocator(OffHeapImage2D.Allocator allocator) {
+        this.offHeapAllocator = allocator;
+    }
 
 
     public void noData() {
@@ -726,6 +794,12 @@ public class Map2D extends Flagged2D implements Resizable<Index2D>, Serializable
     }
 
     public final void smooth(Gaussian2D psf) { 
+        // Only axis-aligned PSFs are separable into line passes...
+        if(lineSmoothing && psf.isAxisAligned()) {
+            smooth(psf, psf.getLineBeams(getGrid()));
+            return;
+        }
+        
         Index2D step = new Index2D(
                 (int)Math.ceil(psf.extentInX()/(5.0 * getGrid().pixelSizeX())),
                 (int)Math.ceil(psf.extentInY()/(5.0 * getGrid().pixelSizeY()))
@@ -735,7 +809,21 @@ public class Map2D extends Flagged2D implements Resizable<Index2D>, Serializable
     }
 
 
-    @Override
+    /**
+     * Smooths this map with a Gaussian PSF by successive 1D convolutions with the PSF's line beams.
+     * 
+     * @param psf       the Gaussian PSF to smooth with.
+     * @param passes    the line beams for the PSF on the grid of this map.
+     * 
+     * @see Gaussian2D#getLineBeams(Grid2D)
+     */
+    protected void smooth(Gaussian2D psf, Data2D.LineBeam[] passes) {
+        paste(getLineSmoothed(passes, null, null), false);
+        addHistory("smoothed (line passes)");
+        addSmoothing(psf.copy());
+    }
+
+        @Override
     public void smooth(RegularData<Index2D, Vector2D> beam, Vector2D refIndex) {
         super.smooth(beam, refIndex);
         addSmoothing(Gaussian2D.getEquivalent(beam, getGrid().getResolution()));
@@ -783,7 +871,7 @@ public class Map2D extends Flagged2D implements Resizable<Index2D>, Serializable
             @Override
             protected void process(int i, int j) {
                 if(!extended.isValid(i, j)) return;
-                image.add(i, j, -extended.get(i, j).doubleValue());   // Subtract from the image directly without affecting flagging...
+                image.addDouble(i, j, -extended.getDouble(i, j));   // Subtract from the image directly without affecting flagging...
             }
         }.process();
 
@@ -803,12 +891,19 @@ public class Map2D extends Flagged2D implements Resizable<Index2D>, Serializable
     }
 
     public final void fftFilterAbove(double FWHM, final Validating2D validator, final Values2D weight) {
-        // Oversized transformer to reduce wrapping effects by copious padding...
-        final int nx = ExtraMath.pow2ceil(sizeX()<<1);
-        final int ny = ExtraMath.pow2ceil(sizeY()<<1);
+        // Padding to reduce wrapping effects. The Gaussian taper wraps around negligibly beyond ~3 FWHMs...
+        final int nx = FFTWorkspace2D.getPaddedSize(sizeX(), (int) Math.ceil(3.0 * FWHM / getGrid().pixelSizeX()), fftFilterPadding);
+        final int ny = FFTWorkspace2D.getPaddedSize(sizeY(), (int) Math.ceil(3.0 * FWHM / getGrid().pixelSizeY()), fftFilterPadding);
  
-        final double[][] transformer = new double[nx][ny+2];
-
+        final FFTWorkspace2D transformer = FFTWorkspace2D.acquire(nx, ny, fftFilterSinglePrecision);
+        
+        try { fftFilterAbove(FWHM, validator, weight, transformer); }
+        finally { transformer.release(); }
+    }
+    
+    private void fftFilterAbove(double FWHM, final Validating2D validator, final Values2D weight, final FFTWorkspace2D transformer) {
+        transformer.clear();
+        
         AveragingFork weightedCalc = new AveragingFork() {
             private double sumw = 0.0;
             private int n = 0;
@@ -817,9 +912,9 @@ public class Map2D extends Flagged2D implements Resizable<Index2D>, Serializable
                 if(!isValid(i, j)) return;  
                 if(validator != null) if(!validator.isValid(i, j)) return;
 
-                final double w = (weight == null) ? 1.0 : weight.get(i,  j).doubleValue();
+                final double w = (weight == null) ? 1.0 : weight.getDouble(i,  j);
           
-                transformer[i][j] = w * get(i, j).doubleValue();
+                transformer.set(i, j, w * getDouble(i, j));
                 sumw += w*w;    // Normalize like window functions, by square sum, in line with Parseval's theorem...
                 n++;
             }
@@ -831,9 +926,9 @@ public class Map2D extends Flagged2D implements Resizable<Index2D>, Serializable
         final double rmsw = Math.sqrt(weightedCalc.getResult().value());
         if(rmsw <= 0.0) return;
 
-        final MultiFFT fft = new MultiFFT(this);
-        fft.setParallel(getParallel());
-        fft.real2Amplitude(transformer);
+        if(fftFilterPadding == FFTWorkspace2D.Padding.MIRRORED) transformer.mirrorEdges(sizeX(), sizeY());
+        
+        transformer.real2Amplitude(getParallel());
 
         // sigma_x sigma_w = 1
         // FWHM_x sigma_w = 2.35
@@ -841,28 +936,21 @@ public class Map2D extends Flagged2D implements Resizable<Index2D>, Serializable
         // sigma_f = 2.35/2Pi * 1.0/FWHM_x
         // delta_f = 1.0/(Nx * delta_x);
         // sigma_nf = sigma_f / delta_x = 2.35 * Nx * delta_x / (2Pi * FWHM_x)
+        
+        final int nx = transformer.sizeX();
+        final int ny = transformer.sizeY();
 
         final double sigmax = Constant.sigmasInFWHM * nx * getGrid().pixelSizeX() / (Constant.twoPi * FWHM);
         final double sigmay = Constant.sigmasInFWHM * ny * getGrid().pixelSizeY() / (Constant.twoPi * FWHM);
 
-        final double ax = -0.5/(sigmax*sigmax);
-        final double ay = -0.5/(sigmay*sigmay);
-   
-        for(int fx=nx; --fx >= 0; ) {
-            final double axfx2 = ax*fx*fx;
-            final double[] r = transformer[fx];            // The positive frequencies
-        
-            // The unrolled real spectrum...
-            for(int fy=0; fy <= ny; fy += 2) {
-                // The transfer function (Gaussian taper)
-                final double A = Math.exp(axfx2 + ay*fy*fy);
-
-                r[fy] *= A;
-                r[fy+1] *= A;
-            }
-        }
+        // The transfer function (Gaussian taper), over the rows (complex, with negative frequencies in the
+        // upper half) and along the unrolled real spectrum of each row...
+        transformer.multiplySpectrum(
+                FFTWorkspace2D.getGaussianTaper(nx, sigmax, true), 
+                FFTWorkspace2D.getGaussianTaper(ny, sigmay, false)
+        );
 
-        fft.amplitude2Real(transformer);
+        transformer.amplitude2Real(getParallel());
         
         final double norm = -1.0 / rmsw;
         final Image2D image = getImage();
@@ -871,7 +959,7 @@ public class Map2D extends Flagged2D implements Resizable<Index2D>, Serializable
             @Override
             public void process(int i, int j) {
                 // Subtract from the image directly without affecting flagging...
-                image.add(i, j, norm * transformer[i][j]);
+                image.addDouble(i, j, norm * transformer.get(i, j));
             }
         }.process();
 
@@ -893,8 +981,10 @@ public class Map2D extends Flagged2D implements Resizable<Index2D>, Serializable
                 return new CartesianGridTransform2D(getGrid(), map.getGrid());
         }
 
-        // Otherwise, go with the full-blown reprojection...
-        return new ProjectedIndexTransform2D(getGrid(), map.getGrid());
+        // Otherwise, go with the full-blown reprojection, calculated exactly on a coarse control grid only...
+        Transforming<Vector2D> reprojection = new ProjectedIndexTransform2D(getGrid().copy(), map.getGrid().copy());
+        if(!cacheReprojection) return reprojection;
+        return CachedIndexTransform2D.forTransform(reprojection, sizeX(), sizeY());
     }
 
     public final Gaussian2D getAntialiasingBeamFor(Map2D map) {
@@ -922,7 +1012,7 @@ public class Map2D extends Flagged2D implements Resizable<Index2D>, Serializable
 
     public void resampleFrom(Map2D map, Values2D weight) {
         Referenced2D beam = getAntialiasingBeamImageFor(map);
-        resampleFrom(map, map.getIndexTransformTo(this), beam, weight);       
+        resampleFrom(map, getIndexTransformTo(map), beam, weight);       
         copyProcessingFrom(map);
     }
 
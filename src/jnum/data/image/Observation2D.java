@@ -212,6 +212,21 @@ public class Observation2D extends Map2D implements Observations<Data2D>, Indexe
                 set(i, j, get(i, j).doubleValue() + value.doubleValue());
             }
             
+            @Override
+            public double getDouble(int i, int j) {
+                return noiseAt(i, j);
+            }
+
+            @Override
+            public void setDouble(int i, int j, double value) {
+                super.setDouble(i, j, 1.0 / (value * value));
+            }    
+            
+            @Override
+            public void addDouble(int i, int j, double value) {
+                setDouble(i, j, getDouble(i, j) + value);
+            }
+            
             @Override
             protected void setDefaultUnit() { setUnit(Observation2D.this.getUnit()); }
         };
@@ -235,6 +250,21 @@ public class Observation2D extends Map2D implements Observations<Data2D>, Indexe
             public void add(int i, int j, Number value) {
                 set(i, j, get(i, j).doubleValue() + value.doubleValue());
             }    
+            
+            @Override
+            public double getDouble(int i, int j) {
+                return significanceAt(i, j);
+            }
+
+            @Override
+            public void setDouble(int i, int j, double value) {
+                super.setDouble(i, j, value * noiseAt(i, j));
+            }  
+            
+            @Override
+            public void addDouble(int i, int j, double value) {
+                setDouble(i, j, getDouble(i, j) + value);
+            }    
         
             @Override
             protected void setDefaultUnit() { super.setUnit(Unit.unity); }
@@ -252,8 +282,8 @@ public class Observation2D extends Map2D implements Observations<Data2D>, Indexe
         super.setSize(sizeX, sizeY);
         
         // Create brand new images, so that setSize on a clone does not change the original...
-        setWeightImage(Image2D.createType(getWeightImage().getElementType(), sizeX, sizeY));
-        setExposureImage(Image2D.createType(getExposureImage().getElementType(), sizeX, sizeY));
+        setWeightImage(createImage(getWeightImage().getElementType(), sizeX, sizeY));
+        setExposureImage(createImage(getExposureImage().getElementType(), sizeX, sizeY));
     }
 
     
@@ -281,7 +311,7 @@ public class Observation2D extends Map2D implements Observations<Data2D>, Indexe
     }
 
     public final double weightAt(int i, int j) {
-        return weight.get(i, j).doubleValue();
+        return weight.getDouble(i, j);
     }
     
     @Override
@@ -290,7 +320,7 @@ public class Observation2D extends Map2D implements Observations<Data2D>, Indexe
     }
 
     public void setWeightAt(int i, int j, double value) {
-        weight.set(i, j, value);
+        weight.setDouble(i, j, value);
     }
 
     @Override
@@ -299,11 +329,11 @@ public class Observation2D extends Map2D implements Observations<Data2D>, Indexe
     }
     
     public final double exposureAt(int i, int j) {
-        return exposure.get(i, j).doubleValue();
+        return exposure.getDouble(i, j);
     }
 
     public void setExposureAt(int i, int j, double value) {
-        exposure.set(i, j, value);
+        exposure.setDouble(i, j, value);
     }
 
     @Override
@@ -330,7 +360,7 @@ public class Observation2D extends Map2D implements Observations<Data2D>, Indexe
     }
     
     public double significanceAt(int i, int j) {
-        return get(i, j).doubleValue() * Math.sqrt(weightAt(i, j));
+        return getDouble(i, j) * Math.sqrt(weightAt(i, j));
     }
 
     @Override
@@ -363,7 +393,7 @@ public class Observation2D extends Map2D implements Observations<Data2D>, Indexe
         new Fork<Void>() {
             @Override
             protected void process(int i, int j) {
-                if(image.isValid(i, j)) accumulateAt(i, j, image.get(i, j).doubleValue(), gain, weight * image.weightAt(i, j), image.exposureAt(i, j));
+                if(image.isValid(i, j)) accumulateAt(i, j, image.getDouble(i, j), gain, weight * image.weightAt(i, j), image.exposureAt(i, j));
             }
         }.process();
     }
@@ -378,7 +408,7 @@ public class Observation2D extends Map2D implements Observations<Data2D>, Indexe
 
 
     public void endAccumulation(int i, int j) {
-        super.scale(i, j, 1.0 / weight.get(i,j).doubleValue());
+        super.scale(i, j, 1.0 / weight.getDouble(i,j));
     }
 
     public final void mergeAccumulate(final Observation2D image) {
@@ -403,9 +433,9 @@ public class Observation2D extends Map2D implements Observations<Data2D>, Indexe
 
 
     public final void accumulateAt(final int i, final int j, final double value, final double gain, double w, final double time) {
-        add(i, j, w * gain * value);
-        getWeightImage().add(i, j, w * gain * gain);
-        getExposureImage().add(i, j, time);
+        addDouble(i, j, w * gain * value);
+        getWeightImage().addDouble(i, j, w * gain * gain);
+        getExposureImage().addDouble(i, j, time);
     }
 
 
@@ -449,20 +479,35 @@ public class Observation2D extends Map2D implements Observations<Data2D>, Indexe
     @Override
     public void smooth(RegularData<Index2D, Vector2D> beam, Vector2D refIndex) {
         Image2D smoothWeights = getWeightImage().copy(false);
+        Image2D smoothExposure = getExposureImage().copy(false);
         
-        setImage((Image2D) getSmoothed(beam, refIndex, weight, smoothWeights));
-        setExposureImage((Image2D) getExposures().getSmoothed(beam, refIndex, weight, null));
+        setImage((Image2D) getSmoothed(beam, refIndex, weight, smoothWeights, exposure, smoothExposure));
+        setExposureImage(smoothExposure);
         setWeightImage(smoothWeights);
 
         addSmoothing(Gaussian2D.getEquivalent(beam, getGrid().getResolution()));
     }
 
+    // Called by Map2D.smooth(Gaussian2D) for axis-aligned PSFs only, for which the line passes are exact...
+    @Override
+    protected void smooth(Gaussian2D psf, Data2D.LineBeam[] passes) {
+        Image2D smoothWeights = getWeightImage().copy(false);
+        Image2D smoothExposure = getExposureImage().copy(false);
+        
+        setImage(getLineSmoothed(passes, weight, smoothWeights, exposure, smoothExposure));
+        setExposureImage(smoothExposure);
+        setWeightImage(smoothWeights);
+
+        addSmoothing(psf.copy());
+    }
+    
     @Override
     public void fastSmooth(RegularData<Index2D, Vector2D> beam, Vector2D refIndex, Index2D step) {
         Image2D smoothWeights = getWeightImage().copy(false);
+        Image2D smoothExposure = getExposureImage().copy(false);
         
-        setImage((Image2D) getFastSmoothed(beam, refIndex, step, weight, smoothWeights));
-        setExposureImage((Image2D) getExposures().getFastSmoothed(beam, refIndex, step, weight, null));
+        setImage((Image2D) getFastSmoothed(beam, refIndex, step, weight, smoothWeights, exposure, smoothExposure));
+        setExposureImage(smoothExposure);
         setWeightImage(smoothWeights);
       
         addSmoothing(Gaussian2D.getEquivalent(beam, getGrid().getResolution()));
@@ -533,7 +578,7 @@ public class Observation2D extends Map2D implements Observations<Data2D>, Indexe
             @Override
             protected void process(int i, int j) {
                 if(isValid(i,j)) {
-                    set(i, j, weightAt(i, j) * (cleanS2N.get(i, j).doubleValue() + s2n.get(i, j).doubleValue()));
+                    setDouble(i, j, weightAt(i, j) * (cleanS2N.getDouble(i, j) + s2n.getDouble(i, j)));
                 }
             }
         }.process();
@@ -645,8 +690,8 @@ public class Observation2D extends Map2D implements Observations<Data2D>, Indexe
             weight.new Fork<Void>() {
                 @Override
                 protected void process(int i, int j) {
-                    double noise = image.get(i,j).doubleValue();
-                    weight.set(i, j, 1.0 / (noise * noise));
+                    double noise = image.getDouble(i,j);
+                    weight.setDouble(i, j, 1.0 / (noise * noise));
                 }      
             }.process();
             return TYPE_WEIGHT;
@@ -655,7 +700,7 @@ public class Observation2D extends Map2D implements Observations<Data2D>, Indexe
             weight.new Fork<Void>() {
                 @Override
                 protected void process(int i, int j) {
-                    weight.set(i, j, 1.0 / image.get(i,j).doubleValue());
+                    weight.setDouble(i, j, 1.0 / image.getDouble(i,j));
                 }      
             }.process();
             return TYPE_WEIGHT;
@@ -664,8 +709,8 @@ public class Observation2D extends Map2D implements Observations<Data2D>, Indexe
             weight.new Fork<Void>() {
                 @Override
                 protected void process(int i, int j) {
-                    double noise = get(i, j).doubleValue() / image.get(i,j).doubleValue();
-                    weight.set(i, j, 1.0 / (noise * noise));
+                    double noise = getDouble(i, j) / image.getDouble(i,j);
+                    weight.setDouble(i, j, 1.0 / (noise * noise));
                 }      
             }.process();
             return TYPE_WEIGHT;
@@ -0,0 +1,922 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Attila Kovacs <attila[AT]sigmyne.com>.
+ * All rights reserved. 
+ * 
+ * This file is part of jnum.
+ * 
+ *     jnum is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ * 
+ *     jnum is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ * 
+ *     You should have received a copy of the GNU General Public License
+ *     along with jnum.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Attila Kovacs <attila[AT]sigmyne.com> - initial API and implementation
+ ******************************************************************************/
+
+
+package jnum.data.image;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+import jnum.fits.FitsToolkit;
+import nom.tam.fits.FitsException;
+import nom.tam.fits.Header;
+import nom.tam.util.ArrayFuncs;
+import nom.tam.util.BufferedDataOutputStream;
+
+
+/**
+ * Images whose data live outside of the Java heap, in a direct {@link ByteBuffer} or in a memory-mapped 
+ * temporary file, as supplied by an {@link Allocator}. Large maps can thus be processed without a huge 
+ * heap, and without burdening the garbage collector. The elements are laid out as in {@link Image2D.Flat2D}, 
+ * in big-endian byte order, and the image can be flushed to a FITS file without first creating an on-heap copy 
+ * (see {@link #writeFits(String)}).
+ * <p>
+ * 
+ * Since the buffers are indexed with <code>int</code>, each image is limited to 2<sup>31</sup>-1 bytes. 
+ * The buffered content is not serialized.
+ * 
+ * @author Attila Kovacs <attila@sigmyne.com>
+ *
+ */
+public abstract class OffHeapImage2D extends Image2D.Flat2D {
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 2920154733312582066L;
+    
+    private Allocator allocator;
+    
+    
+    protected OffHeapImage2D(Allocator allocator) {
+        this.allocator = allocator;
+    }
+    
+    public final Allocator getAllocator() { return allocator; }
+    
+    protected final ByteBuffer allocate(int elements, int bytesPerElement) {
+        long bytes = (long) elements * bytesPerElement;
+        if(bytes > Integer.MAX_VALUE) throw new IllegalArgumentException("Image too large for off-heap storage: " + getSizeString());
+        return allocator.allocate((int) bytes);
+    }
+    
+    protected abstract int getElementBytes();
+    
+    protected abstract Object toArray();
+    
+    protected abstract void putFitsValue(ByteBuffer buffer, int offset, int i, int j, double scaling);
+    
+    
+    @Override
+    public synchronized Object getNestedCore() {
+        if(capacity() == 0) return null;
+        return ArrayFuncs.curl(toArray(), new int[] { sizeX(), sizeY() });
+    }
+    
+   
+    public Header getFitsHeader() throws FitsException {
+        Header header = new Header();
+        header.setSimple(true);
+        header.setBitpix(getBitpix());
+        header.setNaxes(2);
+        header.setNaxis(1, sizeX());
+        header.setNaxis(2, sizeY());
+        header.addValue("EXTEND", true, "Extensions are permitted.");
+        editHeader(header);
+        return header;
+    }
+    
+    public int getBitpix() {
+        Class<? extends Number> type = getElementType();
+        if(type.equals(Double.class)) return FitsToolkit.BITPIX_DOUBLE;
+        if(type.equals(Float.class)) return FitsToolkit.BITPIX_FLOAT;
+        if(type.equals(Long.class)) return FitsToolkit.BITPIX_LONG;
+        if(type.equals(Integer.class)) return FitsToolkit.BITPIX_INT;
+        if(type.equals(Short.class)) return FitsToolkit.BITPIX_SHORT;
+        return FitsToolkit.BITPIX_BYTE;
+    }
+    
+    /**
+     * Writes the image as the primary HDU of a new FITS file. The data are streamed from the off-heap buffer, 
+     * transposed into FITS order a block of rows at a time, so only a small on-heap buffer is needed regardless 
+     * of image size.
+     * 
+     * @param fileName      the name of the FITS file to write.
+     * @throws FitsException  if the header could not be created or written.
+     * @throws IOException    if there was an error writing the data.
+     */
+    public synchronized void writeFits(String fileName) throws FitsException, IOException {
+        try(FileOutputStream file = new FileOutputStream(fileName)) {
+            BufferedDataOutputStream out = new BufferedDataOutputStream(file);
+            getFitsHeader().write(out);
+            out.flush();
+            writeDataUnit(file.getChannel());
+        }
+    }
+    
+    /**
+     * Writes the FITS data unit of this image, including the padding to a full FITS block, to the current 
+     * position of the channel.
+     * 
+     * @param channel       the file channel to write to.
+     * @throws IOException  if there was an error writing the data.
+     */
+    public synchronized void writeDataUnit(FileChannel channel) throws IOException {
+        final int sizeX = sizeX(), sizeY = sizeY();
+        final int bytes = getElementBytes();
+        final double scaling = 1.0 / getUnit().value();
+        
+        final int rowBytes = sizeX * bytes;
+        final int rows = Math.max(1, Math.min(sizeY, fitsBlockBytes / Math.max(1, rowBytes)));
+        final ByteBuffer block = ByteBuffer.allocate(rows * rowBytes);
+        
+        for(int j0=0; j0 < sizeY; j0 += rows) {
+            final int j1 = Math.min(sizeY, j0 + rows);
+            block.clear();
+            // Read along the contiguous j direction of the off-heap storage...
+            for(int i=0; i<sizeX; i++) for(int j=j0; j<j1; j++) 
+                putFitsValue(block, ((j - j0) * sizeX + i) * bytes, i, j, scaling);
+            block.limit((j1 - j0) * rowBytes);
+            while(block.hasRemaining()) channel.write(block);
+        }
+        
+        int padding = (int) ((FITS_BLOCK_SIZE - ((long) sizeX * sizeY * bytes) % FITS_BLOCK_SIZE) % FITS_BLOCK_SIZE);
+        if(padding > 0) {
+            ByteBuffer pad = ByteBuffer.allocate(padding);
+            while(pad.hasRemaining()) channel.write(pad);
+        }
+    }
+    
+    
+    public static OffHeapImage2D createType(Class<? extends Number> type, Allocator allocator) {       
+        if(type.equals(Double.class)) return new DoubleBuffer2D(allocator);
+        else if(type.equals(Float.class)) return new FloatBuffer2D(allocator);
+        else if(type.equals(Long.class)) return new LongBuffer2D(allocator);
+        else if(type.equals(Integer.class)) return new IntBuffer2D(allocator);
+        else if(type.equals(Short.class)) return new ShortBuffer2D(allocator);
+        else if(type.equals(Byte.class)) return new ByteBuffer2D(allocator);
+        else return null;
+    }
+    
+    public static OffHeapImage2D createType(Class<? extends Number> type, int sizeX, int sizeY, Allocator allocator) {
+        OffHeapImage2D image = createType(type, allocator);
+        if(image == null) return null;
+        image.setSize(sizeX, sizeY);
+        return image;
+    }
+    
+    
+    /**
+     * The approximate size of the on-heap buffer used for writing FITS data units.
+     */
+    public static int fitsBlockBytes = 1<<20;
+    
+    private static final int FITS_BLOCK_SIZE = 2880;
+    
+    
+    
+    public interface Allocator extends Serializable {
+        public ByteBuffer allocate(int bytes);
+    }
+    
+    /**
+     * Allocates direct (native) byte buffers, which are released when the image is garbage collected.
+     */
+    public static final Allocator DIRECT = new Allocator() {
+        private static final long serialVersionUID = -1405402463766346597L;
+
+        @Override
+        public ByteBuffer allocate(int bytes) {
+            return ByteBuffer.allocateDirect(bytes);
+        }
+    };
+    
+    /**
+     * Allocates memory-mapped temporary files in a given directory, so that the operating system can page 
+     * image data to and from disk as needed. The files are removed as soon as they are mapped (or on exit, 
+     * on platforms that do not allow removing open files).
+     */
+    public static class MappedFileAllocator implements Allocator {
+        /**
+         * 
+         */
+        private static final long serialVersionUID = 1650380425017693146L;
+        private File directory;
+        
+        public MappedFileAllocator() {
+            this(null);
+        }
+        
+        public MappedFileAllocator(File directory) {
+            this.directory = directory;
+        }
+        
+        public File getDirectory() { return directory; }
+
+        @Override
+        public ByteBuffer allocate(int bytes) {
+            try {
+                File file = File.createTempFile("jnum-", ".map", directory);
+                try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(bytes);
+                    return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+                }
+                finally { if(!file.delete()) file.deleteOnExit(); }
+            }
+            catch(IOException e) { throw new UncheckedIOException(e); }
+        }
+    }
+    
+    
+
+    public static class DoubleBuffer2D extends OffHeapImage2D {
+        /**
+         * 
+         */
+        private static final long serialVersionUID = -7310587196012783407L;
+        private transient DoubleBuffer data;
+        
+        public DoubleBuffer2D(Allocator allocator) {
+            super(allocator);
+        }
+
+        @Override
+        public Number getLowestCompareValue() { return Double.NEGATIVE_INFINITY; }
+        
+        @Override
+        public Number getHighestCompareValue() { return Double.POSITIVE_INFINITY; }
+        
+        @Override
+        public int compare(Number a, Number b) {
+            return Double.compare(a.doubleValue(), b.doubleValue());
+        }
+
+        @Override
+        public Class<? extends Number> getElementType() {
+            return Double.class;
+        }
+        
+        @Override
+        protected int getElementBytes() {
+            return 8;
+        }
+        
+        @Override
+        protected void setFlatDataSize(int n) {
+            data = n > 0 ? allocate(n, 8).asDoubleBuffer() : null;
+        }
+        
+        @Override
+        public synchronized DoubleBuffer getCore() {
+            return data;
+        }
+        
+        @Override
+        protected double[] toArray() {
+            double[] array = new double[data.capacity()];
+            data.duplicate().get(array);
+            return array;
+        }
+        
+        @Override
+        public synchronized void setData(double[][] image) {
+            setSize(image.length, image[0].length);
+            for(int i=image.length; --i >= 0; ) {
+                DoubleBuffer row = data.duplicate();
+                row.position(indexOf(i, 0));
+                row.put(image[i]);
+            }
+            recordNewData("double[][]");
+        }
+        
+        @Override
+        public DoubleBuffer2D copy(boolean withContent) {
+            DoubleBuffer2D copy = (DoubleBuffer2D) super.copy(false);
+            if(withContent && data != null) {
+                copy.data.duplicate().put(data.duplicate());
+                copy.addHistory("pasted new content: " + getSizeString());
+            }
+            return copy;
+        }
+
+        @Override
+        public final Number get(int i, int j) {
+            return data.get(indexOf(i, j));
+        }
+
+        @Override
+        public final void set(int i, int j, Number value) {
+            data.put(indexOf(i, j), value.doubleValue());
+        }
+        
+        @Override
+        public final void add(int i, int j, Number value) {
+            final int k = indexOf(i, j);
+            data.put(k, data.get(k) + value.doubleValue());
+        }
+
+        @Override
+        public final double getDouble(int i, int j) {
+            return data.get(indexOf(i, j));
+        }
+
+        @Override
+        public final void setDouble(int i, int j, double value) {
+            data.put(indexOf(i, j), value);
+        }
+
+        @Override
+        public final void addDouble(int i, int j, double value) {
+            final int k = indexOf(i, j);
+            data.put(k, data.get(k) + value);
+        }
+
+        @Override
+        public final void scale(int i, int j, double factor) {
+            final int k = indexOf(i, j);
+            data.put(k, data.get(k) * factor);
+        }
+        
+        @Override
+        public final boolean isValid(Number value) {
+            if(Double.isNaN(value.doubleValue())) return false;
+            return super.isValid(value);
+        }
+
+        @Override
+        protected void putFitsValue(ByteBuffer buffer, int offset, int i, int j, double scaling) {
+            final int k = indexOf(i, j);
+            buffer.putDouble(offset, isValid(i, j) ? data.get(k) * scaling : getBlankingValue().doubleValue());
+        }
+        
+    }
+    
+
+    public static class FloatBuffer2D extends OffHeapImage2D {
+        /**
+         * 
+         */
+        private static final long serialVersionUID = 3166409226578843214L;
+        private transient FloatBuffer data;
+        
+        public FloatBuffer2D(Allocator allocator) {
+            super(allocator);
+        }
+
+        @Override
+        public Number getLowestCompareValue() { return Float.NEGATIVE_INFINITY; }
+        
+        @Override
+        public Number getHighestCompareValue() { return Float.POSITIVE_INFINITY; }
+        
+        @Override
+        public int compare(Number a, Number b) {
+            return Float.compare(a.floatValue(), b.floatValue());
+        }
+
+        @Override
+        public Class<? extends Number> getElementType() {
+            return Float.class;
+        }
+        
+        @Override
+        protected int getElementBytes() {
+            return 4;
+        }
+        
+        @Override
+        protected void setFlatDataSize(int n) {
+            data = n > 0 ? allocate(n, 4).asFloatBuffer() : null;
+        }
+        
+        @Override
+        public synchronized FloatBuffer getCore() {
+            return data;
+        }
+        
+        @Override
+        protected float[] toArray() {
+            float[] array = new float[data.capacity()];
+            data.duplicate().get(array);
+            return array;
+        }
+        
+        @Override
+        public synchronized void setData(float[][] image) {
+            setSize(image.length, image[0].length);
+            for(int i=image.length; --i >= 0; ) {
+                FloatBuffer row = data.duplicate();
+                row.position(indexOf(i, 0));
+                row.put(image[i]);
+            }
+            recordNewData("float[][]");
+        }
+        
+        @Override
+        public FloatBuffer2D copy(boolean withContent) {
+            FloatBuffer2D copy = (FloatBuffer2D) super.copy(false);
+            if(withContent && data != null) {
+                copy.data.duplicate().put(data.duplicate());
+                copy.addHistory("pasted new content: " + getSizeString());
+            }
+            return copy;
+        }
+
+        @Override
+        public final Number get(int i, int j) {
+            return data.get(indexOf(i, j));
+        }
+
+        @Override
+        public final void set(int i, int j, Number value) {
+            data.put(indexOf(i, j), value.floatValue());
+        }
+        
+        @Override
+        public final void add(int i, int j, Number value) {
+            final int k = indexOf(i, j);
+            data.put(k, data.get(k) + value.floatValue());
+        }
+
+        @Override
+        public final double getDouble(int i, int j) {
+            return data.get(indexOf(i, j));
+        }
+
+        @Override
+        public final void setDouble(int i, int j, double value) {
+            data.put(indexOf(i, j), (float) value);
+        }
+
+        @Override
+        public final void addDouble(int i, int j, double value) {
+            final int k = indexOf(i, j);
+            data.put(k, data.get(k) + (float) value);
+        }
+
+        @Override
+        public final void scale(int i, int j, double factor) {
+            final int k = indexOf(i, j);
+            data.put(k, (float) (data.get(k) * factor));
+        }
+        
+        @Override
+        public final boolean isValid(Number value) {
+            if(Float.isNaN(value.floatValue())) return false;
+            return super.isValid(value);
+        }
+
+        @Override
+        protected void putFitsValue(ByteBuffer buffer, int offset, int i, int j, double scaling) {
+            final int k = indexOf(i, j);
+            buffer.putFloat(offset, isValid(i, j) ? (float) (data.get(k) * scaling) : getBlankingValue().floatValue());
+        }
+        
+    }
+    
+
+    public static class LongBuffer2D extends OffHeapImage2D {
+        /**
+         * 
+         */
+        private static final long serialVersionUID = -2190335861208470251L;
+        private transient LongBuffer data;
+        
+        public LongBuffer2D(Allocator allocator) {
+            super(allocator);
+        }
+
+        @Override
+        public Class<? extends Number> getElementType() {
+            return Long.class;
+        }
+        
+        @Override
+        protected int getElementBytes() {
+            return 8;
+        }
+        
+        @Override
+        protected void setFlatDataSize(int n) {
+            data = n > 0 ? allocate(n, 8).asLongBuffer() : null;
+        }
+        
+        @Override
+        public synchronized LongBuffer getCore() {
+            return data;
+        }
+        
+        @Override
+        protected long[] toArray() {
+            long[] array = new long[data.capacity()];
+            data.duplicate().get(array);
+            return array;
+        }
+        
+        @Override
+        public synchronized void setData(long[][] image) {
+            setSize(image.length, image[0].length);
+            for(int i=image.length; --i >= 0; ) {
+                LongBuffer row = data.duplicate();
+                row.position(indexOf(i, 0));
+                row.put(image[i]);
+            }
+            recordNewData("long[][]");
+        }
+        
+        @Override
+        public LongBuffer2D copy(boolean withContent) {
+            LongBuffer2D copy = (LongBuffer2D) super.copy(false);
+            if(withContent && data != null) {
+                copy.data.duplicate().put(data.duplicate());
+                copy.addHistory("pasted new content: " + getSizeString());
+            }
+            return copy;
+        }
+
+        @Override
+        public final Number get(int i, int j) {
+            return data.get(indexOf(i, j));
+        }
+
+        @Override
+        public final void set(int i, int j, Number value) {
+            data.put(indexOf(i, j), value.longValue());
+        }
+        
+        @Override
+        public final void add(int i, int j, Number value) {
+            final int k = indexOf(i, j);
+            data.put(k, data.get(k) + value.longValue());
+        }
+
+        @Override
+        public final double getDouble(int i, int j) {
+            return data.get(indexOf(i, j));
+        }
+
+        @Override
+        public final void setDouble(int i, int j, double value) {
+            data.put(indexOf(i, j), (long) value);
+        }
+
+        @Override
+        public final void addDouble(int i, int j, double value) {
+            final int k = indexOf(i, j);
+            data.put(k, data.get(k) + (long) value);
+        }
+
+        @Override
+        public final void scale(int i, int j, double factor) {
+            final int k = indexOf(i, j);
+            data.put(k, (long) (data.get(k) * factor));
+        }
+        
+        @Override
+        protected void putFitsValue(ByteBuffer buffer, int offset, int i, int j, double scaling) {
+            final int k = indexOf(i, j);
+            buffer.putLong(offset, isValid(i, j) ? (scaling == 1.0 ? data.get(k) : (long) (data.get(k) * scaling)) : getBlankingValue().longValue());
+        }
+        
+    }
+    
+
+    public static class IntBuffer2D extends OffHeapImage2D {
+        /**
+         * 
+         */
+        private static final long serialVersionUID = 5585741603368820318L;
+        private transient IntBuffer data;
+        
+        public IntBuffer2D(Allocator allocator) {
+            super(allocator);
+        }
+
+        @Override
+        public Class<? extends Number> getElementType() {
+            return Integer.class;
+        }
+        
+        @Override
+        protected int getElementBytes() {
+            return 4;
+        }
+        
+        @Override
+        protected void setFlatDataSize(int n) {
+            data = n > 0 ? allocate(n, 4).asIntBuffer() : null;
+        }
+        
+        @Override
+        public synchronized IntBuffer getCore() {
+            return data;
+        }
+        
+        @Override
+        protected int[] toArray() {
+            int[] array = new int[data.capacity()];
+            data.duplicate().get(array);
+            return array;
+        }
+        
+        @Override
+        public synchronized void setData(int[][] image) {
+            setSize(image.length, image[0].length);
+            for(int i=image.length; --i >= 0; ) {
+                IntBuffer row = data.duplicate();
+                row.position(indexOf(i, 0));
+                row.put(image[i]);
+            }
+            recordNewData("int[][]");
+        }
+        
+        @Override
+        public IntBuffer2D copy(boolean withContent) {
+            IntBuffer2D copy = (IntBuffer2D) super.copy(false);
+            if(withContent && data != null) {
+                copy.data.duplicate().put(data.duplicate());
+                copy.addHistory("pasted new content: " + getSizeString());
+            }
+            return copy;
+        }
+
+        @Override
+        public final Number get(int i, int j) {
+            return data.get(indexOf(i, j));
+        }
+
+        @Override
+        public final void set(int i, int j, Number value) {
+            data.put(indexOf(i, j), value.intValue());
+        }
+        
+        @Override
+        public final void add(int i, int j, Number value) {
+            final int k = indexOf(i, j);
+            data.put(k, data.get(k) + value.intValue());
+        }
+
+        @Override
+        public final double getDouble(int i, int j) {
+            return data.get(indexOf(i, j));
+        }
+
+        @Override
+        public final void setDouble(int i, int j, double value) {
+            data.put(indexOf(i, j), (int) value);
+        }
+
+        @Override
+        public final void addDouble(int i, int j, double value) {
+            final int k = indexOf(i, j);
+            data.put(k, data.get(k) + (int) value);
+        }
+
+        @Override
+        public final void scale(int i, int j, double factor) {
+            final int k = indexOf(i, j);
+            data.put(k, (int) (data.get(k) * factor));
+        }
+        
+        @Override
+        protected void putFitsValue(ByteBuffer buffer, int offset, int i, int j, double scaling) {
+            final int k = indexOf(i, j);
+            buffer.putInt(offset, isValid(i, j) ? (scaling == 1.0 ? data.get(k) : (int) (data.get(k) * scaling)) : getBlankingValue().intValue());
+        }
+        
+    }
+    
+
+    public static class ShortBuffer2D extends OffHeapImage2D {
+        /**
+         * 
+         */
+        private static final long serialVersionUID = -838196613577504117L;
+        private transient ShortBuffer data;
+        
+        public ShortBuffer2D(Allocator allocator) {
+            super(allocator);
+        }
+
+        @Override
+        public Class<? extends Number> getElementType() {
+            return Short.class;
+        }
+        
+        @Override
+        protected int getElementBytes() {
+            return 2;
+        }
+        
+        @Override
+        protected void setFlatDataSize(int n) {
+            data = n > 0 ? allocate(n, 2).asShortBuffer() : null;
+        }
+        
+        @Override
+        public synchronized ShortBuffer getCore() {
+            return data;
+        }
+        
+        @Override
+        protected short[] toArray() {
+            short[] array = new short[data.capacity()];
+            data.duplicate().get(array);
+            return array;
+        }
+        
+        @Override
+        public synchronized void setData(short[][] image) {
+            setSize(image.length, image[0].length);
+            for(int i=image.length; --i >= 0; ) {
+                ShortBuffer row = data.duplicate();
+                row.position(indexOf(i, 0));
+                row.put(image[i]);
+            }
+            recordNewData("short[][]");
+        }
+        
+        @Override
+        public ShortBuffer2D copy(boolean withContent) {
+            ShortBuffer2D copy = (ShortBuffer2D) super.copy(false);
+            if(withContent && data != null) {
+                copy.data.duplicate().put(data.duplicate());
+                copy.addHistory("pasted new content: " + getSizeString());
+            }
+            return copy;
+        }
+
+        @Override
+        public final Number get(int i, int j) {
+            return data.get(indexOf(i, j));
+        }
+
+        @Override
+        public final void set(int i, int j, Number value) {
+            data.put(indexOf(i, j), value.shortValue());
+        }
+        
+        @Override
+        public final void add(int i, int j, Number value) {
+            final int k = indexOf(i, j);
+            data.put(k, (short) (data.get(k) + value.shortValue()));
+        }
+
+        @Override
+        public final double getDouble(int i, int j) {
+            return data.get(indexOf(i, j));
+        }
+
+        @Override
+        public final void setDouble(int i, int j, double value) {
+            data.put(indexOf(i, j), (short) value);
+        }
+
+        @Override
+        public final void addDouble(int i, int j, double value) {
+            final int k = indexOf(i, j);
+            data.put(k, (short) (data.get(k) + (short) value));
+        }
+
+        @Override
+        public final void scale(int i, int j, double factor) {
+            final int k = indexOf(i, j);
+            data.put(k, (short) (data.get(k) * factor));
+        }
+        
+        @Override
+        protected void putFitsValue(ByteBuffer buffer, int offset, int i, int j, double scaling) {
+            final int k = indexOf(i, j);
+            buffer.putShort(offset, isValid(i, j) ? (scaling == 1.0 ? data.get(k) : (short) (data.get(k) * scaling)) : getBlankingValue().shortValue());
+        }
+        
+    }
+    
+
+    public static class ByteBuffer2D extends OffHeapImage2D {
+        /**
+         * 
+         */
+        private static final long serialVersionUID = 4710257938117283951L;
+        private transient ByteBuffer data;
+        
+        public ByteBuffer2D(Allocator allocator) {
+            super(allocator);
+        }
+
+        @Override
+        public Class<? extends Number> getElementType() {
+            return Byte.class;
+        }
+        
+        @Override
+        protected int getElementBytes() {
+            return 1;
+        }
+        
+        @Override
+        protected void setFlatDataSize(int n) {
+            data = n > 0 ? allocate(n, 1) : null;
+        }
+        
+        @Override
+        public synchronized ByteBuffer getCore() {
+            return data;
+        }
+        
+        @Override
+        protected byte[] toArray() {
+            byte[] array = new byte[data.capacity()];
+            data.duplicate().get(array);
+            return array;
+        }
+        
+        @Override
+        public synchronized void setData(byte[][] image) {
+            setSize(image.length, image[0].length);
+            for(int i=image.length; --i >= 0; ) {
+                ByteBuffer row = data.duplicate();
+                row.position(indexOf(i, 0));
+                row.put(image[i]);
+            }
+            recordNewData("byte[][]");
+        }
+        
+        @Override
+        public ByteBuffer2D copy(boolean withContent) {
+            ByteBuffer2D copy = (ByteBuffer2D) super.copy(false);
+            if(withContent && data != null) {
+                copy.data.duplicate().put(data.duplicate());
+                copy.addHistory("pasted new content: " + getSizeString());
+            }
+            return copy;
+        }
+
+        @Override
+        public final Number get(int i, int j) {
+            return data.get(indexOf(i, j));
+        }
+
+        @Override
+        public final void set(int i, int j, Number value) {
+            data.put(indexOf(i, j), value.byteValue());
+        }
+        
+        @Override
+        public final void add(int i, int j, Number value) {
+            final int k = indexOf(i, j);
+            data.put(k, (byte) (data.get(k) + value.byteValue()));
+        }
+
+        @Override
+        public final double getDouble(int i, int j) {
+            return data.get(indexOf(i, j));
+        }
+
+        @Override
+        public final void setDouble(int i, int j, double value) {
+            data.put(indexOf(i, j), (byte) value);
+        }
+
+        @Override
+        public final void addDouble(int i, int j, double value) {
+            final int k = indexOf(i, j);
+            data.put(k, (byte) (data.get(k) + (byte) value));
+        }
+
+        @Override
+        public final void scale(int i, int j, double factor) {
+            final int k = indexOf(i, j);
+            data.put(k, (byte) (data.get(k) * factor));
+        }
+        
+        @Override
+        protected void putFitsValue(ByteBuffer buffer, int offset, int i, int j, double scaling) {
+            final int k = indexOf(i, j);
+            buffer.put(offset, isValid(i, j) ? (scaling == 1.0 ? data.get(k) : (byte) (data.get(k) * scaling)) : getBlankingValue().byteValue());
+        }
+        
+    }
+    
+
+}
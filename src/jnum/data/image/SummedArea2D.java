@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Attila Kovacs <attila[AT]sigmyne.com>.
+ * All rights reserved. 
+ * 
+ * This file is part of jnum.
+ * 
+ *     jnum is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ * 
+ *     jnum is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ * 
+ *     You should have received a copy of the GNU General Public License
+ *     along with jnum.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Attila Kovacs <attila[AT]sigmyne.com> - initial API and implementation
+ ******************************************************************************/
+
+
+package jnum.data.image;
+
+import jnum.data.WeightedPoint;
+
+/**
+ * A summed-area table (integral image) of a 2D image, with which the number of valid pixels, and the weighted sums, 
+ * means and variances of the valid pixels, inside any rectangular box can be obtained in O(1) operations, 
+ * independent of the size of the box. Blanked (invalid) pixels do not contribute.
+ * <p>
+ * 
+ * The table is a snapshot of the image (and weights) at the time of construction. The sums are kept relative
+ * to the mean image value, to limit round-off errors in the variances of images with large offsets.
+ * 
+ * @author Attila Kovacs <attila@sigmyne.com>
+ *
+ */
+public class SummedArea2D {
+    private int sizeX, sizeY;
+    private double offset;
+    
+    private int[][] count;
+    private double[][] sumw, sumwx, sumwx2;
+    
+    /**
+     * Constructs a new summed-area table for an image, with the specified pixel weights.
+     * 
+     * @param data      the image
+     * @param weight    the pixel weights, or <code>null</code> for uniform weights.
+     */
+    public SummedArea2D(final Data2D data, final Values2D weight) {
+        sizeX = data.sizeX();
+        sizeY = data.sizeY();
+        
+        offset = data.getMean().value();
+        if(Double.isNaN(offset) || Double.isInfinite(offset)) offset = 0.0;
+        
+        count = new int[sizeX + 1][sizeY + 1];
+        sumw = new double[sizeX + 1][sizeY + 1];
+        sumwx = new double[sizeX + 1][sizeY + 1];
+        sumwx2 = new double[sizeX + 1][sizeY + 1];
+        
+        // Cumulative sums along rows (in parallel)...
+        data.new Fork<Void>() {
+            @Override
+            protected void processX(int i) {
+                final int[] n = count[i+1];
+                final double[] W = sumw[i+1], WX = sumwx[i+1], WX2 = sumwx2[i+1];
+                
+                for(int j=0; j<sizeY; j++) {
+                    n[j+1] = n[j];
+                    W[j+1] = W[j];
+                    WX[j+1] = WX[j];
+                    WX2[j+1] = WX2[j];
+                    
+                    if(!data.isValid(i, j)) continue;
+                    
+                    final double w = weight == null ? 1.0 : weight.getDouble(i, j);
+                    final double dx = data.getDouble(i, j) - offset;
+                    
+                    n[j+1]++;
+                    W[j+1] += Math.abs(w);
+                    WX[j+1] += w * dx;
+                    WX2[j+1] += Math.abs(w) * dx * dx;
+                }
+            }
+            
+            @Override
+            protected void process(int i, int j) {}
+        }.process();
+        
+        // Then cumulative sums of the rows...
+        for(int i=1; i<sizeX; i++) {
+            final int[] n = count[i+1], n0 = count[i];
+            final double[] W = sumw[i+1], WX = sumwx[i+1], WX2 = sumwx2[i+1];
+            final double[] W0 = sumw[i], WX0 = sumwx[i], WX20 = sumwx2[i];
+            
+            for(int j=sizeY+1; --j > 0; ) {
+                n[j] += n0[j];
+                W[j] += W0[j];
+                WX[j] += WX0[j];
+                WX2[j] += WX20[j];
+            }
+        }
+    }
+    
+    public final int sizeX() { return sizeX; }
+    
+    public final int sizeY() { return sizeY; }
+    
+    
+    /**
+     * Returns the number of valid pixels inside a box. The box is clipped to the image as necessary.
+     * 
+     * @param fromi     the starting x index (inclusive) of the box.
+     * @param fromj     the starting y index (inclusive) of the box.
+     * @param toi       the ending x index (exclusive) of the box.
+     * @param toj       the ending y index (exclusive) of the box.
+     * @return          the number of valid pixels in the box.
+     */
+    public int countValid(int fromi, int fromj, int toi, int toj) {
+        fromi = clipX(fromi); toi = clipX(toi);
+        fromj = clipY(fromj); toj = clipY(toj);
+        if(toi <= fromi || toj <= fromj) return 0;
+        return count[toi][toj] - count[fromi][toj] - count[toi][fromj] + count[fromi][fromj];
+    }
+    
+    /**
+     * Sets the weighted sum sum(wI) of the valid pixels inside a box as the value, and the sum of weights sum(|w|) 
+     * as the weight of the supplied point. The box is clipped to the image as necessary.
+     * 
+     * @param fromi     the starting x index (inclusive) of the box.
+     * @param fromj     the starting y index (inclusive) of the box.
+     * @param toi       the ending x index (exclusive) of the box.
+     * @param toj       the ending y index (exclusive) of the box.
+     * @param result    the point to be set to the weighted sum and the sum of weights.
+     */
+    public void getSum(int fromi, int fromj, int toi, int toj, WeightedPoint result) {
+        fromi = clipX(fromi); toi = clipX(toi);
+        fromj = clipY(fromj); toj = clipY(toj);
+        
+        if(toi <= fromi || toj <= fromj) {
+            result.noData();
+            return;
+        }
+        
+        final double w = boxSum(sumw, fromi, fromj, toi, toj);
+        result.setValue(boxSum(sumwx, fromi, fromj, toi, toj) + offset * w);
+        result.setWeight(w);
+    }
+    
+    /**
+     * Sets the weighted mean sum(wI) / sum(|w|) of the valid pixels inside a box as the value, and the sum of 
+     * weights sum(|w|) as the weight of the supplied point. This is the same as smoothing with a box beam. The box 
+     * is clipped to the image as necessary.
+     * 
+     * @param fromi     the starting x index (inclusive) of the box.
+     * @param fromj     the starting y index (inclusive) of the box.
+     * @param toi       the ending x index (exclusive) of the box.
+     * @param toj       the ending y index (exclusive) of the box.
+     * @param result    the point to be set to the weighted mean and the sum of weights.
+     */
+    public void getMean(int fromi, int fromj, int toi, int toj, WeightedPoint result) {
+        getSum(fromi, fromj, toi, toj, result);
+        result.setValue(result.weight() > 0.0 ? result.value() / result.weight() : Double.NaN);
+    }
+    
+    /**
+     * Returns the weighted variance sum(|w| (I - mean)^2) / sum(|w|) of the valid pixels inside a box. The box 
+     * is clipped to the image as necessary.
+     * 
+     * @param fromi     the starting x index (inclusive) of the box.
+     * @param fromj     the starting y index (inclusive) of the box.
+     * @param toi       the ending x index (exclusive) of the box.
+     * @param toj       the ending y index (exclusive) of the box.
+     * @return          the weighted variance in the box, or NaN if the box contains no weighted data.
+     */
+    public double getVariance(int fromi, int fromj, int toi, int toj) {
+        fromi = clipX(fromi); toi = clipX(toi);
+        fromj = clipY(fromj); toj = clipY(toj);
+        if(toi <= fromi || toj <= fromj) return Double.NaN;
+        
+        final double w = boxSum(sumw, fromi, fromj, toi, toj);
+        if(!(w > 0.0)) return Double.NaN;
+        
+        final double mean = boxSum(sumwx, fromi, fromj, toi, toj) / w;
+        return Math.max(0.0, boxSum(sumwx2, fromi, fromj, toi, toj) / w - mean * mean);
+    }
+    
+    private int clipX(int i) { return Math.max(0, Math.min(sizeX, i)); }
+    
+    private int clipY(int j) { return Math.max(0, Math.min(sizeY, j)); }
+    
+    private static double boxSum(double[][] S, int fromi, int fromj, int toi, int toj) {
+        return S[toi][toj] - S[fromi][toj] - S[toi][fromj] + S[fromi][fromj];
+    }
+}
@@ -0,0 +1,527 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Attila Kovacs <attila[AT]sigmyne.com>.
+ * All rights reserved.
+ *
+ * This file is part of jnum.
+ *
+ *     jnum is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     jnum is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with jnum.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Attila Kovacs <attila[AT]sigmyne.com> - initial API and implementation
+ ******************************************************************************/
+
+
+package jnum.data.image;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import jnum.data.RegularData;
+import jnum.data.Transforming;
+import jnum.data.image.overlay.Referenced2D;
+import jnum.fits.FitsHeaderEditing;
+import jnum.fits.FitsToolkit;
+import jnum.math.Vector2D;
+import nom.tam.fits.BasicHDU;
+import nom.tam.fits.Fits;
+import nom.tam.fits.FitsException;
+import nom.tam.fits.Header;
+import nom.tam.fits.ImageHDU;
+import nom.tam.image.StandardImageTiler;
+import nom.tam.util.BufferedDataOutputStream;
+
+/**
+ * Resamples images that need not fit in memory, one destination tile at a time. For every tile, the footprint in
+ * the source image is estimated by transforming a grid of sample points across the tile (including its edges) to
+ * source indices, and only that region of the source (plus a margin for the interpolation and the anti-aliasing
+ * beam) is pulled from the {@link Source}. The resampled tile is then handed to a {@link Sink}, such as a FITS file
+ * that is written in place, or an off-heap image (see {@link OffHeapImage2D}). The memory required is thus bounded
+ * by the tile size and the source footprint of a tile, regardless of the size of the maps.
+ * <p>
+ *
+ * Within a tile, the resampling is the same (and is parallelized the same way) as
+ * {@link RegularData#resampleFrom(RegularData, Transforming, jnum.data.Referenced, jnum.data.IndexedValues)},
+ * with uniform weights.
+ *
+ * @author Attila Kovacs <attila@sigmyne.com>
+ *
+ */
+public class TiledResampler2D {
+    private Source source;
+    private Transforming<Vector2D> toSourceIndex;
+    private Referenced2D beam;
+
+    private int tileSize = defaultTileSize;
+    private int interpolationType = RegularData.SPLINE;
+    private int parallel = Runtime.getRuntime().availableProcessors();
+
+
+    /**
+     * Constructs a new tiled resampler.
+     *
+     * @param source            the source image.
+     * @param toSourceIndex     the transform from destination indices to source indices. It must be thread-safe.
+     * @param beam              the anti-aliasing beam, sampled on the source grid, or <code>null</code> to just
+     *                          interpolate the source.
+     */
+    public TiledResampler2D(Source source, Transforming<Vector2D> toSourceIndex, Referenced2D beam) {
+        this.source = source;
+        this.toSourceIndex = toSourceIndex;
+        this.beam = beam;
+    }
+
+    public final Source getSource() { return source; }
+
+    public final int getTileSize() { return tileSize; }
+
+    public void setTileSize(int size) {
+        if(size < 1) throw new IllegalArgumentException("Invalid tile size: " + size);
+        tileSize = size;
+    }
+
+    public final int getInterpolationType() { return interpolationType; }
+
+    public void setInterpolationType(int type) { interpolationType = type; }
+
+    public final int getParallel() { return parallel; }
+
+    public void setParallel(int n) { parallel = Math.max(1, n); }
+
+
+    /**
+     * Resamples the source onto a destination image of the given size, and streams the result, tile by tile,
+     * to the sink. Destination pixels with no valid source data are blanked (NaN) in the tiles.
+     *
+     * @param sizeX         the destination image size along x.
+     * @param sizeY         the destination image size along y.
+     * @param sink          the sink to which resampled tiles are delivered.
+     * @throws IOException  if the source could not be read, or the sink could not be written.
+     */
+    public void resample(int sizeX, int sizeY, Sink sink) throws IOException {
+        for(int i0=0; i0 < sizeX; i0 += tileSize) for(int j0=0; j0 < sizeY; j0 += tileSize) {
+            final int i1 = Math.min(sizeX, i0 + tileSize);
+            final int j1 = Math.min(sizeY, j0 + tileSize);
+            sink.put(getTile(new IndexBounds2D(i0, j0, i1, j1)), i0, j0);
+        }
+    }
+
+    /**
+     * Returns the resampled destination tile over the specified index range.
+     *
+     * @param tile          the destination index range (exclusive of the upper bounds).
+     * @return              a new image with the resampled values of the tile.
+     * @throws IOException  if the source could not be read.
+     */
+    public Image2D getTile(final IndexBounds2D tile) throws IOException {
+        final Image2D image = Image2D.createType(Double.class, tile.toi - tile.fromi, tile.toj - tile.fromj);
+        image.setParallel(parallel);
+
+        final IndexBounds2D footprint = getSourceFootprint(tile);
+
+        if(footprint == null) {
+            image.fill(Double.NaN);
+            return image;
+        }
+
+        final Image2D region = source.getRegion(footprint);
+        region.setParallel(parallel);
+        region.setInterpolationType(interpolationType);
+
+        // tile index -> destination index -> source index -> region index
+        image.resampleFrom(region, new Transforming<Vector2D>() {
+            @Override
+            public void transform(Vector2D v) {
+                v.addX(tile.fromi);
+                v.addY(tile.fromj);
+                toSourceIndex.transform(v);
+                v.addX(-footprint.fromi);
+                v.addY(-footprint.fromj);
+            }
+        }, beam, null);
+
+        return image;
+    }
+
+    /**
+     * Returns the source index range needed for resampling the specified destination tile, including a margin for
+     * the interpolation and the beam, and clipped to the source image.
+     *
+     * @param tile      the destination index range (exclusive of the upper bounds).
+     * @return          the source index range (exclusive of the upper bounds), or <code>null</code> if the tile
+     *                  does not overlap the source.
+     */
+    public IndexBounds2D getSourceFootprint(IndexBounds2D tile) {
+        final int nx = tile.toi - tile.fromi, ny = tile.toj - tile.fromj;
+        final int stepX = Math.max(1, Math.min(footprintSampling, nx - 1));
+        final int stepY = Math.max(1, Math.min(footprintSampling, ny - 1));
+
+        double minx = Double.POSITIVE_INFINITY, miny = Double.POSITIVE_INFINITY;
+        double maxx = Double.NEGATIVE_INFINITY, maxy = Double.NEGATIVE_INFINITY;
+
+        final Vector2D v = new Vector2D();
+
+        for(int di=0; ; di += stepX) {
+            final int i = tile.fromi + Math.min(di, nx - 1);
+            for(int dj=0; ; dj += stepY) {
+                final int j = tile.fromj + Math.min(dj, ny - 1);
+                v.set(i, j);
+                toSourceIndex.transform(v);
+
+                if(!v.isNaN()) {
+                    if(v.x() < minx) minx = v.x();
+                    if(v.x() > maxx) maxx = v.x();
+                    if(v.y() < miny) miny = v.y();
+                    if(v.y() > maxy) maxy = v.y();
+                }
+                if(dj >= ny - 1) break;
+            }
+            if(di >= nx - 1) break;
+        }
+
+        if(minx > maxx) return null;
+
+        // Room for the spline interpolation, the beam, and for the sampling of the tile...
+        final double mx = 3 + (beam == null ? 0 : beam.sizeX()) + 0.5 * (maxx - minx) * stepX / Math.max(1, nx - 1);
+        final double my = 3 + (beam == null ? 0 : beam.sizeY()) + 0.5 * (maxy - miny) * stepY / Math.max(1, ny - 1);
+
+        final int fromi = Math.max(0, (int) Math.floor(minx - mx));
+        final int fromj = Math.max(0, (int) Math.floor(miny - my));
+        final int toi = Math.min(source.sizeX(), (int) Math.ceil(maxx + mx) + 1);
+        final int toj = Math.min(source.sizeY(), (int) Math.ceil(maxy + my) + 1);
+
+        if(fromi >= toi || fromj >= toj) return null;
+
+        return new IndexBounds2D(fromi, fromj, toi, toj);
+    }
+
+
+    /**
+     * The default size (in pixels) of the square destination tiles.
+     */
+    public static int defaultTileSize = 256;
+
+    /**
+     * The spacing (in destination pixels) of the points, at which the source footprint of tiles is sampled.
+     */
+    public static int footprintSampling = 16;
+
+
+
+    /**
+     * A source image from which rectangular regions can be read on demand.
+     *
+     * @author Attila Kovacs <attila@sigmyne.com>
+     *
+     */
+    public interface Source extends Closeable {
+        public int sizeX();
+
+        public int sizeY();
+
+        /**
+         * Returns a copy of a region of the source image, with invalid pixels blanked.
+         *
+         * @param bounds        the index range (exclusive of the upper bounds).
+         * @return              a new image containing the region, with index (0,0) at the start of the range.
+         * @throws IOException  if the region could not be read.
+         */
+        public Image2D getRegion(IndexBounds2D bounds) throws IOException;
+    }
+
+
+    /**
+     * A destination for resampled tiles.
+     *
+     * @author Attila Kovacs <attila@sigmyne.com>
+     *
+     */
+    public interface Sink extends Closeable {
+
+        /**
+         * Stores a resampled tile.
+         *
+         * @param tile          the resampled tile, with invalid pixels blanked.
+         * @param fromi         the destination index along x of the first tile pixel.
+         * @param fromj         the destination index along y of the first tile pixel.
+         * @throws IOException  if the tile could not be stored.
+         */
+        public void put(Image2D tile, int fromi, int fromj) throws IOException;
+    }
+
+
+    /**
+     * A source that reads regions from an image that is available in memory (on-heap or off-heap).
+     *
+     * @author Attila Kovacs <attila@sigmyne.com>
+     *
+     */
+    public static class ImageSource implements Source {
+        private Values2D image;
+
+        public ImageSource(Values2D image) {
+            this.image = image;
+        }
+
+        @Override
+        public int sizeX() { return image.sizeX(); }
+
+        @Override
+        public int sizeY() { return image.sizeY(); }
+
+        @Override
+        public Image2D getRegion(IndexBounds2D bounds) {
+            final Image2D region = Image2D.createType(Double.class, bounds.toi - bounds.fromi, bounds.toj - bounds.fromj);
+
+            region.new Fork<Void>() {
+                @Override
+                protected void process(int i, int j) {
+                    final int i1 = i + bounds.fromi, j1 = j + bounds.fromj;
+                    region.setDouble(i, j, image.isValid(i1, j1) ? image.getDouble(i1, j1) : Double.NaN);
+                }
+            }.process();
+
+            return region;
+        }
+
+        @Override
+        public void close() {}
+    }
+
+
+    /**
+     * A source that reads regions lazily from a 2D (or higher dimensional) image in a FITS file, without reading
+     * the whole image. The values are scaled by the BSCALE and BZERO keywords, and integer values matching BLANK
+     * are blanked. For images with more than 2 dimensions, the first plane is used.
+     *
+     * @author Attila Kovacs <attila@sigmyne.com>
+     *
+     */
+    public static class FitsSource implements Source {
+        private Fits fits;
+        private Header header;
+        private StandardImageTiler tiler;
+        private int naxis, sizeX, sizeY;
+        private double bscale, bzero;
+        private Long blank;
+
+        public FitsSource(String fileName) throws FitsException, IOException {
+            this(fileName, 0);
+        }
+
+        /**
+         * Opens an image HDU of a FITS file for reading regions from it.
+         *
+         * @param fileName          the FITS file name.
+         * @param hduIndex          the index of the image HDU in the file (0 for the primary HDU).
+         * @throws FitsException    if the HDU is not a valid image with at least 2 dimensions.
+         * @throws IOException      if the file could not be read.
+         */
+        public FitsSource(String fileName, int hduIndex) throws FitsException, IOException {
+            fits = new Fits(new File(fileName));
+
+            BasicHDU<?> hdu = fits.getHDU(hduIndex);
+            if(!(hdu instanceof ImageHDU)) {
+                fits.close();
+                throw new FitsException("HDU " + hduIndex + " is not an image.");
+            }
+
+            header = hdu.getHeader();
+            naxis = header.getIntValue("NAXIS");
+            if(naxis < 2) {
+                fits.close();
+                throw new FitsException("Not a 2D image: NAXIS = " + naxis);
+            }
+
+            sizeX = header.getIntValue("NAXIS1");
+            sizeY = header.getIntValue("NAXIS2");
+            bscale = header.getDoubleValue("BSCALE", 1.0);
+            bzero = header.getDoubleValue("BZERO", 0.0);
+            blank = header.containsKey("BLANK") ? header.getLongValue("BLANK") : null;
+
+            tiler = ((ImageHDU) hdu).getTiler();
+        }
+
+        public final Header getHeader() { return header; }
+
+        @Override
+        public int sizeX() { return sizeX; }
+
+        @Override
+        public int sizeY() { return sizeY; }
+
+        @Override
+        public synchronized Image2D getRegion(IndexBounds2D bounds) throws IOException {
+            final int nx = bounds.toi - bounds.fromi, ny = bounds.toj - bounds.fromj;
+
+            // FITS arrays are indexed as [...][y][x]
+            final int[] corners = new int[naxis];
+            final int[] lengths = new int[naxis];
+            for(int k=naxis-2; --k >= 0; ) lengths[k] = 1;
+            corners[naxis-2] = bounds.fromj;
+            corners[naxis-1] = bounds.fromi;
+            lengths[naxis-2] = ny;
+            lengths[naxis-1] = nx;
+
+            final Object data = tiler.getTile(corners, lengths);
+            final Image2D region = Image2D.createType(Double.class, nx, ny);
+
+            for(int j=ny; --j >= 0; ) for(int i=nx; --i >= 0; ) region.setDouble(i, j, getValue(data, j * nx + i));
+
+            return region;
+        }
+
+        private double getValue(Object data, int k) {
+            if(data instanceof float[]) return bzero + bscale * ((float[]) data)[k];
+            if(data instanceof double[]) return bzero + bscale * ((double[]) data)[k];
+
+            long raw;
+            if(data instanceof byte[]) raw = ((byte[]) data)[k] & 0xFF;
+            else if(data instanceof short[]) raw = ((short[]) data)[k];
+            else if(data instanceof int[]) raw = ((int[]) data)[k];
+            else raw = ((long[]) data)[k];
+
+            if(blank != null && raw == blank) return Double.NaN;
+            return bzero + bscale * raw;
+        }
+
+        @Override
+        public void close() throws IOException {
+            fits.close();
+        }
+    }
+
+
+    /**
+     * A sink that stores tiles into an image of the full destination size, such as an {@link OffHeapImage2D}.
+     *
+     * @author Attila Kovacs <attila@sigmyne.com>
+     *
+     */
+    public static class ImageSink implements Sink {
+        private Values2D image;
+
+        public ImageSink(Values2D image) {
+            this.image = image;
+        }
+
+        @Override
+        public void put(final Image2D tile, final int fromi, final int fromj) {
+            tile.new Fork<Void>() {
+                @Override
+                protected void process(int i, int j) {
+                    if(tile.isValid(i, j)) image.setDouble(i + fromi, j + fromj, tile.getDouble(i, j));
+                    else image.discard(i + fromi, j + fromj);
+                }
+            }.process();
+        }
+
+        @Override
+        public void close() {}
+    }
+
+
+    /**
+     * A sink that writes tiles directly into their place in the primary image of a new FITS file, so that the full
+     * image never needs to be assembled in memory. The image is written in single (BITPIX = -32) or double
+     * (BITPIX = -64) precision, with NaN for blanked pixels.
+     *
+     * @author Attila Kovacs <attila@sigmyne.com>
+     *
+     */
+    public static class FitsSink implements Sink {
+        private RandomAccessFile file;
+        private FileChannel channel;
+        private int sizeX;
+        private int bytes;
+        private long dataStart;
+
+        /**
+         * Creates a new FITS file for the resampled image, and writes its header.
+         *
+         * @param fileName              the name of the FITS file to create.
+         * @param sizeX                 the image size along x.
+         * @param sizeY                 the image size along y.
+         * @param isSinglePrecision     whether to write 32-bit floats rather than 64-bit doubles.
+         * @param editor                to add further keywords (e.g. the coordinate system of the destination map) to
+         *                              the header, or <code>null</code>.
+         * @throws FitsException        if the header could not be created.
+         * @throws IOException          if the file could not be created or written.
+         */
+        public FitsSink(String fileName, int sizeX, int sizeY, boolean isSinglePrecision, FitsHeaderEditing editor) throws FitsException, IOException {
+            this.sizeX = sizeX;
+            bytes = isSinglePrecision ? 4 : 8;
+
+            Header header = new Header();
+            header.setSimple(true);
+            header.setBitpix(isSinglePrecision ? FitsToolkit.BITPIX_FLOAT : FitsToolkit.BITPIX_DOUBLE);
+            header.setNaxes(2);
+            header.setNaxis(1, sizeX);
+            header.setNaxis(2, sizeY);
+            header.addValue("EXTEND", true, "Extensions are permitted.");
+
+            if(editor != null) {
+                try { editor.editHeader(header); }
+                catch(FitsException e) { throw e; }
+                catch(Exception e) { throw new FitsException(e.getMessage(), e); }
+            }
+
+            try(FileOutputStream out = new FileOutputStream(fileName)) {
+                BufferedDataOutputStream stream = new BufferedDataOutputStream(out);
+                header.write(stream);
+                stream.flush();
+                dataStart = out.getChannel().position();
+            }
+
+            final long dataBytes = (long) sizeX * sizeY * bytes;
+            final long padded = (dataBytes + FITS_BLOCK_SIZE - 1) / FITS_BLOCK_SIZE * FITS_BLOCK_SIZE;
+
+            file = new RandomAccessFile(fileName, "rw");
+            file.setLength(dataStart + padded);
+            channel = file.getChannel();
+        }
+
+        @Override
+        public synchronized void put(Image2D tile, int fromi, int fromj) throws IOException {
+            final int nx = tile.sizeX();
+            final ByteBuffer row = ByteBuffer.allocate(nx * bytes);
+
+            // FITS rows run along x...
+            for(int j=0; j < tile.sizeY(); j++) {
+                row.clear();
+                for(int i=0; i < nx; i++) {
+                    final double value = tile.isValid(i, j) ? tile.getDouble(i, j) : Double.NaN;
+                    if(bytes == 4) row.putFloat((float) value);
+                    else row.putDouble(value);
+                }
+                row.flip();
+
+                long pos = dataStart + ((long) (fromj + j) * sizeX + fromi) * bytes;
+                while(row.hasRemaining()) pos += channel.write(row, pos);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            channel.close();
+            file.close();
+        }
+
+        private static final int FITS_BLOCK_SIZE = 2880;
+    }
+}
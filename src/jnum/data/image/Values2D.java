@@ -37,6 +37,14 @@ public interface Values2D extends IndexedValues<Index2D>, Validating2D {
     
     public void set(int i, int j, Number value);
     
+    public double getDouble(int i, int j);
+    
+    public void addDouble(int i, int j, double value);
+    
+    public void setDouble(int i, int j, double value);
+    
+    public void scale(int i, int j, double factor);
+    
     public double valueAtIndex(double ic, double jc);
     
 }
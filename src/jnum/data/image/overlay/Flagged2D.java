@@ -138,6 +138,18 @@ public class Flagged2D extends Overlay2D {
         unflag(i, j);
     }
 
+    @Override
+    public void setDouble(int i, int j, double value) {
+        super.setDouble(i, j, value);
+        unflag(i, j);
+    }
+
+    @Override
+    public void addDouble(int i, int j, double value) {
+        super.addDouble(i, j, value);
+        unflag(i, j);
+    }
+
 
     public void flag(final long pattern) {
         new Fork<Void>() {
@@ -130,6 +130,21 @@ public class Overlay2D extends Data2D implements CopiableContent<Overlay2D> {
     public void add(int i, int j, Number value) {
         values.add(i, j, value);
     }
+
+    @Override
+    public double getDouble(int i, int j) {
+        return values.getDouble(i, j);
+    }
+
+    @Override
+    public void setDouble(int i, int j, double value) {
+        values.setDouble(i, j, value);
+    }
+
+    @Override
+    public void addDouble(int i, int j, double value) {
+        values.addDouble(i, j, value);
+    }
     
     @Override
     public final Number getLowestCompareValue() {
@@ -152,6 +167,12 @@ public class Overlay2D extends Data2D implements CopiableContent<Overlay2D> {
         return getImage().getCore();
     }
     
+    @Override
+    public Object getNestedCore() {
+        if(values instanceof Data) return ((Data<?>) values).getNestedCore();
+        return getImage().getNestedCore();
+    }
+    
     public void destroy() {
         if(getBasis() instanceof Image2D) ((Image2D) getBasis()).destroy();
     }
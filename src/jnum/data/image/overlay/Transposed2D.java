@@ -68,6 +68,21 @@ public class Transposed2D extends Overlay2D {
         super.set(j, i, value);
     }
 
+    @Override
+    public double getDouble(int i, int j) {
+       return super.getDouble(j, i);
+    }
+
+    @Override
+    public void setDouble(int i, int j, double value) {
+        super.setDouble(j, i, value);
+    }
+
+    @Override
+    public void addDouble(int i, int j, double value) {
+        super.addDouble(j,  i, value);
+    }
+
     @Override
     public double valueAtIndex(double i, double j) {
        return super.valueAtIndex(j, i);
@@ -155,6 +155,21 @@ public class Viewport2D extends Overlay2D implements Resizable<Index2D> {
         super.add(i + i0, j + j0, value);
     }
 
+    @Override
+    public final double getDouble(int i, int j) {
+        return super.getDouble(i + i0, j + j0);
+    }
+
+    @Override
+    public final void setDouble(int i, int j, double value) {
+        super.setDouble(i + i0, j + j0, value);
+    }
+
+    @Override
+    public final void addDouble(int i, int j, double value) {
+        super.addDouble(i + i0, j + j0, value);
+    }
+
    
     
  
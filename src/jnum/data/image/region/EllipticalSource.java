@@ -232,7 +232,7 @@ public class EllipticalSource extends GaussianSource {
                 public void process(int i, int j) {     
                     if(!view.isValid(i, j)) return;
                        
-                    double w = view.get(i,j).doubleValue();
+                    double w = view.getDouble(i,j);
                      
                     v.set(i + view.fromi(), j + view.fromj());
                     getGrid().toOffset(v);
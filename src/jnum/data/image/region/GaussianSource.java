@@ -314,7 +314,7 @@ public class GaussianSource extends CircularRegion {
                     v.set(i + view.fromi(), j + view.fromj());
                     getGrid().toOffset(v);
                     v.subtract(center);
-                    view.add(i, j, factor * shape.valueAt(v));
+                    view.addDouble(i, j, factor * shape.valueAt(v));
                 }
                 
             }.process();
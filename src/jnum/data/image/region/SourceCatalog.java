@@ -24,10 +24,17 @@
 package jnum.data.image.region;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Vector;
 
 import jnum.Util;
+import jnum.data.Data;
+import jnum.data.image.Data2D;
+import jnum.data.image.Gaussian2D;
+import jnum.data.image.Grid2D;
+import jnum.data.image.Index2D;
 import jnum.data.image.Map2D;
+import jnum.data.image.Observation2D;
 import jnum.io.LineParser;
 import jnum.math.Coordinate2D;
 
@@ -65,6 +72,61 @@ public class SourceCatalog extends Vector<GaussianSource> {
     }
     
 	
+	/**
+	 * Extracts sources from a map, as the peaks of the map values above a threshold, and adds them to this catalog.
+	 * Once a peak is found, the map values within the FWHM of the image beam are excluded from further searches, 
+	 * so that extended peaks are not split into multiple sources.
+	 * 
+	 * @param map          the map from which to extract sources.
+	 * @param threshold    the minimum peak value for sources.
+	 * @return             the number of sources extracted.
+	 * 
+	 * @see jnum.data.Data#findPeaks(double, double[])
+	 */
+	public int extract(Map2D map, double threshold) {
+	    return extract(map, map, threshold);
+	}
+	
+	/**
+	 * Extracts sources from an observation, as the significance peaks above a threshold, and adds them to this catalog.
+	 * The source peaks are set to the map values, with the map noise as their uncertainty.
+	 * 
+	 * @param map          the observation from which to extract sources.
+	 * @param significance the minimum signal-to-noise ratio of the sources.
+	 * @return             the number of sources extracted.
+	 * 
+	 * @see #extract(Map2D, double)
+	 */
+	public int extract(Observation2D map, double significance) {
+	    return extract(map, map.getSignificance(), significance);
+	}
+	
+	
+	private int extract(Map2D map, Data2D values, double threshold) {
+	    Gaussian2D psf = map.getImageBeam();
+	    if(psf == null) psf = map.getPixelSmoothing();
+	    
+	    final double fwhm = psf.getCircularEquivalentFWHM();
+	    final Grid2D<?> grid = map.getGrid();
+	    
+	    // Search a new copy, since the search flags the area around the peaks found. (Map2D.getImage() is not
+	    // a copy but the map's own image)...
+	    final List<Data<Index2D>.Peak> peaks = values.getImage(values.getElementType()).findPeaks(threshold, new double[] { fwhm / grid.pixelSizeX(), fwhm / grid.pixelSizeY() });
+	    
+	    for(Data<Index2D>.Peak peak : peaks) {
+	        final GaussianSource source = new GaussianSource(coordinateClass);
+	        source.getRepresentation(grid).setCenterIndex(peak.index);
+	        source.setFWHM(fwhm);
+	        source.setPeak(map.getDouble(peak.index.i(), peak.index.j()));
+	        if(map instanceof Observation2D) source.getPeak().setRMS(((Observation2D) map).noiseAt(peak.index));
+	        source.setUnitName(map.getUnit().name());
+	        add(source);
+	    }
+	    
+	    return peaks.size();
+	}
+	
+	
 	public void read(String fileName) throws IOException {
 		new LineParser() {
             @Override
@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Attila Kovacs <attila[AT]sigmyne.com>.
+ * All rights reserved. 
+ * 
+ * This file is part of jnum.
+ * 
+ *     jnum is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ * 
+ *     jnum is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ * 
+ *     You should have received a copy of the GNU General Public License
+ *     along with jnum.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Attila Kovacs <attila[AT]sigmyne.com> - initial API and implementation
+ ******************************************************************************/
+
+
+package jnum.data.image.transform;
+
+import java.util.LinkedList;
+
+import jnum.data.Transforming;
+import jnum.math.Vector2D;
+
+/**
+ * An approximation of an index transform on a 2D image (such as a reprojection), which is calculated exactly only on 
+ * a coarse grid of control points, and interpolated bicubically (Catmull-Rom) in between. The control grid is refined 
+ * until the interpolated transform agrees with the exact one to within the set tolerance at test points in between 
+ * control points (cell centers and edge midpoints), or until the control points cover every pixel. 
+ * <p>
+ * 
+ * Once constructed, the transform is thread-safe, even if the exact transform was not. Recently built transforms are 
+ * cached, so that repeated resamplings with the same exact transform over the same image size can reuse them
+ * (see {@link #forTransform(Transforming, int, int)}).
+ * 
+ * @author Attila Kovacs <attila@sigmyne.com>
+ *
+ */
+public class CachedIndexTransform2D implements Transforming<Vector2D> {
+    private Transforming<Vector2D> exact;
+    private int sizeX, sizeY;
+    private double tolerance;
+    
+    private int spacing;
+    private int nodesX, nodesY;
+    private double[][] x, y;
+    private double maxError;
+    
+    
+    /**
+     * Constructs a new cached approximation to an index transform, over the specified index range.
+     * 
+     * @param exact         the exact transform to approximate. It is used only during construction.
+     * @param sizeX         the number of indices along x, over which the transform is to be used.
+     * @param sizeY         the number of indices along y, over which the transform is to be used.
+     * @param tolerance     the maximum allowed deviation from the exact transform, in units of the transformed index.
+     */
+    public CachedIndexTransform2D(Transforming<Vector2D> exact, int sizeX, int sizeY, double tolerance) {
+        this.exact = exact;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.tolerance = tolerance;
+        
+        for(spacing = Integer.highestOneBit(Math.max(1, initialSpacing)); spacing > 1; spacing >>= 1) {
+            build();
+            if(maxError <= tolerance) return;
+        }
+        
+        build();
+        maxError = 0.0;
+    }
+    
+    @Override
+    public int hashCode() { return super.hashCode() ^ exact.hashCode() ^ sizeX ^ sizeY; }
+    
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) return true;
+        if(!(o instanceof CachedIndexTransform2D)) return false;
+        
+        CachedIndexTransform2D t = (CachedIndexTransform2D) o;
+        if(sizeX != t.sizeX) return false;
+        if(sizeY != t.sizeY) return false;
+        if(tolerance != t.tolerance) return false;
+        if(!exact.equals(t.exact)) return false;
+        return true;
+    }
+    
+    public final Transforming<Vector2D> getExactTransform() { return exact; }
+    
+    public final double getTolerance() { return tolerance; }
+    
+    /**
+     * Returns the spacing of the control points, in units of the input index.
+     * 
+     * @return  the control point spacing.
+     */
+    public final int getSpacing() { return spacing; }
+    
+    /**
+     * Returns the largest deviation from the exact transform found at the test points.
+     * 
+     * @return  the maximum deviation at the test points, in units of the transformed index.
+     */
+    public final double getMaxError() { return maxError; }
+    
+    
+    private void build() {
+        // Control points from -spacing to beyond the last index, so that every pixel has 2 control points on either side...
+        nodesX = (sizeX + spacing - 2) / spacing + 3;
+        nodesY = (sizeY + spacing - 2) / spacing + 3;
+        
+        x = new double[nodesX][nodesY];
+        y = new double[nodesX][nodesY];
+        
+        final Vector2D v = new Vector2D();
+        
+        for(int a=nodesX; --a >= 0; ) for(int b=nodesY; --b >= 0; ) {
+            v.set((a-1) * spacing, (b-1) * spacing);
+            exact.transform(v);
+            x[a][b] = v.x();
+            y[a][b] = v.y();
+        }
+        
+        if(spacing == 1) return;
+        
+        maxError = 0.0;
+        
+        final Vector2D approx = new Vector2D();
+        final double h = 0.5 * spacing;
+        
+        for(int a=nodesX - 2; --a >= 1; ) for(int b=nodesY - 2; --b >= 1; ) {
+            final double i = (a-1) * spacing;
+            final double j = (b-1) * spacing;
+            
+            maxError = Math.max(maxError, getError(i + h, j + h, v, approx));
+            maxError = Math.max(maxError, getError(i + h, j, v, approx));
+            maxError = Math.max(maxError, getError(i, j + h, v, approx));
+            
+            if(maxError > tolerance) return;
+        }
+    }
+    
+    private double getError(double i, double j, Vector2D v, Vector2D approx) {
+        v.set(i, j);
+        exact.transform(v);
+        
+        approx.set(i, j);
+        transform(approx);
+        
+        if(Double.isNaN(v.x()) || Double.isNaN(v.y())) {
+            return Double.isNaN(approx.x()) || Double.isNaN(approx.y()) ? 0.0 : Double.POSITIVE_INFINITY;
+        }
+        
+        final double d = Math.hypot(approx.x() - v.x(), approx.y() - v.y());
+        return Double.isNaN(d) ? Double.POSITIVE_INFINITY : d;
+    }
+    
+    
+    @Override
+    public void transform(Vector2D index) {
+        final double u = index.x() / spacing + 1.0;
+        final double w = index.y() / spacing + 1.0;
+        
+        final int a = Math.max(1, Math.min(nodesX - 3, (int) Math.floor(u)));
+        final int b = Math.max(1, Math.min(nodesY - 3, (int) Math.floor(w)));
+        
+        final double[] wa = new double[4], wb = new double[4];
+        setCatmullRomWeights(u - a, wa);
+        setCatmullRomWeights(w - b, wb);
+        
+        double sumx = 0.0, sumy = 0.0;
+        
+        // Skip control points with zero weight, so that invalid (NaN) neighbours do not affect the result on the nodes...
+        for(int k=4; --k >= 0; ) if(wa[k] != 0.0) {
+            final double[] xk = x[a-1+k], yk = y[a-1+k];
+            
+            for(int l=4; --l >= 0; ) if(wb[l] != 0.0) {
+                final double wkl = wa[k] * wb[l];
+                sumx += wkl * xk[b-1+l];
+                sumy += wkl * yk[b-1+l];
+            }
+        }
+        
+        index.set(sumx, sumy);
+    }
+    
+    private static void setCatmullRomWeights(double t, double[] weights) {
+        if(t == 0.0) {
+            weights[0] = weights[2] = weights[3] = 0.0;
+            weights[1] = 1.0;
+            return;
+        }
+        
+        final double t2 = t * t;
+        final double t3 = t2 * t;
+        
+        weights[0] = 0.5 * (-t3 + 2.0 * t2 - t);
+        weights[1] = 0.5 * (3.0 * t3 - 5.0 * t2 + 2.0);
+        weights[2] = 0.5 * (-3.0 * t3 + 4.0 * t2 + t);
+        weights[3] = 0.5 * (t3 - t2);
+    }
+    
+    
+    /**
+     * Returns a cached approximation to the exact transform over the specified index range, with the default
+     * tolerance. A recently built transform is returned if one exists for an equal exact transform and size. 
+     * Otherwise, a new one is built and cached.
+     * 
+     * @param exact     the exact transform.
+     * @param sizeX     the number of indices along x, over which the transform is to be used.
+     * @param sizeY     the number of indices along y, over which the transform is to be used.
+     * @return          the cached approximate transform.
+     */
+    public static CachedIndexTransform2D forTransform(Transforming<Vector2D> exact, int sizeX, int sizeY) {
+        synchronized(cache) {
+            for(CachedIndexTransform2D t : cache) if(t.sizeX == sizeX && t.sizeY == sizeY && t.tolerance == defaultTolerance) {
+                if(!t.exact.equals(exact)) continue;
+                
+                // Move to the front, as the most recently used...
+                cache.remove(t);
+                cache.addFirst(t);
+                return t;
+            }
+        }
+        
+        final CachedIndexTransform2D t = new CachedIndexTransform2D(exact, sizeX, sizeY, defaultTolerance);
+        
+        synchronized(cache) {
+            cache.addFirst(t);
+            while(cache.size() > cacheSize) cache.removeLast();
+        }
+        
+        return t;
+    }
+    
+    /**
+     * Discards all cached transforms.
+     */
+    public static void clearCache() {
+        synchronized(cache) { cache.clear(); }
+    }
+    
+    
+    private static LinkedList<CachedIndexTransform2D> cache = new LinkedList<>();
+    
+    /** The maximum number of transforms to keep in the cache. */
+    public static int cacheSize = 4;
+    
+    /** The default tolerance, in units of the transformed index (i.e. pixels). */
+    public static double defaultTolerance = 0.01;
+    
+    /** The initial (coarsest) spacing of control points, in pixels. It is rounded down to a power of 2 if necessary. */
+    public static int initialSpacing = 32;
+}
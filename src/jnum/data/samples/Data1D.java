@@ -32,6 +32,7 @@ import java.util.List;
 import java.util.StringTokenizer;
 
 import jnum.Configurator;
+import jnum.DoublePointOp;
 import jnum.PointOp;
 import jnum.Util;
 import jnum.data.CubicSpline;
@@ -43,6 +44,7 @@ import jnum.data.samples.overlay.Overlay1D;
 import jnum.math.CoordinateAxis;
 import jnum.math.IntRange;
 import jnum.math.Range;
+import jnum.parallel.DoubleParallelPointOp;
 import jnum.parallel.ParallelPointOp;
 import jnum.parallel.ParallelTask;
 import jnum.text.TableFormatter;
@@ -172,6 +174,9 @@ public abstract class Data1D extends RegularData<Index1D, Offset1D> implements V
     @Override
     public final Number get(Index1D index) { return get(index.i()); }
     
+    @Override
+    public final double getDouble(Index1D index) { return getDouble(index.i()); }
+    
     @Override
     public final void clear(Index1D index) { clear(index.i()); }
     
@@ -196,8 +201,18 @@ public abstract class Data1D extends RegularData<Index1D, Offset1D> implements V
     @Override
     public void scale(Index1D index, double factor) { scale(index.i(), factor); }
     
+    @Override
+    public double getDouble(int i) { return get(i).doubleValue(); }
+    
+    @Override
+    public void setDouble(int i, double value) { set(i, value); }
+    
+    @Override
+    public void addDouble(int i, double value) { add(i, value); }
+    
+    @Override
     public void scale(int i, double factor) {
-        set(i, get(i).doubleValue() * factor);
+        setDouble(i, getDouble(i) * factor);
     }
     
     public final void paste(final Values1D source, boolean report) {
@@ -241,10 +256,10 @@ public abstract class Data1D extends RegularData<Index1D, Offset1D> implements V
         
         if(!isValid(i)) return Double.NaN;
 
-        if(i == ic) return get(i).doubleValue();
+        if(i == ic) return getDouble(i);
 
         switch(getInterpolationType()) {
-        case NEAREST : return get(i).doubleValue();
+        case NEAREST : return getDouble(i);
         case LINEAR : return linearAtIndex(ic);
         case QUADRATIC : return quadraticAtIndex(ic);
         case SPLINE : return spline == null ? splineAtIndex(ic) : splineAtIndex(ic, spline);
@@ -278,12 +293,12 @@ public abstract class Data1D extends RegularData<Index1D, Offset1D> implements V
 
         if(isValid(i)) {
             double w = (1.0 - di);
-            sum += w * get(i).doubleValue();
+            sum += w * getDouble(i);
             sumw += w;          
         }
         if(isValid(i+1)) {
             double w = di;
-            sum += w * get(i+1).doubleValue();
+            sum += w * getDouble(i+1);
             sumw += w;  
         }
         
@@ -302,14 +317,14 @@ public abstract class Data1D extends RegularData<Index1D, Offset1D> implements V
         // Find the nearest data point (i)
         final int i = (int)Math.round(ic);
      
-        final double y0 = get(i).doubleValue();
+        final double y0 = getDouble(i);
         double a=0.0, b=0.0;
 
         if(isValid(i+1)) {
-                a = 0.5 * (get(i+1).doubleValue() + get(i-1).doubleValue()) - y0;
-                b = 0.5 * (get(i+1).doubleValue() - get(i-1).doubleValue());
+                a = 0.5 * (getDouble(i+1) + getDouble(i-1)) - y0;
+                b = 0.5 * (getDouble(i+1) - getDouble(i-1));
         }
-        else if(isValid(i-1)) b = y0 - get(i-1).doubleValue();
+        else if(isValid(i-1)) b = y0 - getDouble(i-1);
 
        
         ic -= i;
@@ -342,7 +357,7 @@ public abstract class Data1D extends RegularData<Index1D, Offset1D> implements V
         double sum = 0.0, sumw = 0.0;
         for(int i=toi; --i >= fromi; ) if(isValid(i)) {
             final double w = spline.coefficientAt(i);
-            sum += w * get(i).doubleValue();
+            sum += w * getDouble(i);
             sumw += w;
         }
 
@@ -637,79 +652,102 @@ public abstract class Data1D extends RegularData<Index1D, Offset1D> implements V
     
     @Override
     public <ReturnType> ReturnType forkValid(final ParallelPointOp<Number, ReturnType> op, Index1D from, Index1D to) {
-      
-        Fork<ReturnType> fork = new Fork<ReturnType>(from, to) {
-            private ParallelPointOp<Number, ReturnType> localOp;
-            
-            @Override
-            public void init() {
-                super.init();
-                localOp = op.newInstance();
-            }
-            
+        PointOpFork<ParallelPointOp<Number, ReturnType>, ReturnType> fork = takePointOpFork(FORK_VALID);
+        
+        if(fork == null) fork = new PointOpFork<ParallelPointOp<Number, ReturnType>, ReturnType>() {
             @Override
             protected void processElementAt(int i) {
                 if(isValid(i)) localOp.process(get(i));
             }
-            
+
             @Override
-            public ReturnType getLocalResult() { return localOp.getResult(); }
-            
+            public ReturnType getResult() { 
+                ParallelPointOp<Number, ReturnType> globalOp = getOp().newInstance();
+                
+                for(ParallelTask<ReturnType> worker : getWorkers()) {
+                    globalOp.mergeResult(worker.getLocalResult());
+                }
+                return globalOp.getResult();
+            }
+        };
+        
+        fork.process(op, from, to);
+        final ReturnType result = fork.getResult();
+        releasePointOpFork(FORK_VALID, fork);
+        return result;
+    }
+    
+    @Override
+    public <ReturnType> ReturnType loopValidDouble(final DoublePointOp<ReturnType> op, Index1D from, Index1D to) {
+        for(int i=to.i(); --i >= from.i(); ) if(isValid(i)) {
+            op.process(getDouble(i));
+            if(op.exception != null) return null;
+        }
+        return op.getResult();
+    }
+    
+    @Override
+    public <ReturnType> ReturnType forkValidDouble(final DoubleParallelPointOp<ReturnType> op, Index1D from, Index1D to) {
+        PointOpFork<DoubleParallelPointOp<ReturnType>, ReturnType> fork = takePointOpFork(FORK_VALID_DOUBLE);
+        
+        if(fork == null) fork = new PointOpFork<DoubleParallelPointOp<ReturnType>, ReturnType>() {
+            @Override
+            protected void processElementAt(int i) {
+                if(isValid(i)) localOp.process(getDouble(i));
+            }
 
             @Override
             public ReturnType getResult() { 
-                ParallelPointOp<Number, ReturnType> globalOp = op.newInstance();
+                DoubleParallelPointOp<ReturnType> globalOp = getOp().newInstance();
                 
                 for(ParallelTask<ReturnType> worker : getWorkers()) {
                     globalOp.mergeResult(worker.getLocalResult());
                 }
                 return globalOp.getResult();
             }
-            
         };
         
-        fork.process();
-        return fork.getResult();
+        fork.process(op, from, to);
+        final ReturnType result = fork.getResult();
+        releasePointOpFork(FORK_VALID_DOUBLE, fork);
+        return result;
     }
     
+
     @Override
     public <ReturnType> ReturnType fork(final ParallelPointOp<Index1D, ReturnType> op, Index1D from, Index1D to) {
-      
-        Fork<ReturnType> fork = new Fork<ReturnType>(from, to) {
-            private ParallelPointOp<Index1D, ReturnType> localOp;
+        PointOpFork<ParallelPointOp<Index1D, ReturnType>, ReturnType> fork = takePointOpFork(FORK_INDEX);
+        
+        if(fork == null) fork = new PointOpFork<ParallelPointOp<Index1D, ReturnType>, ReturnType>() {
             private Index1D index;
             
             @Override
             public void init() {
                 super.init();
-                index = new Index1D();
-                localOp = op.newInstance();
+                if(index == null) index = new Index1D();
             }
             
             @Override
             protected void processElementAt(int i) {
-                index.set(i); 
+                index.set(i);
                 localOp.process(index);
             }
-          
-            @Override
-            public ReturnType getLocalResult() { return localOp.getResult(); }
-            
 
             @Override
             public ReturnType getResult() { 
-                ParallelPointOp<Index1D, ReturnType> globalOp = op.newInstance();
+                ParallelPointOp<Index1D, ReturnType> globalOp = getOp().newInstance();
                 
                 for(ParallelTask<ReturnType> worker : getWorkers()) {
                     globalOp.mergeResult(worker.getLocalResult());
                 }
                 return globalOp.getResult();
             }
-            
         };
         
-        fork.process();
-        return fork.getResult();
+        fork.process(op, from, to);
+        final ReturnType result = fork.getResult();
+        releasePointOpFork(FORK_INDEX, fork);
+        return result;
     }
 
     
@@ -753,22 +791,63 @@ public abstract class Data1D extends RegularData<Index1D, Offset1D> implements V
         }
 
 
+        protected abstract void processElementAt(int i);
+    } 
+    
+    
+    /**
+     * A fork that applies a parallel point operation to a range of points. When {@link #reusePointOpForks} 
+     * is enabled, the same fork, with its workers and their local copies of the operation, serves successive 
+     * calls (see {@link #takePointOpFork(int)}).
+     * 
+     * @param <OpType>      the generic type of the point operation.
+     * @param <ReturnType>  the generic return type of the operation.
+     */
+    private abstract class PointOpFork<OpType extends PointOp<?, ReturnType>, ReturnType> extends Fork<ReturnType> {
+        private final ForkCall<OpType> call = new ForkCall<>();
+        private OpType source;
+        protected OpType localOp;
+        
+        private PointOpFork() {
+            setReuseWorkers(reusePointOpForks);
+        }
+        
+        protected final OpType getOp() { return call.op; }
+        
+        public void process(OpType op, Index1D from, Index1D to) {
+            this.from = call.from = from;
+            this.to = call.to = to;
+            call.op = op;
+            process();
+        }
+        
+        @SuppressWarnings("unchecked")
         @Override
-        protected int getRevisedChunks(int chunks, int minBlockSize) {
-            return super.getRevisedChunks(getPointOps(), minBlockSize);
+        public void init() {
+            super.init();
+            if(localOp != null) return;
+            source = call.op;
+            localOp = (OpType) source.newInstance();
         }
-
+        
         @Override
-        protected int getTotalOps() {
-            return 3 + size() * getPointOps();
+        protected void reset() {
+            from = call.from;
+            to = call.to;
+            // Keep the local copy of the same operation object, or else make a new one...
+            if(source == call.op) localOp.reset();
+            else localOp = null;
         }
-
-        protected int getPointOps() {
-            return 10;
-        }  
-
-        protected abstract void processElementAt(int i);
-    } 
+        
+        @Override
+        public ReturnType getLocalResult() { return localOp.getResult(); }
+        
+        @Override
+        protected int getPointOps() { return 2 + call.op.numberOfOperations(); }
+        
+        @Override
+        protected Object getCostKey() { return call.op.getClass(); }
+    }
 
 
 
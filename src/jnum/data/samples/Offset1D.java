@@ -125,7 +125,7 @@ public class Offset1D implements TrueVector<Double> {
     public void setSum(TrueVector<? extends Double> a, TrueVector<? extends Double> b) { x = a.x() + b.x(); }
 
     @Override
-    public void setDifference(TrueVector<? extends Double> a, TrueVector<? extends Double> b) { x = a.x() + b.x(); }
+    public void setDifference(TrueVector<? extends Double> a, TrueVector<? extends Double> b) { x = a.x() - b.x(); }
 
     @Override
     public void multiplyByComponentsOf(Coordinates<? extends Double> v) {
@@ -376,6 +376,26 @@ public abstract class Samples1D extends Data1D implements Serializable, Resizabl
         public final void add(int i, Number value) {
            data[i] += value.doubleValue();
         }
+
+        @Override
+        public final double getDouble(int i) {
+            return data[i];
+        }
+
+        @Override
+        public final void setDouble(int i, double value) {
+            data[i] = value;
+        }
+
+        @Override
+        public final void addDouble(int i, double value) {
+            data[i] += value;
+        }
+
+        @Override
+        public final void scale(int i, double factor) {
+            data[i] *= factor;
+        }
             
         @Override
         public final boolean isValid(Number value) {
@@ -453,6 +473,26 @@ public abstract class Samples1D extends Data1D implements Serializable, Resizabl
         public final void add(int i, Number value) {
            data[i] += value.floatValue();
         }
+
+        @Override
+        public final double getDouble(int i) {
+            return data[i];
+        }
+
+        @Override
+        public final void setDouble(int i, double value) {
+            data[i] = (float) value;
+        }
+
+        @Override
+        public final void addDouble(int i, double value) {
+            data[i] += (float) value;
+        }
+
+        @Override
+        public final void scale(int i, double factor) {
+            data[i] *= factor;
+        }
         
            
         @Override
@@ -522,6 +562,26 @@ public abstract class Samples1D extends Data1D implements Serializable, Resizabl
         public final void add(int i, Number value) {
            data[i] += value.longValue();
         }
+
+        @Override
+        public final double getDouble(int i) {
+            return data[i];
+        }
+
+        @Override
+        public final void setDouble(int i, double value) {
+            data[i] = (long) value;
+        }
+
+        @Override
+        public final void addDouble(int i, double value) {
+            data[i] += (long) value;
+        }
+
+        @Override
+        public final void scale(int i, double factor) {
+            data[i] *= factor;
+        }
         
   
     }
@@ -583,6 +643,26 @@ public abstract class Samples1D extends Data1D implements Serializable, Resizabl
         public final void add(int i, Number value) {
            data[i] += value.intValue();
         }
+
+        @Override
+        public final double getDouble(int i) {
+            return data[i];
+        }
+
+        @Override
+        public final void setDouble(int i, double value) {
+            data[i] = (int) value;
+        }
+
+        @Override
+        public final void addDouble(int i, double value) {
+            data[i] += (int) value;
+        }
+
+        @Override
+        public final void scale(int i, double factor) {
+            data[i] *= factor;
+        }
            
  
         
@@ -644,6 +724,26 @@ public abstract class Samples1D extends Data1D implements Serializable, Resizabl
         public final void add(int i, Number value) {
            data[i] += value.shortValue();
         }
+
+        @Override
+        public final double getDouble(int i) {
+            return data[i];
+        }
+
+        @Override
+        public final void setDouble(int i, double value) {
+            data[i] = (short) value;
+        }
+
+        @Override
+        public final void addDouble(int i, double value) {
+            data[i] += (short) value;
+        }
+
+        @Override
+        public final void scale(int i, double factor) {
+            data[i] *= factor;
+        }
         
     }
     
@@ -705,6 +805,26 @@ public abstract class Samples1D extends Data1D implements Serializable, Resizabl
            data[i] += value.byteValue();
         }
 
+        @Override
+        public double getDouble(int i) {
+            return data[i];
+        }
+
+        @Override
+        public void setDouble(int i, double value) {
+            data[i] = (byte) value;
+        }
+
+        @Override
+        public void addDouble(int i, double value) {
+            data[i] += (byte) value;
+        }
+
+        @Override
+        public void scale(int i, double factor) {
+            data[i] *= factor;
+        }
+
        
     }
     
@@ -36,6 +36,14 @@ public interface Values1D extends IndexedValues<Index1D>, Validating1D {
     
     public void set(int i, Number value);
     
+    public double getDouble(int i);
+    
+    public void addDouble(int i, double value);
+    
+    public void setDouble(int i, double value);
+    
+    public void scale(int i, double factor);
+    
     public double valueAtIndex(double ic);    
        
 }
@@ -104,6 +104,21 @@ public class Overlay1D extends Data1D {
     public void add(int i, Number value) {
         values.add(i, value);
     }
+
+    @Override
+    public double getDouble(int i) {
+        return values.getDouble(i);
+    }
+
+    @Override
+    public void setDouble(int i, double value) {
+        values.setDouble(i, value);
+    }
+
+    @Override
+    public void addDouble(int i, double value) {
+        values.addDouble(i, value);
+    }
     
     @Override
     public final Number getLowestCompareValue() {
@@ -45,7 +45,7 @@ public class RangeRestricted1D extends Overlay1D {
     
     @Override
     public boolean isValid(int i) {
-        if(!validRange.contains(get(i).doubleValue())) return false;
+        if(!validRange.contains(getDouble(i))) return false;
         return super.isValid(i);
     }
 
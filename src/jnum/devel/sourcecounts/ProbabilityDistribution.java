@@ -6,10 +6,10 @@ import java.io.Serializable;
 
 import jnum.Copiable;
 import jnum.CopiableContent;
-import jnum.ExtraMath;
 import jnum.Util;
 import jnum.data.Histogram;
 import jnum.data.samples.Grid1D;
+import jnum.fft.MixedRadixPlan;
 import jnum.math.Range;
 import jnum.util.HashCode;
 
@@ -85,7 +85,7 @@ public class ProbabilityDistribution implements Cloneable, Copiable<ProbabilityD
     
     private void setRange(Range targetRange, double resolution) {
         int n = 1 + (int) Math.floor(targetRange.span() / resolution);
-        data = new double[ExtraMath.pow2ceil(n)];
+        data = new double[MixedRadixPlan.getFastRealSize(n)];
         int padding = (data.length - n) >>> 1;
         
         this.from = targetRange.min() - padding * resolution;
@@ -68,7 +68,20 @@ public class ComplexFFT extends FFT1D<Complex[]> {
     }
     
     @Override
-    public final int getPoints(Complex[] data) { return Integer.highestOneBit(data.length); }
+    public final int getPoints(Complex[] data) { return data.length; }
+    
+    @Override
+    void mixedRadixTransform(final Complex[] data, final int points, final boolean isForward, final boolean isParallel) {
+        final double[] z = new double[points << 1];
+        for(int i=points; --i >= 0; ) {
+            z[i<<1] = data[i].re();
+            z[(i<<1) + 1] = data[i].im();
+        }
+        
+        transform(data, getMixedRadixPlan(points), z, isForward, isParallel);
+        
+        for(int i=points; --i >= 0; ) data[i].set(z[i<<1], z[(i<<1) + 1]);
+    }
       
 
     // 8/16-byte headers (32/64-bit) + 16 byte content... 
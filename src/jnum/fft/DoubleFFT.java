@@ -44,6 +44,15 @@ public class DoubleFFT extends FFT1D<double[]> implements RealFFT<double[]> {
     /** The Constant serialVersionUID. */
     private static final long serialVersionUID = 1904464241037659389L;
 
+    /** The four-step transform processes columns in groups of 2^3 (i.e. 128 bytes per row). */
+    private static final int FOUR_STEP_COLUMN_BITS = 3;
+    
+    /** The four-step transform transposes in tiles of 2^4 x 2^4 points (4 kB). */
+    private static final int FOUR_STEP_TILE_BITS = 4;
+    
+    /** Interleaved batch transforms process channels in groups of 16 (i.e. 128 bytes per component). */
+    private static final int BATCH_LANES = 16;
+
     public DoubleFFT() { super(); }
     
     public DoubleFFT(ExecutorService executor) {
@@ -69,13 +78,184 @@ public class DoubleFFT extends FFT1D<double[]> implements RealFFT<double[]> {
         Arrays.fill(data, address << 1, data.length, Double.NaN);
     }
 
+    @Override
+    PowerOf2Plan getPowerOf2Plan(final int addressBits) {
+        return PowerOf2Plan.forSize(addressBits, false);
+    }
+
+    @Override
+    void mixedRadixTransform(final double[] data, final int points, final boolean isForward, final boolean isParallel) {
+        transform(data, getMixedRadixPlan(points), data, isForward, isParallel);
+    }
+
+    @Override
+    void sequentialComplexTransform(final double[] data, final int addressBits, final boolean isForward) {
+        if(isFourStep(addressBits)) fourStepTransform(data, addressBits, isForward, false);
+        else super.sequentialComplexTransform(data, addressBits, isForward);
+    }
+
+    @Override
+    void parallelComplexTransform(final double[] data, final int addressBits, final boolean isForward) {
+        if(isFourStep(addressBits)) fourStepTransform(data, addressBits, isForward, true);
+        else super.parallelComplexTransform(data, addressBits, isForward);
+    }
+
+    /**
+     * Power-of-2 complex transform by the four-step (Bailey) algorithm, for transforms too large for the cache. The
+     * N = N1 * N2 points are viewed as an N1 x N2 matrix (row major). First, the columns are transformed a few adjacent
+     * columns at a time, in small contiguous buffers, and multiplied by the twiddle factors on the way back. Then the
+     * rows are transformed, and finally the matrix is transposed in place, tile by tile, into natural order. Every
+     * sub-transform, with its own bit reversal and radix passes, works on data that fits in the cache, so the full
+     * array is read and written only three times, rather than once for every pass.
+     *
+     * @param data the data
+     * @param addressBits the address bits
+     * @param isForward the is forward
+     * @param isParallel whether to process in parallel
+     */
+    private void fourStepTransform(final double[] data, final int addressBits, final boolean isForward, final boolean isParallel) {
+        final int bits2 = addressBits >>> 1;
+        final int bits1 = addressBits - bits2;
+        
+        // exp(i 2 pi e / N) = hi[e / N2] * lo[e % N2]
+        final double theta = Constant.twoPi / (1 << addressBits);
+        final double[] lo = getUnitVectors(1 << bits2, theta);
+        final double[] hi = getUnitVectors(1 << bits1, theta * (1 << bits2));
+        
+        final int columnBlocks = 1 << (bits2 - Math.min(bits2, FOUR_STEP_COLUMN_BITS));
+        final int tiles = 1 << (bits2 - Math.min(bits2, FOUR_STEP_TILE_BITS));
+        
+        if(isParallel) {
+            new BlockFork(data, columnBlocks) {
+                @Override
+                protected void processBlock(double[] data, int from, int to) { 
+                    fourStepColumns(data, bits1, bits2, lo, hi, from, to, isForward); 
+                }
+            }.process();
+            
+            new BlockFork(data, 1 << bits1) {
+                @Override
+                protected void processBlock(double[] data, int from, int to) { fourStepRows(data, bits2, from, to, isForward); }
+            }.process();
+            
+            // Pair up the longest and shortest rows of tiles, for an even load...
+            new PointFork(data, (tiles + 1) >>> 1) {
+                @Override
+                protected void process(double[] data, int i) {
+                    for(int offset = 0; offset < (2 << addressBits); offset += 2 << (bits2 << 1)) {
+                        transpose(data, offset, bits2, i);
+                        if(tiles - 1 - i != i) transpose(data, offset, bits2, tiles - 1 - i);
+                    }
+                }
+            }.process();
+        }
+        else {
+            fourStepColumns(data, bits1, bits2, lo, hi, 0, columnBlocks, isForward);
+            fourStepRows(data, bits2, 0, 1 << bits1, isForward);
+            for(int offset = 0; offset < (2 << addressBits); offset += 2 << (bits2 << 1))
+                for(int i=tiles; --i >= 0; ) transpose(data, offset, bits2, i);
+        }
+        
+        // An N1 = 2 N2 matrix is transposed as two squares, whose rows are then interleaved... 
+        if(bits1 != bits2) interleaveRows(data, bits2);
+        
+        discardFrom(data, 1 << addressBits);
+    }
+    
+    private void fourStepColumns(final double[] data, final int bits1, final int bits2, final double[] lo, final double[] hi, 
+            int from, final int to, final boolean isForward) {
+        final int n1 = 1 << bits1;
+        final int mask = (1 << bits2) - 1;
+        final int rowStep = 2 << bits2;
+        final int columns = 1 << Math.min(bits2, FOUR_STEP_COLUMN_BITS);
+        final double[][] buf = new double[columns][n1 << 1];
+        
+        for( ; from < to; from++) {
+            final int c0 = from * columns;
+            
+            // Gather adjacent columns into contiguous buffers...
+            for(int k=0, i=c0<<1; k < (n1<<1); k+=2, i+=rowStep) for(int c=0, j=i; c<columns; c++, j+=2) {
+                buf[c][k] = data[j];
+                buf[c][k+1] = data[j+1];
+            }
+            
+            for(int c=columns; --c >= 0; ) super.sequentialComplexTransform(buf[c], bits1, isForward);
+            
+            // Apply twiddles exp(+-i 2 pi k1 n2 / N) and scatter back...
+            for(int k1=0, i=c0<<1; k1 < n1; k1++, i+=rowStep) for(int c=0, j=i; c<columns; c++, j+=2) {
+                final int e = (c0 + c) * k1;
+                final int l = (e & mask) << 1;
+                final int h = (e >>> bits2) << 1;
+                
+                final double wr = hi[h] * lo[l] - hi[h+1] * lo[l+1];
+                final double wi = isForward ? hi[h] * lo[l+1] + hi[h+1] * lo[l] : -(hi[h] * lo[l+1] + hi[h+1] * lo[l]);
+                
+                final double re = buf[c][k1<<1];
+                final double im = buf[c][(k1<<1) + 1];
+                
+                data[j] = re * wr - im * wi;
+                data[j+1] = re * wi + im * wr;
+            }
+        }
+    }
+    
+    private void fourStepRows(final double[] data, final int bits2, int from, final int to, final boolean isForward) {
+        final int length = 2 << bits2;
+        final double[] buf = new double[length];
+        
+        for( ; from < to; from++) {
+            final int i = from * length;
+            System.arraycopy(data, i, buf, 0, length);
+            super.sequentialComplexTransform(buf, bits2, isForward);
+            System.arraycopy(buf, 0, data, i, length);
+        }
+    }
+    
+    // Transposes a row of tiles (at and above the diagonal) with the matching column of tiles of a square matrix.
+    private static void transpose(final double[] data, final int offset, final int bits, final int tileRow) {
+        final int m = 1 << bits;
+        final int t = 1 << Math.min(bits, FOUR_STEP_TILE_BITS);
+        final int i0 = tileRow * t;
+        
+        for(int j0 = i0; j0 < m; j0 += t) for(int i = i0; i < i0 + t; i++) {
+            for(int j = j0 == i0 ? i + 1 : j0; j < j0 + t; j++) {
+                final int a = offset + (((i << bits) + j) << 1);
+                final int b = offset + (((j << bits) + i) << 1);
+                
+                double temp = data[a]; data[a] = data[b]; data[b] = temp;
+                temp = data[a+1]; data[a+1] = data[b+1]; data[b+1] = temp;
+            }
+        }
+    }
+    
+    // Interleaves the rows of two consecutive 2^bits x 2^bits matrices, by following the cycles of the permutation.
+    private static void interleaveRows(final double[] data, final int bits) {
+        final int rows = 2 << bits;
+        final int length = 2 << bits;
+        final boolean[] isDone = new boolean[rows];
+        double[] a = new double[length], b = new double[length];
+        
+        for(int r=1; r < rows-1; r++) if(!isDone[r]) {
+            System.arraycopy(data, r * length, a, 0, length);
+            
+            for(int d = interleavedRow(r, bits); ; d = interleavedRow(d, bits)) {
+                System.arraycopy(data, d * length, b, 0, length);
+                System.arraycopy(a, 0, data, d * length, length);
+                isDone[d] = true;
+                if(d == r) break;
+                
+                final double[] temp = a; a = b; b = temp;
+            }
+        }
+    }
+
     // 8 (2^3) bytes per value...
     @Override
     protected final int getPointSize(double[] data) { return 8; }
 
     @Override
     public int getPoints(double[] data) {
-        return Integer.highestOneBit(data.length);
+        return data.length & ~1;
     }
     
     
@@ -325,21 +505,132 @@ public class DoubleFFT extends FFT1D<double[]> implements RealFFT<double[]> {
     }
 
     /**
-     * Load real.
+     * Radix-4 pass with the tabulated twiddle factors of a plan.
      *
      * @param data the data
-     * @param addressBits the address bits
      * @param from the from
      * @param to the to
      * @param isForward the is forward
+     * @param blkbit the blkbit
+     * @param plan the plan, or <code>null</code> to calculate the twiddle factors on the fly.
      */
-    private void loadReal(final double[] data, final int addressBits, int from, int to, final boolean isForward) {
-        int length = 2<<addressBits;
-        to = Math.min(to, length);
+    @Override
+    protected void radix4(final double[] data, int from, int to, final boolean isForward, final int blkbit, final PowerOf2Plan plan) {
+        final double[] tw = plan == null ? null : plan.getTwiddles(blkbit);
+
+        if(tw == null) {
+            radix4(data, from, to, isForward, blkbit);
+            return;
+        }
+
+        final RadixKernels simd = getVectorKernels();
+
+        if(simd != null && blkbit >= simd.getMinBlockBits(false)) {
+            simd.radix4(data, from, to, isForward, blkbit, tw);
+            return;
+        }
+
+        // The double[] block size
+        final int blk = 1 << (blkbit+1);
+        final int skip = 3 * blk;
+        final int blkmask = blk - 1;
+
+        // make from and to compactified indices for i1 (0...N/4)
+        from >>>= 1;
+        to >>>= 1;
+
+        // convert to sparse indices for i1...
+        from = ((from & ~blkmask) << 2) | (from & blkmask);
+        to = ((to & ~blkmask) << 2) | (to & blkmask);
+
+        // Backward transforms use the complex conjugate twiddle factors...
+        final double sign = isForward ? 1.0 : -1.0;
+
+        for(int i0=from; i0<to; i0 += 2) {
+            // Skip over the 2nd, 3rd, and 4th blocks...
+            if((i0 & skip) != 0) {
+                i0 += skip;
+                if(i0 >= to) break;
+            }
+
+            // The 3 complex twiddle factors for the complex offset (i0 & blkmask) / 2 in the block
+            final int k = i0 & blkmask;
+
+            final double w1r = tw[k], w1i = sign * tw[k + 1];
+            final double w2r = tw[k + blk], w2i = sign * tw[k + blk + 1];
+            final double w3r = tw[k + 2*blk], w3i = sign * tw[k + 2*blk + 1];
+
+            final double f0r = data[i0];
+            final double f0i = data[i0 | 1];
+
+            final int i1 = i0 + blk;
+            final int i2 = i1 + blk;
+            final int i3 = i2 + blk;
+
+            double dr = data[i1];
+            double di = data[i1 | 1];
+            final double f2r = w2r * dr - w2i * di;
+            final double f2i = w2r * di + w2i * dr;
+
+            dr = data[i2];
+            di = data[i2 | 1];
+            final double f1r = w1r * dr - w1i * di;
+            final double f1i = w1r * di + w1i * dr;
+
+            dr = data[i3];
+            di = data[i3 | 1];
+            final double f3r = w3r * dr - w3i * di;
+            final double f3i = w3r * di + w3i * dr;
+
+            double ar = f0r - f2r;
+            double ai = f0i - f2i;
+
+            double br = f1r - f3r;
+            double bi = f1i - f3i;
+
+            if(isForward) {
+                data[i3] = ar + bi;
+                data[i3 | 1] = ai - br;
+
+                data[i1] = ar - bi;
+                data[i1 | 1] = ai + br;
+            }
+            else {
+                data[i3] = ar - bi;
+                data[i3 | 1] = ai + br;
 
+                data[i1] = ar + bi;
+                data[i1 | 1] = ai - br;
+            }
+
+            ar = f0r + f2r;
+            ai = f0i + f2i;
+
+            br = f1r + f3r;
+            bi = f1i + f3i;
+
+            data[i2] = ar - br;
+            data[i2 | 1] = ai - bi;
+
+            data[i0] = ar + br;
+            data[i0 | 1] = ai + bi;
+        }
+    }
+
+    /**
+     * Load real.
+     *
+     * @param data the data
+     * @param length the number of real values in the transform
+     * @param from the from
+     * @param to the to
+     * @param isForward the is forward
+     */
+    private void loadReal(final double[] data, final int length, int from, int to, final boolean isForward) {
         // Make from and to even indices 0...N/2
+        // (for an odd number of complex points, N/2 is odd, and the last even index below it is still included).
         from = Math.max(2, (from >>> 2) << 1);
-        to = (to >>> 2) << 1;
+        to = to >= length ? length >>> 1 : (to >>> 2) << 1;
 
         final double theta = (isForward ? Constant.twoPi : -Constant.twoPi) / length;
         final double s = Math.sin(theta);
@@ -391,7 +682,7 @@ public class DoubleFFT extends FFT1D<double[]> implements RealFFT<double[]> {
      */
     @Override
     public final void realTransform(final double data[], final boolean isForward) {
-        realTransform(data, getAddressBits(data), isForward);
+        realTransform(data, getPoints(data), isForward);
     }
 
 
@@ -399,22 +690,22 @@ public class DoubleFFT extends FFT1D<double[]> implements RealFFT<double[]> {
      * Real transform.
      *
      * @param data the data
-     * @param addressBits the address bits
+     * @param n the number of real values in the transform (even)
      * @param isForward the is forward
      * @param chunks the chunks
      */
-    final void realTransform(final double[] data, final int addressBits, final boolean isForward) {	
-        if(getParallel() < 2) sequentialRealTransform(data, addressBits, isForward);
-        else parallelRealTransform(data, addressBits, isForward);
+    final void realTransform(final double[] data, final int n, final boolean isForward) {	
+        if(getParallel() < 2) sequentialRealTransform(data, n, isForward);
+        else parallelRealTransform(data, n, isForward);
     }
      
     
-    void parallelRealTransform(final double[] data, final int addressBits, final boolean isForward) {
-        if(isForward) parallelComplexTransform(data, addressBits, FORWARD);
+    void parallelRealTransform(final double[] data, final int n, final boolean isForward) {
+        if(isForward) complexTransform(data, n >>> 1, FORWARD, true);
 
-        new BlockFork(data, 2<<addressBits) {
+        new BlockFork(data, n) {
             @Override
-            public void processBlock(double[] data, int from, int to) { loadReal(data, addressBits, from, to, isForward); }
+            public void processBlock(double[] data, int from, int to) { loadReal(data, n, from, to, isForward); }
         }.process();
 
         final double d0 = data[0];
@@ -426,7 +717,7 @@ public class DoubleFFT extends FFT1D<double[]> implements RealFFT<double[]> {
         else {
             data[0] = 0.5 * (d0 + data[1]);
             data[1] = 0.5 * (d0 - data[1]);
-            parallelComplexTransform(data, addressBits, BACK);
+            complexTransform(data, n >>> 1, BACK, true);
         }
 
     }
@@ -439,7 +730,7 @@ public class DoubleFFT extends FFT1D<double[]> implements RealFFT<double[]> {
      */
     @Override
     public final void sequentialRealTransform(final double[] data, final boolean isForward) {
-        sequentialRealTransform(data, getAddressBits(data), isForward);
+        sequentialRealTransform(data, getPoints(data), isForward);
     }
 
 
@@ -447,13 +738,25 @@ public class DoubleFFT extends FFT1D<double[]> implements RealFFT<double[]> {
      * Sequential real transform.
      *
      * @param data the data
-     * @param addressBits the address bits
+     * @param n the number of real values in the transform (even)
      * @param isForward the is forward
      */
-    void sequentialRealTransform(final double[] data, final int addressBits, final boolean isForward) {
-        if(isForward) sequentialComplexTransform(data, addressBits, FORWARD); 
+    void sequentialRealTransform(final double[] data, final int n, final boolean isForward) {
+        sequentialRealTransform(data, n, isForward, null);
+    }
 
-        loadReal(data, addressBits, 0, 2<<addressBits, isForward);
+    /**
+     * Sequential real transform, using the supplied scratch space for mixed-radix transforms.
+     *
+     * @param data the data
+     * @param n the number of real values in the transform (even)
+     * @param isForward the is forward
+     * @param scratch scratch space for at least n/2 complex points, or <code>null</code> to allocate as necessary.
+     */
+    void sequentialRealTransform(final double[] data, final int n, final boolean isForward, final double[] scratch) {
+        if(isForward) sequentialComplexTransform(data, n >>> 1, FORWARD, scratch); 
+
+        loadReal(data, n, 0, n, isForward);
 
         final double d0 = data[0];
 
@@ -464,10 +767,25 @@ public class DoubleFFT extends FFT1D<double[]> implements RealFFT<double[]> {
         else {
             data[0] = 0.5 * (d0 + data[1]);
             data[1] = 0.5 * (d0 - data[1]);
-            sequentialComplexTransform(data, addressBits, BACK);
+            sequentialComplexTransform(data, n >>> 1, BACK, scratch);
         }
     }
 
+    /**
+     * Sequential complex transform of the specified number of leading points, using the supplied scratch space
+     * for mixed-radix transforms.
+     *
+     * @param data the data
+     * @param points the number of complex points to transform
+     * @param isForward the is forward
+     * @param scratch scratch space for at least the given number of complex points, or <code>null</code> to 
+     *          allocate as necessary.
+     */
+    private void sequentialComplexTransform(final double[] data, final int points, final boolean isForward, final double[] scratch) {
+        if((points & (points - 1)) == 0) sequentialComplexTransform(data, ExtraMath.log2floor(points), isForward);
+        else getMixedRadixPlan(points).transform(data, scratch, isForward);
+    }
+
 
     /**
      * Scale.
@@ -497,10 +815,9 @@ public class DoubleFFT extends FFT1D<double[]> implements RealFFT<double[]> {
      */
     @Override
     public void real2Amplitude(final double[] data) {
-        final int addressBits = getAddressBits(data);
-        final int n = 2 << addressBits;
-        realTransform(data, addressBits, FFT.FORWARD);
-        scale(data, n, 2.0F / n);
+        final int n = getPoints(data);
+        realTransform(data, n, FFT.FORWARD);
+        scale(data, n, 2.0 / n);
     }
 
    
@@ -513,6 +830,159 @@ public class DoubleFFT extends FFT1D<double[]> implements RealFFT<double[]> {
     }
 
 
+    /**
+     * Batched complex transform of many independent channels, such as the time streams of a detector array. Rather
+     * than parallelizing each (small) transform, whole channels are distributed among the parallel threads, each of
+     * which transforms its channels sequentially, sharing the same cached plan, and reusing its own scratch space.
+     *
+     * @param channels      the channels to transform in place, each as interleaved (re, im) complex data. They
+     *                      are typically all of the same size.
+     * @param isForward     {@link FFT#FORWARD} or {@link FFT#BACK}.
+     */
+    public void complexTransform(final double[][] channels, final boolean isForward) {
+        new BatchFork(channels.length) {
+            @Override
+            protected void processChannel(int k) {
+                final int points = addressSizeOf(channels[k]);
+                sequentialComplexTransform(channels[k], points, isForward, getScratch(points));
+            }
+        }.process();
+    }
+
+    /**
+     * Batched real transform of many independent channels. Same as calling {@link #realTransform(double[], boolean)}
+     * on every channel, but parallelized across the channels, as in {@link #complexTransform(double[][], boolean)}.
+     *
+     * @param channels      the real-valued channels (or their spectra) to transform in place.
+     * @param isForward     {@link FFT#FORWARD} or {@link FFT#BACK}.
+     */
+    public void realTransform(final double[][] channels, final boolean isForward) {
+        new BatchFork(channels.length) {
+            @Override
+            protected void processChannel(int k) {
+                final int n = getPoints(channels[k]);
+                sequentialRealTransform(channels[k], n, isForward, getScratch(n >>> 1));
+            }
+        }.process();
+    }
+
+    /**
+     * Batched version of {@link #real2Amplitude(double[])}, parallelized across the channels.
+     *
+     * @param channels      the real-valued channels to transform to amplitudes in place.
+     */
+    public void real2Amplitude(final double[][] channels) {
+        new BatchFork(channels.length) {
+            @Override
+            protected void processChannel(int k) {
+                final double[] data = channels[k];
+                final int n = getPoints(data);
+                sequentialRealTransform(data, n, FORWARD, getScratch(n >>> 1));
+                scale(data, n, 2.0 / n);
+            }
+        }.process();
+    }
+
+    /**
+     * Batched version of {@link #amplitude2Real(double[])}, parallelized across the channels.
+     *
+     * @param channels      the amplitude spectra to transform back to real values in place.
+     */
+    public void amplitude2Real(final double[][] channels) {
+        realTransform(channels, BACK);
+    }
+
+    /**
+     * Batched complex transform of channels that are interleaved in a single array, in a structure-of-arrays layout:
+     * for every point <i>j</i>, the real parts of all <i>K</i> channels are stored consecutively, followed by their
+     * imaginary parts. That is, channel <i>c</i> has its real part at <code>data[2jK + c]</code> and its imaginary
+     * part at <code>data[(2j+1)K + c]</code>. Power-of-2 transforms then apply every butterfly, with the same twiddle
+     * factor, to a run of adjacent channels at once, in loops that the JIT compiler can vectorize. Groups of adjacent 
+     * channels are processed in parallel.
+     *
+     * @param data          the interleaved channels, with <code>data.length / 2K</code> complex points each.
+     * @param channels      the number of interleaved channels <i>K</i>.
+     * @param isForward     {@link FFT#FORWARD} or {@link FFT#BACK}.
+     */
+    public void complexTransform(final double[] data, final int channels, final boolean isForward) {
+        final int points = data.length / (channels << 1);
+        final boolean isPowerOf2 = (points & (points - 1)) == 0;
+        final double[] w = isPowerOf2 ? getUnitVectors(points >>> 1, Constant.twoPi / points) : null;
+        
+        new BatchFork(ExtraMath.roundupRatio(channels, BATCH_LANES)) {
+            @Override
+            protected void processChannel(int group) {
+                final int from = group * BATCH_LANES;
+                final int to = Math.min(channels, from + BATCH_LANES);
+                
+                if(isPowerOf2) interleavedTransform(data, channels, ExtraMath.log2floor(points), w, from, to, isForward);
+                else interleavedTransform(data, channels, getMixedRadixPlan(points), getBuffer(points), getScratch(points), from, to, isForward);
+            }
+        }.process();
+    }
+    
+    // Radix-2 transform of the interleaved channels from...to, using the unit vectors w of the transform size.
+    private static void interleavedTransform(final double[] data, final int channels, final int bits, final double[] w, 
+            final int from, final int to, final boolean isForward) {
+        final int n = 1 << bits;
+        final int stride = channels << 1;
+        
+        // Bit reversal...
+        for(int j=n; --j >= 0; ) {
+            final int k = Integer.reverse(j << (32 - bits));
+            if(k <= j) continue;
+            
+            for(int c=from, a=j*stride+from, b=k*stride+from; c<to; c++, a++, b++) {
+                double temp = data[a]; data[a] = data[b]; data[b] = temp;
+                temp = data[a + channels]; data[a + channels] = data[b + channels]; data[b + channels] = temp;
+            }
+        }
+        
+        // Merge blocks of h points with twiddles w^(m * n/2h)...
+        for(int h=1, step=n>>>1; h < n; h <<= 1, step >>>= 1) for(int b=0; b < n; b += h<<1) for(int m=0; m < h; m++) {
+            final int t = (m * step) << 1;
+            final double wr = w[t];
+            final double wi = isForward ? w[t+1] : -w[t+1];
+            
+            final int i0 = (b + m) * stride;
+            final int i1 = i0 + h * stride;
+            
+            for(int c=from; c<to; c++) {
+                final int r0 = i0 + c, r1 = i1 + c;
+                final double re = data[r1], im = data[r1 + channels];
+                final double tr = wr * re - wi * im;
+                final double ti = wr * im + wi * re;
+                
+                data[r1] = data[r0] - tr;
+                data[r1 + channels] = data[r0 + channels] - ti;
+                data[r0] += tr;
+                data[r0 + channels] += ti;
+            }
+        }
+    }
+    
+    // Mixed-radix transform of the interleaved channels from...to, one channel at a time.
+    private static void interleavedTransform(final double[] data, final int channels, final MixedRadixPlan plan, 
+            final double[] z, final double[] scratch, final int from, final int to, final boolean isForward) {
+        final int n = plan.size();
+        final int stride = channels << 1;
+        
+        for(int c=from; c<to; c++) {
+            for(int j=0, i=c; j < n; j++, i += stride) {
+                z[j<<1] = data[i];
+                z[(j<<1) + 1] = data[i + channels];
+            }
+            
+            plan.transform(z, scratch, isForward);
+            
+            for(int j=0, i=c; j < n; j++, i += stride) {
+                data[i] = z[j<<1];
+                data[i + channels] = z[(j<<1) + 1];
+            }
+        }
+    }
+
+
     // Rewritten to skip costly intermediate Complex storage...
     /* (non-Javadoc)
      * @see jnum.fft.FFT#averagePower(java.lang.Object, double[])
@@ -647,7 +1117,7 @@ public class DoubleFFT extends FFT1D<double[]> implements RealFFT<double[]> {
         
         @Override
         public int getPoints(double[] data) {
-            return Integer.highestOneBit(data.length - 2);
+            return (data.length - 2) & ~1;
         }
         
      
@@ -655,40 +1125,38 @@ public class DoubleFFT extends FFT1D<double[]> implements RealFFT<double[]> {
          * @see jnum.fft.DoubleFFT#realTransform(double[], int, boolean, int)
          */
         @Override
-        void parallelRealTransform(final double[] data, final int addressBits, final boolean isForward) {   
-            final int n = 2<<addressBits;
-
+        void parallelRealTransform(final double[] data, final int n, final boolean isForward) {   
             if(!isForward) {
                 data[1] = data[n];
                 data[n] = data[n+1] = 0.0;
             }
 
-            super.parallelRealTransform(data, addressBits, isForward);
+            super.parallelRealTransform(data, n, isForward);
             
             if(isForward) {	
                 data[n] = data[1];
                 data[1] = data[n+1] = 0.0;
             }
+            else data[n] = data[n+1] = 0.0;   // Not part of the real-valued result (and discarded by power-of-2 transforms)
         }
 
         /* (non-Javadoc)
-         * @see jnum.fft.DoubleFFT#sequentialRealTransform(double[], int, boolean)
+         * @see jnum.fft.DoubleFFT#sequentialRealTransform(double[], int, boolean, double[])
          */
         @Override
-        void sequentialRealTransform(final double[] data, final int addressBits, final boolean isForward) {
-            final int n = 2<<addressBits;
-
+        void sequentialRealTransform(final double[] data, final int n, final boolean isForward, final double[] scratch) {
             if(!isForward) {
                 data[1] = data[n];
                 data[n] = data[n+1] = 0.0;
             }
 
-            super.sequentialRealTransform(data, addressBits, isForward);
+            super.sequentialRealTransform(data, n, isForward, scratch);
 
             if(isForward) {
                 data[n] = data[1];
                 data[1] = data[n+1] = 0.0;
             }
+            else data[n] = data[n+1] = 0.0;   // Not part of the real-valued result (and discarded by power-of-2 transforms)
         }
         
         
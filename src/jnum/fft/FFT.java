@@ -126,31 +126,114 @@ public abstract class FFT<Type> extends ParallelObject implements Serializable {
      * @param chunks the chunks
      */
     public final void complexTransform(final Type data, final boolean isForward) {
-        complexTransform(data, getAddressBits(data), isForward);
+        complexTransform(data, addressSizeOf(data), isForward, getParallel() != 1);
     }
    
+
     /**
-     * Complex transform.
+     * Sequential complex transform.
      *
      * @param data the data
-     * @param addressBits the address bits
      * @param isForward the is forward
-     * @param chunks the number of parallel chunks
-     */ 
-    private final void complexTransform(final Type data, final int addressBits, final boolean isForward) {    
-        if(getParallel() == 1) sequentialComplexTransform(data, isForward);
-        else parallelComplexTransform(data, addressBits, isForward);
+     */
+    public final void sequentialComplexTransform(final Type data, final boolean isForward) {	
+        complexTransform(data, addressSizeOf(data), isForward, false);
     }
     
-
     /**
-     * Sequential complex transform.
+     * Complex transform of the specified number of leading points in the data. Power-of-2 sizes are transformed
+     * in place by the radix-2/4 passes, while other sizes use a {@link MixedRadixPlan}.
      *
      * @param data the data
+     * @param points the number of complex points to transform
      * @param isForward the is forward
+     * @param isParallel whether to process in parallel
      */
-    public final void sequentialComplexTransform(final Type data, final boolean isForward) {	
-        sequentialComplexTransform(data, getAddressBits(data), isForward);
+    final void complexTransform(final Type data, final int points, final boolean isForward, final boolean isParallel) {
+        if((points & (points - 1)) != 0) mixedRadixTransform(data, points, isForward, isParallel);
+        else if(isParallel) parallelComplexTransform(data, ExtraMath.log2floor(points), isForward);
+        else sequentialComplexTransform(data, ExtraMath.log2floor(points), isForward);
+    }
+    
+    /**
+     * Complex transform of a number of leading points in the data that is not a power of 2.
+     *
+     * @param data the data
+     * @param points the number of complex points to transform
+     * @param isForward the is forward
+     * @param isParallel whether to process in parallel
+     */
+    abstract void mixedRadixTransform(Type data, int points, boolean isForward, boolean isParallel);
+    
+    /**
+     * Returns the mixed-radix plan for the given size, from the plan cache (see {@link FFTPlan}), so that repeated 
+     * transforms of the same size need not recalculate the twiddle factors.
+     *
+     * @param points the number of complex points to transform
+     * @return the plan for transforms of that size.
+     */
+    MixedRadixPlan getMixedRadixPlan(final int points) {
+        return MixedRadixPlan.forSize(points);
+    }
+    
+    /**
+     * Returns the precomputed plan for power-of-2 transforms of the given size, if this type of FFT uses one.
+     *
+     * @param addressBits the transform size as a power of 2
+     * @return the plan, or <code>null</code> to calculate the bit reversal and twiddle factors on the fly.
+     */
+    PowerOf2Plan getPowerOf2Plan(final int addressBits) {
+        return null;
+    }
+    
+    /**
+     * Transforms the interleaved (re, im) complex data in <code>z</code> with the given plan, 
+     * processing the butterflies of every pass in parallel if requested.
+     *
+     * @param data the data to which <code>z</code> belongs, for sizing the parallel blocks.
+     * @param plan the mixed-radix plan
+     * @param z the interleaved complex data to transform in place
+     * @param isForward the is forward
+     * @param isParallel whether to process in parallel
+     */
+    void transform(final Type data, final MixedRadixPlan plan, final double[] z, final boolean isForward, final boolean isParallel) {
+        if(!isParallel) {
+            plan.transform(z, isForward);
+            return;
+        }
+        
+        if(plan.isBluestein()) {
+            final MixedRadixPlan convolution = plan.getConvolutionPlan();
+            final double[] a = plan.chirpIn(z, isForward);
+            
+            transform(data, convolution, a, FORWARD, true);
+            
+            new BlockFork(data, convolution.size()) {
+                @Override
+                protected void processBlock(Type data, int from, int to) { plan.multiplyKernel(a, from, to, isForward); }
+            }.process();
+            
+            transform(data, convolution, a, BACK, true);
+            plan.chirpOut(a, z, isForward);
+            return;
+        }
+        
+        double[] x = z, y = new double[plan.size() << 1];
+        
+        for(int k=0; k<plan.getPasses(); k++) {
+            final int pass = k;
+            final double[] from = x, to = y;
+            
+            new BlockFork(data, plan.getButterflies(pass)) {
+                @Override
+                protected void processBlock(Type data, int i, int j) { plan.pass(pass, from, to, i, j, isForward); }
+            }.process();
+            
+            x = to;
+            y = from;
+        }
+        
+        if(x != z) System.arraycopy(x, 0, z, 0, plan.size() << 1);
     }
 
     /**
@@ -162,8 +245,13 @@ public abstract class FFT<Type> extends ParallelObject implements Serializable {
      */
     void sequentialComplexTransform(final Type data, final int addressBits, final boolean isForward) {	
         final int n = 1<<addressBits;
+        final PowerOf2Plan plan = getPowerOf2Plan(addressBits);
         
-        for(int i=n; --i >= 0; ) {
+        if(plan != null) {
+            final int[] swaps = plan.getSwaps();
+            for(int k=swaps.length; (k -= 2) >= 0; ) swap(data, swaps[k], swaps[k+1]);
+        }
+        else for(int i=n; --i >= 0; ) {
             final int j = Integer.reverse(i<<(32-addressBits));
             if(j > i) swap(data, i, j);
         }
@@ -173,7 +261,7 @@ public abstract class FFT<Type> extends ParallelObject implements Serializable {
         if((addressBits & 1) != 0) radix2(data, 0, n, isForward, blkbit++);
 
         while(blkbit < addressBits) {	
-            radix4(data, 0, n, isForward, blkbit);
+            radix4(data, 0, n, isForward, blkbit, plan);
             blkbit += 2;
         }
         
@@ -184,9 +272,20 @@ public abstract class FFT<Type> extends ParallelObject implements Serializable {
     void parallelComplexTransform(final Type data, final int addressBits, final boolean isForward) {	
         // Don't make more chunks than there are processing blocks...
         final int n = 1<<addressBits;    
+        final PowerOf2Plan plan = getPowerOf2Plan(addressBits);
        
         // Bit reversal...
-        new PointFork(data, n) {
+        if(plan != null) {
+            final int[] swaps = plan.getSwaps();
+            
+            new PointFork(data, swaps.length >>> 1) {
+                @Override
+                public void process(final Type data, final int i) {
+                    swap(data, swaps[i<<1], swaps[(i<<1) + 1]);
+                }
+            }.process();
+        }
+        else new PointFork(data, n) {
             @Override
             public void process(final Type data, final int i) {
                 final int j = Integer.reverse(i << (32-addressBits));
@@ -202,7 +301,7 @@ public abstract class FFT<Type> extends ParallelObject implements Serializable {
         }
         
         while(blkbit < addressBits) {
-            new Radix4(data, n, blkbit, isForward).process();
+            new Radix4(data, n, blkbit, isForward, plan).process();
             blkbit += 2;
         }
         
@@ -231,6 +330,21 @@ public abstract class FFT<Type> extends ParallelObject implements Serializable {
 
     protected abstract void radix4(final Type data, int from, int to, final boolean isForward, int blkbit);
 
+    /**
+     * Radix-4 pass using the tabulated twiddle factors of a plan, if the FFT supports it. By default, it 
+     * is the same as {@link #radix4(Object, int, int, boolean, int)}, i.e. with twiddle factors calculated on the fly.
+     * 
+     * @param data the data
+     * @param from the from
+     * @param to the to
+     * @param isForward the is forward
+     * @param blkbit the blkbit
+     * @param plan the precomputed plan, or <code>null</code>.
+     */
+    protected void radix4(final Type data, int from, int to, final boolean isForward, int blkbit, PowerOf2Plan plan) {
+        radix4(data, from, to, isForward, blkbit);
+    }
+
 
     public double getMinPrecisionFor(Type data) {
         return Math.pow(2.0, getMaxErrorBitsFor(data)) / Math.pow(2.0, getMaxSignificantBitsFor(data));
@@ -346,11 +460,13 @@ public abstract class FFT<Type> extends ParallelObject implements Serializable {
     private class Radix4 extends BlockFork {
         private int blkbit;
         private boolean isForward;
+        private PowerOf2Plan plan;
 
-        public Radix4(Type data, int points, int blkbit, boolean isForward) { 
+        public Radix4(Type data, int points, int blkbit, boolean isForward, PowerOf2Plan plan) { 
             super(data, points); 
             this.blkbit = blkbit;
             this.isForward = isForward;
+            this.plan = plan;
         }
         
         // 4 points per merge...
@@ -359,7 +475,7 @@ public abstract class FFT<Type> extends ParallelObject implements Serializable {
      
         @Override
         protected void processBlock(final Type data, final int from, final int to) throws Exception { 
-            radix4(data, from, to, isForward, blkbit);    
+            radix4(data, from, to, isForward, blkbit, plan);    
         }
     }
 
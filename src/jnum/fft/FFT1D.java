@@ -72,6 +72,47 @@ public abstract class FFT1D<Type> extends FFT<Type> {
 	}
 
 
+	/**
+	 * Checks whether power-of-2 complex transforms of the given size should use the four-step (Bailey) algorithm,
+	 * based on {@link #fourStepAddressBits}.
+	 *
+	 * @param addressBits	the transform size as a power of 2.
+	 * @return				<code>true</code> if the transform should use the four-step algorithm.
+	 */
+	static boolean isFourStep(final int addressBits) {
+		return addressBits >= Math.max(4, fourStepAddressBits);
+	}
+	
+	/**
+	 * Returns the unit vectors exp(<i>i</i> <i>k</i> &theta;) for <i>k</i> = 0 ... <code>points</code>-1, as
+	 * consecutive (cos, sin) pairs.
+	 *
+	 * @param points	the number of unit vectors.
+	 * @param theta		the angle step (radians).
+	 * @return			the tabulated unit vectors.
+	 */
+	static double[] getUnitVectors(final int points, final double theta) {
+		final double[] w = new double[points << 1];
+		for(int k=points; --k >= 0; ) {
+			w[k<<1] = Math.cos(k * theta);
+			w[(k<<1) + 1] = Math.sin(k * theta);
+		}
+		return w;
+	}
+
+	/**
+	 * Returns where a row of two consecutive 2<sup><i>b</i></sup> x 2<sup><i>b</i></sup> matrices goes, when their
+	 * rows are interleaved, i.e. when the first matrix provides the even rows and the second one the odd rows.
+	 *
+	 * @param row	the row index in the consecutive matrices.
+	 * @param bits	the matrix size <i>b</i>, as a power of 2.
+	 * @return		the row index after interleaving.
+	 */
+	static int interleavedRow(final int row, final int bits) {
+		final int m = 1 << bits;
+		return row < m ? row << 1 : ((row - m) << 1) + 1;
+	}
+
 	public static int bin2Image(int bin, final int addressBits) {
 		final int n = 1 << addressBits;
 		
@@ -84,4 +125,90 @@ public abstract class FFT1D<Type> extends FFT<Type> {
 		return bin;
 	}
 	
+	/**
+	 * Power-of-2 complex transforms of at least this many address bits (log<sub>2</sub> of the number of complex 
+	 * points) are calculated by the four-step (Bailey) algorithm, which transforms the data in cache-sized pieces
+	 * with blocked transposes, instead of running every radix pass over the entire array. 
+	 */
+	public static int fourStepAddressBits = 23;
+	
+	/**
+	 * Whether the radix-4 passes of power-of-2 transforms may use the SIMD kernels of the Vector API, when these are
+	 * available (see {@link #isVectorKernelAvailable()}). Otherwise the scalar passes are used.
+	 */
+	public static boolean useVectorKernels = true;
+	
+	/**
+	 * Checks whether SIMD radix kernels, based on the Vector API, are available. They are, when jnum is built by the 
+	 * <code>build-jdk21</code> target, and the JVM is started with <code>--add-modules jdk.incubator.vector</code>.
+	 *
+	 * @return	<code>true</code> if the SIMD kernels are available, otherwise <code>false</code>.
+	 */
+	public static boolean isVectorKernelAvailable() {
+		return RadixKernels.getVectorKernels() != null;
+	}
+	
+	/**
+	 * Returns the SIMD radix kernels to use, if any.
+	 *
+	 * @return	the SIMD kernels, or <code>null</code> if they are not available, or disabled by 
+	 * 			{@link #useVectorKernels}.
+	 */
+	static RadixKernels getVectorKernels() {
+		return useVectorKernels ? RadixKernels.getVectorKernels() : null;
+	}
+	
+	/**
+	 * A parallel task over a batch of independent channels (such as the time streams of a detector array), which
+	 * distributes whole channels among the threads. Every channel is thus transformed sequentially, without nested
+	 * parallel tasks, and each worker thread reuses its own scratch space for all of its channels.
+	 *
+	 * @author Attila Kovacs <attila@sigmyne.com>
+	 *
+	 */
+	abstract class BatchFork extends Task<Void> {
+		private int channels;
+		private double[] scratch, buffer;
+		
+		BatchFork(int channels) {
+			this.channels = channels;
+		}
+		
+		@Override
+		protected void init() {
+			// Every worker allocates its own scratch space as needed...
+			scratch = buffer = null;
+		}
+		
+		/**
+		 * Returns this worker's scratch space for transforms of the given size, as interleaved (re, im) values.
+		 *
+		 * @param points	the number of complex points in the transform.
+		 * @return			the scratch space of this worker, which is reused for subsequent channels.
+		 */
+		protected final double[] getScratch(int points) {
+			if(scratch == null || scratch.length < (points << 1)) scratch = new double[points << 1];
+			return scratch;
+		}
+		
+		/**
+		 * Returns this worker's buffer for holding a (double precision) copy of a channel of the given size, as 
+		 * interleaved (re, im) values. It is separate from the scratch space of {@link #getScratch(int)}.
+		 *
+		 * @param points	the number of complex points in the transform.
+		 * @return			the buffer of this worker, which is reused for subsequent channels.
+		 */
+		protected final double[] getBuffer(int points) {
+			if(buffer == null || buffer.length < (points << 1)) buffer = new double[points << 1];
+			return buffer;
+		}
+		
+		@Override
+		protected void processChunk(int i, int threads) throws Exception {
+			for(int k=i; k < channels; k += threads) processChannel(k);
+		}
+		
+		protected abstract void processChannel(int channel) throws Exception;
+	}
+	
 }
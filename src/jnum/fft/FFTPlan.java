@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Attila Kovacs <attila[AT]sigmyne.com>.
+ * All rights reserved.
+ *
+ * This file is part of jnum.
+ *
+ *     jnum is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     jnum is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with jnum.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Attila Kovacs <attila[AT]sigmyne.com> - initial API and implementation
+ ******************************************************************************/
+
+package jnum.fft;
+
+import java.util.LinkedList;
+
+/**
+ * The base class of precomputed FFT plans, which hold the tables (twiddle factors, permutations etc.) needed for
+ * transforms of a given size and precision. Plans do not change once constructed, and can be shared by any number of
+ * FFTs and threads. Recently used plans are kept in a bounded cache, keyed by the type of plan, its size and precision,
+ * so that repeated transforms of the same size reuse the same tables.
+ *
+ * @author Attila Kovacs <attila@sigmyne.com>
+ *
+ */
+public abstract class FFTPlan {
+    private int size;
+    private boolean isSinglePrecision;
+
+
+    protected FFTPlan(int size, boolean isSinglePrecision) {
+        this.size = size;
+        this.isSinglePrecision = isSinglePrecision;
+    }
+
+    /**
+     * Returns the number of complex points transformed by this plan.
+     *
+     * @return  the transform size.
+     */
+    public final int size() { return size; }
+
+    /**
+     * Checks whether the tables of this plan are for single-precision (<code>float</code>) transforms.
+     *
+     * @return  <code>true</code> if the plan is for <code>float</code> data, or <code>false</code> if it is for
+     *          <code>double</code> data.
+     */
+    public final boolean isSinglePrecision() { return isSinglePrecision; }
+
+    /**
+     * Returns the approximate memory footprint of the plan's tables.
+     *
+     * @return  the size of the plan's tables in bytes.
+     */
+    public abstract long getBytes();
+
+
+    /**
+     * Returns the cached plan of the given type, size and precision, as the most recently used, or
+     * <code>null</code> if there is no such plan in the cache.
+     *
+     * @param type                  the class of plan.
+     * @param size                  the number of complex points in the transform.
+     * @param isSinglePrecision     whether the plan is for <code>float</code> data.
+     * @return                      the matching cached plan, or <code>null</code>.
+     */
+    @SuppressWarnings("unchecked")
+    protected static <P extends FFTPlan> P getCached(Class<P> type, int size, boolean isSinglePrecision) {
+        synchronized(cache) {
+            for(FFTPlan p : cache) if(p.size == size && p.isSinglePrecision == isSinglePrecision && p.getClass().equals(type)) {
+                // Move to the front, as the most recently used...
+                cache.remove(p);
+                cache.addFirst(p);
+                return (P) p;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a plan to the cache, as the most recently used, discarding the least recently used plans as necessary
+     * to keep within the limits of {@link #cacheSize} and {@link #maxCacheBytes}. Plans larger than
+     * {@link #maxCacheBytes} are not cached.
+     *
+     * @param plan  the newly created plan.
+     */
+    protected static void cache(FFTPlan plan) {
+        if(!isCacheable(plan.getBytes())) return;
+
+        synchronized(cache) {
+            cache.addFirst(plan);
+
+            long bytes = 0L;
+            for(FFTPlan p : cache) bytes += p.getBytes();
+
+            while(cache.size() > cacheSize || bytes > maxCacheBytes) bytes -= cache.removeLast().getBytes();
+        }
+    }
+
+    /**
+     * Checks whether a plan with tables of the given size may be cached.
+     *
+     * @param bytes     the size of the plan's tables.
+     * @return          <code>true</code> if the plan fits in the cache, otherwise <code>false</code>.
+     */
+    protected static boolean isCacheable(long bytes) {
+        return bytes <= maxCacheBytes;
+    }
+
+    /**
+     * Discards all cached plans.
+     */
+    public static void clearCache() {
+        synchronized(cache) { cache.clear(); }
+    }
+
+
+    private static LinkedList<FFTPlan> cache = new LinkedList<>();
+
+    /** The maximum number of plans to keep in the cache. */
+    public static int cacheSize = 16;
+
+    /**
+     * The maximum total memory (bytes) of the cached plans' tables. Power-of-2 transforms whose tables would not fit
+     * calculate their twiddle factors on the fly instead.
+     */
+    public static long maxCacheBytes = 64L << 20;
+}
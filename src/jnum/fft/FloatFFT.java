@@ -44,6 +44,15 @@ public class FloatFFT extends FFT1D<float[]> implements RealFFT<float[]> {
 
     private static final long serialVersionUID = -3189956387053186573L;
 
+    /** The four-step transform processes columns in groups of 2^4 (i.e. 128 bytes per row). */
+    private static final int FOUR_STEP_COLUMN_BITS = 4;
+    
+    /** The four-step transform transposes in tiles of 2^5 x 2^5 points (8 kB). */
+    private static final int FOUR_STEP_TILE_BITS = 5;
+    
+    /** Interleaved batch transforms process channels in groups of 32 (i.e. 128 bytes per component). */
+    private static final int BATCH_LANES = 32;
+
 
     public FloatFFT() { super(); }
     
@@ -59,6 +68,183 @@ public class FloatFFT extends FFT1D<float[]> implements RealFFT<float[]> {
     final void discardFrom(final float[] data, int address) {
         Arrays.fill(data, address << 1, data.length, Float.NaN);
     }
+
+    @Override
+    PowerOf2Plan getPowerOf2Plan(final int addressBits) {
+        return PowerOf2Plan.forSize(addressBits, true);
+    }
+
+    // Transforms in double precision, via a temporary copy of the data...
+    @Override
+    void mixedRadixTransform(final float[] data, final int points, final boolean isForward, final boolean isParallel) {
+        final double[] z = new double[points << 1];
+        for(int i=z.length; --i >= 0; ) z[i] = data[i];
+
+        transform(data, getMixedRadixPlan(points), z, isForward, isParallel);
+
+        for(int i=z.length; --i >= 0; ) data[i] = (float) z[i];
+    }
+
+    @Override
+    void sequentialComplexTransform(final float[] data, final int addressBits, final boolean isForward) {
+        if(isFourStep(addressBits)) fourStepTransform(data, addressBits, isForward, false);
+        else super.sequentialComplexTransform(data, addressBits, isForward);
+    }
+
+    @Override
+    void parallelComplexTransform(final float[] data, final int addressBits, final boolean isForward) {
+        if(isFourStep(addressBits)) fourStepTransform(data, addressBits, isForward, true);
+        else super.parallelComplexTransform(data, addressBits, isForward);
+    }
+
+    /**
+     * Power-of-2 complex transform by the four-step (Bailey) algorithm, for transforms too large for the cache. The
+     * N = N1 * N2 points are viewed as an N1 x N2 matrix (row major). First, the columns are transformed a few adjacent
+     * columns at a time, in small contiguous buffers, and multiplied by the twiddle factors on the way back. Then the
+     * rows are transformed, and finally the matrix is transposed in place, tile by tile, into natural order. Every
+     * sub-transform, with its own bit reversal and radix passes, works on data that fits in the cache, so the full
+     * array is read and written only three times, rather than once for every pass.
+     *
+     * @param data the data
+     * @param addressBits the address bits
+     * @param isForward the is forward
+     * @param isParallel whether to process in parallel
+     */
+    private void fourStepTransform(final float[] data, final int addressBits, final boolean isForward, final boolean isParallel) {
+        final int bits2 = addressBits >>> 1;
+        final int bits1 = addressBits - bits2;
+        
+        // exp(i 2 pi e / N) = hi[e / N2] * lo[e % N2]
+        final double theta = Constant.twoPi / (1 << addressBits);
+        final double[] lo = getUnitVectors(1 << bits2, theta);
+        final double[] hi = getUnitVectors(1 << bits1, theta * (1 << bits2));
+        
+        final int columnBlocks = 1 << (bits2 - Math.min(bits2, FOUR_STEP_COLUMN_BITS));
+        final int tiles = 1 << (bits2 - Math.min(bits2, FOUR_STEP_TILE_BITS));
+        
+        if(isParallel) {
+            new BlockFork(data, columnBlocks) {
+                @Override
+                protected void processBlock(float[] data, int from, int to) { 
+                    fourStepColumns(data, bits1, bits2, lo, hi, from, to, isForward); 
+                }
+            }.process();
+            
+            new BlockFork(data, 1 << bits1) {
+                @Override
+                protected void processBlock(float[] data, int from, int to) { fourStepRows(data, bits2, from, to, isForward); }
+            }.process();
+            
+            // Pair up the longest and shortest rows of tiles, for an even load...
+            new PointFork(data, (tiles + 1) >>> 1) {
+                @Override
+                protected void process(float[] data, int i) {
+                    for(int offset = 0; offset < (2 << addressBits); offset += 2 << (bits2 << 1)) {
+                        transpose(data, offset, bits2, i);
+                        if(tiles - 1 - i != i) transpose(data, offset, bits2, tiles - 1 - i);
+                    }
+                }
+            }.process();
+        }
+        else {
+            fourStepColumns(data, bits1, bits2, lo, hi, 0, columnBlocks, isForward);
+            fourStepRows(data, bits2, 0, 1 << bits1, isForward);
+            for(int offset = 0; offset < (2 << addressBits); offset += 2 << (bits2 << 1))
+                for(int i=tiles; --i >= 0; ) transpose(data, offset, bits2, i);
+        }
+        
+        // An N1 = 2 N2 matrix is transposed as two squares, whose rows are then interleaved... 
+        if(bits1 != bits2) interleaveRows(data, bits2);
+        
+        discardFrom(data, 1 << addressBits);
+    }
+    
+    private void fourStepColumns(final float[] data, final int bits1, final int bits2, final double[] lo, final double[] hi, 
+            int from, final int to, final boolean isForward) {
+        final int n1 = 1 << bits1;
+        final int mask = (1 << bits2) - 1;
+        final int rowStep = 2 << bits2;
+        final int columns = 1 << Math.min(bits2, FOUR_STEP_COLUMN_BITS);
+        final float[][] buf = new float[columns][n1 << 1];
+        
+        for( ; from < to; from++) {
+            final int c0 = from * columns;
+            
+            // Gather adjacent columns into contiguous buffers...
+            for(int k=0, i=c0<<1; k < (n1<<1); k+=2, i+=rowStep) for(int c=0, j=i; c<columns; c++, j+=2) {
+                buf[c][k] = data[j];
+                buf[c][k+1] = data[j+1];
+            }
+            
+            for(int c=columns; --c >= 0; ) super.sequentialComplexTransform(buf[c], bits1, isForward);
+            
+            // Apply twiddles exp(+-i 2 pi k1 n2 / N) and scatter back...
+            for(int k1=0, i=c0<<1; k1 < n1; k1++, i+=rowStep) for(int c=0, j=i; c<columns; c++, j+=2) {
+                final int e = (c0 + c) * k1;
+                final int l = (e & mask) << 1;
+                final int h = (e >>> bits2) << 1;
+                
+                final double wr = hi[h] * lo[l] - hi[h+1] * lo[l+1];
+                final double wi = isForward ? hi[h] * lo[l+1] + hi[h+1] * lo[l] : -(hi[h] * lo[l+1] + hi[h+1] * lo[l]);
+                
+                final double re = buf[c][k1<<1];
+                final double im = buf[c][(k1<<1) + 1];
+                
+                data[j] = (float) (re * wr - im * wi);
+                data[j+1] = (float) (re * wi + im * wr);
+            }
+        }
+    }
+    
+    private void fourStepRows(final float[] data, final int bits2, int from, final int to, final boolean isForward) {
+        final int length = 2 << bits2;
+        final float[] buf = new float[length];
+        
+        for( ; from < to; from++) {
+            final int i = from * length;
+            System.arraycopy(data, i, buf, 0, length);
+            super.sequentialComplexTransform(buf, bits2, isForward);
+            System.arraycopy(buf, 0, data, i, length);
+        }
+    }
+    
+    // Transposes a row of tiles (at and above the diagonal) with the matching column of tiles of a square matrix.
+    private static void transpose(final float[] data, final int offset, final int bits, final int tileRow) {
+        final int m = 1 << bits;
+        final int t = 1 << Math.min(bits, FOUR_STEP_TILE_BITS);
+        final int i0 = tileRow * t;
+        
+        for(int j0 = i0; j0 < m; j0 += t) for(int i = i0; i < i0 + t; i++) {
+            for(int j = j0 == i0 ? i + 1 : j0; j < j0 + t; j++) {
+                final int a = offset + (((i << bits) + j) << 1);
+                final int b = offset + (((j << bits) + i) << 1);
+                
+                float temp = data[a]; data[a] = data[b]; data[b] = temp;
+                temp = data[a+1]; data[a+1] = data[b+1]; data[b+1] = temp;
+            }
+        }
+    }
+    
+    // Interleaves the rows of two consecutive 2^bits x 2^bits matrices, by following the cycles of the permutation.
+    private static void interleaveRows(final float[] data, final int bits) {
+        final int rows = 2 << bits;
+        final int length = 2 << bits;
+        final boolean[] isDone = new boolean[rows];
+        float[] a = new float[length], b = new float[length];
+        
+        for(int r=1; r < rows-1; r++) if(!isDone[r]) {
+            System.arraycopy(data, r * length, a, 0, length);
+            
+            for(int d = interleavedRow(r, bits); ; d = interleavedRow(d, bits)) {
+                System.arraycopy(data, d * length, b, 0, length);
+                System.arraycopy(a, 0, data, d * length, length);
+                isDone[d] = true;
+                if(d == r) break;
+                
+                final float[] temp = a; a = b; b = temp;
+            }
+        }
+    }
    
 
     @Override
@@ -72,7 +258,7 @@ public class FloatFFT extends FFT1D<float[]> implements RealFFT<float[]> {
     
     @Override
     public int getPoints(float[] data) {
-        return Integer.highestOneBit(data.length);
+        return data.length & ~1;
     }
     
 
@@ -291,11 +477,124 @@ public class FloatFFT extends FFT1D<float[]> implements RealFFT<float[]> {
     }
 
 
-    private void loadReal(final float[] data, final int addressBits, int from, int to, final boolean isForward) {	
-        final int length = 2<<addressBits;
+    /**
+     * Radix-4 pass with the tabulated twiddle factors of a plan.
+     *
+     * @param data the data
+     * @param from the from
+     * @param to the to
+     * @param isForward the is forward
+     * @param blkbit the blkbit
+     * @param plan the plan, or <code>null</code> to calculate the twiddle factors on the fly.
+     */
+    @Override
+    protected void radix4(final float[] data, int from, int to, final boolean isForward, final int blkbit, final PowerOf2Plan plan) {
+        final float[] tw = plan == null ? null : plan.getFloatTwiddles(blkbit);
+
+        if(tw == null) {
+            radix4(data, from, to, isForward, blkbit);
+            return;
+        }
+
+        final RadixKernels simd = getVectorKernels();
+
+        if(simd != null && blkbit >= simd.getMinBlockBits(true)) {
+            simd.radix4(data, from, to, isForward, blkbit, tw);
+            return;
+        }
+
+        // The float[] block size
+        final int blk = 1 << (blkbit+1);
+        final int skip = 3 * blk;
+        final int blkmask = blk - 1;
+
+        // make from and to compactified indices for i1 (0...N/4)
+        from >>>= 1;
+        to >>>= 1;
+
+        // convert to sparse indices for i1...
+        from = ((from & ~blkmask) << 2) | (from & blkmask);
+        to = ((to & ~blkmask) << 2) | (to & blkmask);
+
+        // Backward transforms use the complex conjugate twiddle factors...
+        final float sign = isForward ? 1.0F : -1.0F;
+
+        for(int i0=from; i0<to; i0 += 2) {
+            // Skip over the 2nd, 3rd, and 4th blocks...
+            if((i0 & skip) != 0) {
+                i0 += skip;
+                if(i0 >= to) break;
+            }
+
+            // The 3 complex twiddle factors for the complex offset (i0 & blkmask) / 2 in the block
+            final int k = i0 & blkmask;
+
+            final float w1r = tw[k], w1i = sign * tw[k + 1];
+            final float w2r = tw[k + blk], w2i = sign * tw[k + blk + 1];
+            final float w3r = tw[k + 2*blk], w3i = sign * tw[k + 2*blk + 1];
+
+            final float f0r = data[i0];
+            final float f0i = data[i0 | 1];
+
+            final int i1 = i0 + blk;
+            final int i2 = i1 + blk;
+            final int i3 = i2 + blk;
+
+            float dr = data[i1];
+            float di = data[i1 | 1];
+            final float f2r = w2r * dr - w2i * di;
+            final float f2i = w2r * di + w2i * dr;
+
+            dr = data[i2];
+            di = data[i2 | 1];
+            final float f1r = w1r * dr - w1i * di;
+            final float f1i = w1r * di + w1i * dr;
+
+            dr = data[i3];
+            di = data[i3 | 1];
+            final float f3r = w3r * dr - w3i * di;
+            final float f3i = w3r * di + w3i * dr;
+
+            float ar = f0r - f2r;
+            float ai = f0i - f2i;
+
+            float br = f1r - f3r;
+            float bi = f1i - f3i;
+
+            if(isForward) {
+                data[i3] = ar + bi;
+                data[i3 | 1] = ai - br;
+
+                data[i1] = ar - bi;
+                data[i1 | 1] = ai + br;
+            }
+            else {
+                data[i3] = ar - bi;
+                data[i3 | 1] = ai + br;
+
+                data[i1] = ar + bi;
+                data[i1 | 1] = ai - br;
+            }
+
+            ar = f0r + f2r;
+            ai = f0i + f2i;
+
+            br = f1r + f3r;
+            bi = f1i + f3i;
+
+            data[i2] = ar - br;
+            data[i2 | 1] = ai - bi;
+
+            data[i0] = ar + br;
+            data[i0 | 1] = ai + bi;
+        }
+    }
+
+    private void loadReal(final float[] data, final int length, int from, int to, final boolean isForward) {
         // Make from and to even indices 0...N/2
+        // (for an odd number of complex points, N/2 is odd, and the last even index below it is still included).
         from = Math.max(2, (from >>> 2) << 1);
-        to = (to >>> 2) << 1;
+        to = to >= length ? length >>> 1 : (to >>> 2) << 1;
 
         final double theta = (isForward ? Constant.twoPi : -Constant.twoPi) / length;
         final double s = Math.sin(theta);
@@ -343,21 +642,21 @@ public class FloatFFT extends FFT1D<float[]> implements RealFFT<float[]> {
      */
     @Override
     public void realTransform(final float[] data, final boolean isForward) {
-        realTransform(data, getAddressBits(data), isForward);
+        realTransform(data, getPoints(data), isForward);
     }
 
 
-    void realTransform(final float[] data, final int addressBits, final boolean isForward) {
-        if(getParallel() < 2) sequentialRealTransform(data, addressBits, isForward);
-        else parallelRealTransform(data, addressBits, isForward);
+    void realTransform(final float[] data, final int n, final boolean isForward) {
+        if(getParallel() < 2) sequentialRealTransform(data, n, isForward);
+        else parallelRealTransform(data, n, isForward);
     }
     
-    void parallelRealTransform(final float[] data, final int addressBits, final boolean isForward) {
-        if(isForward) parallelComplexTransform(data, addressBits, FORWARD);
+    void parallelRealTransform(final float[] data, final int n, final boolean isForward) {
+        if(isForward) complexTransform(data, n >>> 1, FORWARD, true);
 
-        new BlockFork(data, 2<<addressBits) {
+        new BlockFork(data, n) {
             @Override
-            public void processBlock(final float[] data, final int from, final int to) { loadReal(data, addressBits, from, to, isForward); }
+            public void processBlock(final float[] data, final int from, final int to) { loadReal(data, n, from, to, isForward); }
         }.process();
 
         final float d0 = data[0];
@@ -369,22 +668,35 @@ public class FloatFFT extends FFT1D<float[]> implements RealFFT<float[]> {
         else {
             data[0] = 0.5F * (d0 + data[1]);
             data[1] = 0.5F * (d0 - data[1]);
-            parallelComplexTransform(data, addressBits, BACK);
+            complexTransform(data, n >>> 1, BACK, true);
         }
     }
 
 
     @Override
     public void sequentialRealTransform(final float[] data, final boolean isForward) {
-
+        sequentialRealTransform(data, getPoints(data), isForward);
     }
 
 
-    void sequentialRealTransform(final float[] data, final int addressBits, final boolean isForward) {
-        if(isForward) sequentialComplexTransform(data, addressBits, FORWARD);
+    void sequentialRealTransform(final float[] data, final int n, final boolean isForward) {
+        sequentialRealTransform(data, n, isForward, null, null);
+    }
+
+    /**
+     * Sequential real transform, using the supplied buffers for mixed-radix transforms, which are calculated in 
+     * double precision.
+     *
+     * @param data the data
+     * @param n the number of real values in the transform (even)
+     * @param isForward the is forward
+     * @param buffer space for a double precision copy of n/2 complex points, or <code>null</code> to allocate as necessary.
+     * @param scratch scratch space for n/2 complex points, or <code>null</code> to allocate as necessary.
+     */
+    void sequentialRealTransform(final float[] data, final int n, final boolean isForward, final double[] buffer, final double[] scratch) {
+        if(isForward) sequentialComplexTransform(data, n >>> 1, FORWARD, buffer, scratch);
 
-        final int n = 2<<addressBits;
-        loadReal(data, addressBits, 0, n, isForward);
+        loadReal(data, n, 0, n, isForward);
 
         final float d0 = data[0];
 
@@ -395,10 +707,34 @@ public class FloatFFT extends FFT1D<float[]> implements RealFFT<float[]> {
         else {
             data[0] = 0.5F * (d0 + data[1]);
             data[1] = 0.5F * (d0 - data[1]);
-            sequentialComplexTransform(data, addressBits, BACK);
+            sequentialComplexTransform(data, n >>> 1, BACK, buffer, scratch);
         }
     }
 
+    /**
+     * Sequential complex transform of the specified number of leading points, using the supplied buffers for 
+     * mixed-radix transforms, which are calculated in double precision.
+     *
+     * @param data the data
+     * @param points the number of complex points to transform
+     * @param isForward the is forward
+     * @param buffer space for a double precision copy of the points, or <code>null</code> to allocate as necessary.
+     * @param scratch scratch space for the given number of complex points, or <code>null</code> to allocate as necessary.
+     */
+    private void sequentialComplexTransform(final float[] data, final int points, final boolean isForward, double[] buffer, final double[] scratch) {
+        if((points & (points - 1)) == 0) {
+            sequentialComplexTransform(data, ExtraMath.log2floor(points), isForward);
+            return;
+        }
+        
+        if(buffer == null) buffer = new double[points << 1];
+        for(int i=points<<1; --i >= 0; ) buffer[i] = data[i];
+
+        getMixedRadixPlan(points).transform(buffer, scratch, isForward);
+
+        for(int i=points<<1; --i >= 0; ) data[i] = (float) buffer[i];
+    }
+
 
 
     protected void scale(final float[] data, final int length, final float value) {
@@ -420,9 +756,8 @@ public class FloatFFT extends FFT1D<float[]> implements RealFFT<float[]> {
      */	
     @Override
     public void real2Amplitude(final float[] data) {
-        final int addressBits = getAddressBits(data);
-        final int n = 2 << addressBits;
-        realTransform(data, addressBits, true);
+        final int n = getPoints(data);
+        realTransform(data, n, true);
         scale(data, n, 2.0F / n);
     }
 
@@ -436,6 +771,167 @@ public class FloatFFT extends FFT1D<float[]> implements RealFFT<float[]> {
     }
 
 
+    /**
+     * Batched complex transform of many independent channels, such as the time streams of a detector array. Rather
+     * than parallelizing each (small) transform, whole channels are distributed among the parallel threads, each of
+     * which transforms its channels sequentially, sharing the same cached plan, and reusing its own scratch space.
+     *
+     * @param channels      the channels to transform in place, each as interleaved (re, im) complex data. They
+     *                      are typically all of the same size.
+     * @param isForward     {@link FFT#FORWARD} or {@link FFT#BACK}.
+     */
+    public void complexTransform(final float[][] channels, final boolean isForward) {
+        new BatchFork(channels.length) {
+            @Override
+            protected void processChannel(int k) {
+                final int points = addressSizeOf(channels[k]);
+                sequentialComplexTransform(channels[k], points, isForward, getBuffer(points), getScratch(points));
+            }
+        }.process();
+    }
+
+    /**
+     * Batched real transform of many independent channels. Same as calling {@link #realTransform(float[], boolean)}
+     * on every channel, but parallelized across the channels, as in {@link #complexTransform(float[][], boolean)}.
+     *
+     * @param channels      the real-valued channels (or their spectra) to transform in place.
+     * @param isForward     {@link FFT#FORWARD} or {@link FFT#BACK}.
+     */
+    public void realTransform(final float[][] channels, final boolean isForward) {
+        new BatchFork(channels.length) {
+            @Override
+            protected void processChannel(int k) {
+                final int n = getPoints(channels[k]);
+                sequentialRealTransform(channels[k], n, isForward, getBuffer(n >>> 1), getScratch(n >>> 1));
+            }
+        }.process();
+    }
+
+    /**
+     * Batched version of {@link #real2Amplitude(float[])}, parallelized across the channels.
+     *
+     * @param channels      the real-valued channels to transform to amplitudes in place.
+     */
+    public void real2Amplitude(final float[][] channels) {
+        new BatchFork(channels.length) {
+            @Override
+            protected void processChannel(int k) {
+                final float[] data = channels[k];
+                final int n = getPoints(data);
+                sequentialRealTransform(data, n, FORWARD, getBuffer(n >>> 1), getScratch(n >>> 1));
+                scale(data, n, 2.0F / n);
+            }
+        }.process();
+    }
+
+    /**
+     * Batched version of {@link #amplitude2Real(float[])}, parallelized across the channels.
+     *
+     * @param channels      the amplitude spectra to transform back to real values in place.
+     */
+    public void amplitude2Real(final float[][] channels) {
+        realTransform(channels, BACK);
+    }
+
+    /**
+     * Batched complex transform of channels that are interleaved in a single array, in a structure-of-arrays layout:
+     * for every point <i>j</i>, the real parts of all <i>K</i> channels are stored consecutively, followed by their
+     * imaginary parts. That is, channel <i>c</i> has its real part at <code>data[2jK + c]</code> and its imaginary
+     * part at <code>data[(2j+1)K + c]</code>. Power-of-2 transforms then apply every butterfly, with the same twiddle
+     * factor, to a run of adjacent channels at once, in loops that the JIT compiler can vectorize. Groups of adjacent 
+     * channels are processed in parallel.
+     *
+     * @param data          the interleaved channels, with <code>data.length / 2K</code> complex points each.
+     * @param channels      the number of interleaved channels <i>K</i>.
+     * @param isForward     {@link FFT#FORWARD} or {@link FFT#BACK}.
+     */
+    public void complexTransform(final float[] data, final int channels, final boolean isForward) {
+        final int points = data.length / (channels << 1);
+        final boolean isPowerOf2 = (points & (points - 1)) == 0;
+        final float[] w = isPowerOf2 ? getFloatUnitVectors(points >>> 1, Constant.twoPi / points) : null;
+        
+        new BatchFork(ExtraMath.roundupRatio(channels, BATCH_LANES)) {
+            @Override
+            protected void processChannel(int group) {
+                final int from = group * BATCH_LANES;
+                final int to = Math.min(channels, from + BATCH_LANES);
+                
+                if(isPowerOf2) interleavedTransform(data, channels, ExtraMath.log2floor(points), w, from, to, isForward);
+                else interleavedTransform(data, channels, getMixedRadixPlan(points), getBuffer(points), getScratch(points), from, to, isForward);
+            }
+        }.process();
+    }
+    
+    // Radix-2 transform of the interleaved channels from...to, using the unit vectors w of the transform size.
+    private static void interleavedTransform(final float[] data, final int channels, final int bits, final float[] w, 
+            final int from, final int to, final boolean isForward) {
+        final int n = 1 << bits;
+        final int stride = channels << 1;
+        
+        // Bit reversal...
+        for(int j=n; --j >= 0; ) {
+            final int k = Integer.reverse(j << (32 - bits));
+            if(k <= j) continue;
+            
+            for(int c=from, a=j*stride+from, b=k*stride+from; c<to; c++, a++, b++) {
+                float temp = data[a]; data[a] = data[b]; data[b] = temp;
+                temp = data[a + channels]; data[a + channels] = data[b + channels]; data[b + channels] = temp;
+            }
+        }
+        
+        // Merge blocks of h points with twiddles w^(m * n/2h)...
+        for(int h=1, step=n>>>1; h < n; h <<= 1, step >>>= 1) for(int b=0; b < n; b += h<<1) for(int m=0; m < h; m++) {
+            final int t = (m * step) << 1;
+            final float wr = w[t];
+            final float wi = isForward ? w[t+1] : -w[t+1];
+            
+            final int i0 = (b + m) * stride;
+            final int i1 = i0 + h * stride;
+            
+            for(int c=from; c<to; c++) {
+                final int r0 = i0 + c, r1 = i1 + c;
+                final float re = data[r1], im = data[r1 + channels];
+                final float tr = wr * re - wi * im;
+                final float ti = wr * im + wi * re;
+                
+                data[r1] = data[r0] - tr;
+                data[r1 + channels] = data[r0 + channels] - ti;
+                data[r0] += tr;
+                data[r0 + channels] += ti;
+            }
+        }
+    }
+    
+    // Mixed-radix transform of the interleaved channels from...to, one channel at a time, in double precision.
+    private static void interleavedTransform(final float[] data, final int channels, final MixedRadixPlan plan, 
+            final double[] z, final double[] scratch, final int from, final int to, final boolean isForward) {
+        final int n = plan.size();
+        final int stride = channels << 1;
+        
+        for(int c=from; c<to; c++) {
+            for(int j=0, i=c; j < n; j++, i += stride) {
+                z[j<<1] = data[i];
+                z[(j<<1) + 1] = data[i + channels];
+            }
+            
+            plan.transform(z, scratch, isForward);
+            
+            for(int j=0, i=c; j < n; j++, i += stride) {
+                data[i] = (float) z[j<<1];
+                data[i + channels] = (float) z[(j<<1) + 1];
+            }
+        }
+    }
+
+    // The unit vectors of FFT1D#getUnitVectors(int, double), in single precision.
+    private static float[] getFloatUnitVectors(final int points, final double theta) {
+        final double[] w = getUnitVectors(points, theta);
+        final float[] f = new float[w.length];
+        for(int i=w.length; --i >= 0; ) f[i] = (float) w[i];
+        return f;
+    }
+
+
     // Rewritten to skip costly intermediate Complex storage...
     /* (non-Javadoc)
      * @see jnum.fft.FFT#averagePower(java.lang.Object, double[])
@@ -564,7 +1060,7 @@ public class FloatFFT extends FFT1D<float[]> implements RealFFT<float[]> {
         
         @Override
         public int getPoints(float[] data) {
-            return Integer.highestOneBit(data.length - 2);
+            return (data.length - 2) & ~1;
         }
         
        
@@ -572,45 +1068,43 @@ public class FloatFFT extends FFT1D<float[]> implements RealFFT<float[]> {
          * @see jnum.fft.FloatFFT#realTransform(float[], int, boolean, int)
          */
         @Override
-        void parallelRealTransform(final float[] data, final int addressBits, final boolean isForward) {
+        void parallelRealTransform(final float[] data, final int n, final boolean isForward) {
             if(getParallel() < 2)  {
-                sequentialRealTransform(data, addressBits, isForward);
+                sequentialRealTransform(data, n, isForward);
                 return;
             }
             
-            final int n = 2<<addressBits;
-
             if(!isForward) {
                 data[1] = data[n];
                 data[n] = data[n+1] = 0.0F;
             }
 
-            super.parallelRealTransform(data, addressBits, isForward);
+            super.parallelRealTransform(data, n, isForward);
 
             if(isForward) {
                 data[n] = data[1];
                 data[1] = data[n+1] = 0.0F;
             }
+            else data[n] = data[n+1] = 0.0F;   // Not part of the real-valued result (and discarded by power-of-2 transforms)
         }
 
         /* (non-Javadoc)
-         * @see jnum.fft.FloatFFT#sequentialRealTransform(float[], int, boolean)
+         * @see jnum.fft.FloatFFT#sequentialRealTransform(float[], int, boolean, double[], double[])
          */
         @Override
-        void sequentialRealTransform(final float[] data, final int addressBits, final boolean isForward) {
-            final int n = 2<<addressBits;
-
+        void sequentialRealTransform(final float[] data, final int n, final boolean isForward, final double[] buffer, final double[] scratch) {
             if(!isForward) {
                 data[1] = data[n];
                 data[n] = data[n+1] = 0.0F;
             }
 
-            super.sequentialRealTransform(data, addressBits, isForward);
+            super.sequentialRealTransform(data, n, isForward, buffer, scratch);
 
             if(isForward) {
                 data[n] = data[1];
                 data[1] = data[n+1] = 0.0F;
             }
+            else data[n] = data[n+1] = 0.0F;   // Not part of the real-valued result (and discarded by power-of-2 transforms)
         }
         
         @Override
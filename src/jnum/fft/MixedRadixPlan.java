@@ -0,0 +1,687 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Attila Kovacs <attila[AT]sigmyne.com>.
+ * All rights reserved.
+ *
+ * This file is part of jnum.
+ *
+ *     jnum is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     jnum is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with jnum.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Attila Kovacs <attila[AT]sigmyne.com> - initial API and implementation
+ ******************************************************************************/
+
+package jnum.fft;
+
+import java.util.Arrays;
+
+import jnum.Constant;
+import jnum.ExtraMath;
+
+/**
+ * A precomputed plan for complex FFTs of arbitrary length, on interleaved (re, im) <code>double[]</code> data.
+ * Lengths that factor into 2, 3, 5 and 7 are transformed by a self-sorting (Stockham) mixed-radix algorithm, using
+ * radix-4 passes wherever possible. All other lengths are transformed via Bluestein's algorithm, i.e. as a chirped
+ * convolution, which is evaluated with mixed-radix transforms of a suitable larger size. Either way, the cost scales
+ * as <i>N</i> log <i>N</i>, without the need to pad data to a power of 2.
+ * <p>
+ *
+ * The sign conventions are the same as for the power-of-2 transforms of this package: the forward transform uses
+ * exp(2&pi;<i>i</i> <i>jk</i>/<i>N</i>), and neither direction is normalized. Plans are calculated in double precision
+ * regardless of the data type, and can be shared via {@link #forSize(int)}.
+ *
+ * @author Attila Kovacs <attila@sigmyne.com>
+ *
+ */
+public class MixedRadixPlan extends FFTPlan {
+    private int n;
+
+    // Mixed-radix passes
+    private int[] radix, stride;
+    private double[] w;
+    private double[][] cosTable, sinTable;
+
+    // Bluestein's algorithm
+    private MixedRadixPlan convolution;
+    private double[] chirp, kernelSpectrum;
+
+
+    /**
+     * Constructs a new plan for complex transforms of the given number of points.
+     *
+     * @param n     the number of complex points in the transform.
+     */
+    public MixedRadixPlan(int n) {
+        super(n, false);
+        if(n < 1) throw new IllegalArgumentException("Illegal FFT size: " + n);
+        this.n = n;
+
+        radix = factorize(n);
+
+        if(radix == null) initBluestein();
+        else initPasses();
+    }
+
+    /**
+     * Checks whether this plan uses Bluestein's algorithm, i.e. whether its size has prime factors larger
+     * than 7.
+     *
+     * @return  <code>true</code> if the plan evaluates the transform as a chirped convolution, or
+     *          <code>false</code> if it uses mixed-radix passes.
+     */
+    public final boolean isBluestein() { return convolution != null; }
+
+    private void initPasses() {
+        stride = new int[radix.length];
+        cosTable = new double[radix.length][];
+        sinTable = new double[radix.length][];
+
+        int L = n;
+
+        for(int s=0; s<radix.length; s++) {
+            final int p = radix[s];
+            stride[s] = n / L;
+            L /= p;
+
+            if(p == 2 || p == 4) continue;
+
+            // cos and sin of 2 pi r / p for r < p
+            cosTable[s] = new double[p];
+            sinTable[s] = new double[p];
+            for(int r=p; --r >= 0; ) {
+                final double a = Constant.twoPi * r / p;
+                cosTable[s][r] = Math.cos(a);
+                sinTable[s][r] = Math.sin(a);
+            }
+        }
+
+        w = new double[n << 1];
+        for(int k=n; --k >= 0; ) {
+            final double a = Constant.twoPi * k / n;
+            w[k<<1] = Math.cos(a);
+            w[(k<<1) + 1] = Math.sin(a);
+        }
+    }
+
+    private void initBluestein() {
+        final int m = getFastSize((n << 1) - 1);
+        convolution = forSize(m);
+
+        // chirp[k] = exp(i pi k^2 / n), with k^2 reduced modulo 2n to keep the phases precise.
+        final long n2 = (long) n << 1;
+        chirp = new double[n << 1];
+        for(int k=n; --k >= 0; ) {
+            final double a = Math.PI * (((long) k * k) % n2) / n;
+            chirp[k<<1] = Math.cos(a);
+            chirp[(k<<1) + 1] = Math.sin(a);
+        }
+
+        // The convolution kernel is the conjugate chirp, wrapped around for negative offsets...
+        final double[] h = new double[m << 1];
+        h[0] = chirp[0];
+        h[1] = -chirp[1];
+        for(int d=1; d<n; d++) {
+            h[d<<1] = h[(m-d)<<1] = chirp[d<<1];
+            h[(d<<1) + 1] = h[((m-d)<<1) + 1] = -chirp[(d<<1) + 1];
+        }
+
+        convolution.transform(h, FFT.FORWARD);
+
+        // Fold in the normalization of the back transform also...
+        final double norm = 1.0 / m;
+        for(int i=h.length; --i >= 0; ) h[i] *= norm;
+
+        kernelSpectrum = h;
+    }
+
+    /**
+     * Performs an in-place complex transform of the first {@link #size()} points of the argument.
+     *
+     * @param data          the interleaved (re, im) complex data.
+     * @param isForward     {@link FFT#FORWARD} or {@link FFT#BACK}.
+     */
+    public void transform(final double[] data, final boolean isForward) {
+        transform(data, null, isForward);
+    }
+
+    /**
+     * Same as {@link #transform(double[], boolean)}, but using the supplied scratch space for the intermediate
+     * passes, so that repeated transforms need not allocate a new one every time.
+     *
+     * @param data          the interleaved (re, im) complex data.
+     * @param scratch       an array of at least 2 {@link #size()} elements for intermediate results, or
+     *                      <code>null</code> to allocate one as necessary.
+     * @param isForward     {@link FFT#FORWARD} or {@link FFT#BACK}.
+     */
+    public void transform(final double[] data, double[] scratch, final boolean isForward) {
+        if(isBluestein()) {
+            final double[] a = chirpIn(data, isForward);
+            convolution.transform(a, FFT.FORWARD);
+            multiplyKernel(a, 0, convolution.size(), isForward);
+            convolution.transform(a, FFT.BACK);
+            chirpOut(a, data, isForward);
+            return;
+        }
+
+        if(scratch == null) scratch = new double[n << 1];
+
+        double[] x = data, y = scratch;
+
+        for(int s=0; s<radix.length; s++) {
+            pass(s, x, y, 0, getButterflies(s), isForward);
+            final double[] temp = x;
+            x = y;
+            y = temp;
+        }
+
+        if(x != data) System.arraycopy(x, 0, data, 0, n << 1);
+    }
+
+
+    @Override
+    public long getBytes() {
+        if(isBluestein()) return (chirp.length + kernelSpectrum.length) << 3;
+        return w.length << 3;
+    }
+
+    MixedRadixPlan getConvolutionPlan() { return convolution; }
+
+    int getPasses() { return radix.length; }
+
+    int getButterflies(int pass) { return n / radix[pass]; }
+
+    /**
+     * Multiplies the data by the chirp, into a new zero-padded array for the convolution.
+     */
+    double[] chirpIn(final double[] data, final boolean isForward) {
+        final double[] a = new double[convolution.size() << 1];
+        final double sign = isForward ? 1.0 : -1.0;
+
+        for(int k=n<<1; (k -= 2) >= 0; ) {
+            final double cr = chirp[k], ci = sign * chirp[k+1];
+            final double dr = data[k], di = data[k+1];
+            a[k] = dr * cr - di * ci;
+            a[k+1] = dr * ci + di * cr;
+        }
+        return a;
+    }
+
+    /**
+     * Multiplies the forward transformed convolution data by the kernel spectrum, in the specified range of
+     * frequency channels.
+     */
+    void multiplyKernel(final double[] a, final int from, final int to, final boolean isForward) {
+        final int m = convolution.size();
+
+        for(int j=from; j<to; j++) {
+            final int i = j << 1;
+            final double hr, hi;
+
+            if(isForward) {
+                hr = kernelSpectrum[i];
+                hi = kernelSpectrum[i+1];
+            }
+            else {
+                // The kernel for the backward transform is the conjugate of the forward one, whose spectrum is the
+                // conjugate of the forward spectrum at the negated frequency...
+                final int k = j == 0 ? 0 : (m - j) << 1;
+                hr = kernelSpectrum[k];
+                hi = -kernelSpectrum[k+1];
+            }
+
+            final double ar = a[i], ai = a[i+1];
+            a[i] = ar * hr - ai * hi;
+            a[i+1] = ar * hi + ai * hr;
+        }
+    }
+
+    /**
+     * Multiplies the convolved data by the chirp, to yield the transform.
+     */
+    void chirpOut(final double[] a, final double[] data, final boolean isForward) {
+        final double sign = isForward ? 1.0 : -1.0;
+
+        for(int k=n<<1; (k -= 2) >= 0; ) {
+            final double cr = chirp[k], ci = sign * chirp[k+1];
+            final double ar = a[k], ai = a[k+1];
+            data[k] = ar * cr - ai * ci;
+            data[k+1] = ar * ci + ai * cr;
+        }
+    }
+
+    /**
+     * Performs the butterflies in the specified range for one of the mixed-radix passes. The passes are self-sorting,
+     * i.e. they read from one array and write the results to another, with no bit-reversal needed at the end. The
+     * butterflies of a pass are independent of one another, so ranges of them can be processed in parallel.
+     *
+     * @param pass          the pass index.
+     * @param x             the input data.
+     * @param y             the output data.
+     * @param from          the index of the first butterfly (inclusive).
+     * @param to            the index of the last butterfly (exclusive).
+     * @param isForward     {@link FFT#FORWARD} or {@link FFT#BACK}.
+     */
+    void pass(final int pass, final double[] x, final double[] y, final int from, final int to, final boolean isForward) {
+        if(from >= to) return;
+
+        switch(radix[pass]) {
+        case 4: radix4(pass, x, y, from, to, isForward); break;
+        case 2: radix2(pass, x, y, from, to, isForward); break;
+        case 3: radix3(pass, x, y, from, to, isForward); break;
+        case 5: radix5(pass, x, y, from, to, isForward); break;
+        default: oddRadix(pass, x, y, from, to, isForward);
+        }
+    }
+
+    // In the Stockham scheme, the pass with radix p and stride st takes the inputs of butterfly (q, t) from
+    // t + st * (q + m * k), for k < p, and writes the outputs j < p to t + st * (p * q + j), after multiplying them
+    // by the twiddle factors exp(2 pi i j q st / n). Butterfly b is (q, t) = (b / st, b % st).
+
+    private void radix2(final int pass, final double[] x, final double[] y, final int from, final int to, final boolean isForward) {
+        final int st = stride[pass];
+        final int dx = (n >>> 1) << 1;
+        final double sign = isForward ? 1.0 : -1.0;
+
+        int q = from / st;
+        int t = from - q * st;
+        double wr = w[(q * st) << 1], wi = sign * w[((q * st) << 1) + 1];
+
+        for(int b=from; b<to; b++) {
+            final int i0 = (t + st * q) << 1;
+            final int i1 = i0 + dx;
+            final int o0 = (t + st * (q << 1)) << 1;
+            final int o1 = o0 + (st << 1);
+
+            final double ar = x[i0], ai = x[i0 | 1];
+            final double br = x[i1], bi = x[i1 | 1];
+
+            y[o0] = ar + br;
+            y[o0 | 1] = ai + bi;
+
+            final double dr = ar - br, di = ai - bi;
+            y[o1] = wr * dr - wi * di;
+            y[o1 | 1] = wr * di + wi * dr;
+
+            if(++t == st) {
+                t = 0;
+                q++;
+                final int k = (q * st) << 1;
+                if(k < w.length) {
+                    wr = w[k];
+                    wi = sign * w[k + 1];
+                }
+            }
+        }
+    }
+
+    private void radix4(final int pass, final double[] x, final double[] y, final int from, final int to, final boolean isForward) {
+        final int st = stride[pass];
+        final int dx = (n >>> 2) << 1;
+        final int dy = st << 1;
+        final double sign = isForward ? 1.0 : -1.0;
+
+        int q = from / st;
+        int t = from - q * st;
+
+        double w1r = 0.0, w1i = 0.0, w2r = 0.0, w2i = 0.0, w3r = 0.0, w3i = 0.0;
+        boolean reload = true;
+
+        for(int b=from; b<to; b++) {
+            if(reload) {
+                final int k1 = (q * st) << 1;
+                w1r = w[k1];
+                w1i = sign * w[k1 + 1];
+                w2r = w[k1 << 1];
+                w2i = sign * w[(k1 << 1) + 1];
+                w3r = w[3 * k1];
+                w3i = sign * w[3 * k1 + 1];
+                reload = false;
+            }
+
+            final int i0 = (t + st * q) << 1;
+            final int i1 = i0 + dx;
+            final int i2 = i1 + dx;
+            final int i3 = i2 + dx;
+
+            final double a0r = x[i0], a0i = x[i0 | 1];
+            final double a1r = x[i1], a1i = x[i1 | 1];
+            final double a2r = x[i2], a2i = x[i2 | 1];
+            final double a3r = x[i3], a3i = x[i3 | 1];
+
+            final double s02r = a0r + a2r, s02i = a0i + a2i;
+            final double d02r = a0r - a2r, d02i = a0i - a2i;
+            final double s13r = a1r + a3r, s13i = a1i + a3i;
+
+            // i * sign * (a1 - a3)
+            final double d13r = sign * (a3i - a1i), d13i = sign * (a1r - a3r);
+
+            final int o0 = (t + st * (q << 2)) << 1;
+            final int o1 = o0 + dy;
+            final int o2 = o1 + dy;
+            final int o3 = o2 + dy;
+
+            y[o0] = s02r + s13r;
+            y[o0 | 1] = s02i + s13i;
+
+            double r = d02r + d13r, i = d02i + d13i;
+            y[o1] = w1r * r - w1i * i;
+            y[o1 | 1] = w1r * i + w1i * r;
+
+            r = s02r - s13r;
+            i = s02i - s13i;
+            y[o2] = w2r * r - w2i * i;
+            y[o2 | 1] = w2r * i + w2i * r;
+
+            r = d02r - d13r;
+            i = d02i - d13i;
+            y[o3] = w3r * r - w3i * i;
+            y[o3 | 1] = w3r * i + w3i * r;
+
+            if(++t == st) {
+                t = 0;
+                q++;
+                reload = true;
+            }
+        }
+    }
+
+    // The odd radixes pair inputs k and p-k, whose small DFT factors are complex conjugates of one another. Output
+    // j is then A_j + i B_j, and output p-j is A_j - i B_j, with A_j = a_0 + sum_k cos(2 pi jk/p) (a_k + a_(p-k)) and
+    // B_j = sign * sum_k sin(2 pi jk/p) (a_k - a_(p-k)), which takes about a quarter of the multiplications of a plain
+    // small DFT.
+
+    private void radix3(final int pass, final double[] x, final double[] y, final int from, final int to, final boolean isForward) {
+        final int st = stride[pass];
+        final int dx = (n / 3) << 1;
+        final int dy = st << 1;
+        final double sign = isForward ? 1.0 : -1.0;
+        final double s1 = sign * sinTable[pass][1];
+
+        int q = from / st;
+        int t = from - q * st;
+
+        double w1r = 0.0, w1i = 0.0, w2r = 0.0, w2i = 0.0;
+        boolean reload = true;
+
+        for(int b=from; b<to; b++) {
+            if(reload) {
+                final int k1 = (q * st) << 1;
+                w1r = w[k1];
+                w1i = sign * w[k1 + 1];
+                w2r = w[k1 << 1];
+                w2i = sign * w[(k1 << 1) + 1];
+                reload = false;
+            }
+
+            final int i0 = (t + st * q) << 1;
+            final int i1 = i0 + dx;
+            final int i2 = i1 + dx;
+
+            final double a0r = x[i0], a0i = x[i0 | 1];
+            final double ur = x[i1] + x[i2], ui = x[i1 | 1] + x[i2 | 1];
+            final double vr = x[i1] - x[i2], vi = x[i1 | 1] - x[i2 | 1];
+
+            final double Ar = a0r - 0.5 * ur, Ai = a0i - 0.5 * ui;
+            final double Br = s1 * vr, Bi = s1 * vi;
+
+            final int o0 = (t + st * 3 * q) << 1;
+            final int o1 = o0 + dy;
+            final int o2 = o1 + dy;
+
+            y[o0] = a0r + ur;
+            y[o0 | 1] = a0i + ui;
+
+            double r = Ar - Bi, i = Ai + Br;
+            y[o1] = w1r * r - w1i * i;
+            y[o1 | 1] = w1r * i + w1i * r;
+
+            r = Ar + Bi;
+            i = Ai - Br;
+            y[o2] = w2r * r - w2i * i;
+            y[o2 | 1] = w2r * i + w2i * r;
+
+            if(++t == st) {
+                t = 0;
+                q++;
+                reload = true;
+            }
+        }
+    }
+
+    private void radix5(final int pass, final double[] x, final double[] y, final int from, final int to, final boolean isForward) {
+        final int st = stride[pass];
+        final int dx = (n / 5) << 1;
+        final int dy = st << 1;
+        final double sign = isForward ? 1.0 : -1.0;
+
+        final double c1 = cosTable[pass][1], c2 = cosTable[pass][2];
+        final double s1 = sign * sinTable[pass][1], s2 = sign * sinTable[pass][2];
+
+        final double[] tw = new double[8];
+
+        int q = from / st;
+        int t = from - q * st;
+        boolean reload = true;
+
+        for(int b=from; b<to; b++) {
+            if(reload) {
+                final int k1 = (q * st) << 1;
+                for(int j=4; --j >= 0; ) {
+                    tw[j<<1] = w[(j+1) * k1];
+                    tw[(j<<1) + 1] = sign * w[(j+1) * k1 + 1];
+                }
+                reload = false;
+            }
+
+            final int i0 = (t + st * q) << 1;
+            final int i1 = i0 + dx;
+            final int i2 = i1 + dx;
+            final int i3 = i2 + dx;
+            final int i4 = i3 + dx;
+
+            final double a0r = x[i0], a0i = x[i0 | 1];
+            final double u1r = x[i1] + x[i4], u1i = x[i1 | 1] + x[i4 | 1];
+            final double v1r = x[i1] - x[i4], v1i = x[i1 | 1] - x[i4 | 1];
+            final double u2r = x[i2] + x[i3], u2i = x[i2 | 1] + x[i3 | 1];
+            final double v2r = x[i2] - x[i3], v2i = x[i2 | 1] - x[i3 | 1];
+
+            final int o0 = (t + st * 5 * q) << 1;
+
+            y[o0] = a0r + u1r + u2r;
+            y[o0 | 1] = a0i + u1i + u2i;
+
+            // j = 1, 4
+            double Ar = a0r + c1 * u1r + c2 * u2r, Ai = a0i + c1 * u1i + c2 * u2i;
+            double Br = s1 * v1r + s2 * v2r, Bi = s1 * v1i + s2 * v2i;
+            setTwiddled(y, o0 + dy, Ar - Bi, Ai + Br, tw, 0);
+            setTwiddled(y, o0 + 4 * dy, Ar + Bi, Ai - Br, tw, 6);
+
+            // j = 2, 3
+            Ar = a0r + c2 * u1r + c1 * u2r;
+            Ai = a0i + c2 * u1i + c1 * u2i;
+            Br = s2 * v1r - s1 * v2r;
+            Bi = s2 * v1i - s1 * v2i;
+            setTwiddled(y, o0 + 2 * dy, Ar - Bi, Ai + Br, tw, 2);
+            setTwiddled(y, o0 + 3 * dy, Ar + Bi, Ai - Br, tw, 4);
+
+            if(++t == st) {
+                t = 0;
+                q++;
+                reload = true;
+            }
+        }
+    }
+
+    private void oddRadix(final int pass, final double[] x, final double[] y, final int from, final int to, final boolean isForward) {
+        final int p = radix[pass];
+        final int h = p >>> 1;
+        final int st = stride[pass];
+        final int dx = (n / p) << 1;
+        final int dy = st << 1;
+        final double sign = isForward ? 1.0 : -1.0;
+        final double[] c = cosTable[pass];
+        final double[] s = sinTable[pass];
+
+        final double[] tw = new double[p << 1];
+        final double[] ur = new double[h + 1], ui = new double[h + 1];
+        final double[] vr = new double[h + 1], vi = new double[h + 1];
+
+        int q = from / st;
+        int t = from - q * st;
+        boolean reload = true;
+
+        for(int b=from; b<to; b++) {
+            if(reload) {
+                final int k1 = (q * st) << 1;
+                for(int j=p; --j > 0; ) {
+                    tw[j<<1] = w[j * k1];
+                    tw[(j<<1) + 1] = sign * w[j * k1 + 1];
+                }
+                reload = false;
+            }
+
+            final int i0 = (t + st * q) << 1;
+            final double a0r = x[i0], a0i = x[i0 | 1];
+
+            double sr = a0r, si = a0i;
+
+            for(int k=1; k<=h; k++) {
+                final int ik = i0 + k * dx;
+                final int il = i0 + (p - k) * dx;
+                ur[k] = x[ik] + x[il];
+                ui[k] = x[ik | 1] + x[il | 1];
+                vr[k] = x[ik] - x[il];
+                vi[k] = x[ik | 1] - x[il | 1];
+                sr += ur[k];
+                si += ui[k];
+            }
+
+            final int o0 = (t + st * p * q) << 1;
+            y[o0] = sr;
+            y[o0 | 1] = si;
+
+            for(int j=1; j<=h; j++) {
+                double Ar = a0r, Ai = a0i, Br = 0.0, Bi = 0.0;
+
+                for(int k=1, jk=j; k<=h; k++, jk += j) {
+                    if(jk >= p) jk -= p;
+                    Ar += c[jk] * ur[k];
+                    Ai += c[jk] * ui[k];
+                    Br += s[jk] * vr[k];
+                    Bi += s[jk] * vi[k];
+                }
+
+                Br *= sign;
+                Bi *= sign;
+
+                setTwiddled(y, o0 + j * dy, Ar - Bi, Ai + Br, tw, j << 1);
+                setTwiddled(y, o0 + (p - j) * dy, Ar + Bi, Ai - Br, tw, (p - j) << 1);
+            }
+
+            if(++t == st) {
+                t = 0;
+                q++;
+                reload = true;
+            }
+        }
+    }
+
+    private static void setTwiddled(final double[] y, final int o, final double r, final double i, final double[] tw, final int k) {
+        final double wr = tw[k], wi = tw[k+1];
+        y[o] = wr * r - wi * i;
+        y[o | 1] = wr * i + wi * r;
+    }
+
+
+    /**
+     * Returns a cached plan for the given size, or creates (and caches) a new one if necessary.
+     *
+     * @param n     the number of complex points in the transform.
+     * @return      the plan for transforms of that size.
+     */
+    public static MixedRadixPlan forSize(int n) {
+        MixedRadixPlan plan = getCached(MixedRadixPlan.class, n, false);
+        if(plan != null) return plan;
+
+        plan = new MixedRadixPlan(n);
+        cache(plan);
+        return plan;
+    }
+
+    /**
+     * Returns the radixes of the mixed-radix passes for the given size, or <code>null</code> if the size has prime
+     * factors above 7.
+     */
+    private static int[] factorize(int n) {
+        final int[] f = new int[32];
+        int k = 0;
+
+        while((n & 3) == 0) {
+            f[k++] = 4;
+            n >>>= 2;
+        }
+
+        if((n & 1) == 0) {
+            f[k++] = 2;
+            n >>>= 1;
+        }
+
+        for(int p = 3; p <= MAX_RADIX; p += 2) while(n % p == 0) {
+            f[k++] = p;
+            n /= p;
+        }
+
+        return n == 1 ? Arrays.copyOf(f, k) : null;
+    }
+
+    /**
+     * Checks whether the given size can be transformed by mixed-radix passes alone, i.e. whether it has no prime
+     * factors other than 2, 3, 5, and 7.
+     *
+     * @param n     the transform size.
+     * @return      <code>true</code> if the size is 7-smooth, otherwise <code>false</code>.
+     */
+    public static boolean isSmooth(int n) {
+        if(n < 1) return false;
+        n >>>= Integer.numberOfTrailingZeros(n);
+        for(int p = 3; p <= MAX_RADIX; p += 2) while(n % p == 0) n /= p;
+        return n == 1;
+    }
+
+    /**
+     * Returns the smallest efficient FFT size (with no prime factors other than 2, 3, 5, and 7) that is at least
+     * as large as the argument. Padding data to such sizes, rather than to the next power of 2, typically wastes
+     * no more than a few percent of the transform.
+     *
+     * @param n     the minimum number of points.
+     * @return      the smallest 7-smooth size not less than <code>n</code>.
+     */
+    public static int getFastSize(int n) {
+        if(n < 2) return 1;
+        while(!isSmooth(n)) n++;
+        return n;
+    }
+
+    /**
+     * Returns the smallest efficient FFT size for real-valued transforms, which is even (see
+     * {@link #getFastSize(int)}), and at least as large as the argument.
+     *
+     * @param n     the minimum number of real values.
+     * @return      the smallest even 7-smooth size not less than <code>n</code>.
+     */
+    public static int getFastRealSize(int n) {
+        return getFastSize(ExtraMath.roundupRatio(n, 2)) << 1;
+    }
+
+    private static final int MAX_RADIX = 7;
+}
@@ -23,6 +23,7 @@
 package jnum.fft;
 
 import java.lang.reflect.Array;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.concurrent.ExecutorService;
 
@@ -85,7 +86,7 @@ public class MultiFFT extends FFT<Object[]> implements RealFFT<Object[]> {
 
     @Override
     public final int getPoints(Object[] data) {
-        return Integer.highestOneBit(data.length) * ((FFT) getChildFor(data[0])).getPoints(data[0]);
+        return data.length * ((FFT) getChildFor(data[0])).getPoints(data[0]);
     }
 
     /* (non-Javadoc)
@@ -135,7 +136,7 @@ public class MultiFFT extends FFT<Object[]> implements RealFFT<Object[]> {
     @Override
     // TODO allowing n+1 size in first index....
     int addressSizeOf(Object[] data) {
-        return Integer.highestOneBit(data.length);
+        return data.length;
     }
 
 
@@ -231,6 +232,147 @@ public class MultiFFT extends FFT<Object[]> implements RealFFT<Object[]> {
 
 
 
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    void mixedRadixTransform(final Object[] data, final int points, final boolean isForward, final boolean isParallel) {
+        // Handle Complex[] arrays by their proper FFT directly...
+        if(data instanceof Complex[]) {
+            ((ComplexFFT) getChildFor(data)).mixedRadixTransform((Complex[]) data, points, isForward, isParallel);
+            return;
+        }
+        
+        final FFT child = getChildFor(data[0]);
+        child.setTwiddleErrorBits(getTwiddleErrorBits());
+        
+        // Perform FFT of each element
+        if(isParallel) {
+            final int threads = getParallel(data);
+            final int split = Math.min(points, threads);
+            
+            child.setParallel(ExtraMath.roundupRatio(threads, split));
+            
+            new PointFork(data, points) {
+                @Override
+                public void process(final Object[] data, final int i) {
+                    if(data[i] instanceof FourierTransforming) ((FourierTransforming) data[i]).complexTransform(isForward);
+                    else child.complexTransform(data[i], isForward);         
+                }
+            }.process();
+        }
+        else for(int i=points; --i >= 0; ) {
+            if(data[i] instanceof FourierTransforming) ((FourierTransforming) data[i]).complexTransform(isForward);
+            else child.sequentialComplexTransform(data[i], isForward);   
+        }
+        
+        transformColumns(data, points, isForward, isParallel);
+    }
+    
+    /**
+     * Transforms along the first index only, i.e. across the elements, for the first <code>n</code> elements.
+     */
+    private void outerTransform(final Object[] data, final int n, final boolean isForward, final boolean isParallel) {
+        if((n & (n - 1)) != 0) transformColumns(data, n, isForward, isParallel);
+        else if(isParallel) super.parallelComplexTransform(data, ExtraMath.log2floor(n), isForward);
+        else super.sequentialComplexTransform(data, ExtraMath.log2floor(n), isForward);
+    }
+    
+    /**
+     * Transforms across the first <code>n</code> elements, when <code>n</code> is not a power of 2. Rather than
+     * combining whole elements, as the radix-2/4 passes do, the complex values at the same position in every element 
+     * are gathered into a column, which is transformed with a {@link MixedRadixPlan}, and scattered back. The
+     * elements must be <code>double[]</code>, <code>float[]</code> or {@link Complex}<code>[]</code> arrays, or 
+     * (nested) arrays of these.
+     */
+    private void transformColumns(final Object[] data, final int n, final boolean isForward, final boolean isParallel) {
+        final MixedRadixPlan plan = getMixedRadixPlan(n);
+        
+        final Object[][] leaves = new Object[n][];
+        for(int i=n; --i >= 0; ) {
+            final ArrayList<Object> list = new ArrayList<>();
+            addLeaves(data[i], list);
+            leaves[i] = list.toArray();
+        }
+        
+        // The first column in each leaf array...
+        final int[] from = new int[leaves[0].length + 1];
+        for(int k=0; k<leaves[0].length; k++) from[k+1] = from[k] + getComplexPoints(leaves[0][k]);
+        
+        final int columns = from[from.length - 1];
+        
+        if(!isParallel) {
+            transformColumns(leaves, from, plan, 0, columns, isForward);
+            return;
+        }
+        
+        new BlockFork(data, columns) {
+            @Override
+            protected void processBlock(Object[] data, int i, int j) { transformColumns(leaves, from, plan, i, j, isForward); }
+        }.process();
+    }
+    
+    private static void transformColumns(final Object[][] leaves, final int[] from, final MixedRadixPlan plan, int c, final int to, final boolean isForward) {
+        final int n = leaves.length;
+        final double[] z = new double[n << 1];
+        final double[] scratch = plan.isBluestein() ? null : new double[n << 1];
+        
+        int k = 0;
+        
+        for(; c < to; c++) {
+            while(c >= from[k+1]) k++;
+            final int j = c - from[k];
+            
+            for(int i=n; --i >= 0; ) getPoint(leaves[i][k], j, z, i << 1);
+            plan.transform(z, scratch, isForward);
+            for(int i=n; --i >= 0; ) setPoint(leaves[i][k], j, z, i << 1);
+        }
+    }
+    
+    private static void addLeaves(final Object element, final ArrayList<Object> leaves) throws FFTTypeException {
+        if(element instanceof double[] || element instanceof float[] || element instanceof Complex[]) leaves.add(element);
+        else if(element instanceof FauxComplexArray) addLeaves(((FauxComplexArray<?>) element).getData(), leaves);
+        else if(element instanceof Object[]) for(Object e : (Object[]) element) addLeaves(e, leaves);
+        else throw new FFTTypeException(element.getClass());
+    }
+    
+    private static int getComplexPoints(final Object leaf) {
+        if(leaf instanceof double[]) return ((double[]) leaf).length >>> 1;
+        if(leaf instanceof float[]) return ((float[]) leaf).length >>> 1;
+        return ((Complex[]) leaf).length;
+    }
+    
+    private static void getPoint(final Object leaf, final int j, final double[] z, final int i) {
+        if(leaf instanceof double[]) {
+            final double[] d = (double[]) leaf;
+            z[i] = d[j<<1];
+            z[i+1] = d[(j<<1) + 1];
+        }
+        else if(leaf instanceof float[]) {
+            final float[] f = (float[]) leaf;
+            z[i] = f[j<<1];
+            z[i+1] = f[(j<<1) + 1];
+        }
+        else {
+            final Complex c = ((Complex[]) leaf)[j];
+            z[i] = c.re();
+            z[i+1] = c.im();
+        }
+    }
+    
+    private static void setPoint(final Object leaf, final int j, final double[] z, final int i) {
+        if(leaf instanceof double[]) {
+            final double[] d = (double[]) leaf;
+            d[j<<1] = z[i];
+            d[(j<<1) + 1] = z[i+1];
+        }
+        else if(leaf instanceof float[]) {
+            final float[] f = (float[]) leaf;
+            f[j<<1] = (float) z[i];
+            f[(j<<1) + 1] = (float) z[i+1];
+        }
+        else ((Complex[]) leaf)[j].set(z[i], z[i+1]);
+    }
+
+
     // Blockbit is the size of a merge block in bit shifts (e.g. size 2 is bit 1, size 4 is bit 2, etc.)
     // Two consecutive blocks are merged by the algorithm into one larger block...
     @Override
@@ -602,8 +744,7 @@ public class MultiFFT extends FFT<Object[]> implements RealFFT<Object[]> {
 
 
     public void parallelRealTransform(final Object[] data, final boolean isForward) throws FFTTypeException {
-        final int addressBits = getAddressBits(data);
-        final int n = 1 << addressBits;
+        final int n = addressSizeOf(data);
         final int split = Math.min(getParallel(), n);
 
         // Perform FFT of each element
@@ -611,9 +752,9 @@ public class MultiFFT extends FFT<Object[]> implements RealFFT<Object[]> {
         child.setTwiddleErrorBits(getTwiddleErrorBits());
         child.setParallel(ExtraMath.roundupRatio(getParallel(), split));
 
-        if(!isForward) super.parallelComplexTransform(data, addressBits, FFT.BACK);
+        if(!isForward) outerTransform(data, n, FFT.BACK, true);
 
-        new PointFork(data, data.length) {
+        new PointFork(data, n) {
             @Override
             public void process(final Object[] data, final int i) throws Exception {				
                 if(child instanceof RealFFT) ((RealFFT) child).realTransform(data[i], isForward);					
@@ -623,7 +764,7 @@ public class MultiFFT extends FFT<Object[]> implements RealFFT<Object[]> {
         }.process();
 
 
-        if(isForward) super.parallelComplexTransform(data, addressBits, FFT.FORWARD);
+        if(isForward) outerTransform(data, n, FFT.FORWARD, true);
     }
 
 
@@ -632,14 +773,13 @@ public class MultiFFT extends FFT<Object[]> implements RealFFT<Object[]> {
      */
     @Override
     public void sequentialRealTransform(final Object[] data, final boolean isForward) throws FFTTypeException {
-        final int addressBits = getAddressBits(data);
-        final int n = 1 << addressBits;
+        final int n = addressSizeOf(data);
         // Perform FFT of each element
         final FFT<?> child = getChildFor(data[0]);
         child.setTwiddleErrorBits(getTwiddleErrorBits());
 
         
-        if(!isForward) super.sequentialComplexTransform(data, addressBits, FFT.BACK);
+        if(!isForward) outerTransform(data, n, FFT.BACK, false);
 
         for(int i=n; --i >= 0; ) {
             if(child instanceof RealFFT) ((RealFFT) child).sequentialRealTransform(data[i], isForward);
@@ -647,7 +787,7 @@ public class MultiFFT extends FFT<Object[]> implements RealFFT<Object[]> {
             else throw new FFTTypeException(data[i].getClass());
         }
 
-        if(isForward) super.sequentialComplexTransform(data, addressBits, FFT.FORWARD);
+        if(isForward) outerTransform(data, n, FFT.FORWARD, false);
     }
 
 
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Attila Kovacs <attila[AT]sigmyne.com>.
+ * All rights reserved.
+ *
+ * This file is part of jnum.
+ *
+ *     jnum is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     jnum is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with jnum.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Attila Kovacs <attila[AT]sigmyne.com> - initial API and implementation
+ ******************************************************************************/
+
+package jnum.fft;
+
+import jnum.Constant;
+
+/**
+ * A precomputed plan for the power-of-2 (radix-2/4) complex transforms of {@link DoubleFFT} and {@link FloatFFT}.
+ * It holds the bit-reversal permutation, as a list of index pairs to swap, and the exact twiddle factors of every
+ * radix-4 pass, laid out contiguously in the order the pass uses them. With a plan, the transforms need neither
+ * calculate bit-reversed indices nor propagate twiddle factors by recurrence, and the twiddle errors no longer
+ * accumulate (i.e. {@link FFT#setTwiddleErrorBits(int)} has no effect).
+ *
+ * @author Attila Kovacs <attila@sigmyne.com>
+ *
+ */
+public class PowerOf2Plan extends FFTPlan {
+    private int addressBits;
+    private int[] swaps;
+    private double[][] D;
+    private float[][] F;
+
+
+    /**
+     * Constructs a new plan for power-of-2 transforms.
+     *
+     * @param addressBits           the transform size as a power of 2, i.e. log<sub>2</sub> of the number of
+     *                              complex points.
+     * @param isSinglePrecision     whether to tabulate the twiddle factors for <code>float</code> rather than
+     *                              <code>double</code> data.
+     */
+    public PowerOf2Plan(int addressBits, boolean isSinglePrecision) {
+        super(1 << addressBits, isSinglePrecision);
+        this.addressBits = addressBits;
+
+        initSwaps();
+        initTwiddles();
+    }
+
+    public final int getAddressBits() { return addressBits; }
+
+    private void initSwaps() {
+        final int n = size();
+
+        int pairs = 0;
+        for(int i=n; --i >= 0; ) if(reverse(i) > i) pairs++;
+
+        swaps = new int[pairs << 1];
+
+        for(int i=0, k=0; i<n; i++) {
+            final int j = reverse(i);
+            if(j <= i) continue;
+            swaps[k++] = i;
+            swaps[k++] = j;
+        }
+    }
+
+    private int reverse(int i) {
+        return addressBits == 0 ? i : Integer.reverse(i << (32 - addressBits));
+    }
+
+    // The radix-4 pass with block bits b combines blocks of 2^b points, with twiddle factors w^m, w^2m and w^3m for
+    // the offsets m < 2^b within the block, where w = exp(2 pi i / 2^(b+2)). These are stored as three consecutive
+    // tables (for w^m, w^2m, and w^3m), each with (re, im) pairs for m = 0...2^b-1, s.t. the twiddle factors for
+    // consecutive offsets are contiguous also (as needed for SIMD processing).
+    private void initTwiddles() {
+        if(isSinglePrecision()) F = new float[addressBits][];
+        else D = new double[addressBits][];
+
+        for(int b = addressBits & 1; b < addressBits; b += 2) {
+            final int blk = 1 << b;
+            final double theta = Constant.twoPi / (blk << 2);
+
+            final double[] d = new double[6 * blk];
+
+            for(int m=blk; --m >= 0; ) for(int j=3; j > 0; j--) {
+                final int k = (((j - 1) << b) + m) << 1;
+                final double a = j * m * theta;
+                d[k] = Math.cos(a);
+                d[k + 1] = Math.sin(a);
+            }
+
+            if(D != null) D[b] = d;
+            else {
+                F[b] = new float[d.length];
+                for(int i=d.length; --i >= 0; ) F[b][i] = (float) d[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the bit-reversal permutation, as consecutive pairs of point indices to swap.
+     *
+     * @return  the index pairs to swap.
+     */
+    final int[] getSwaps() { return swaps; }
+
+    /**
+     * Returns the twiddle factors for the radix-4 pass with the given block bits, for <code>double</code> data.
+     *
+     * @param blkbit    the block size of the pass as a power of 2.
+     * @return          the tables of twiddle factors w<sup>m</sup>, w<sup>2m</sup>, and w<sup>3m</sup>, one after the
+     *                  other, each with (re, im) pairs for every offset m in the block, or <code>null</code> if the 
+     *                  plan is for <code>float</code> data.
+     */
+    final double[] getTwiddles(int blkbit) { return D == null ? null : D[blkbit]; }
+
+    /**
+     * Same as {@link #getTwiddles(int)}, but for <code>float</code> data.
+     *
+     * @param blkbit    the block size of the pass as a power of 2.
+     * @return          the twiddle factors, or <code>null</code> if the plan is for <code>double</code> data.
+     */
+    final float[] getFloatTwiddles(int blkbit) { return F == null ? null : F[blkbit]; }
+
+    @Override
+    public long getBytes() {
+        return getBytes(addressBits, isSinglePrecision());
+    }
+
+    // ~N/2 index pairs, and ~N twiddle factors
+    private static long getBytes(int addressBits, boolean isSinglePrecision) {
+        final long n = 1L << addressBits;
+        return (n << 2) + (isSinglePrecision ? n << 3 : n << 4);
+    }
+
+    /**
+     * Returns a cached plan for the given size and precision, or creates (and caches) a new one if necessary. No plan
+     * is returned for sizes, whose tables would not fit in the cache (see {@link FFTPlan#maxCacheBytes}). Such large
+     * transforms should calculate their twiddle factors on the fly instead.
+     *
+     * @param addressBits           the transform size as a power of 2.
+     * @param isSinglePrecision     whether the plan is for <code>float</code> rather than <code>double</code> data.
+     * @return                      the plan, or <code>null</code> if the size is too large for tabulating.
+     */
+    public static PowerOf2Plan forSize(int addressBits, boolean isSinglePrecision) {
+        if(!isCacheable(getBytes(addressBits, isSinglePrecision))) return null;
+
+        PowerOf2Plan plan = getCached(PowerOf2Plan.class, 1 << addressBits, isSinglePrecision);
+        if(plan != null) return plan;
+
+        plan = new PowerOf2Plan(addressBits, isSinglePrecision);
+        cache(plan);
+        return plan;
+    }
+}
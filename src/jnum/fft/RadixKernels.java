@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Attila Kovacs <attila[AT]sigmyne.com>.
+ * All rights reserved.
+ *
+ * This file is part of jnum.
+ *
+ *     jnum is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     jnum is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with jnum.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Attila Kovacs <attila[AT]sigmyne.com> - initial API and implementation
+ ******************************************************************************/
+
+
+package jnum.fft;
+
+/**
+ * Alternative implementations of the tabulated radix-4 passes of {@link DoubleFFT} and {@link FloatFFT}, such as SIMD
+ * kernels based on the Vector API (<code>jdk.incubator.vector</code>). The kernels work on the same interleaved 
+ * (re, im) data, with the same twiddle tables (see {@link PowerOf2Plan}), as the scalar passes, and they produce
+ * the same results, up to rounding.
+ * <p>
+ * 
+ * The Vector API is not available to the Java 8 sources of jnum. Therefore, the SIMD kernels live in a separate source
+ * tree (<code>src-jdk21</code>), which is compiled by the <code>build-jdk21</code> target only. They are loaded at 
+ * runtime, if present, and if the JVM was started with <code>--add-modules jdk.incubator.vector</code>. Otherwise, the 
+ * transforms simply use their scalar passes.
+ * 
+ * @author Attila Kovacs <attila@sigmyne.com>
+ *
+ * @see FFT1D#useVectorKernels
+ */
+abstract class RadixKernels {
+
+    /**
+     * Returns the smallest block size of the radix-4 passes that these kernels can process.
+     *
+     * @param isSinglePrecision     whether for <code>float</code> rather than <code>double</code> data.
+     * @return                      the smallest block size, as a power of 2, that the kernels handle. Passes with
+     *                              smaller blocks should use the scalar passes instead.
+     */
+    abstract int getMinBlockBits(boolean isSinglePrecision);
+
+    /**
+     * The radix-4 pass of {@link DoubleFFT#radix4(double[], int, int, boolean, int, PowerOf2Plan)}.
+     *
+     * @param data          the data
+     * @param from          the from
+     * @param to            the to
+     * @param isForward     the is forward
+     * @param blkbit        the blkbit
+     * @param tw            the twiddle factors of the pass (see {@link PowerOf2Plan#getTwiddles(int)}).
+     */
+    abstract void radix4(double[] data, int from, int to, boolean isForward, int blkbit, double[] tw);
+
+    /**
+     * The radix-4 pass of {@link FloatFFT#radix4(float[], int, int, boolean, int, PowerOf2Plan)}.
+     *
+     * @param data          the data
+     * @param from          the from
+     * @param to            the to
+     * @param isForward     the is forward
+     * @param blkbit        the blkbit
+     * @param tw            the twiddle factors of the pass (see {@link PowerOf2Plan#getFloatTwiddles(int)}).
+     */
+    abstract void radix4(float[] data, int from, int to, boolean isForward, int blkbit, float[] tw);
+
+
+    /**
+     * Returns the SIMD kernels of the Vector API, if these are available in the current build and JVM.
+     *
+     * @return  the vectorized kernels, or <code>null</code> if not available.
+     */
+    static RadixKernels getVectorKernels() { return vector; }
+
+    private static RadixKernels loadVectorKernels() {
+        // Use reflection, s.t. the code still compiles and runs without the Vector API...
+        try { return (RadixKernels) Class.forName("jnum.fft.VectorRadixKernels").getDeclaredConstructor().newInstance(); }
+        catch(Throwable e) { return null; }
+    }
+
+
+    private static final RadixKernels vector = loadVectorKernels();
+}
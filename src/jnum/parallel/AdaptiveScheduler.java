@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Attila Kovacs <attila[AT]sigmyne.com>.
+ * All rights reserved. 
+ * 
+ * This file is part of jnum.
+ * 
+ *     jnum is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ * 
+ *     jnum is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ * 
+ *     You should have received a copy of the GNU General Public License
+ *     along with jnum.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Attila Kovacs <attila[AT]sigmyne.com> - initial API and implementation
+ ******************************************************************************/
+
+package jnum.parallel;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A runtime cost model for choosing the number of parallel chunks for a task. The scheduler remembers the measured
+ * execution time per unit of work (typically per primitive operation) for different classes of operations (keys), and 
+ * uses these to estimate the cost of future calls with the same key. Parallel execution is then split into 
+ * as many chunks as are worth it, s.t. no chunk should take less than {@link #minChunkNanos} to execute. 
+ * <p>
+ * Until measurements become available for a given key, callers should fall back to static heuristics, such as
+ * {@link ParallelTask#minExecutorBlockSize}.
+ * 
+ * @author Attila Kovacs <attila@sigmyne.com>
+ *
+ */
+public final class AdaptiveScheduler {
+    
+    private static final ConcurrentHashMap<Object, Throughput> throughputs = new ConcurrentHashMap<>();
+    
+    
+    private AdaptiveScheduler() {}
+    
+    /**
+     * Returns the measured average execution time per unit of work for the given key.
+     * 
+     * @param key   the operation class (or other key) for which the execution times are recorded.
+     * @return      (ns) the average time it took to process a unit of work, or NaN if there is no measurement
+     *              available for the key (or if the scheduler is disabled).
+     */
+    public static double getNanosPerOp(Object key) {
+        if(!isEnabled || key == null) return Double.NaN;
+        Throughput t = throughputs.get(key);
+        return t == null ? Double.NaN : t.nanosPerOp;
+    }
+    
+    /**
+     * Returns the expected execution time for the given amount of work, based on the prior measurements for the key.
+     * 
+     * @param key   the operation class (or other key) for which the execution times are recorded.
+     * @param ops   the units of work, e.g. the total number of primitive operations.
+     * @return      (ns) the expected execution time, or NaN if no prior measurements are available for the key.
+     */
+    public static double estimateNanos(Object key, long ops) {
+        return ops * getNanosPerOp(key);
+    }
+    
+    /**
+     * Returns the number of chunks into which the given amount of work is worth splitting, s.t. each chunk will 
+     * take at least {@link #minChunkNanos} to execute, based on the prior measurements for the key.
+     * 
+     * @param key           the operation class (or other key) for which the execution times are recorded.
+     * @param ops           the units of work, e.g. the total number of primitive operations.
+     * @param maxChunks     the maximum number of chunks to return, such as the number of available threads.
+     * @return              the optimal number of chunks between 1 and maxChunks (inclusive), or -1 if there are no
+     *                      prior measurements for the key.
+     */
+    public static int getChunks(Object key, long ops, int maxChunks) {
+        final double t = estimateNanos(key, ops);
+        if(Double.isNaN(t)) return -1;
+        return (int) Math.max(1, Math.min(maxChunks, t / minChunkNanos));
+    }
+    
+    /**
+     * Records a measurement of execution time for the given amount of work. The measurement is combined with prior 
+     * measurements for the same key as an exponentially weighted moving average.
+     * 
+     * @param key       the operation class (or other key) for which the execution times are recorded.
+     * @param ops       the units of work, e.g. the total number of primitive operations.
+     * @param nanos     (ns) the total (CPU) time it took to process that much work, summed over all threads.
+     */
+    public static void record(Object key, long ops, long nanos) {
+        if(!isEnabled || key == null) return;
+        if(ops <= 0 || nanos <= 0) return;
+        throughputs.computeIfAbsent(key, k -> new Throughput()).update((double) nanos / ops);
+    }
+    
+    /**
+     * Discards all prior measurements.
+     */
+    public static void clear() {
+        throughputs.clear();
+    }
+    
+    
+    private static class Throughput {
+        private volatile double nanosPerOp = Double.NaN;
+        
+        private synchronized void update(double value) {
+            if(Double.isNaN(nanosPerOp)) nanosPerOp = value;
+            else nanosPerOp += adaptionRate * (value - nanosPerOp);
+        }
+    }
+    
+    
+    /** Whether to use runtime measurements to optimize the number of parallel chunks. */
+    public static boolean isEnabled = true;
+    
+    /** (ns) The minimum time a chunk should take to execute, for it to be worth processing in a separate thread. */
+    public static long minChunkNanos = 100000L;
+    
+    /** The relative weight of new measurements vs the prior average. */
+    public static double adaptionRate = 0.25;
+    
+}
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Attila Kovacs <attila[AT]sigmyne.com>.
+ * All rights reserved. 
+ * 
+ * This file is part of jnum.
+ * 
+ *     jnum is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ * 
+ *     jnum is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ * 
+ *     You should have received a copy of the GNU General Public License
+ *     along with jnum.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Attila Kovacs <attila[AT]sigmyne.com> - initial API and implementation
+ ******************************************************************************/
+
+package jnum.parallel;
+
+import jnum.DoublePointOp;
+import jnum.data.WeightedPoint;
+import jnum.math.Range;
+
+/**
+ * A parallel point operation, which is specialized for primitive <code>double</code> values. It is the equivalent of
+ * a <code>ParallelPointOp&lt;Number, ReturnType&gt;</code>, except that values are passed to the operation directly,
+ * without boxing.
+ * 
+ * @author Attila Kovacs <attila@sigmyne.com>
+ *
+ * @param <ReturnType>  The generic return type of the operation.
+ * 
+ * @see ParallelPointOp
+ */
+public abstract class DoubleParallelPointOp<ReturnType> extends DoublePointOp<ReturnType> {
+
+    @Override
+    protected DoubleParallelPointOp<ReturnType> clone() {
+        return (DoubleParallelPointOp<ReturnType>) super.clone();
+    }
+      
+    @Override
+    public DoubleParallelPointOp<ReturnType> newInstance() {
+        DoubleParallelPointOp<ReturnType> clone = clone();
+        clone.reset();
+        return clone;
+    }
+
+    
+    public abstract void mergeResult(ReturnType localResult);
+    
+    
+    public abstract static class Simple extends DoubleParallelPointOp<Void> {
+
+        @Override
+        public void mergeResult(Void localResult) {}
+
+        @Override
+        protected void init() {}
+       
+        @Override
+        public Void getResult() { return null; }
+        
+    }
+    
+    public static class ElementCount extends DoubleParallelPointOp<Long> {
+        private long n = 0L;
+        
+        @Override
+        protected void init() {
+            n = 0L;
+        }
+        
+        @Override
+        public final void process(double value) {
+            n++;
+        }
+        
+        @Override
+        public final void mergeResult(Long localCount) {
+            n += localCount;
+        }
+        
+        @Override
+        public final Long getResult() {
+           return n;
+        }
+        
+        @Override
+        public int numberOfOperations() { return 1; }
+    }
+    
+    public abstract static class Sum extends DoubleParallelPointOp<Double> {
+        private double sum = Double.NaN;
+       
+        @Override
+        protected void init() {
+            sum = Double.NaN;
+        }
+        
+        protected abstract double getValue(double value);
+        
+        @Override
+        public final void process(double value) {
+            if(Double.isNaN(sum)) sum = 0.0;
+            sum += getValue(value);
+        }
+
+        @Override
+        public final void mergeResult(Double localSum) {
+            if(localSum.isNaN()) return;
+            if(Double.isNaN(sum)) sum = 0.0;
+            sum += localSum;
+        }
+        
+        @Override
+        public final Double getResult() {
+           return sum;
+        }
+
+    }
+    
+    public abstract static class Average extends DoubleParallelPointOp<WeightedPoint> {
+        private double sum, sumw;
+       
+        @Override
+        protected void init() {
+            sum = sumw = 0.0;
+        }
+        
+        public abstract double getValue(double value);
+        
+        public abstract double getWeight(double value);
+        
+        @Override
+        public final void process(double value) {
+            final double w = getWeight(value);
+            sum += w * getValue(value);
+            sumw += w;
+        }
+        
+        @Override
+        public final void mergeResult(WeightedPoint localAverage) {
+            sum += localAverage.weight() * localAverage.value();
+            sumw += localAverage.weight();
+        }
+        
+        @Override
+        public final WeightedPoint getResult() {
+           return new WeightedPoint(sum / sumw, sumw);
+        }
+
+    }
+    
+    public static class Min extends DoubleParallelPointOp<Double> {
+        private double min;
+        
+        @Override
+        protected void init() {
+            min = Double.POSITIVE_INFINITY;
+        }
+        
+        @Override
+        public final void process(double value) {
+            if(value < min) min = value;
+        }
+        
+        @Override
+        public final void mergeResult(Double localMin) {
+            if(localMin < min) min = localMin;
+        }
+        
+        @Override
+        public final Double getResult() {
+            return min;
+        }
+    }
+    
+    public static class Max extends DoubleParallelPointOp<Double> {
+        private double max;
+        
+        @Override
+        protected void init() {
+            max = Double.NEGATIVE_INFINITY;
+        }
+        
+        @Override
+        public final void process(double value) {
+            if(value > max) max = value;
+        }
+        
+        @Override
+        public final void mergeResult(Double localMax) {
+            if(localMax > max) max = localMax;
+        }
+        
+        @Override
+        public final Double getResult() {
+            return max;
+        }
+    }
+    
+    public static class RangeOp extends DoubleParallelPointOp<Range> {
+        private double min, max;
+        
+        @Override
+        protected void init() {
+            min = Double.POSITIVE_INFINITY;
+            max = Double.NEGATIVE_INFINITY;
+        }
+        
+        @Override
+        public final void process(double value) {
+            if(value < min) min = value;
+            if(value > max) max = value;
+        }
+        
+        @Override
+        public final void mergeResult(Range localRange) {
+            if(localRange.isEmpty()) return;
+            if(localRange.min() < min) min = localRange.min();
+            if(localRange.max() > max) max = localRange.max();
+        }
+        
+        @Override
+        public final Range getResult() {
+            Range range = new Range();
+            if(min <= max) range.setRange(min, max);
+            return range;
+        }
+    }
+    
+}
@@ -48,23 +48,17 @@ public abstract class ParallelObject implements Cloneable, Parallelizable {
         this.executor = executor;
     }
 
+    /**
+     * Returns the number of parallel threads to use for processing. Within nested parallel regions, in which new
+     * parallel tasks would oversubscribe the CPUs, it returns 1 (see {@link ParallelTask#canFork(ExecutorService)}), 
+     * s.t. nested processing will proceed sequentially.
+     * 
+     * @return     the number of parallel threads to use for processing in the current context.
+     */
     @Override
     public final int getParallel() {
-        /*
         if(parallelism == 1) return 1;
-        
-        final StackTraceElement[] trace = new Throwable().getStackTrace();
-        boolean isSubTask = false;
-        
-        for(int i=0; i<trace.length; i++) if(trace[i].getClassName().equals(ParallelTask.class.getName())) {
-            isSubTask = true;
-            break;
-        }    
-        
-        return isSubTask ? 1 : parallelism;
-        */
-        
-        return parallelism;
+        return ParallelTask.canFork(executor) ? parallelism : 1;
     }
 
     @Override
@@ -112,7 +112,9 @@ public abstract class ParallelPointOp<PointType, ReturnType> extends PointOp<Poi
 
         @Override
         public final void mergeResult(Double localSum) {
-            if(!localSum.isNaN()) sum += localSum;
+            if(localSum.isNaN()) return;
+            if(Double.isNaN(sum)) sum = 0.0;
+            sum += localSum;
         }
         
         @Override
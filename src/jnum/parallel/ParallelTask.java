@@ -29,6 +29,9 @@ import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import jnum.ExtraMath;
@@ -51,12 +54,35 @@ public abstract class ParallelTask<ReturnType> implements Runnable, Cloneable {
 
 	private Exception exception = null;
 	
+	private long chunkNanos;
+	
+	private boolean isReusingWorkers = false;
+	
 	
 	public void setReduction(ParallelReduction<ReturnType> reduction) {
 		this.reduction = reduction;
 		reduction.setParallel(this);
 	}
 	
+	/**
+	 * Sets whether the worker clones of this task, together with any per-thread scratch state they hold, should 
+	 * persist between successive calls to {@link #process(int, ExecutorService)}, as long as the number of chunks
+	 * remains the same. Reused workers are not cloned again, but are merely {@link #reset()} before they are 
+	 * resubmitted. Subclasses that want to benefit should allocate their scratch state only once in {@link #init()},
+	 * and clear it in {@link #reset()}.
+	 * <p>
+	 * Changes to the fields of this (template) task are not seen by reused workers. Arguments that change between
+	 * calls should therefore be shared with the workers via a common mutable object instead.
+	 * 
+	 * @param value    <code>true</code> to reuse workers between invocations, or <code>false</code> to create
+	 *                 new worker clones for every invocation (default).
+	 */
+	public void setReuseWorkers(boolean value) {
+	    isReusingWorkers = value;
+	}
+	
+	public boolean isReusingWorkers() { return isReusingWorkers; }
+	
 	/* (non-Javadoc)
 	 * @see java.lang.Object#clone()
 	 */
@@ -85,23 +111,38 @@ public abstract class ParallelTask<ReturnType> implements Runnable, Cloneable {
         process(pool.getCorePoolSize(), pool);
     }
     
+    /**
+     * Processes this task on a work-stealing {@link ForkJoinPool}, splitting the work into
+     * {@link #workStealingSplitFactor} times as many chunks as the pool has threads, s.t. idle
+     * threads can pick up the remaining chunks of the slower ones.
+     * 
+     * @param pool      the work-stealing pool to use.
+     * @throws Exception    the first exception thrown by any of the chunks.
+     * 
+     * @see #newForkJoinExecutor()
+     */
+    public final void process(ForkJoinPool pool) throws Exception {
+        process(pool.getParallelism(), pool);
+    }
+    
 
     public synchronized void process(int chunks, ExecutorService executor) throws Exception { 
         
-        /*
-        StackTraceElement[] trace = new Throwable().getStackTrace();
-        for(int i=1; i<trace.length; i++) {
-            String text  =trace[i].toString();
-            if(text.contains("Task")) continue;
-            if(text.contains("Fork")) continue;
-            System.err.println(" -- " + text);
-            break;
+        // Nested tasks are processed in the calling thread, unless they may borrow threads from the same
+        // work-stealing pool that the caller is running on...
+        if(!canFork(executor)) {
+            chunks = 1;
+            executor = null;
+        }
+        
+        if(chunks > 1) {
+            chunks = getRevisedChunks(chunks, minExecutorBlockSize);
+            // Process small tasks in the calling thread...
+            if(chunks <= 1) executor = null;
         }
-        */
-                
         
         if(chunks <= 1 && executor == null) {
-            processor = new Processor();
+            if(!isReusingWorkers || processor == null) processor = new Processor();
             processor.processSequential();
         }
         else {
@@ -109,7 +150,14 @@ public abstract class ParallelTask<ReturnType> implements Runnable, Cloneable {
             processor.waitComplete();    
         }
         
-        for(ParallelTask<?> worker : getWorkers()) if(worker.exception != null) throw worker.exception;
+        long nanos = 0L;
+        for(ParallelTask<?> worker : getWorkers()) {
+            if(worker.exception != null) throw worker.exception;
+            nanos += worker.chunkNanos;
+        }
+        
+        AdaptiveScheduler.record(getCostKey(), getTotalOps(), nanos);
+        
         postProcess();
     }
    
@@ -117,7 +165,7 @@ public abstract class ParallelTask<ReturnType> implements Runnable, Cloneable {
     
 
 	private Processor submit(int chunks, ExecutorService executor) {	 
-		processor = new Processor();
+		if(!isReusingWorkers || processor == null) processor = new Processor();
 		processor.submit(chunks, executor);
 		return processor;
 	}
@@ -135,9 +183,31 @@ public abstract class ParallelTask<ReturnType> implements Runnable, Cloneable {
 	
 		
 	protected void init() {}
+	
+	/**
+	 * Resets a reused worker before it is submitted again, in the calling thread. It is called only when 
+	 * {@link #setReuseWorkers(boolean)} is enabled, and only for workers that have been run before, s.t. 
+	 * subclasses may clear their per-invocation state here, while keeping their scratch allocations.
+	 * 
+	 * @see #setReuseWorkers(boolean)
+	 */
+	protected void reset() {}
+	
+	/**
+	 * Clears the completion and exception state left by a prior run, s.t. waiting for the completion of the next
+	 * run does not return early.
+	 */
+	private void prepareReuse() {
+	    isAlive = false;
+	    isComplete = false;
+	    isInterrupted = false;
+	    exception = null;
+	    chunkNanos = 0L;
+	    reset();
+	}
 		
 
-	public synchronized void interruptAll() {
+	public void interruptAll() {
 		processor.interruptAll();
 	}
 	
@@ -177,15 +247,21 @@ public abstract class ParallelTask<ReturnType> implements Runnable, Cloneable {
 	public final void run() {
 		isAlive = true;
 		isComplete = false;
-		isInterrupted = false;
 		
 		// clear the exception for reuse...
 		exception = null;
 		
+		final long start = System.nanoTime();
+		chunkNanos = 0L;
+		
+		final int[] depth = parallelDepth.get();
+		if(processor.isParallel) depth[0]++;
+		
 		try { 
 		    init();
 			// Don't even start in case it has been interrupted already
 			if(!isInterrupted()) processChunk(index, processor.getThreadCount()); 	
+			chunkNanos = System.nanoTime() - start;
 		}
 		catch(InterruptedException e) {
 		    // Interrupted...
@@ -193,16 +269,19 @@ public abstract class ParallelTask<ReturnType> implements Runnable, Cloneable {
 		catch(Exception e) {
 			Util.error(this, new Exception("Parallel processing error", e));
 			exception = e;
-			wrapup(); // SFM - to prevent deadlock bc waitComplete() is still being called.
 			interruptAll();
 		}
+		finally {
+		    if(processor.isParallel) depth[0]--;
+		}
 		
 		// Clear the interrupt status for reuse...
 		isInterrupted = false;
 		
 		cleanup();
 		
-		// Wrap up, if an exception occurs, record it if not prior exception is recorded already...
+		// Wrap up as the very last step, s.t. a reused worker is not resubmitted while still running. 
+		// If an exception occurs, record it if not prior exception is recorded already...
 		try { wrapup(); }
 		catch(Exception e) { if(exception == null) exception = e; }
 	}
@@ -214,9 +293,13 @@ public abstract class ParallelTask<ReturnType> implements Runnable, Cloneable {
 	 * Create synchronization among the worker threads. A call to synchronize() will wait 
 	 * until all worker threads reach this point.
 	 * 
+	 * Synchronization is not available when running on a {@link ForkJoinPool}, since chunks
+	 * are then not guaranteed to run concurrently.
+	 * 
 	 * @return the arrival index of this thread's call to the synchronization point.
 	 * @throws InterruptedException
 	 * @throws BrokenBarrierException
+	 * @throws UnsupportedOperationException if the task is being processed on a {@link ForkJoinPool}.
 	 */
 	protected int synchronize() throws InterruptedException, BrokenBarrierException {
 	    if(processor == null) return 0;
@@ -242,15 +325,78 @@ public abstract class ParallelTask<ReturnType> implements Runnable, Cloneable {
 
 	protected abstract void processChunk(int i, int split) throws Exception;
 	
-	protected int getTotalOps() { return -1; }
+	/**
+	 * Returns the approximate total number of primitive operations required for processing this task, if known.
+	 * 
+	 * @return     the total number of primitive operations, or -1 if unknown.
+	 */
+	protected long getTotalOps() { return -1; }
+	
+	/**
+	 * Returns the key, under which execution times are recorded by the {@link AdaptiveScheduler}, and
+	 * which are then used to optimize the number of chunks for future tasks with the same key. 
+	 * By default, tasks are not timed (<code>null</code> is returned).
+	 * 
+	 * @return     the key for the cost model, or <code>null</code> if the task should not be timed.
+	 */
+	protected Object getCostKey() { return null; }
     
+	/**
+	 * Returns the number of chunks that are worth processing in parallel, based on the prior execution times 
+	 * measured for this task's cost key (if any), or else a static heuristic based on the total number of 
+	 * operations.
+	 * 
+	 * @param chunks           the number of chunks requested (e.g. the number of threads).
+	 * @param minBlockSize     the minimum number of operations per chunk for the static heuristic.
+	 * @return                 the revised number of chunks, never more than requested.
+	 * 
+	 * @see #getTotalOps()
+	 * @see #getCostKey()
+	 */
     protected int getRevisedChunks(int chunks, int minBlockSize) {
-        int ops = getTotalOps();
-        return ops <= 0 ? chunks : Math.min(chunks, ExtraMath.roundupRatio(3 + ops, minBlockSize));
+        long ops = getTotalOps();
+        if(ops <= 0) return chunks;
+        
+        int adaptive = AdaptiveScheduler.getChunks(getCostKey(), ops, chunks);
+        if(adaptive > 0) return adaptive;
+        
+        return (int) Math.min(chunks, ExtraMath.roundupRatio(3 + ops, minBlockSize));
     }
 
     
     
+    /**
+     * Returns the number of parallel tasks that the calling thread is currently processing a chunk of (as a worker).
+     * It is 0 for threads that are not executing parallel tasks, 1 for worker threads of a parallel task, 2 for
+     * the workers of a parallel task started from within a parallel task, and so on.
+     * 
+     * @return     the current parallel nesting depth of the calling thread.
+     */
+    public static int getParallelDepth() {
+        return parallelDepth.get()[0];
+    }
+    
+    /**
+     * Checks if a new parallel task may be launched from the calling thread on the given executor. Within
+     * a parallel region that is already {@link #maxParallelDepth} deep, new tasks should be processed 
+     * sequentially (as they are by {@link #process(int, ExecutorService)}), so as to avoid oversubscribing 
+     * the CPUs. The exception are tasks submitted to the same {@link ForkJoinPool} that the calling thread 
+     * belongs to, since these merely borrow idle threads from the shared pool.
+     * 
+     * @param executor     the executor on which a new parallel task would be processed, or <code>null</code>
+     *                     for new threads.
+     * @return             <code>true</code> if a parallel task may be launched, or <code>false</code> if it 
+     *                     should be processed sequentially. 
+     */
+    public static boolean canFork(ExecutorService executor) {
+        if(getParallelDepth() < maxParallelDepth) return true;
+        
+        final Thread thread = Thread.currentThread();
+        if(!(thread instanceof ForkJoinWorkerThread)) return false;
+        return ((ForkJoinWorkerThread) thread).getPool() == executor;
+    }
+    
+    
     public static ExecutorService newDefaultSequentialExecutor() {
         return Executors.newSingleThreadExecutor();
     }
@@ -264,15 +410,89 @@ public abstract class ParallelTask<ReturnType> implements Runnable, Cloneable {
         return Executors.newFixedThreadPool(threads);
     }
     
+    /**
+     * Returns a new work-stealing executor, with as many threads as there are available processors.
+     * Tasks processed on it (e.g. after {@link Parallelizable#setExecutor(ExecutorService)}) will
+     * be split recursively and balanced between threads via work stealing.
+     * 
+     * @return  a new work-stealing executor.
+     */
+    public static ForkJoinPool newForkJoinExecutor() {
+        return newForkJoinExecutor(Runtime.getRuntime().availableProcessors());
+    }
+    
+    public static ForkJoinPool newForkJoinExecutor(int threads) {
+        return new ForkJoinPool(threads);
+    }
+    
+    /**
+     * Returns a new executor that starts a new virtual thread for every task submitted to it, when running on a JVM
+     * that supports virtual threads (Java 21 or later). Virtual threads are cheap to block, making this executor a
+     * good choice for I/O-bound tasks (such as file reads), which should not tie up the platform threads needed for 
+     * computation. On older JVMs, an unbounded cached pool of daemon platform threads is returned instead, which
+     * (like virtual threads) will not keep the JVM alive after the application is done.
+     * 
+     * @return  a new thread-per-task executor, using virtual threads when available.
+     * 
+     * @see #isVirtualThreadSupported()
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        // Use reflection, s.t. the code still compiles and runs with older Java versions...
+        try { return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null); }
+        catch(Exception e) { 
+            return Executors.newCachedThreadPool(r -> {
+                final Thread thread = new Thread(r);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    
+    /**
+     * Checks if the JVM supports virtual threads, i.e. if {@link #newVirtualThreadExecutor()} will return a 
+     * virtual-thread executor, or else a fallback pool of platform threads.
+     * 
+     * @return  <code>true</code> if virtual threads are supported by the current JVM, otherwise <code>false</code>.
+     */
+    public static boolean isVirtualThreadSupported() {
+        try { 
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        }
+        catch(NoSuchMethodException e) { return false; }
+    }
+    
  
     public static int minExecutorBlockSize = 100;
     
+    /**
+     * The number of chunks per pool thread to create when processing on a {@link ForkJoinPool}. 
+     * Values larger than 1 allow idle threads to steal work from threads that are stuck with slower 
+     * chunks.
+     */
+    public static int workStealingSplitFactor = 4;
+    
+    /**
+     * The maximum nesting depth of parallel regions, beyond which new parallel tasks are processed sequentially,
+     * in the calling thread (except tasks on the same work-stealing pool). The default value of 1 means that
+     * parallel tasks launched from the worker of another parallel task will be sequential.
+     * 
+     * @see #canFork(ExecutorService)
+     */
+    public static int maxParallelDepth = 1;
+    
+    private static final ThreadLocal<int[]> parallelDepth = ThreadLocal.withInitial(() -> new int[1]);
+    
 
 	public class Processor {
 
-		private Vector<ParallelTask<ReturnType>> workers;
+		private volatile Vector<ParallelTask<ReturnType>> workers;
 		
 		private CyclicBarrier barrier;
+		
+		private boolean isWorkStealing = false;
+		
+		private boolean isParallel = false;
 			
 
 		private Processor() {}
@@ -281,12 +501,19 @@ public abstract class ParallelTask<ReturnType> implements Runnable, Cloneable {
 		private int getThreadCount() { return workers.size(); }
 		
 		private int synchronizeThread() throws InterruptedException, BrokenBarrierException { 
+		    if(isWorkStealing) throw new UnsupportedOperationException("Cannot synchronize work-stealing chunks.");
 		    if(barrier == null) return 0;
 		    return barrier.await(); 
 		}
 		
 
-		private synchronized void submit(int split, ExecutorService executor) {
+		private void submit(int split, ExecutorService executor) {
+		    if(executor instanceof ForkJoinPool) submit(split, (ForkJoinPool) executor);
+		    else submitThreads(split, executor);
+		}
+		
+
+		private synchronized void submitThreads(int split, ExecutorService executor) {
 		    
 		    // If the split is 0 or negative...
 		    if(split <= 0) {
@@ -298,7 +525,11 @@ public abstract class ParallelTask<ReturnType> implements Runnable, Cloneable {
 		        
 		    createProcesses(split);
 		    
-		    barrier = split > 1 ? new CyclicBarrier(split) : null;
+		    if(split < 2) barrier = null;
+		    else if(barrier == null || barrier.isBroken() || barrier.getParties() != split) barrier = new CyclicBarrier(split);
+		    
+		    isWorkStealing = false;
+		    isParallel = true;
 			
 		    // Use only copies of the task for calculation, leaving the template
 		    // task in its original state, s.t. it may be reused again...
@@ -310,6 +541,28 @@ public abstract class ParallelTask<ReturnType> implements Runnable, Cloneable {
 		   
 		}
 		
+		/**
+		 * Splits the work into chunks, which are then processed recursively on the work-stealing
+		 * pool. The call returns only after all chunks have been processed.
+		 * 
+		 * @param split    the number of chunks requested, usually the number of threads.
+		 * @param pool     the work-stealing pool on which to process the chunks.
+		 */
+		private void submit(int split, ForkJoinPool pool) {
+		    if(split <= 0) split = pool.getParallelism();
+		    if(split > 1) split *= Math.max(1, workStealingSplitFactor);
+		    
+		    synchronized(this) {
+		        createProcesses(split);
+		        barrier = null;
+		        isWorkStealing = true;
+		        isParallel = true;
+		    }
+		    
+		    // Do not hold the lock while the chunks run, since a failing chunk will call interruptAll()...
+		    pool.invoke(new ChunkAction(0, split));
+		}
+		
 		/**
          * Runs a clone of the ParallelTask in the current Thread, thus bypassing thread creation
          * or executor queueing...
@@ -318,12 +571,21 @@ public abstract class ParallelTask<ReturnType> implements Runnable, Cloneable {
          */
 		private synchronized void processSequential() {
 		    createProcesses(1);
+		    barrier = null;
+		    isWorkStealing = false;
+		    isParallel = false;
 		    workers.get(0).run();
 		}
 	
 
 		private synchronized void createProcesses(int count) {	
-			workers = new Vector<>(count);
+		    // Keep the workers from the previous invocation, if so desired...
+		    if(isReusingWorkers && workers != null && workers.size() == count) {
+		        for(int i=count; --i >= 0; ) workers.get(i).prepareReuse();
+		        return;
+		    }
+		    
+			Vector<ParallelTask<ReturnType>> workers = new Vector<>(count);
 			
 			// Use only copies of the task for calculation, leaving the template
 			// task in its original state, s.t. it may be reused again...
@@ -332,6 +594,8 @@ public abstract class ParallelTask<ReturnType> implements Runnable, Cloneable {
 				t.setIndex(i);
 				workers.add(t);
 			}
+			
+			this.workers = workers;
 		}
 		
 		/**
@@ -347,8 +611,40 @@ public abstract class ParallelTask<ReturnType> implements Runnable, Cloneable {
 		}
 		
 
-	    public synchronized void interruptAll() {
-	        for(ParallelTask<?> worker : workers) worker.interrupt();
+	    /**
+	     * Interrupts all workers. It does not lock the processor, s.t. it may be called by any worker 
+	     * (e.g. upon failure) while the processing is still underway.
+	     */
+	    public void interruptAll() {
+	        final Vector<ParallelTask<ReturnType>> workers = this.workers;
+	        if(workers == null) return;
+	        for(int i=workers.size(); --i >= 0; ) workers.get(i).interrupt();
+	    }
+	    
+	    /**
+	     * Processes a contiguous range of chunks, by splitting it recursively into halves until 
+	     * single chunks remain. The halves not being processed by a given thread are available
+	     * for stealing by other idle threads in the pool.
+	     */
+	    private class ChunkAction extends RecursiveAction {
+	        private static final long serialVersionUID = -2958151474186591387L;
+	        
+	        private int from, to;
+	        
+	        private ChunkAction(int from, int to) {
+	            this.from = from;
+	            this.to = to;
+	        }
+	        
+	        @Override
+	        protected void compute() {
+	            if(to - from == 1) {
+	                workers.get(from).run();
+	                return;
+	            }
+	            final int mid = (from + to) >>> 1;
+	            invokeAll(new ChunkAction(from, mid), new ChunkAction(mid, to));
+	        }
 	    }
 		
 	}
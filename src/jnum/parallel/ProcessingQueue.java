@@ -20,26 +20,58 @@
  * Contributors:
  *     Attila Kovacs <attila[AT]sigmyne.com> - initial API and implementation
  ******************************************************************************/
-
 package jnum.parallel;
 
-import java.util.Collection;
-import java.util.Hashtable;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-
-
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A queue of processes, events and synchronization points, which are dispatched in order. Processes run 
+ * asynchronously on the queue's executor, while the dependencies between entries are expressed as 
+ * {@link CompletableFuture} stages. As such, the dispatching never blocks on the completion of processes,
+ * and the queue may pipeline a large number of small processing steps without lock contention.
+ * <p>
+ * Processes added after a {@link Synchronization} will start only after all processes dispatched before it
+ * have completed. {@link Event}s are activated once all processes dispatched before them have completed.
+ * 
+ * @author Attila Kovacs <attila@sigmyne.com>
+ *
+ */
 public class ProcessingQueue extends Thread {
 
-	private boolean isEnabled = true;
+	private volatile boolean isEnabled = true;
 
 	private ArrayBlockingQueue<Entry> queue;
 
-	private ExecutorService executor;
+	private volatile ExecutorService executor;
+	
+	/** Whether the executor was created by this queue, and so must be shut down by it */
+	private boolean isOwnExecutor = false;
 
-	private Hashtable<Integer, Process> activeProcesses = new Hashtable<>();
+	private final ConcurrentHashMap<Integer, Process> activeProcesses = new ConcurrentHashMap<>();
+	
+	private final AtomicInteger nextProcessID = new AtomicInteger(1);
+	
+	private final AtomicLong submitted = new AtomicLong(), completed = new AtomicLong();
+	
+	private volatile long startTime = System.nanoTime();
+	
+	/** The stage that must complete before newly dispatched processes may start */
+	private CompletableFuture<Void> barrier = CompletableFuture.completedFuture(null);
 	
 
+	/**
+	 * Creates a new processing queue of the given capacity, which dispatches its processes to a
+	 * virtual-thread-per-task executor (see {@link #useVirtualThreads()}), unless another executor is
+	 * set via {@link #setExecutor(ExecutorService)}.
+	 * 
+	 * @param size     the maximum number of entries that may be queued.
+	 */
 	public ProcessingQueue(int size) {
 		queue = new ArrayBlockingQueue<>(size);
 	}
@@ -51,8 +83,40 @@ public class ProcessingQueue extends Thread {
 	}
 	
 
-	public void setExecutor(ExecutorService e) {
+	/**
+	 * Sets the executor to which processes are dispatched. The caller remains responsible for shutting down the
+	 * executor it supplies. An executor that the queue had created itself (see {@link #useVirtualThreads()}) is
+	 * shut down, after the processes already dispatched to it complete.
+	 * 
+	 * @param e    the new executor.
+	 */
+	public synchronized void setExecutor(ExecutorService e) {
+		if(isOwnExecutor && executor != e) executor.shutdown();
 		this.executor = e;
+		isOwnExecutor = false;
+	}
+	
+	/**
+	 * Sets the queue to dispatch its processes each in its own virtual thread (or a cached daemon platform thread 
+	 * on JVMs without virtual thread support). This is the preferred choice for queues of I/O-bound processes, since 
+	 * blocking reads will not tie up threads that are needed elsewhere for computation. The executor is owned by
+	 * the queue, and is shut down by {@link #shutdown()}.
+	 * 
+	 * @see ParallelTask#newVirtualThreadExecutor()
+	 */
+	public synchronized void useVirtualThreads() {
+	    setExecutor(ParallelTask.newVirtualThreadExecutor());
+	    isOwnExecutor = true;
+	}
+	
+	/**
+	 * Stops taking new entries from the queue, and shuts down the executor if it was created by the queue
+	 * (see {@link #useVirtualThreads()}). Processes that have already been dispatched will still complete.
+	 * An executor supplied via {@link #setExecutor(ExecutorService)} is left running.
+	 */
+	public synchronized void shutdown() {
+	    interrupt();
+	    if(isOwnExecutor) executor.shutdown();
 	}
 	
 
@@ -63,15 +127,22 @@ public class ProcessingQueue extends Thread {
 	 */
 	@Override
 	public void run() {
+	    startTime = System.nanoTime();
+	    
 		while(!isInterrupted()) {			
 			try { 
-				while(!isEnabled) wait();
+				waitEnabled();
 				queue.take().process(); 	
 			}
 			catch(InterruptedException e) { interrupt(); }
 		}
 	}
 	
+	
+	private synchronized void waitEnabled() throws InterruptedException {
+	    while(!isEnabled) wait();
+	}
+	
 
 	public void pause() {
 		isEnabled = false;
@@ -84,6 +155,13 @@ public class ProcessingQueue extends Thread {
 	}
 	
 
+	public Process addProcess(Runnable r) {
+	    Process p = new Process(r);
+	    queue.add(p);
+	    return p;
+	}
+	
+
 	public Event addEvent() {
 		Event e = new Event();
 		queue.add(e);
@@ -112,10 +190,48 @@ public class ProcessingQueue extends Thread {
 		return activeProcesses.size();
 	}
 	
+	/**
+	 * Returns the number of processes that have been queued up but not yet completed, i.e. the sum of those still
+	 * waiting in the queue and those that have been dispatched but are still pending or running.
+	 * 
+	 * @return     the current processing backlog.
+	 */
+	public int getBacklog() {
+	    int n = countActive();
+	    for(Entry e : queue) if(e instanceof Process) n++;
+	    return n;
+	}
+	
+	
+	public long getSubmittedCount() { return submitted.get(); }
+	
+	
+	public long getCompletedCount() { return completed.get(); }
+	
+	/**
+	 * Returns the average rate at which processes have been completed since the queue was started.
+	 * 
+	 * @return     (Hz) the number of processes completed per second.
+	 */
+	public double getThroughput() {
+	    final double dt = 1e-9 * (System.nanoTime() - startTime);
+	    return dt > 0.0 ? completed.get() / dt : 0.0;
+	}
+	
+	/**
+	 * Returns a stage that completes when all processes, which have been dispatched at the time of the call,
+	 * complete.
+	 * 
+	 * @return     a future for the completion of all currently active processes.
+	 */
+	public CompletableFuture<Void> getCurrentCompletion() {
+	    return CompletableFuture.allOf(activeProcesses.values().stream().map(p -> p.future).toArray(CompletableFuture[]::new));
+	}
+	
 
 	public void waitCompleteCurrent() throws InterruptedException {
-		final Collection<Process> processes = activeProcesses.values();
-		for(Process p : processes) p.waitComplete();
+	    try { getCurrentCompletion().get(); }
+	    catch(ExecutionException e) {}
 	}
 	
 
@@ -132,12 +248,12 @@ public class ProcessingQueue extends Thread {
 
 		private Runnable process;
 
-		private boolean isComplete = false;
+		private final CompletableFuture<Void> future = new CompletableFuture<>();
 		
 
 		private Process(Runnable r) {
 			this.process = r;
-			processID = nextProcessID++;
+			processID = nextProcessID.getAndIncrement();
 		}
 		
 		/* (non-Javadoc)
@@ -145,9 +261,13 @@ public class ProcessingQueue extends Thread {
 		 */
 		@Override
 		void process() {
-			if(isComplete) throw new IllegalStateException("Cannot re-run process.");
+			if(future.isDone()) throw new IllegalStateException("Cannot re-run process.");
+			if(executor == null) useVirtualThreads();
+			
 			activeProcesses.put(processID, this);
-			executor.submit(this);
+			submitted.incrementAndGet();
+			
+			barrier.thenRunAsync(this, executor).whenComplete((v, e) -> checkout(e));
 		}
 		
 		/* (non-Javadoc)
@@ -156,19 +276,31 @@ public class ProcessingQueue extends Thread {
 		@Override
 		public void run() {
 			process.run();
-			checkout();
 		}
 		
 
-		private synchronized void checkout() {
-			isComplete = true;
+		private void checkout(Throwable e) {
+			if(e == null) future.complete(null);
+			else future.completeExceptionally(e);
+			
+			completed.incrementAndGet();
 			activeProcesses.remove(processID);
-			notifyAll();
 		}
 		
+		
+		public boolean isComplete() { return future.isDone(); }
+		
+		/**
+		 * Returns the stage that completes when this process has finished (normally or exceptionally).
+		 * 
+		 * @return     the future completion of this process.
+		 */
+		public CompletableFuture<Void> getFuture() { return future; }
+		
 
 		public void waitComplete() throws InterruptedException {
-			while(!isComplete) wait();
+			try { future.get(); }
+			catch(ExecutionException e) {}
 		}
 		
 	}
@@ -184,21 +316,22 @@ public class ProcessingQueue extends Thread {
 		 */
 		@Override
 		void process() {
-			try { waitCompleteCurrent(); }
-			catch(InterruptedException e) {}
+		    // Processes dispatched from here on will wait for the ones already dispatched...
+		    // (handle() ensures that failed processes do not prevent the subsequent ones from running).
+			barrier = getCurrentCompletion().handle((v, e) -> null);
 		}
 		
 	}
 
 	
-	public class Event extends Entry implements Runnable {
+	public class Event extends Entry {
 
-		private boolean isActivated = false;
+		private final CompletableFuture<Void> future = new CompletableFuture<>();
 		
 		private Event() {}
 		
 		public boolean isActivated() {
-			return isActivated;
+			return future.isDone();
 		}
 
 		/* (non-Javadoc)
@@ -206,28 +339,26 @@ public class ProcessingQueue extends Thread {
 		 */
 		@Override
 		void process() {
-			new Thread(this).start();		
+		    getCurrentCompletion().whenComplete((v, e) -> generate());
 		} 
 		
-		/* (non-Javadoc)
-		 * @see java.lang.Runnable#run()
-		 */
-		@Override
-		public void run() {
-			try { waitCompleteCurrent(); }
-			catch(InterruptedException e) {}
-			generate();
-		}
-		
 
-		synchronized void generate() {
-			isActivated = true;
-			notifyAll();
+		void generate() {
+			future.complete(null);
 		}
 		
+		/**
+		 * Returns the stage that completes when this event is activated, that is when all processes dispatched 
+		 * before it have completed.
+		 * 
+		 * @return     the future activation of this event.
+		 */
+		public CompletableFuture<Void> getFuture() { return future; }
+		
 
 		public void waitFor() throws InterruptedException {
-			while(!isActivated) wait();
+		    try { future.get(); }
+		    catch(ExecutionException e) {}
 		}
 	}
 	
@@ -247,12 +378,9 @@ public class ProcessingQueue extends Thread {
 		 */
 		@Override
 		void generate() {
-			super.generate();
 			new ProcessingEvent(ProcessingQueue.this, eventID);
+			super.generate();
 		}
 	}
-	
-
-	private int nextProcessID = 1;
 		
 }
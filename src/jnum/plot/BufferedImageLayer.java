@@ -75,7 +75,7 @@ public class BufferedImageLayer extends ImageLayer {
 	}
 	
 
-	public final double getValue(int i, int j) { return data.isValid(i, j) ? data.get(i, j).doubleValue() : Double.NaN; }
+	public final double getValue(int i, int j) { return data.isValid(i, j) ? data.getDouble(i, j) : Double.NaN; }
 
 
 	public AffineTransform indexToCoords() {
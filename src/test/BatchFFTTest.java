@@ -0,0 +1,180 @@
+package test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+
+import jnum.fft.DoubleFFT;
+import jnum.fft.FFT;
+import jnum.fft.FloatFFT;
+import jnum.parallel.ParallelTask;
+
+public class BatchFFTTest {
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        ExecutorService executor = ParallelTask.newDefaultParallelExecutor(4);
+
+        // Power-of-2 and mixed-radix sizes...
+        final int[] sizes = { 64, 1024, 60, 210 };
+        final int channels = 7;
+
+        for(int n : sizes) {
+            checkDouble(n, channels, new DoubleFFT(executor), new DoubleFFT(), 0, random);
+            checkDouble(n, channels, new DoubleFFT.NyquistUnrolledReal(executor), new DoubleFFT.NyquistUnrolledReal(), 2, random);
+            checkFloat(n, channels, new FloatFFT(executor), new FloatFFT(), 0, random);
+            checkFloat(n, channels, new FloatFFT.NyquistUnrolledReal(executor), new FloatFFT.NyquistUnrolledReal(), 2, random);
+            checkInterleaved(n, channels, executor, random);
+        }
+
+        executor.shutdown();
+
+        Checks.finish();
+    }
+
+    static void checkDouble(int n, int channels, DoubleFFT batch, DoubleFFT single, int extra, Random random) {
+        final String name = batch.getClass().getSimpleName() + " " + n;
+        batch.setParallel(4);
+
+        final double[][] data = new double[channels][n + extra];
+        for(double[] channel : data) for(int i=n; --i >= 0; ) channel[i] = random.nextGaussian();
+
+        double[][] x, y;
+
+        // Complex (the Nyquist-unrolled layout applies to real transforms only)...
+        if(extra == 0) {
+            x = copy(data); y = copy(data);
+            batch.complexTransform(x, FFT.FORWARD);
+            for(double[] channel : y) single.complexTransform(channel, FFT.FORWARD);
+            Checks.report(name + " batched complex forward", maxDeviation(x, y) == 0.0, "max deviation " + maxDeviation(x, y));
+
+            batch.complexTransform(x, FFT.BACK);
+            for(double[] channel : y) single.complexTransform(channel, FFT.BACK);
+            Checks.report(name + " batched complex back", maxDeviation(x, y) == 0.0, "max deviation " + maxDeviation(x, y));
+        }
+
+        // Real...
+        x = copy(data); y = copy(data);
+        batch.realTransform(x, FFT.FORWARD);
+        for(double[] channel : y) single.realTransform(channel, FFT.FORWARD);
+        Checks.report(name + " batched real forward", maxDeviation(x, y) == 0.0, "max deviation " + maxDeviation(x, y));
+
+        batch.realTransform(x, FFT.BACK);
+        for(double[] channel : y) single.realTransform(channel, FFT.BACK);
+        Checks.report(name + " batched real back", maxDeviation(x, y) == 0.0, "max deviation " + maxDeviation(x, y));
+
+        // Amplitudes...
+        x = copy(data); y = copy(data);
+        batch.real2Amplitude(x);
+        for(double[] channel : y) single.real2Amplitude(channel);
+        Checks.report(name + " batched real2Amplitude", maxDeviation(x, y) == 0.0, "max deviation " + maxDeviation(x, y));
+
+        batch.amplitude2Real(x);
+        for(double[] channel : y) single.amplitude2Real(channel);
+        Checks.report(name + " batched amplitude2Real", maxDeviation(x, y) == 0.0, "max deviation " + maxDeviation(x, y));
+        Checks.report(name + " amplitude round trip", maxDeviation(x, data) < 1e-12 * n, "max deviation " + maxDeviation(x, data));
+    }
+
+    static void checkFloat(int n, int channels, FloatFFT batch, FloatFFT single, int extra, Random random) {
+        final String name = batch.getClass().getSimpleName() + " " + n;
+        batch.setParallel(4);
+
+        final float[][] data = new float[channels][n + extra];
+        for(float[] channel : data) for(int i=n; --i >= 0; ) channel[i] = (float) random.nextGaussian();
+
+        float[][] x, y;
+
+        if(extra == 0) {
+            x = copy(data); y = copy(data);
+            batch.complexTransform(x, FFT.FORWARD);
+            for(float[] channel : y) single.complexTransform(channel, FFT.FORWARD);
+            Checks.report(name + " batched complex forward", maxDeviation(x, y) == 0.0, "max deviation " + maxDeviation(x, y));
+        }
+
+        x = copy(data); y = copy(data);
+        batch.realTransform(x, FFT.FORWARD);
+        for(float[] channel : y) single.realTransform(channel, FFT.FORWARD);
+        Checks.report(name + " batched real forward", maxDeviation(x, y) == 0.0, "max deviation " + maxDeviation(x, y));
+
+        batch.realTransform(x, FFT.BACK);
+        for(float[] channel : y) single.realTransform(channel, FFT.BACK);
+        Checks.report(name + " batched real back", maxDeviation(x, y) == 0.0, "max deviation " + maxDeviation(x, y));
+
+        x = copy(data); y = copy(data);
+        batch.real2Amplitude(x);
+        for(float[] channel : y) single.real2Amplitude(channel);
+        Checks.report(name + " batched real2Amplitude", maxDeviation(x, y) == 0.0, "max deviation " + maxDeviation(x, y));
+
+        batch.amplitude2Real(x);
+        for(float[] channel : y) single.amplitude2Real(channel);
+        Checks.report(name + " batched amplitude2Real", maxDeviation(x, y) == 0.0, "max deviation " + maxDeviation(x, y));
+    }
+
+    // The structure-of-arrays layout: real parts of all channels for point j at 2jK + c, imaginary parts at (2j+1)K + c.
+    static void checkInterleaved(int n, int channels, ExecutorService executor, Random random) {
+        final double[][] data = new double[channels][n << 1];
+        for(double[] channel : data) for(int i=channel.length; --i >= 0; ) channel[i] = random.nextGaussian();
+
+        final double[] packed = new double[channels * (n << 1)];
+        final float[] packedFloat = new float[packed.length];
+        for(int c=channels; --c >= 0; ) for(int j=n; --j >= 0; ) {
+            packed[2 * j * channels + c] = data[c][j << 1];
+            packed[(2 * j + 1) * channels + c] = data[c][(j << 1) + 1];
+        }
+        for(int i=packed.length; --i >= 0; ) packedFloat[i] = (float) packed[i];
+
+        final DoubleFFT fft = new DoubleFFT(executor);
+        fft.setParallel(4);
+        final FloatFFT floatFFT = new FloatFFT(executor);
+        floatFFT.setParallel(4);
+
+        for(boolean isForward : new boolean[] { FFT.FORWARD, FFT.BACK }) {
+            final String name = "interleaved " + n + (isForward ? " forward" : " back");
+
+            final double[] x = packed.clone();
+            fft.complexTransform(x, channels, isForward);
+
+            final float[] f = packedFloat.clone();
+            floatFFT.complexTransform(f, channels, isForward);
+
+            double maxDev = 0.0, maxFloatDev = 0.0;
+            for(int c=channels; --c >= 0; ) {
+                final double[] expected = data[c].clone();
+                new DoubleFFT().complexTransform(expected, isForward);
+
+                for(int j=n; --j >= 0; ) {
+                    final double re = expected[j << 1], im = expected[(j << 1) + 1];
+                    final int ir = 2 * j * channels + c, ii = (2 * j + 1) * channels + c;
+                    maxDev = Math.max(maxDev, Math.max(Math.abs(x[ir] - re), Math.abs(x[ii] - im)));
+                    maxFloatDev = Math.max(maxFloatDev, Math.max(Math.abs(f[ir] - re), Math.abs(f[ii] - im)));
+                }
+            }
+
+            Checks.report(name, maxDev < 1e-12 * n, "max deviation " + maxDev);
+            Checks.report("float " + name, maxFloatDev < 1e-4 * n, "max deviation " + maxFloatDev);
+        }
+    }
+
+    static double[][] copy(double[][] data) {
+        final double[][] copy = new double[data.length][];
+        for(int k=data.length; --k >= 0; ) copy[k] = data[k].clone();
+        return copy;
+    }
+
+    static float[][] copy(float[][] data) {
+        final float[][] copy = new float[data.length][];
+        for(int k=data.length; --k >= 0; ) copy[k] = data[k].clone();
+        return copy;
+    }
+
+    static double maxDeviation(double[][] a, double[][] b) {
+        double max = 0.0;
+        for(int k=a.length; --k >= 0; ) for(int i=a[k].length; --i >= 0; ) max = Math.max(max, Math.abs(a[k][i] - b[k][i]));
+        return max;
+    }
+
+    static double maxDeviation(float[][] a, float[][] b) {
+        double max = 0.0;
+        for(int k=a.length; --k >= 0; ) for(int i=a[k].length; --i >= 0; ) max = Math.max(max, Math.abs(a[k][i] - b[k][i]));
+        return max;
+    }
+}
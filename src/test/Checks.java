@@ -0,0 +1,28 @@
+package test;
+
+/**
+ * Pass/fail bookkeeping shared by the regression test programs in this package. Each check is printed as it is
+ * made, and {@link #finish()} prints the summary and exits with a non-zero status if any of the checks failed.
+ * 
+ * @author Attila Kovacs <attila@sigmyne.com>
+ *
+ */
+final class Checks {
+    private static int failures = 0;
+    
+    private Checks() {}
+    
+    static void report(String name, boolean isPassed) {
+        System.err.println((isPassed ? "  OK   " : "  FAIL ") + name);
+        if(!isPassed) failures++;
+    }
+    
+    static void report(String name, boolean isPassed, String detail) {
+        report(name + ": " + detail, isPassed);
+    }
+    
+    static void finish() {
+        System.err.println(failures == 0 ? "All tests passed." : failures + " test(s) FAILED.");
+        if(failures > 0) System.exit(1);
+    }
+}
@@ -0,0 +1,116 @@
+package test;
+
+import java.util.Random;
+
+import jnum.data.Cleaner;
+import jnum.data.image.FlatGrid2D;
+import jnum.data.image.Gaussian2D;
+import jnum.data.image.Image2D;
+import jnum.data.image.Index2D;
+import jnum.data.image.overlay.Referenced2D;
+import jnum.math.Vector2D;
+
+public class CleanerTest {
+    
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        
+        Referenced2D ref = new Gaussian2D(4.0).getBeam(new FlatGrid2D(), 1.0);
+        Image2D beam = ref.getImage();
+        Vector2D center = ref.getReferenceIndex();
+        
+        Image2D image = Image2D.createType(Double.class, 90, 70);
+        for(int i=image.sizeX(); --i >= 0; ) for(int j=image.sizeY(); --j >= 0; ) image.set(i, j, 0.01 * random.nextGaussian());
+        
+        // A few point sources, some near the edges...
+        final int[][] sources = { { 20, 30 }, { 60, 15 }, { 2, 3 }, { 88, 68 }, { 45, 40 } };
+        for(int n=0; n < sources.length; n++) addBeam(image, beam, center, sources[n][0], sources[n][1], (n & 1) == 0 ? 1.0 + n : -1.0 - n);
+        
+        // Some blanked pixels...
+        for(int k=50; --k >= 0; ) image.discard(random.nextInt(image.sizeX()), random.nextInt(image.sizeY()));
+        
+        final double gain = 0.1, threshold = 0.05;
+        
+        // Hogbom CLEAN must match a plain full-scan implementation...
+        Image2D expected = image.copy(true);
+        int expectedComponents = hogbom(expected, beam, center, gain, threshold);
+        
+        Image2D residual = image.copy(true);
+        Cleaner<Index2D, Vector2D> cleaner = new Cleaner<>(residual, beam, center);
+        cleaner.setTileSize(8);
+        Image2D model = (Image2D) cleaner.clean(gain, threshold);
+        
+        Checks.report("Hogbom components: " + cleaner.getComponents() + " vs. " + expectedComponents, cleaner.getComponents() == expectedComponents);
+        Checks.report("Hogbom residuals: max deviation " + maxDeviation(residual, expected), maxDeviation(residual, expected) < 1e-9);
+        Checks.report("Hogbom residual peak " + maxAbs(residual), maxAbs(residual) <= threshold);
+        
+        // The model must hold the source fluxes (scaled by the beam area), up to the un-cleaned residuals
+        // of about the threshold level per source...
+        double flux = 0.0;
+        for(int n=0; n < sources.length; n++) flux += (n & 1) == 0 ? 1.0 + n : -1.0 - n;
+        final double fluxTolerance = 2.0 * threshold * sources.length;
+        final double modelFlux = model.getSum() / beam.getAbsSum();
+        Checks.report("Hogbom model flux " + modelFlux + " vs. " + flux, Math.abs(modelFlux - flux) < fluxTolerance);
+        
+        // Clark CLEAN must reach the same threshold, with a similar model. The larger patch levels used to
+        // diverge in the minor cycles...
+        for(double level : new double[] { 0.05, 0.2, 0.3, 0.5 }) {
+            Image2D clarkResidual = image.copy(true);
+            Cleaner<Index2D, Vector2D> clark = new Cleaner<>(clarkResidual, beam, center);
+            clark.setPatchLevel(level);
+            Image2D clarkModel = (Image2D) clark.clean(gain, threshold);
+        
+            Checks.report("Clark (" + level + ") residual peak " + maxAbs(clarkResidual), maxAbs(clarkResidual) <= threshold);
+            final double clarkFlux = clarkModel.getSum() / beam.getAbsSum();
+            Checks.report("Clark (" + level + ") model flux " + clarkFlux + " vs. " + flux, Math.abs(clarkFlux - flux) < fluxTolerance);
+        }
+        
+        Checks.finish();
+    }
+    
+    static void addBeam(Image2D image, Image2D beam, Vector2D center, int i0, int j0, double amplitude) {
+        final int di = (int) Math.round(center.x()), dj = (int) Math.round(center.y());
+        
+        for(int bi=beam.sizeX(); --bi >= 0; ) for(int bj=beam.sizeY(); --bj >= 0; ) {
+            final int i = i0 + bi - di, j = j0 + bj - dj;
+            if(i < 0 || i >= image.sizeX() || j < 0 || j >= image.sizeY()) continue;
+            if(image.isValid(i, j)) image.add(i, j, amplitude * beam.getDouble(bi, bj));
+        }
+    }
+    
+    static int hogbom(Image2D image, Image2D beam, Vector2D center, double gain, double threshold) {
+        final int maxComponents = (int) Math.ceil(image.countPoints() / gain);
+        int components = 0;
+        
+        while(components < maxComponents) {
+            int i0 = -1, j0 = -1;
+            double max = threshold;
+            
+            for(int i=image.sizeX(); --i >= 0; ) for(int j=image.sizeY(); --j >= 0; ) if(image.isValid(i, j)) {
+                final double value = Math.abs(image.getDouble(i, j));
+                if(value > max) { max = value; i0 = i; j0 = j; }
+            }
+            
+            if(i0 < 0) break;
+            
+            addBeam(image, beam, center, i0, j0, -gain * image.getDouble(i0, j0));
+            components++;
+        }
+        
+        return components;
+    }
+    
+    static double maxAbs(Image2D image) {
+        double max = 0.0;
+        for(int i=image.sizeX(); --i >= 0; ) for(int j=image.sizeY(); --j >= 0; ) if(image.isValid(i, j)) 
+            max = Math.max(max, Math.abs(image.getDouble(i, j)));
+        return max;
+    }
+    
+    static double maxDeviation(Image2D a, Image2D b) {
+        double max = 0.0;
+        for(int i=a.sizeX(); --i >= 0; ) for(int j=a.sizeY(); --j >= 0; ) if(a.isValid(i, j)) 
+            max = Math.max(max, Math.abs(a.getDouble(i, j) - b.getDouble(i, j)));
+        return max;
+    }
+}
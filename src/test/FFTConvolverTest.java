@@ -0,0 +1,92 @@
+package test;
+
+import java.util.Random;
+
+import jnum.data.FFTConvolver;
+import jnum.data.RegularData;
+import jnum.data.image.Image2D;
+import jnum.data.image.Index2D;
+import jnum.math.Vector2D;
+
+public class FFTConvolverTest {
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+
+        Image2D image = Image2D.createType(Double.class, 120, 90);
+        Image2D weight = Image2D.createType(Double.class, 120, 90);
+        Image2D companion = Image2D.createType(Double.class, 120, 90);
+
+        for(int i=image.sizeX(); --i >= 0; ) for(int j=image.sizeY(); --j >= 0; ) {
+            image.set(i, j, random.nextGaussian());
+            weight.set(i, j, 0.5 + random.nextDouble());
+            companion.set(i, j, 1.0 + random.nextDouble());
+        }
+
+        // Blanks, including a whole column near the edge...
+        for(int k=300; --k >= 0; ) image.discard(random.nextInt(image.sizeX()), random.nextInt(image.sizeY()));
+        for(int j=image.sizeY(); --j >= 0; ) image.discard(2, j);
+
+        // An asymmetric beam, s.t. a mirrored or shifted kernel would show...
+        Image2D beam = Image2D.createType(Double.class, 15, 15);
+        for(int i=beam.sizeX(); --i >= 0; ) for(int j=beam.sizeY(); --j >= 0; ) {
+            final double dx = (i - 7.0) / 3.0, dy = (j - 6.0) / 2.0;
+            beam.set(i, j, Math.exp(-0.5 * (dx * dx + dy * dy)) + 0.01 * i);
+        }
+
+        // Integer and fractional reference indices...
+        final double[][] refs = { { 7.0, 7.0 }, { 7.3, 7.0 }, { 7.0, 6.6 }, { 6.5, 8.25 } };
+
+        final int defaultCrossover = RegularData.fftSmoothingCrossover;
+
+        for(double[] r : refs) {
+            final Vector2D ref = new Vector2D(r[0], r[1]);
+            final String name = "ref (" + r[0] + ", " + r[1] + ")";
+
+            for(boolean isWeighted : new boolean[] { false, true }) {
+                final Image2D w = isWeighted ? weight : null;
+                final String label = name + (isWeighted ? " weighted" : " unweighted");
+
+                final Image2D fftWeights = Image2D.createType(Double.class, 120, 90);
+                final Image2D fftCompanion = Image2D.createType(Double.class, 120, 90);
+                @SuppressWarnings("unchecked")
+                final Image2D fft = (Image2D) new FFTConvolver<>(image, beam, ref).getSmoothed(w, fftWeights, companion, fftCompanion);
+
+                // Force the direct sums...
+                RegularData.fftSmoothingCrossover = Integer.MAX_VALUE;
+                final Image2D directWeights = Image2D.createType(Double.class, 120, 90);
+                final Image2D directCompanion = Image2D.createType(Double.class, 120, 90);
+                final Image2D direct = (Image2D) image.getSmoothed(beam, ref, w, directWeights, companion, directCompanion);
+                RegularData.fftSmoothingCrossover = defaultCrossover;
+
+                compare(label + " values", image, fft, direct, 1e-10);
+                compare(label + " weights", image, fftWeights, directWeights, 1e-10);
+                compare(label + " companion", image, fftCompanion, directCompanion, 1e-10);
+            }
+        }
+
+        // getSmoothed() must pick the FFT path by default for this beam, with the same result...
+        final Vector2D ref = new Vector2D(7.3, 7.0);
+        final Image2D auto = (Image2D) image.getSmoothed(beam, ref, weight, null);
+        RegularData.fftSmoothingCrossover = Integer.MAX_VALUE;
+        final Image2D direct = (Image2D) image.getSmoothed(beam, ref, weight, null);
+        RegularData.fftSmoothingCrossover = defaultCrossover;
+        compare("default smoothing path", image, auto, direct, 1e-10);
+
+        Checks.finish();
+    }
+
+    static void compare(String name, Image2D image, Image2D a, Image2D b, double tolerance) {
+        double maxDev = 0.0;
+        int mismatches = 0;
+
+        for(int i=image.sizeX(); --i >= 0; ) for(int j=image.sizeY(); --j >= 0; ) {
+            if(!image.isValid(i, j)) continue;
+            final double x = a.getDouble(i, j), y = b.getDouble(i, j);
+            if(Double.isNaN(x) != Double.isNaN(y)) mismatches++;
+            else if(!Double.isNaN(x)) maxDev = Math.max(maxDev, Math.abs(x - y) / Math.max(1.0, Math.abs(y)));
+        }
+
+        Checks.report(name, maxDev <= tolerance && mismatches == 0, "max rel. deviation " + maxDev + ", " + mismatches + " NaN mismatches");
+    }
+}
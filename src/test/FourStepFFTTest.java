@@ -0,0 +1,81 @@
+package test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+
+import jnum.fft.DoubleFFT;
+import jnum.fft.FFT;
+import jnum.fft.FFT1D;
+import jnum.fft.FloatFFT;
+import jnum.parallel.ParallelTask;
+
+public class FourStepFFTTest {
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+
+        ExecutorService executor = ParallelTask.newDefaultParallelExecutor(4);
+        final int defaultBits = FFT1D.fourStepAddressBits;
+
+        // Odd and even numbers of address bits, for square and non-square four-step layouts...
+        for(int bits=4; bits <= 12; bits++) {
+            final int n = 1 << bits;
+            final double[] data = new double[n << 1];
+            for(int i=data.length; --i >= 0; ) data[i] = random.nextGaussian();
+            final double[] expected = MixedRadixFFTTest.dft(data, true);
+
+            FFT1D.fourStepAddressBits = bits;
+            check("double " + n, data, expected, new DoubleFFT(), null);
+            check("parallel double " + n, data, expected, new DoubleFFT(executor), executor);
+            checkFloat("float " + n, data, expected, new FloatFFT(), null);
+            checkFloat("parallel float " + n, data, expected, new FloatFFT(executor), executor);
+        }
+
+        // Large transforms against the radix-2/4 passes...
+        for(int bits : new int[] { 17, 18 }) {
+            final int n = 1 << bits;
+            final double[] data = new double[n << 1];
+            for(int i=data.length; --i >= 0; ) data[i] = random.nextGaussian();
+
+            final double[] expected = data.clone();
+            FFT1D.fourStepAddressBits = defaultBits;
+            new DoubleFFT().complexTransform(expected, FFT.FORWARD);
+
+            FFT1D.fourStepAddressBits = bits;
+            check("double " + n + " vs. radix passes", data, expected, new DoubleFFT(), null);
+            check("parallel double " + n + " vs. radix passes", data, expected, new DoubleFFT(executor), executor);
+        }
+
+        FFT1D.fourStepAddressBits = defaultBits;
+        executor.shutdown();
+
+        Checks.finish();
+    }
+
+    static void check(String name, double[] data, double[] expected, DoubleFFT fft, ExecutorService executor) {
+        final int n = data.length >>> 1;
+        if(executor != null) fft.setParallel(4);
+
+        final double[] x = data.clone();
+        fft.complexTransform(x, FFT.FORWARD);
+        Checks.report(name + " forward", MixedRadixFFTTest.maxDeviation(x, expected) < 1e-9 * n);
+
+        fft.complexTransform(x, FFT.BACK);
+        for(int i=x.length; --i >= 0; ) x[i] /= n;
+        Checks.report(name + " round trip", MixedRadixFFTTest.maxDeviation(x, data) < 1e-12 * n);
+    }
+
+    static void checkFloat(String name, double[] data, double[] expected, FloatFFT fft, ExecutorService executor) {
+        final int n = data.length >>> 1;
+        if(executor != null) fft.setParallel(4);
+
+        final float[] f = new float[data.length];
+        for(int i=f.length; --i >= 0; ) f[i] = (float) data[i];
+        fft.complexTransform(f, FFT.FORWARD);
+
+        final double[] x = new double[f.length];
+        for(int i=f.length; --i >= 0; ) x[i] = f[i];
+        Checks.report(name + " forward", MixedRadixFFTTest.maxDeviation(x, expected) < 1e-4 * n);
+    }
+
+}
@@ -0,0 +1,142 @@
+package test;
+
+import java.util.Random;
+
+import jnum.Unit;
+import jnum.data.image.Data2D;
+import jnum.data.image.Flag2D;
+import jnum.data.image.FlatGrid2D;
+import jnum.data.image.Gaussian2D;
+import jnum.data.image.Image2D;
+import jnum.data.image.Map2D;
+import jnum.data.image.Observation2D;
+import jnum.data.image.Values2D;
+import jnum.data.image.overlay.Referenced2D;
+
+public class LineSmoothingTest {
+    
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        FlatGrid2D grid = new FlatGrid2D();
+        
+        Image2D image = Image2D.createType(Double.class, 80, 60);
+        Image2D weight = Image2D.createType(Double.class, 80, 60);
+        
+        for(int i=image.sizeX(); --i >= 0; ) for(int j=image.sizeY(); --j >= 0; ) {
+            image.set(i, j, random.nextGaussian());
+            weight.set(i, j, 0.5 + random.nextDouble());
+        }
+        
+        // Some blanked pixels, also near the edges...
+        for(int k=100; --k >= 0; ) image.discard(random.nextInt(image.sizeX()), random.nextInt(image.sizeY()));
+        for(int j=image.sizeY(); --j >= 0; ) image.discard(1, j);
+        
+        // Axis-aligned line passes are exact, including near edges and blanks...
+        for(double angle : new double[] { 0.0, 90.0 }) {
+            Gaussian2D psf = new Gaussian2D(6.0, 3.0, angle * Unit.deg);
+            Referenced2D beam = psf.getBeam(grid);
+            
+            Image2D lineWeights = weight.copy(false);
+            Image2D beamWeights = weight.copy(false);
+            
+            Values2D line = image.getLineSmoothed(psf.getLineBeams(grid), weight, lineWeights);
+            Data2D direct = (Data2D) image.getSmoothed(beam, weight, beamWeights);
+            
+            compare("axis-aligned (" + angle + " deg) values", image, line, direct, 1e-10);
+            compare("axis-aligned (" + angle + " deg) weights", image, lineWeights, beamWeights, 1e-10);
+        }
+        
+        // Rotated PSFs have no line beams...
+        boolean isRejected = false;
+        try { new Gaussian2D(6.0, 3.0, 30.0 * Unit.deg).getLineBeams(grid); }
+        catch(UnsupportedOperationException e) { isRejected = true; }
+        Checks.report("rotated PSF line beams rejected", isRejected);
+        
+        // Map2D uses line passes for axis-aligned PSFs only...
+        for(double angle : new double[] { 0.0, 30.0 }) {
+            Gaussian2D psf = new Gaussian2D(6.0, 3.0, angle * Unit.deg);
+            
+            Map2D.lineSmoothing = true;
+            Map2D lineMap = newMap(image);
+            lineMap.smooth(psf);
+            
+            Map2D.lineSmoothing = false;
+            Map2D beamMap = newMap(image);
+            beamMap.smooth(psf);
+            
+            Map2D.lineSmoothing = true;
+            
+            boolean isLine = lineMap.getHistory().toString().contains("line passes");
+            boolean expectLine = psf.isAxisAligned();
+            Checks.report("map smoothing at " + angle + " deg uses " + (isLine ? "line passes" : "2D beam"), isLine == expectLine);
+            
+            // The 2D beam path is approximate (fastSmooth), so only rotated PSFs must match exactly... 
+            if(!expectLine) compare("rotated map smoothing falls back to the 2D beam", image, lineMap, beamMap, 0.0);
+        }
+        
+        // Observation2D smooths signal, weights and exposures in the same line passes, for axis-aligned PSFs only...
+        for(double angle : new double[] { 0.0, 30.0 }) {
+            Gaussian2D psf = new Gaussian2D(6.0, 3.0, angle * Unit.deg);
+            
+            Map2D.lineSmoothing = true;
+            Observation2D lineObs = newObservation(image, weight, random);
+            lineObs.smooth(psf);
+            
+            Observation2D beamObs = newObservation(image, weight, random);
+            if(psf.isAxisAligned()) beamObs.smooth(psf.getBeam(beamObs.getGrid()));
+            else {
+                Map2D.lineSmoothing = false;
+                beamObs.smooth(psf);
+                Map2D.lineSmoothing = true;
+            }
+            
+            final double tolerance = psf.isAxisAligned() ? 1e-10 : 0.0;
+            final String label = "observation at " + angle + " deg";
+            compare(label + " values", lineObs, lineObs, beamObs, tolerance);
+            compare(label + " weights", lineObs, lineObs.getWeightImage(), beamObs.getWeightImage(), tolerance);
+            compare(label + " exposures", lineObs, lineObs.getExposureImage(), beamObs.getExposureImage(), tolerance);
+        }
+        
+        Checks.finish();
+    }
+    
+    static Map2D newMap(Image2D image) {
+        Map2D map = new Map2D(image.copy(true), Flag2D.TYPE_INT);
+        map.setGrid(new FlatGrid2D());
+        map.setResolution(1.0, 1.0);
+        map.setUnderlyingBeam(1.0);
+        return map;
+    }
+    
+    static Observation2D newObservation(Image2D image, Image2D weight, Random random) {
+        Observation2D obs = new Observation2D(Double.class, Flag2D.TYPE_INT);
+        obs.setGrid(new FlatGrid2D());
+        obs.setResolution(1.0, 1.0);
+        obs.setUnderlyingBeam(1.0);
+        obs.setSize(image.sizeX(), image.sizeY());
+        
+        // The same pseudo-random exposures for every observation...
+        random.setSeed(2);
+        
+        for(int i=image.sizeX(); --i >= 0; ) for(int j=image.sizeY(); --j >= 0; ) {
+            obs.set(i, j, image.get(i, j));
+            obs.getWeightImage().set(i, j, weight.get(i, j));
+            obs.getExposureImage().set(i, j, 1.0 + random.nextDouble());
+            if(!image.isValid(i, j)) obs.discard(i, j);
+        }
+        
+        return obs;
+    }
+    
+    static void compare(String name, Data2D valid, Values2D a, Values2D b, double tolerance) {
+        double maxDev = 0.0;
+        
+        for(int i=valid.sizeX(); --i >= 0; ) for(int j=valid.sizeY(); --j >= 0; ) if(valid.isValid(i, j)) {
+            final double x = a.getDouble(i, j), y = b.getDouble(i, j);
+            final double dev = Math.abs(x - y) / Math.max(1e-3, Math.abs(y));
+            if(!(dev <= maxDev)) maxDev = dev;
+        }
+        
+        Checks.report(name + ": max rel. deviation " + maxDev, maxDev <= tolerance);
+    }
+}
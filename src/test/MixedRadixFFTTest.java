@@ -0,0 +1,113 @@
+package test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+
+import jnum.fft.DoubleFFT;
+import jnum.fft.FFT;
+import jnum.fft.FloatFFT;
+import jnum.fft.MixedRadixPlan;
+import jnum.parallel.ParallelTask;
+
+public class MixedRadixFFTTest {
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+
+        ExecutorService executor = ParallelTask.newDefaultParallelExecutor(4);
+        DoubleFFT parallel = new DoubleFFT(executor);
+        parallel.setParallel(4);
+
+        // Smooth sizes with radix 2, 3, 4, 5, 7 passes, and sizes with large prime factors (Bluestein)...
+        final int[] sizes = { 6, 12, 15, 30, 49, 97, 100, 210, 1000, 1022, 4099, 6720 };
+
+        Checks.report("plan for 1000 is mixed-radix", !MixedRadixPlan.forSize(1000).isBluestein());
+        Checks.report("plan for 97 is Bluestein", MixedRadixPlan.forSize(97).isBluestein());
+
+        for(int n : sizes) {
+            final double[] data = new double[n << 1];
+            for(int i=data.length; --i >= 0; ) data[i] = random.nextGaussian();
+            final double[] expected = dft(data, true);
+
+            double[] x = data.clone();
+            new DoubleFFT().complexTransform(x, FFT.FORWARD);
+            Checks.report("double " + n + " forward", maxDeviation(x, expected) < 1e-9 * n);
+
+            x = data.clone();
+            parallel.complexTransform(x, FFT.FORWARD);
+            Checks.report("parallel double " + n + " forward", maxDeviation(x, expected) < 1e-9 * n);
+
+            new DoubleFFT().complexTransform(x, FFT.BACK);
+            for(int i=x.length; --i >= 0; ) x[i] /= n;
+            Checks.report("double " + n + " round trip", maxDeviation(x, data) < 1e-12 * n);
+
+            final float[] f = new float[data.length];
+            for(int i=f.length; --i >= 0; ) f[i] = (float) data[i];
+            new FloatFFT().complexTransform(f, FFT.FORWARD);
+            final double[] y = new double[f.length];
+            for(int i=f.length; --i >= 0; ) y[i] = f[i];
+            Checks.report("float " + n + " forward", maxDeviation(y, expected) < 1e-4 * n);
+
+            if((n & 1) != 0) continue;
+
+            // Real transforms of even sizes, packed as F[0], F[n/2], and the complex F[k] for 0 < k < n/2...
+            final double[] real = new double[n];
+            for(int i=n; --i >= 0; ) real[i] = data[i << 1];
+            final double[] complex = new double[n << 1];
+            for(int i=n; --i >= 0; ) complex[i << 1] = real[i];
+            final double[] spectrum = dft(complex, true);
+            final double[] packed = new double[n];
+            packed[0] = spectrum[0];
+            packed[1] = spectrum[n];
+            for(int k=2; k < n; k++) packed[k] = spectrum[k];
+
+            x = real.clone();
+            new DoubleFFT().realTransform(x, FFT.FORWARD);
+            Checks.report("real " + n + " forward", maxDeviation(x, packed) < 1e-9 * n);
+
+            new DoubleFFT().realTransform(x, FFT.BACK);
+            for(int i=x.length; --i >= 0; ) x[i] *= 2.0 / n;
+            Checks.report("real " + n + " round trip", maxDeviation(x, real) < 1e-12 * n);
+        }
+
+        // The fast sizes must be smooth, and no smaller than requested...
+        boolean isFastOK = true;
+        for(int n=1; n < 5000; n++) {
+            final int m = MixedRadixPlan.getFastSize(n);
+            if(m < n || !MixedRadixPlan.isSmooth(m)) isFastOK = false;
+        }
+        Checks.report("fast sizes", isFastOK);
+
+        executor.shutdown();
+
+        Checks.finish();
+    }
+
+    // Direct DFT of interleaved complex data, with the same (unnormalized) convention as jnum.fft.
+    static double[] dft(double[] data, boolean isForward) {
+        final int n = data.length >>> 1;
+        final double[] result = new double[data.length];
+        final double sign = isForward ? 1.0 : -1.0;
+
+        for(int k=n; --k >= 0; ) {
+            double re = 0.0, im = 0.0;
+            for(int j=n; --j >= 0; ) {
+                final double phi = sign * 2.0 * Math.PI * ((long) j * k % n) / n;
+                final double c = Math.cos(phi), s = Math.sin(phi);
+                re += data[j << 1] * c - data[(j << 1) + 1] * s;
+                im += data[j << 1] * s + data[(j << 1) + 1] * c;
+            }
+            result[k << 1] = re;
+            result[(k << 1) + 1] = im;
+        }
+
+        return result;
+    }
+
+    static double maxDeviation(double[] a, double[] b) {
+        double max = 0.0;
+        for(int i=a.length; --i >= 0; ) max = Math.max(max, Math.abs(a[i] - b[i]));
+        return max;
+    }
+
+}
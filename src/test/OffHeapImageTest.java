@@ -0,0 +1,74 @@
+package test;
+
+import java.io.File;
+import java.util.Random;
+
+import jnum.data.image.OffHeapImage2D;
+import nom.tam.fits.BasicHDU;
+import nom.tam.fits.Fits;
+
+public class OffHeapImageTest {
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(1);
+
+        final OffHeapImage2D.Allocator[] allocators = { OffHeapImage2D.DIRECT, new OffHeapImage2D.MappedFileAllocator() };
+        final int defaultBlockBytes = OffHeapImage2D.fitsBlockBytes;
+
+        // Sizes whose data units do and do not fill whole FITS blocks...
+        final int[][] sizes = { { 97, 61 }, { 90, 64 }, { 1, 33 } };
+
+        for(OffHeapImage2D.Allocator allocator : allocators) {
+            final String storage = allocator == OffHeapImage2D.DIRECT ? "direct" : "mapped";
+
+            for(Class<? extends Number> type : new Class[] { Double.class, Float.class }) {
+                for(int[] size : sizes) {
+                    final String name = storage + " " + type.getSimpleName() + " " + size[0] + "x" + size[1];
+
+                    final OffHeapImage2D image = OffHeapImage2D.createType(type, size[0], size[1], allocator);
+                    for(int i=image.sizeX(); --i >= 0; ) for(int j=image.sizeY(); --j >= 0; ) image.setDouble(i, j, random.nextGaussian());
+                    for(int k=20; --k >= 0; ) image.discard(random.nextInt(image.sizeX()), random.nextInt(image.sizeY()));
+
+                    // A single row block, several blocks with a partial last one, and the default...
+                    for(int blockBytes : new int[] { 1, 3000, defaultBlockBytes }) {
+                        OffHeapImage2D.fitsBlockBytes = blockBytes;
+                        check(name + " (" + blockBytes + " byte blocks)", image);
+                    }
+                    OffHeapImage2D.fitsBlockBytes = defaultBlockBytes;
+                }
+            }
+        }
+
+        Checks.finish();
+    }
+
+    static void check(String name, OffHeapImage2D image) throws Exception {
+        final File file = File.createTempFile("offheap", ".fits");
+        file.deleteOnExit();
+
+        image.writeFits(file.getPath());
+
+        Checks.report(name + " padded to FITS blocks", file.length() % 2880 == 0, file.length() + " bytes");
+
+        Fits fits = new Fits(file);
+        BasicHDU<?> hdu = fits.readHDU();
+        final int[] axes = hdu.getAxes();
+        final Object data = hdu.getKernel();
+        final boolean isNextEmpty = fits.readHDU() == null;
+        fits.close();
+
+        Checks.report(name + " header", hdu.getBitPix() == image.getBitpix() && axes.length == 2 && axes[0] == image.sizeY() && axes[1] == image.sizeX(),
+                "BITPIX " + hdu.getBitPix() + ", axes " + axes[1] + "x" + axes[0]);
+        Checks.report(name + " single HDU", isNextEmpty);
+
+        double maxDev = 0.0;
+        int mismatches = 0;
+        for(int i=image.sizeX(); --i >= 0; ) for(int j=image.sizeY(); --j >= 0; ) {
+            final double value = data instanceof float[][] ? ((float[][]) data)[j][i] : ((double[][]) data)[j][i];
+            if(Double.isNaN(value) == image.isValid(i, j)) mismatches++;
+            else if(!Double.isNaN(value)) maxDev = Math.max(maxDev, Math.abs(value - image.getDouble(i, j)));
+        }
+
+        Checks.report(name + " values", maxDev == 0.0 && mismatches == 0, "max deviation " + maxDev + ", " + mismatches + " blanking mismatches");
+    }
+}
@@ -0,0 +1,387 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Attila Kovacs <attila[AT]sigmyne.com>.
+ * All rights reserved.
+ *
+ * This file is part of jnum.
+ *
+ *     jnum is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     jnum is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with jnum.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Attila Kovacs <attila[AT]sigmyne.com> - initial API and implementation
+ ******************************************************************************/
+package test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jnum.data.Data;
+import jnum.data.cube.Cube3D;
+import jnum.data.image.Image2D;
+import jnum.data.image.Index2D;
+import jnum.data.samples.Samples1D;
+import jnum.parallel.AdaptiveScheduler;
+import jnum.parallel.DoubleParallelPointOp;
+import jnum.parallel.ParallelPointOp;
+import jnum.parallel.ParallelTask;
+
+
+public class ParallelTaskTest {
+
+    public static void main(String[] args) {
+        final int n = 1000000;
+        final long expected = (long) n * (n - 1) / 2;
+
+        ExecutorService threads = ParallelTask.newDefaultParallelExecutor(4);
+        ForkJoinPool pool = ParallelTask.newForkJoinExecutor(4);
+
+        check("sequential sum", new Sum(n), 1, null, expected);
+        check("new threads sum", new Sum(n), 4, null, expected);
+        check("thread pool sum", new Sum(n), 4, threads, expected);
+        check("fork-join sum", new Sum(n), 4, pool, expected);
+
+        checkRepeated("repeated thread pool sums", n, threads);
+        checkRepeated("repeated fork-join sums", n, pool);
+
+        checkFailure("thread pool failure", threads);
+        checkFailure("fork-join failure", pool);
+
+        // The pools must remain usable after a failure...
+        check("fork-join sum after failure", new Sum(n), 4, pool, expected);
+
+        checkReuse("reused sequential workers", 1, null);
+        checkReuse("reused new-thread workers", 4, null);
+        checkReuse("reused thread pool workers", 4, threads);
+        checkReuse("reused fork-join workers", 4, pool);
+
+        checkReuseAfterFailure("reused thread pool workers after failure", threads);
+        checkReuseAfterFailure("reused fork-join workers after failure", pool);
+
+        // With a fixed number of chunks, s.t. the forks always have the same number of workers...
+        final boolean defaultReuse = Data.reusePointOpForks, isAdaptive = AdaptiveScheduler.isEnabled;
+        AdaptiveScheduler.isEnabled = false;
+        for(boolean isReusing : new boolean[] { false, true }) {
+            Data.reusePointOpForks = isReusing;
+            checkPointOpForks(isReusing ? "reused forks" : "new forks", threads);
+        }
+        Data.reusePointOpForks = defaultReuse;
+        AdaptiveScheduler.isEnabled = isAdaptive;
+
+        threads.shutdown();
+        pool.shutdown();
+
+        Checks.finish();
+    }
+
+
+    private static void check(String name, Sum task, int chunks, ExecutorService executor, long expected) {
+        try {
+            task.process(chunks, executor);
+            Checks.report(name, task.getResult() == expected, "sum = " + task.getResult());
+        }
+        catch(Exception e) { Checks.report(name, false, e.toString()); }
+    }
+
+
+    private static void checkRepeated(String name, int n, ExecutorService executor) {
+        // The same template task, processed again and again, must yield the result of each run...
+        final Sum task = new Sum(n);
+        for(int k=0; k < 100; k++) {
+            task.n = n - k;
+            final long expected = (long) task.n * (task.n - 1) / 2;
+            try { task.process(4, executor); }
+            catch(Exception e) { Checks.report(name, false, e.toString()); return; }
+            if(task.getResult() != expected) {
+                Checks.report(name, false, "run " + k + ": sum = " + task.getResult() + ", expected " + expected);
+                return;
+            }
+        }
+        Checks.report(name, true, "100 runs");
+    }
+
+
+    private static void checkFailure(final String name, final ExecutorService executor) {
+        final Exception[] caught = new Exception[1];
+
+        // Run in a separate thread, s.t. a deadlock is detected by the timeout...
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try { new Failing(1000).process(4, executor); }
+                catch(Exception e) { caught[0] = e; }
+            }
+        };
+
+        thread.setDaemon(true);
+        thread.start();
+
+        try { thread.join(10000L); }
+        catch(InterruptedException e) {}
+
+        if(thread.isAlive()) Checks.report(name, false, "deadlocked");
+        else if(caught[0] == null) Checks.report(name, false, "exception was not propagated");
+        else Checks.report(name, caught[0] instanceof IllegalStateException, "caught " + caught[0]);
+    }
+
+
+
+
+
+    private static void checkReuse(String name, int chunks, ExecutorService executor) {
+        final ReusableSum task = new ReusableSum();
+        task.setReuseWorkers(true);
+
+        int clones = 0;
+        for(int k=0; k < 100; k++) {
+            // Arguments are shared with the reused workers via a common object...
+            task.range[0] = 100000 - 37 * k;
+            final long expected = (long) task.range[0] * (task.range[0] - 1) / 2;
+            try { task.process(chunks, executor); }
+            catch(Exception e) { Checks.report(name, false, e.toString()); return; }
+            if(task.getResult() != expected) {
+                Checks.report(name, false, "run " + k + ": sum = " + task.getResult() + ", expected " + expected);
+                return;
+            }
+            if(k == 0) clones = task.clones.get();
+        }
+
+        Checks.report(name, clones > 0 && task.clones.get() == clones && task.resets.get() == 99 * clones,
+                task.clones.get() + " clones, " + task.resets.get() + " resets");
+    }
+
+
+    private static void checkReuseAfterFailure(String name, ExecutorService executor) {
+        final ReusableSum task = new ReusableSum();
+        task.setReuseWorkers(true);
+        task.range[0] = 100000;
+        task.failNext.set(true);
+
+        try {
+            task.process(4, executor);
+            Checks.report(name, false, "exception was not propagated");
+            return;
+        }
+        catch(Exception e) {}
+
+        // The next run, by the same workers, must complete normally...
+        final long expected = (long) task.range[0] * (task.range[0] - 1) / 2;
+        for(int k=0; k < 10; k++) {
+            try { task.process(4, executor); }
+            catch(Exception e) { Checks.report(name, false, "run " + k + ": " + e); return; }
+            if(task.getResult() != expected) {
+                Checks.report(name, false, "run " + k + ": sum = " + task.getResult() + ", expected " + expected);
+                return;
+            }
+        }
+        Checks.report(name, true);
+    }
+
+
+    private static void checkPointOpForks(String name, ExecutorService executor) {
+        final Image2D image = Image2D.createType(Double.class, 64, 48);
+        for(int i=image.sizeX(); --i >= 0; ) for(int j=image.sizeY(); --j >= 0; ) image.set(i, j, i + 3 * j);
+        for(int k=0; k < 200; k += 7) image.discard(k % image.sizeX(), k % image.sizeY());
+        image.setExecutor(executor);
+        image.setParallel(4);
+
+        // The same operation object, again and again, while the data change...
+        final AtomicInteger copies = new AtomicInteger();
+        final Total op = new Total(copies);
+        boolean isOK = true;
+        for(int k=0; k < 100; k++) {
+            image.set(k % image.sizeX(), 1, k);
+            final double expected = image.loopValidDouble(new Total(null));
+            final double sum = image.forkValidDouble(op);
+            if(sum != expected) isOK = false;
+        }
+        Checks.report(name + " of the same operation", isOK);
+        if(Data.reusePointOpForks) Checks.report(name + " keep local copies", copies.get() == 104, copies.get() + " copies for 100 calls");
+        else Checks.report(name + " make local copies", copies.get() == 500, copies.get() + " copies for 100 calls");
+
+        // New operation objects, and the other kinds of forks...
+        isOK = true;
+        for(int k=0; k < 20; k++) {
+            final Index2D from = new Index2D(k, k / 2), to = new Index2D(image.sizeX() - k / 3, image.sizeY() - k);
+            if(image.forkValidDouble(new Total(null), from, to).doubleValue() != image.loopValidDouble(new Total(null), from, to).doubleValue()) isOK = false;
+            if(image.forkValid(new ValidCount()).longValue() != image.loopValid(new ValidCount()).longValue()) isOK = false;
+            if(image.fork(new Diagonal(), from, to).longValue() != image.loop(new Diagonal(), from, to).longValue()) isOK = false;
+        }
+        Checks.report(name + " of new operations and ranges", isOK);
+
+        // Concurrent callers on the same data...
+        final double expected = image.loopValidDouble(new Total(null));
+        final AtomicInteger errors = new AtomicInteger();
+        final Thread[] callers = new Thread[4];
+        for(int t=callers.length; --t >= 0; ) {
+            callers[t] = new Thread() {
+                @Override
+                public void run() {
+                    final Total op = new Total(null);
+                    for(int k=0; k < 50; k++) if(image.forkValidDouble(op) != expected) errors.incrementAndGet();
+                }
+            };
+            callers[t].start();
+        }
+        for(Thread caller : callers) {
+            try { caller.join(); }
+            catch(InterruptedException e) {}
+        }
+        Checks.report(name + " from concurrent callers", errors.get() == 0, errors.get() + " errors");
+
+        // Nested forks of the same kind...
+        final long diagonal = image.loop(new Diagonal(), image.getIndexInstance(), image.getSize());
+        final long[] inner = new long[1];
+        final long outer = image.fork(new Diagonal() {
+            @Override
+            public long getCount(Index2D index) {
+                if(index.i() == 0 && index.j() == 0) inner[0] = image.fork(new Diagonal());
+                return super.getCount(index);
+            }
+        });
+        Checks.report(name + " nested", outer == diagonal && inner[0] == diagonal, "outer " + outer + ", inner " + inner[0] + ", expected " + diagonal);
+
+        // Samples and cubes...
+        final Samples1D samples = Samples1D.createType(Double.class, 5000);
+        for(int i=samples.size(); --i >= 0; ) samples.set(i, i % 17);
+        samples.setExecutor(executor);
+        samples.setParallel(4);
+
+        final Cube3D cube = Cube3D.createType(Double.class, 20, 15, 12);
+        for(int i=cube.sizeX(); --i >= 0; ) for(int j=cube.sizeY(); --j >= 0; ) for(int k=cube.sizeZ(); --k >= 0; ) cube.set(i, j, k, i + j - k);
+        cube.setExecutor(executor);
+        cube.setParallel(4);
+
+        final Total samplesOp = new Total(null), cubeOp = new Total(null);
+        isOK = true;
+        for(int k=0; k < 20; k++) {
+            samples.set(k, k);
+            cube.set(k % cube.sizeX(), 0, 0, k);
+            if(samples.forkValidDouble(samplesOp).doubleValue() != samples.loopValidDouble(new Total(null)).doubleValue()) isOK = false;
+            if(cube.forkValidDouble(cubeOp).doubleValue() != cube.loopValidDouble(new Total(null)).doubleValue()) isOK = false;
+            if(samples.forkValid(new ValidCount()).longValue() != samples.size()) isOK = false;
+            if(cube.forkValid(new ValidCount()).longValue() != cube.countPoints()) isOK = false;
+        }
+        Checks.report(name + " on samples and cubes", isOK);
+    }
+
+
+    private static class ReusableSum extends ParallelTask<Long> {
+        private int[] range = new int[1];
+        private AtomicInteger clones = new AtomicInteger(), resets = new AtomicInteger();
+        private AtomicBoolean failNext = new AtomicBoolean();
+        private long sum;
+
+        @Override
+        public ReusableSum clone() {
+            clones.incrementAndGet();
+            return (ReusableSum) super.clone();
+        }
+
+        @Override
+        protected void init() {
+            sum = 0L;
+        }
+
+        @Override
+        protected void reset() {
+            resets.incrementAndGet();
+        }
+
+        @Override
+        protected void processChunk(int index, int threadCount) {
+            if(index == 1 && failNext.getAndSet(false)) throw new IllegalStateException("chunk " + index + " failed on purpose");
+            final int n = range[0];
+            for(int i=index; i < n; i += threadCount) sum += i;
+        }
+
+        @Override
+        public Long getLocalResult() { return sum; }
+
+        @Override
+        public Long getResult() {
+            long total = 0L;
+            for(ParallelTask<Long> worker : getWorkers()) total += worker.getLocalResult();
+            return total;
+        }
+    }
+
+
+    private static class Total extends DoubleParallelPointOp.Sum {
+        private AtomicInteger copies;
+
+        private Total(AtomicInteger copies) { this.copies = copies; }
+
+        @Override
+        protected double getValue(double value) { return value; }
+
+        @Override
+        public DoubleParallelPointOp<Double> newInstance() {
+            if(copies != null) copies.incrementAndGet();
+            return super.newInstance();
+        }
+    }
+
+
+    private static class ValidCount extends ParallelPointOp.Count<Number> {
+        @Override
+        public long getCount(Number point) { return 1; }
+    }
+
+
+    private static class Diagonal extends ParallelPointOp.Count<Index2D> {
+        @Override
+        public long getCount(Index2D index) { return index.i() > index.j() ? 1 : 0; }
+    }
+
+
+    private static class Sum extends ParallelTask<Long> {
+        private int n;
+        private long sum;
+
+        private Sum(int n) { this.n = n; }
+
+        @Override
+        protected void init() {
+            sum = 0L;
+        }
+
+        @Override
+        protected void processChunk(int index, int threadCount) {
+            for(int i=index; i < n; i += threadCount) sum += i;
+        }
+
+        @Override
+        public Long getLocalResult() { return sum; }
+
+        @Override
+        public Long getResult() {
+            long total = 0L;
+            for(ParallelTask<Long> worker : getWorkers()) total += worker.getLocalResult();
+            return total;
+        }
+    }
+
+
+    private static class Failing extends Sum {
+        private Failing(int n) { super(n); }
+
+        @Override
+        protected void processChunk(int index, int threadCount) {
+            if(index == 1) throw new IllegalStateException("chunk " + index + " failed on purpose");
+            super.processChunk(index, threadCount);
+        }
+    }
+
+}
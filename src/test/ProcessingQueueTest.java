@@ -0,0 +1,51 @@
+package test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jnum.parallel.ParallelTask;
+import jnum.parallel.ProcessingQueue;
+
+public class ProcessingQueueTest {
+
+    public static void main(String[] args) throws Exception {
+        // A queue that creates its own executor must shut it down...
+        ProcessingQueue queue = new ProcessingQueue(100);
+        queue.start();
+        
+        final AtomicInteger count = new AtomicInteger();
+        for(int k=10; --k >= 0; ) queue.addProcess(() -> count.incrementAndGet());
+        queue.addSynchronization();
+        ProcessingQueue.Process last = queue.addProcess(() -> count.incrementAndGet());
+        last.waitComplete();
+        
+        Checks.report("processes completed", count.get() == 11, count.get() + " of 11");
+        
+        ExecutorService own = queue.getExecutor();
+        queue.shutdown();
+        queue.join(10000L);
+        
+        Checks.report("queue thread stopped", !queue.isAlive());
+        Checks.report("own executor shut down", own.isShutdown());
+        
+        // The fallback executor must not keep the JVM alive...
+        ExecutorService virtual = ParallelTask.newVirtualThreadExecutor();
+        final boolean[] isDaemon = new boolean[1];
+        virtual.submit(() -> isDaemon[0] = Thread.currentThread().isDaemon()).get();
+        virtual.shutdown();
+        Checks.report("thread-per-task executor uses daemon threads", isDaemon[0]);
+        
+        // A supplied executor is left to the caller...
+        ExecutorService external = ParallelTask.newDefaultParallelExecutor(2);
+        queue = new ProcessingQueue(100, external);
+        queue.start();
+        queue.addProcess(() -> count.incrementAndGet()).waitComplete();
+        queue.shutdown();
+        queue.join(10000L);
+        
+        Checks.report("supplied executor left running", !external.isShutdown());
+        external.shutdown();
+        
+        Checks.finish();
+    }
+}
@@ -0,0 +1,59 @@
+package test;
+
+import jnum.data.image.Flag2D;
+import jnum.data.image.FlatGrid2D;
+import jnum.data.image.Map2D;
+import jnum.data.image.region.GaussianSource;
+import jnum.data.image.region.SourceCatalog;
+import jnum.math.Vector2D;
+
+public class SourceCatalogTest {
+
+    public static void main(String[] args) {
+        Map2D map = new Map2D(Double.class, Flag2D.TYPE_INT);
+        map.setGrid(new FlatGrid2D());
+        map.setResolution(1.0, 1.0);
+        map.setUnderlyingBeam(3.0);
+        map.setSize(64, 48);
+        
+        final double[][] sources = { { 20.0, 15.0, 5.0 }, { 45.0, 30.0, 2.0 } };
+        final double sigma = 3.0 / 2.3548;
+        
+        for(int i=map.sizeX(); --i >= 0; ) for(int j=map.sizeY(); --j >= 0; ) {
+            double value = 0.0;
+            for(double[] s : sources) {
+                final double dx = i - s[0], dy = j - s[1];
+                value += s[2] * Math.exp(-0.5 * (dx * dx + dy * dy) / (sigma * sigma));
+            }
+            map.set(i, j, value);
+        }
+        
+        final Map2D original = map.copy(true);
+        
+        SourceCatalog catalog = new SourceCatalog(Vector2D.class);
+        int found = catalog.extract(map, 1.0);
+        
+        int errors = 0;
+        
+        // The map searched must be left untouched...
+        int changed = 0;
+        for(int i=map.sizeX(); --i >= 0; ) for(int j=map.sizeY(); --j >= 0; ) {
+            if(map.isValid(i, j) != original.isValid(i, j)) changed++;
+            else if(map.getDouble(i, j) != original.getDouble(i, j)) changed++;
+        }
+        System.err.println("input map unchanged: " + (changed == 0 ? "OK" : "FAILED (" + changed + " pixels)"));
+        if(changed > 0) errors++;
+        
+        System.err.println("sources found: " + found + (found == sources.length ? " OK" : " FAILED"));
+        if(found != sources.length) errors++;
+        
+        for(GaussianSource source : catalog) {
+            final double peak = source.getPeak().value();
+            final boolean isOK = Double.isFinite(peak) && peak > 1.0;
+            System.err.println("  peak " + peak + (isOK ? " OK" : " FAILED"));
+            if(!isOK) errors++;
+        }
+        
+        if(errors > 0) System.exit(1);
+    }
+}
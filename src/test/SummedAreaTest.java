@@ -0,0 +1,199 @@
+package test;
+
+import java.util.Random;
+
+import jnum.data.Validating;
+import jnum.data.WeightedPoint;
+import jnum.data.cube.Cube3D;
+import jnum.data.cube.Index3D;
+import jnum.data.cube.SummedArea3D;
+import jnum.data.image.Image2D;
+import jnum.data.image.Index2D;
+import jnum.data.image.SummedArea2D;
+
+public class SummedAreaTest {
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+
+        // Data with a large offset, to check against round-off in the variances...
+        Image2D image = Image2D.createType(Double.class, 37, 29);
+        Image2D weight = Image2D.createType(Double.class, 37, 29);
+        for(int i=image.sizeX(); --i >= 0; ) for(int j=image.sizeY(); --j >= 0; ) {
+            image.set(i, j, 1000.0 + random.nextGaussian());
+            weight.set(i, j, 0.5 + random.nextDouble());
+        }
+        for(int n=100; --n >= 0; ) image.discard(random.nextInt(image.sizeX()), random.nextInt(image.sizeY()));
+
+        check2D(image, null, random);
+        check2D(image, weight, random);
+
+        Cube3D cube = Cube3D.createType(Double.class, 13, 11, 9);
+        Cube3D cubeWeight = Cube3D.createType(Double.class, 13, 11, 9);
+        for(int i=cube.sizeX(); --i >= 0; ) for(int j=cube.sizeY(); --j >= 0; ) for(int k=cube.sizeZ(); --k >= 0; ) {
+            cube.set(i, j, k, 1000.0 + random.nextGaussian());
+            cubeWeight.set(i, j, k, 0.5 + random.nextDouble());
+        }
+        for(int n=100; --n >= 0; ) cube.discard(random.nextInt(cube.sizeX()), random.nextInt(cube.sizeY()), random.nextInt(cube.sizeZ()));
+
+        check3D(cube, null, random);
+        check3D(cube, cubeWeight, random);
+
+        Checks.finish();
+    }
+
+    static void check2D(Image2D image, Image2D weight, Random random) {
+        final String name = "2D " + (weight == null ? "unweighted" : "weighted") + " ";
+        final SummedArea2D table = image.getSummedArea(weight);
+        final WeightedPoint sum = new WeightedPoint(), mean = new WeightedPoint();
+
+        int countErrors = 0;
+        double maxSumDev = 0.0, maxMeanDev = 0.0, maxVarDev = 0.0;
+
+        // Random boxes, some extending beyond the image, or empty...
+        for(int n=1000; --n >= 0; ) {
+            final int fromi = random.nextInt(image.sizeX() + 10) - 5, toi = fromi + random.nextInt(15);
+            final int fromj = random.nextInt(image.sizeY() + 10) - 5, toj = fromj + random.nextInt(15);
+
+            int count = 0;
+            double sumw = 0.0, sumwx = 0.0;
+            for(int i=Math.max(0, fromi); i < Math.min(image.sizeX(), toi); i++) for(int j=Math.max(0, fromj); j < Math.min(image.sizeY(), toj); j++) {
+                if(!image.isValid(i, j)) continue;
+                final double w = weight == null ? 1.0 : weight.getDouble(i, j);
+                count++;
+                sumw += w;
+                sumwx += w * image.getDouble(i, j);
+            }
+
+            double var = 0.0;
+            for(int i=Math.max(0, fromi); i < Math.min(image.sizeX(), toi); i++) for(int j=Math.max(0, fromj); j < Math.min(image.sizeY(), toj); j++) {
+                if(!image.isValid(i, j)) continue;
+                final double w = weight == null ? 1.0 : weight.getDouble(i, j);
+                final double d = image.getDouble(i, j) - sumwx / sumw;
+                var += w * d * d;
+            }
+
+            if(table.countValid(fromi, fromj, toi, toj) != count) countErrors++;
+            if(count == 0) {
+                if(!Double.isNaN(table.getVariance(fromi, fromj, toi, toj))) countErrors++;
+                continue;
+            }
+
+            table.getSum(fromi, fromj, toi, toj, sum);
+            table.getMean(fromi, fromj, toi, toj, mean);
+
+            maxSumDev = Math.max(maxSumDev, Math.abs(sum.value() - sumwx) / sumw + Math.abs(sum.weight() - sumw));
+            maxMeanDev = Math.max(maxMeanDev, Math.abs(mean.value() - sumwx / sumw));
+            maxVarDev = Math.max(maxVarDev, Math.abs(table.getVariance(fromi, fromj, toi, toj) - var / sumw));
+        }
+
+        Checks.report(name + "box counts", countErrors == 0, countErrors + " errors");
+        Checks.report(name + "box sums", maxSumDev < 1e-9, "max deviation " + maxSumDev);
+        Checks.report(name + "box means", maxMeanDev < 1e-9, "max deviation " + maxMeanDev);
+        Checks.report(name + "box variances", maxVarDev < 1e-6, "max deviation " + maxVarDev);
+
+        // Box smoothing, for odd and even box sizes...
+        for(int size : new int[] { 3, 4 }) {
+            final Image2D smoothed = image.getBoxSmoothed(size, size, weight, null);
+            final int d = size >>> 1;
+            double maxDev = 0.0;
+
+            for(int i=image.sizeX(); --i >= 0; ) for(int j=image.sizeY(); --j >= 0; ) if(image.isValid(i, j)) {
+                table.getMean(i - d, j - d, i - d + size, j - d + size, mean);
+                maxDev = Math.max(maxDev, Math.abs(smoothed.getDouble(i, j) - mean.value()));
+            }
+            Checks.report(name + "box smoothed " + size + "x" + size, maxDev < 1e-9, "max deviation " + maxDev);
+        }
+
+        if(weight != null) return;
+
+        // Neighbor counts and validator, against direct counting in 3x3 boxes...
+        final Image2D counts = image.getNeighborCounts(3, 3);
+        final Validating<Index2D> validator = image.getNeighborValidator(5);
+        int errors = 0;
+
+        for(int i=image.sizeX(); --i >= 0; ) for(int j=image.sizeY(); --j >= 0; ) {
+            int n = 0;
+            for(int i1=Math.max(0, i-1); i1 <= Math.min(image.sizeX()-1, i+1); i1++) for(int j1=Math.max(0, j-1); j1 <= Math.min(image.sizeY()-1, j+1); j1++)
+                if((i1 != i || j1 != j) && image.isValid(i1, j1)) n++;
+
+            if(counts.get(i, j).intValue() != n) errors++;
+            if(validator.isValid(new Index2D(i, j)) != (n >= 5)) errors++;
+        }
+
+        Checks.report(name + "neighbor counts", errors == 0, errors + " errors");
+    }
+
+    static void check3D(Cube3D cube, Cube3D weight, Random random) {
+        final String name = "3D " + (weight == null ? "unweighted" : "weighted") + " ";
+        final SummedArea3D table = cube.getSummedArea(weight);
+        final WeightedPoint sum = new WeightedPoint(), mean = new WeightedPoint();
+
+        int countErrors = 0;
+        double maxSumDev = 0.0, maxMeanDev = 0.0, maxVarDev = 0.0;
+
+        for(int n=1000; --n >= 0; ) {
+            final int fromi = random.nextInt(cube.sizeX() + 6) - 3, toi = fromi + random.nextInt(8);
+            final int fromj = random.nextInt(cube.sizeY() + 6) - 3, toj = fromj + random.nextInt(8);
+            final int fromk = random.nextInt(cube.sizeZ() + 6) - 3, tok = fromk + random.nextInt(8);
+
+            int count = 0;
+            double sumw = 0.0, sumwx = 0.0;
+            for(int i=Math.max(0, fromi); i < Math.min(cube.sizeX(), toi); i++) for(int j=Math.max(0, fromj); j < Math.min(cube.sizeY(), toj); j++)
+                for(int k=Math.max(0, fromk); k < Math.min(cube.sizeZ(), tok); k++) {
+                    if(!cube.isValid(i, j, k)) continue;
+                    final double w = weight == null ? 1.0 : weight.getDouble(i, j, k);
+                    count++;
+                    sumw += w;
+                    sumwx += w * cube.getDouble(i, j, k);
+                }
+
+            double var = 0.0;
+            for(int i=Math.max(0, fromi); i < Math.min(cube.sizeX(), toi); i++) for(int j=Math.max(0, fromj); j < Math.min(cube.sizeY(), toj); j++)
+                for(int k=Math.max(0, fromk); k < Math.min(cube.sizeZ(), tok); k++) {
+                    if(!cube.isValid(i, j, k)) continue;
+                    final double w = weight == null ? 1.0 : weight.getDouble(i, j, k);
+                    final double d = cube.getDouble(i, j, k) - sumwx / sumw;
+                    var += w * d * d;
+                }
+
+            if(table.countValid(fromi, fromj, fromk, toi, toj, tok) != count) countErrors++;
+            if(count == 0) {
+                if(!Double.isNaN(table.getVariance(fromi, fromj, fromk, toi, toj, tok))) countErrors++;
+                continue;
+            }
+
+            table.getSum(fromi, fromj, fromk, toi, toj, tok, sum);
+            table.getMean(fromi, fromj, fromk, toi, toj, tok, mean);
+
+            maxSumDev = Math.max(maxSumDev, Math.abs(sum.value() - sumwx) / sumw + Math.abs(sum.weight() - sumw));
+            maxMeanDev = Math.max(maxMeanDev, Math.abs(mean.value() - sumwx / sumw));
+            maxVarDev = Math.max(maxVarDev, Math.abs(table.getVariance(fromi, fromj, fromk, toi, toj, tok) - var / sumw));
+        }
+
+        Checks.report(name + "box counts", countErrors == 0, countErrors + " errors");
+        Checks.report(name + "box sums", maxSumDev < 1e-9, "max deviation " + maxSumDev);
+        Checks.report(name + "box means", maxMeanDev < 1e-9, "max deviation " + maxMeanDev);
+        Checks.report(name + "box variances", maxVarDev < 1e-6, "max deviation " + maxVarDev);
+
+        if(weight != null) return;
+
+        // Neighbor counts and validator, against direct counting in 3x3x3 boxes...
+        final Cube3D counts = cube.getNeighborCounts(3, 3, 3);
+        final Validating<Index3D> validator = cube.getNeighborValidator(13);
+        int errors = 0;
+
+        for(int i=cube.sizeX(); --i >= 0; ) for(int j=cube.sizeY(); --j >= 0; ) for(int k=cube.sizeZ(); --k >= 0; ) {
+            int n = 0;
+            for(int i1=Math.max(0, i-1); i1 <= Math.min(cube.sizeX()-1, i+1); i1++) for(int j1=Math.max(0, j-1); j1 <= Math.min(cube.sizeY()-1, j+1); j1++)
+                for(int k1=Math.max(0, k-1); k1 <= Math.min(cube.sizeZ()-1, k+1); k1++)
+                    if((i1 != i || j1 != j || k1 != k) && cube.isValid(i1, j1, k1)) n++;
+
+            if(counts.get(i, j, k).intValue() != n) errors++;
+            if(validator.isValid(new Index3D(i, j, k)) != (n >= 13)) errors++;
+        }
+
+        Checks.report(name + "neighbor counts", errors == 0, errors + " errors");
+    }
+
+}
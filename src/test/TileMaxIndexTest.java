@@ -0,0 +1,76 @@
+package test;
+
+import java.util.Random;
+
+import jnum.data.TileMaxIndex;
+import jnum.data.image.Image2D;
+import jnum.data.image.Index2D;
+
+public class TileMaxIndexTest {
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        
+        Image2D image = Image2D.createType(Double.class, 101, 67);
+        for(int i=image.sizeX(); --i >= 0; ) for(int j=image.sizeY(); --j >= 0; ) image.set(i, j, random.nextGaussian());
+        
+        // Blank a few pixels, including a whole tile...
+        for(int i=16; i < 32; i++) for(int j=16; j < 32; j++) image.discard(i, j);
+        
+        int errors = 0;
+        
+        for(boolean isAbsolute : new boolean[] { false, true }) {
+            TileMaxIndex<Index2D> index = new TileMaxIndex<>(image, isAbsolute);
+            
+            for(int n=0; n < 1000; n++) {
+                if(!check(image, index, isAbsolute)) {
+                    errors++;
+                    break;
+                }
+                
+                // Change a small random patch, and update the index for it only...
+                final int i0 = random.nextInt(image.sizeX()) - 2, j0 = random.nextInt(image.sizeY()) - 2;
+                for(int i=Math.max(0, i0); i < Math.min(image.sizeX(), i0 + 5); i++) 
+                    for(int j=Math.max(0, j0); j < Math.min(image.sizeY(), j0 + 5); j++) 
+                        image.set(i, j, 3.0 * random.nextGaussian());
+                
+                index.update(new Index2D(i0, j0), new Index2D(i0 + 5, j0 + 5));
+            }
+            
+            System.err.println((isAbsolute ? "absolute" : "signed") + " maximum: " + (errors == 0 ? "OK" : "FAILED"));
+        }
+        
+        // Fully blanked data has no maximum...
+        image.clear();
+        for(int i=image.sizeX(); --i >= 0; ) for(int j=image.sizeY(); --j >= 0; ) image.discard(i, j);
+        TileMaxIndex<Index2D> index = new TileMaxIndex<>(image, false);
+        boolean isEmptyOK = index.getMaxIndex() == null && Double.isNaN(index.getMax());
+        System.err.println("blank data: " + (isEmptyOK ? "OK" : "FAILED"));
+        if(!isEmptyOK) errors++;
+        
+        if(errors > 0) System.exit(1);
+    }
+    
+    private static boolean check(Image2D image, TileMaxIndex<Index2D> index, boolean isAbsolute) {
+        double max = Double.NEGATIVE_INFINITY;
+        
+        for(int i=image.sizeX(); --i >= 0; ) for(int j=image.sizeY(); --j >= 0; ) if(image.isValid(i, j)) {
+            final double value = isAbsolute ? Math.abs(image.getDouble(i, j)) : image.getDouble(i, j);
+            if(value > max) max = value;
+        }
+        
+        final Index2D idx = index.getMaxIndex();
+        if(index.getMax() != max || idx == null) {
+            System.err.println("  max = " + index.getMax() + ", expected " + max);
+            return false;
+        }
+        
+        final double value = image.getDouble(idx.i(), idx.j());
+        if((isAbsolute ? Math.abs(value) : value) != max) {
+            System.err.println("  max index " + idx + " points to " + value + ", expected " + max);
+            return false;
+        }
+        
+        return true;
+    }
+}
@@ -0,0 +1,157 @@
+package test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Random;
+
+import jnum.data.Transforming;
+import jnum.data.image.FlatGrid2D;
+import jnum.data.image.Gaussian2D;
+import jnum.data.image.Image2D;
+import jnum.data.image.IndexBounds2D;
+import jnum.data.image.TiledResampler2D;
+import jnum.data.image.overlay.Referenced2D;
+import jnum.math.Vector2D;
+import nom.tam.fits.BasicHDU;
+import nom.tam.fits.Fits;
+import nom.tam.util.BufferedDataOutputStream;
+
+public class TiledResamplerTest {
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(1);
+
+        Image2D source = Image2D.createType(Double.class, 200, 150);
+        for(int i=source.sizeX(); --i >= 0; ) for(int j=source.sizeY(); --j >= 0; )
+            source.set(i, j, Math.sin(0.1 * i) * Math.cos(0.07 * j) + 0.1 * random.nextGaussian());
+        for(int k=200; --k >= 0; ) source.discard(random.nextInt(source.sizeX()), random.nextInt(source.sizeY()));
+
+        // A rotated and scaled destination grid, which extends beyond the source on some sides...
+        final Transforming<Vector2D> toSourceIndex = new Transforming<Vector2D>() {
+            @Override
+            public void transform(Vector2D v) {
+                final double x = v.x(), y = v.y();
+                v.set(0.9 * x - 0.3 * y + 30.0, 0.3 * x + 0.9 * y - 20.0);
+            }
+        };
+
+        final Referenced2D beam = new Gaussian2D(2.5).getBeam(new FlatGrid2D());
+
+        // The destination size is not divisible by the tile size...
+        final int sizeX = 173, sizeY = 131, tileSize = 37;
+
+        for(Referenced2D b : new Referenced2D[] { null, beam }) {
+            final String label = b == null ? "interpolated" : "beam-smoothed";
+
+            final Image2D full = Image2D.createType(Double.class, sizeX, sizeY);
+            full.resampleFrom(source, toSourceIndex, b, null);
+
+            final Image2D tiled = Image2D.createType(Double.class, sizeX, sizeY);
+            final TiledResampler2D resampler = new TiledResampler2D(new TiledResampler2D.ImageSource(source), toSourceIndex, b);
+            resampler.setTileSize(tileSize);
+            resampler.resample(sizeX, sizeY, new TiledResampler2D.ImageSink(tiled));
+
+            compare(label + " tiled vs. full", full, tiled, 0.0);
+
+            if(b == null) continue;
+
+            // Through FITS files, in single and double precision...
+            for(boolean isSinglePrecision : new boolean[] { false, true }) {
+                final File file = File.createTempFile("tiled", ".fits");
+                file.deleteOnExit();
+
+                TiledResampler2D.FitsSink sink = new TiledResampler2D.FitsSink(file.getPath(), sizeX, sizeY, isSinglePrecision, null);
+                resampler.resample(sizeX, sizeY, sink);
+                sink.close();
+
+                final String name = label + (isSinglePrecision ? " float" : " double") + " FITS";
+
+                Checks.report(name + " padded to FITS blocks", file.length() % 2880 == 0, file.length() + " bytes");
+
+                // Read back with nom.tam...
+                Fits fits = new Fits(file);
+                BasicHDU<?> hdu = fits.readHDU();
+                final Object data = hdu.getKernel();
+                final Image2D read = Image2D.createType(Double.class, sizeX, sizeY);
+                for(int i=sizeX; --i >= 0; ) for(int j=sizeY; --j >= 0; ) {
+                    final double value = isSinglePrecision ? ((float[][]) data)[j][i] : ((double[][]) data)[j][i];
+                    if(Double.isNaN(value)) read.discard(i, j);
+                    else read.setDouble(i, j, value);
+                }
+                fits.close();
+
+                compare(name + " via nom.tam", full, read, isSinglePrecision ? 1e-6 : 0.0);
+
+                // And as a tiled source...
+                TiledResampler2D.FitsSource fitsSource = new TiledResampler2D.FitsSource(file.getPath());
+                Checks.report(name + " source size", fitsSource.sizeX() == sizeX && fitsSource.sizeY() == sizeY);
+                final Image2D region = fitsSource.getRegion(new IndexBounds2D(40, 30, 111, 97));
+                fitsSource.close();
+
+                double maxDev = 0.0;
+                int mismatches = 0;
+                for(int i=region.sizeX(); --i >= 0; ) for(int j=region.sizeY(); --j >= 0; ) {
+                    if(region.isValid(i, j) != read.isValid(i + 40, j + 30)) mismatches++;
+                    else if(region.isValid(i, j)) maxDev = Math.max(maxDev, Math.abs(region.getDouble(i, j) - read.getDouble(i + 40, j + 30)));
+                }
+                Checks.report(name + " source region", maxDev == 0.0 && mismatches == 0, "max deviation " + maxDev + ", " + mismatches + " blanking mismatches");
+            }
+        }
+
+        checkScaledSource(random);
+
+        Checks.finish();
+    }
+
+    // A FITS source of scaled integers, with blanks...
+    static void checkScaledSource(Random random) throws Exception {
+        final int nx = 50, ny = 40;
+        final short blank = Short.MIN_VALUE;
+        final short[][] data = new short[ny][nx];
+        for(int j=ny; --j >= 0; ) for(int i=nx; --i >= 0; ) data[j][i] = (short) (random.nextInt(20000) - 10000);
+        for(int k=50; --k >= 0; ) data[random.nextInt(ny)][random.nextInt(nx)] = blank;
+
+        final File file = File.createTempFile("scaled", ".fits");
+        file.deleteOnExit();
+
+        Fits fits = new Fits();
+        BasicHDU<?> hdu = Fits.makeHDU(data);
+        hdu.addValue("BSCALE", 0.5, "");
+        hdu.addValue("BZERO", 10.0, "");
+        hdu.addValue("BLANK", blank, "");
+        fits.addHDU(hdu);
+        BufferedDataOutputStream out = new BufferedDataOutputStream(new FileOutputStream(file));
+        fits.write(out);
+        out.close();
+        fits.close();
+
+        TiledResampler2D.FitsSource source = new TiledResampler2D.FitsSource(file.getPath());
+        final Image2D region = source.getRegion(new IndexBounds2D(7, 5, 43, 31));
+        source.close();
+
+        int errors = 0;
+        for(int i=region.sizeX(); --i >= 0; ) for(int j=region.sizeY(); --j >= 0; ) {
+            final short raw = data[j + 5][i + 7];
+            if(raw == blank) { if(region.isValid(i, j)) errors++; }
+            else if(region.getDouble(i, j) != 10.0 + 0.5 * raw) errors++;
+        }
+
+        Checks.report("scaled integer FITS source", errors == 0, errors + " errors");
+    }
+
+    static void compare(String name, Image2D a, Image2D b, double tolerance) {
+        double maxDev = 0.0;
+        int mismatches = 0, valid = 0;
+
+        for(int i=a.sizeX(); --i >= 0; ) for(int j=a.sizeY(); --j >= 0; ) {
+            if(a.isValid(i, j) != b.isValid(i, j)) mismatches++;
+            else if(a.isValid(i, j)) {
+                valid++;
+                maxDev = Math.max(maxDev, Math.abs(a.getDouble(i, j) - b.getDouble(i, j)));
+            }
+        }
+
+        Checks.report(name, maxDev <= tolerance && mismatches == 0 && valid > 0,
+                "max deviation " + maxDev + ", " + mismatches + " blanking mismatches, " + valid + " valid");
+    }
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Attila Kovacs <attila[AT]sigmyne.com>.
+ * All rights reserved.
+ *
+ * This file is part of jnum.
+ *
+ *     jnum is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     jnum is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with jnum.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Attila Kovacs <attila[AT]sigmyne.com> - initial API and implementation
+ ******************************************************************************/
+package test;
+
+import jnum.Util;
+import jnum.fft.DoubleFFT;
+import jnum.fft.FFT1D;
+import jnum.fft.FloatFFT;
+
+/**
+ * Compares the speed of the scalar and the SIMD (Vector API) radix kernels of single-threaded {@link DoubleFFT} and 
+ * {@link FloatFFT} complex transforms, for a range of sizes. The SIMD kernels are available only when jnum is built 
+ * by the <code>build-jdk21</code> target, and if the JVM is started with 
+ * <code>--add-modules jdk.incubator.vector</code>. Otherwise, both measurements use the scalar kernels.
+ * <p>
+ * 
+ * Usage: <code>java --add-modules jdk.incubator.vector test.VectorFFTBenchmark [minbits] [maxbits]</code>
+ * 
+ * @author Attila Kovacs <attila@sigmyne.com>
+ *
+ */
+public class VectorFFTBenchmark {
+
+	public static void main(String[] args) {
+		final int minBits = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		final int maxBits = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		
+		System.err.println("SIMD kernels available: " + FFT1D.isVectorKernelAvailable());
+		
+		final DoubleFFT dfft = new DoubleFFT();
+		final FloatFFT ffft = new FloatFFT();
+		dfft.setParallel(1);
+		ffft.setParallel(1);
+		
+		for(int bits = minBits; bits <= maxBits; bits++) {
+			final int n = 1 << bits;
+			final int repeats = Math.max(10, (1 << 24) / n);
+			
+			final double[] d = new double[n << 1];
+			final float[] f = new float[n << 1];
+			for(int i=d.length; --i >= 0; ) f[i] = (float) (d[i] = Math.random());
+			
+			final double dScalar = speed(dfft, d, repeats, false);
+			final double dVector = speed(dfft, d, repeats, true);
+			final double fScalar = speed(ffft, f, repeats, false);
+			final double fVector = speed(ffft, f, repeats, true);
+			
+			System.err.println(n + " points: double " + Util.f1.format(dScalar) + " / " + Util.f1.format(dVector) 
+					+ " FFTs/s (x" + Util.f2.format(dVector / dScalar) + "), float " + Util.f1.format(fScalar) 
+					+ " / " + Util.f1.format(fVector) + " FFTs/s (x" + Util.f2.format(fVector / fScalar) + ")");
+		}
+	}
+	
+	// The best of 3 runs, after a warmup run, in transforms per second. 
+	private static double speed(DoubleFFT fft, double[] data, int repeats, boolean isVectorized) {
+		FFT1D.useVectorKernels = isVectorized;
+		long best = Long.MAX_VALUE;
+		
+		for(int run=0; run < 4; run++) {
+			long time = -System.nanoTime();
+			for(int k=repeats; --k >= 0; ) fft.complexTransform(data, (k & 1) == 0);
+			time += System.nanoTime();
+			if(run > 0) best = Math.min(best, time);
+		}
+		
+		return repeats / (1e-9 * best);
+	}
+	
+	private static double speed(FloatFFT fft, float[] data, int repeats, boolean isVectorized) {
+		FFT1D.useVectorKernels = isVectorized;
+		long best = Long.MAX_VALUE;
+		
+		for(int run=0; run < 4; run++) {
+			long time = -System.nanoTime();
+			for(int k=repeats; --k >= 0; ) fft.complexTransform(data, (k & 1) == 0);
+			time += System.nanoTime();
+			if(run > 0) best = Math.min(best, time);
+		}
+		
+		return repeats / (1e-9 * best);
+	}
+}